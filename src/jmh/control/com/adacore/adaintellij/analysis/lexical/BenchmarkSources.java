@@ -0,0 +1,186 @@
+package com.adacore.adaintellij.analysis.lexical;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Input texts for benchmarks, either read from the Ada source
+ * files used by lexer tests or synthesized at a given scale.
+ */
+public final class BenchmarkSources {
+
+	/*
+		Constants
+	*/
+
+	/**
+	 * Prefix of input names denoting synthetic sources, followed by
+	 * the minimum length of the source in kilo-characters
+	 * (e.g. "synthetic-64k").
+	 */
+	static final String SYNTHETIC_PREFIX = "synthetic-";
+
+	/**
+	 * The seed of synthetic source generation, so that all benchmark
+	 * runs lex the exact same text.
+	 */
+	private static final long SYNTHETIC_SEED = 0xADA;
+
+	/**
+	 * Building blocks of synthetic sources.
+	 */
+	private static final String[] IDENTIFIERS = {
+		"Count", "Index", "Buffer_Length", "Élément", "Next_Node", "X", "Total_Sum", "Is_Valid", "Δelta"
+	};
+	private static final String[] TYPES = {
+		"Integer", "Natural", "Float", "Boolean", "Character", "String"
+	};
+	private static final String[] ATTRIBUTES = {
+		"First", "Last", "Length", "Image", "Access", "Range", "Succ"
+	};
+	private static final String[] LITERALS = {
+		"0", "42", "1_000_000", "3.141_592", "16#FF_FF#", "2#1010#E4", "1.0E-6", "'a'", "'''", "\"Hello, \"\"World\"\"!\""
+	};
+
+	/**
+	 * Private default constructor to prevent instantiation.
+	 */
+	private BenchmarkSources() {}
+
+	/**
+	 * Returns the benchmark input with the given name: either the
+	 * contents of the test Ada source file with that name, or a
+	 * synthetic source if the name starts with SYNTHETIC_PREFIX.
+	 *
+	 * @param name The name of the input.
+	 * @return The input text.
+	 * @throws IOException If a problem occurs while reading a source file.
+	 */
+	@NotNull
+	public static String input(@NotNull String name) throws IOException {
+
+		if (name.startsWith(SYNTHETIC_PREFIX)) {
+
+			String size = name.substring(SYNTHETIC_PREFIX.length(), name.length() - 1);
+
+			int length = Integer.parseInt(size) * (name.endsWith("m") ? 1024 * 1024 : 1024);
+
+			return syntheticSource(length);
+
+		}
+
+		InputStream stream = BenchmarkSources.class.getResourceAsStream("/ada-sources/" + name);
+
+		if (stream == null) {
+			throw new FileNotFoundException("No benchmark source named " + name);
+		}
+
+		try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+
+			StringBuilder textBuilder = new StringBuilder();
+
+			char[] buffer = new char[4096];
+
+			for (int read = reader.read(buffer) ; read != -1 ; read = reader.read(buffer)) {
+				textBuilder.append(buffer, 0, read);
+			}
+
+			return textBuilder.toString();
+
+		}
+
+	}
+
+	/**
+	 * Returns a deterministic synthetic Ada source of at least the given
+	 * length, made of subprograms mixing declarations, statements,
+	 * literals of all kinds, attribute references and comments.
+	 *
+	 * @param length The minimum length of the source.
+	 * @return The synthetic source.
+	 */
+	@NotNull
+	public static String syntheticSource(int length) {
+
+		Random random = new Random(SYNTHETIC_SEED);
+
+		StringBuilder source = new StringBuilder(length + 1024);
+
+		source.append("with Ada.Text_IO; use Ada.Text_IO;\n\npackage body Synthetic is\n\n");
+
+		for (int subprogram = 0 ; source.length() < length ; subprogram++) {
+
+			source.append("   -- Subprogram number ").append(subprogram).append('\n');
+			source.append("   procedure Process_").append(subprogram).append(" (")
+				.append(pick(random, IDENTIFIERS)).append(" : in out ")
+				.append(pick(random, TYPES)).append(") is\n");
+
+			for (int declaration = random.nextInt(4) ; declaration >= 0 ; declaration--) {
+				source.append("      ").append(pick(random, IDENTIFIERS)).append('_').append(declaration)
+					.append(" : constant ").append(pick(random, TYPES)).append(" := ")
+					.append(pick(random, LITERALS)).append(";\n");
+			}
+
+			source.append("   begin\n");
+
+			for (int statement = random.nextInt(6) ; statement >= 0 ; statement--) {
+
+				String identifier = pick(random, IDENTIFIERS);
+
+				switch (random.nextInt(4)) {
+
+					case 0:
+						source.append("      if ").append(identifier).append(" /= ")
+							.append(pick(random, LITERALS)).append(" then\n         ")
+							.append(identifier).append(" := ").append(identifier)
+							.append(" + 1;\n      end if;\n");
+						break;
+
+					case 1:
+						source.append("      for I in ").append(pick(random, TYPES)).append('\'')
+							.append(pick(random, ATTRIBUTES)).append(" loop\n         Put_Line (")
+							.append(pick(random, TYPES)).append("'Image (I)); -- Élément courant\n")
+							.append("      end loop;\n");
+						break;
+
+					case 2:
+						source.append("      ").append(identifier).append(" := ").append(identifier)
+							.append('\'').append(pick(random, ATTRIBUTES)).append(" * ")
+							.append(pick(random, LITERALS)).append(" ** 2;\n");
+						break;
+
+					default:
+						source.append("      Put_Line (").append(pick(random, LITERALS))
+							.append(" & ").append(identifier).append("'Img);\n");
+						break;
+
+				}
+
+			}
+
+			source.append("   end Process_").append(subprogram).append(";\n\n");
+
+		}
+
+		source.append("end Synthetic;\n");
+
+		return source.toString();
+
+	}
+
+	/**
+	 * Returns a random element of the given array.
+	 *
+	 * @param random The random generator to use.
+	 * @param elements The elements to pick from.
+	 * @return The picked element.
+	 */
+	@NotNull
+	private static String pick(@NotNull Random random, @NotNull String[] elements) {
+		return elements[random.nextInt(elements.length)];
+	}
+
+}
@@ -0,0 +1,172 @@
+package com.adacore.adaintellij.analysis.lexical;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmark measuring the throughput of the Ada and GPR file
+ * lexers, in characters and tokens per second.
+ * Run with the JMH "gc" profiler (the default of the `jmh` Gradle
+ * task) to also measure the allocation rate of lexing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+
+	/*
+		Parameters
+	*/
+
+	/**
+	 * The name of the input to lex: a test Ada source file or
+	 * a synthetic source of a given size.
+	 */
+	@Param({
+		"hello-world.adb",
+		"code-with-comments.adb",
+		"keywords.adb",
+		"literals.adb",
+		"attributes.adb",
+		"synthetic-64k",
+		"synthetic-1m"
+	})
+	public String input;
+
+	/*
+		Fields
+	*/
+
+	/**
+	 * The text to lex.
+	 */
+	private String text;
+
+	/**
+	 * The lexers to benchmark, reused across invocations
+	 * as they are by IntelliJ.
+	 */
+	private final Lexer ADA_LEXER = new AdaLexer();
+	private final Lexer GPR_LEXER = new GPRFileLexer();
+
+	/**
+	 * Auxiliary counters reporting the number of characters
+	 * and tokens lexed per second.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Throughput {
+
+		/**
+		 * The number of characters lexed.
+		 */
+		public long characters;
+
+		/**
+		 * The number of tokens lexed.
+		 */
+		public long tokens;
+
+		/**
+		 * Resets counters before every iteration.
+		 */
+		@Setup(Level.Iteration)
+		public void reset() {
+			characters = 0;
+			tokens     = 0;
+		}
+
+	}
+
+	/**
+	 * Loads the input text.
+	 *
+	 * @throws IOException If a problem occurs while reading the input.
+	 */
+	@Setup
+	public void setUp() throws IOException {
+		text = BenchmarkSources.input(input);
+	}
+
+	/**
+	 * Lexes the whole text with the given lexer and records the
+	 * number of lexed characters and tokens.
+	 *
+	 * @param lexer The lexer to use.
+	 * @param throughput The throughput counters to update.
+	 * @return The sum of token end offsets, to prevent dead-code elimination.
+	 */
+	private long lex(Lexer lexer, Throughput throughput) {
+
+		lexer.start(text, 0, text.length(), 0);
+
+		long offsets = 0;
+		int  tokens  = 0;
+
+		while (lexer.getTokenType() != null) {
+			offsets += lexer.getTokenEnd();
+			tokens++;
+			lexer.advance();
+		}
+
+		throughput.characters += text.length();
+		throughput.tokens     += tokens;
+
+		return offsets;
+
+	}
+
+	/**
+	 * Lexes the input text with the Ada lexer.
+	 *
+	 * @param throughput The throughput counters to update.
+	 * @return A value depending on all lexed tokens.
+	 */
+	@Benchmark
+	public long adaLexer(Throughput throughput) {
+		return lex(ADA_LEXER, throughput);
+	}
+
+	/**
+	 * Lexes the input text with the GPR file lexer.
+	 *
+	 * @param throughput The throughput counters to update.
+	 * @return A value depending on all lexed tokens.
+	 */
+	@Benchmark
+	public long gprFileLexer(Throughput throughput) {
+		return lex(GPR_LEXER, throughput);
+	}
+
+	/**
+	 * Iterates over the tokens of the input text returned
+	 * by `Lexer.textTokens`.
+	 *
+	 * @param throughput The throughput counters to update.
+	 * @param blackhole Sink for iterated tokens.
+	 */
+	@Benchmark
+	public void textTokens(Throughput throughput, Blackhole blackhole) {
+
+		Iterator<Lexer.Token> iterator = Lexer.textTokens(text);
+
+		int tokens = 0;
+
+		while (iterator.hasNext()) {
+			blackhole.consume(iterator.next());
+			tokens++;
+		}
+
+		throughput.characters += text.length();
+		throughput.tokens     += tokens;
+
+	}
+
+}
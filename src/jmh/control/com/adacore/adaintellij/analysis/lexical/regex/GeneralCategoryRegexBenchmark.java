@@ -0,0 +1,108 @@
+package com.adacore.adaintellij.analysis.lexical.regex;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmark measuring the cost of classifying characters with
+ * general category regexes, compared to the pattern-based matching
+ * previously used by the GeneralCategoryRegex class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneralCategoryRegexBenchmark {
+
+	/*
+		Constants
+	*/
+
+	/**
+	 * Sample characters classified by every benchmark invocation.
+	 */
+	private static final String ASCII_CHARACTERS     = "Package_Body Ada.Text_IO is 0123456789 (X'Access);";
+	private static final String NON_LATIN_CHARACTERS = "Δελτα_Функция_関数_١٢٣_ǅʰ €∑";
+
+	/*
+		Parameters
+	*/
+
+	/**
+	 * The general category to match.
+	 */
+	@Param({ "Ll", "Lu", "Nd" })
+	public String category;
+
+	/**
+	 * The set of characters to classify.
+	 */
+	@Param({ "ascii", "non-latin" })
+	public String characters;
+
+	/*
+		Fields
+	*/
+
+	/**
+	 * The characters to classify.
+	 */
+	private char[] sample;
+
+	/**
+	 * The general category regex matching the benchmarked category.
+	 */
+	private LexerRegex regex;
+
+	/**
+	 * The pattern matching the benchmarked category.
+	 */
+	private Pattern pattern;
+
+	/**
+	 * Sets up the regex and pattern for the benchmarked category.
+	 */
+	@Setup
+	public void setUp() {
+		sample  = ("ascii".equals(characters) ? ASCII_CHARACTERS : NON_LATIN_CHARACTERS).toCharArray();
+		regex   = new GeneralCategoryRegex(category);
+		pattern = Pattern.compile(String.format("\\p{%s}", category));
+	}
+
+	/**
+	 * Classifies the sample characters using a general category regex.
+	 *
+	 * @param blackhole Sink for classification results.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(64)
+	public void lookupTable(Blackhole blackhole) {
+
+		for (int i = 0 ; i < 64 ; i++) {
+			blackhole.consume(regex.advanced(sample[i % sample.length]));
+		}
+
+	}
+
+	/**
+	 * Classifies the sample characters by matching them against a
+	 * compiled pattern, as GeneralCategoryRegex used to.
+	 *
+	 * @param blackhole Sink for classification results.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(64)
+	public void pattern(Blackhole blackhole) {
+
+		for (int i = 0 ; i < 64 ; i++) {
+			blackhole.consume(pattern.matcher(String.valueOf(sample[i % sample.length])).find());
+		}
+
+	}
+
+}
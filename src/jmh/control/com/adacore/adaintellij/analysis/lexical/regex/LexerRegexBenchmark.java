@@ -0,0 +1,148 @@
+package com.adacore.adaintellij.analysis.lexical.regex;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmark measuring the cost of matching a character sequence
+ * by successive derivation with each LexerRegex implementation.
+ * Run with the JMH "gc" profiler (the default of the `jmh` Gradle
+ * task) to also measure the allocation rate of derivation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerRegexBenchmark {
+
+	/*
+		Constants
+	*/
+
+	/**
+	 * Regex matching a lowercase ASCII letter.
+	 */
+	private static final LexerRegex LETTER_REGEX = UnionRegex.fromRange('a', 'z');
+
+	/*
+		Parameters
+	*/
+
+	/**
+	 * The regex implementation to benchmark.
+	 */
+	@Param({
+		"unit",
+		"union",
+		"concatenation",
+		"zero-or-one",
+		"zero-or-more",
+		"one-or-more",
+		"intersection",
+		"not",
+		"general-category"
+	})
+	public String implementation;
+
+	/*
+		Fields
+	*/
+
+	/**
+	 * The regex to match.
+	 */
+	private LexerRegex regex;
+
+	/**
+	 * The sequence of characters matched by the regex.
+	 */
+	private char[] sequence;
+
+	/**
+	 * Sets up the regex and sequence for the benchmarked implementation.
+	 */
+	@Setup
+	public void setUp() {
+
+		String matched;
+
+		switch (implementation) {
+
+			case "unit":
+				regex   = new UnitRegex("procedure");
+				matched = "procedure";
+				break;
+
+			case "union":
+				regex   = LETTER_REGEX;
+				matched = "q";
+				break;
+
+			case "concatenation":
+				regex   = ConcatenationRegex.fromRegexes(LETTER_REGEX, new UnitRegex("_"), LETTER_REGEX);
+				matched = "a_z";
+				break;
+
+			case "zero-or-one":
+				regex   = new ConcatenationRegex(new ZeroOrOneRegex(new UnitRegex("-")), LETTER_REGEX);
+				matched = "-x";
+				break;
+
+			case "zero-or-more":
+				regex   = new ZeroOrMoreRegex(LETTER_REGEX);
+				matched = "identifier";
+				break;
+
+			case "one-or-more":
+				regex   = new OneOrMoreRegex(LETTER_REGEX);
+				matched = "identifier";
+				break;
+
+			case "intersection":
+				regex   = new IntersectionRegex(new OneOrMoreRegex(LETTER_REGEX), new UnitRegex("identifier"));
+				matched = "identifier";
+				break;
+
+			case "not":
+				regex   = new NotRegex(new UnitRegex("\""));
+				matched = "x";
+				break;
+
+			case "general-category":
+				regex   = new OneOrMoreRegex(new GeneralCategoryRegex("L"));
+				matched = "Élémentδ";
+				break;
+
+			default:
+				throw new IllegalArgumentException("Unknown regex implementation: " + implementation);
+
+		}
+
+		sequence = matched.toCharArray();
+
+	}
+
+	/**
+	 * Matches the sequence by advancing the regex on every character,
+	 * as the lexers did before using precompiled automata.
+	 *
+	 * @return Whether or not the sequence was matched.
+	 */
+	@Benchmark
+	public boolean match() {
+
+		LexerRegex current = regex;
+
+		for (char character : sequence) {
+			current = current.advanced(character);
+			if (current == null) { return false; }
+		}
+
+		return current.nullable();
+
+	}
+
+}
@@ -0,0 +1,249 @@
+package com.adacore.adaintellij.lsp;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+
+import org.eclipse.lsp4j.*;
+import org.eclipse.lsp4j.jsonrpc.json.MessageJsonHandler;
+
+import com.adacore.adaintellij.analysis.lexical.BenchmarkSources;
+
+/**
+ * JMH benchmark comparing document synchronization strategies on
+ * recorded edit traces: sending merged incremental changes, always
+ * sending the full text, and choosing between the two adaptively as
+ * `AdaLSPServer#didChange` does.
+ *
+ * Each invocation records the edits of a trace in a change batch,
+ * builds and serializes the resulting `textDocument/didChange`
+ * parameters, and applies them to the previous text of the document
+ * as a server would, so the measured time covers the client, the wire
+ * and the server. The number of serialized characters is reported as
+ * an auxiliary counter.
+ *
+ * @see EditTraces
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentSyncBenchmark {
+
+	/*
+		Parameters
+	*/
+
+	/**
+	 * The name of the edit trace to replay.
+	 */
+	@Param({
+		EditTraces.TYPING,
+		EditTraces.PASTE,
+		EditTraces.REFORMAT,
+		EditTraces.REPLACE_ALL
+	})
+	public String trace;
+
+	/**
+	 * The name of the edited source.
+	 */
+	@Param({ "synthetic-64k", "synthetic-1m" })
+	public String input;
+
+	/*
+		Fields
+	*/
+
+	/**
+	 * The text of the document before and after the edits of the trace.
+	 */
+	private String baseText;
+	private String editedText;
+
+	/**
+	 * The edits of the trace.
+	 */
+	private List<EditTraces.Edit> edits;
+
+	/**
+	 * LSP4J's JSON serializer, as used to send notifications.
+	 */
+	private final Gson GSON = new MessageJsonHandler(Collections.emptyMap()).getGson();
+
+	/**
+	 * Auxiliary counters reporting the size of sent notifications.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Payload {
+
+		/**
+		 * The number of serialized characters.
+		 */
+		public long characters;
+
+		/**
+		 * The number of sent content change events.
+		 */
+		public long changeEvents;
+
+		/**
+		 * Resets counters before every iteration.
+		 */
+		@Setup(Level.Iteration)
+		public void reset() {
+			characters   = 0;
+			changeEvents = 0;
+		}
+
+	}
+
+	/**
+	 * Loads the source and applies the trace to it.
+	 *
+	 * @throws IOException If a problem occurs while reading the source.
+	 */
+	@Setup
+	public void setUp() throws IOException {
+
+		baseText = BenchmarkSources.input(input);
+		edits    = EditTraces.trace(trace, baseText);
+
+		StringBuilder text = new StringBuilder(baseText);
+
+		edits.forEach(edit -> edit.applyTo(text));
+
+		editedText = text.toString();
+
+	}
+
+	/**
+	 * Records the edits of the trace in a change batch.
+	 *
+	 * @return The change batch.
+	 */
+	private ContentChangeBatch recordEdits() {
+
+		ContentChangeBatch batch = new ContentChangeBatch(baseText);
+
+		edits.forEach(edit -> batch.addChange(edit.offset, edit.oldLength, edit.newText.length()));
+
+		return batch;
+
+	}
+
+	/**
+	 * Serializes the given content change events as the parameters of
+	 * a `textDocument/didChange` notification, then applies them to the
+	 * previous text of the document, as a server would.
+	 *
+	 * @param changeEvents The content change events to send.
+	 * @param payload The payload counters to update.
+	 * @return The text of the document on the server.
+	 */
+	private String send(List<TextDocumentContentChangeEvent> changeEvents, Payload payload) {
+
+		DidChangeTextDocumentParams params = new DidChangeTextDocumentParams(
+			new VersionedTextDocumentIdentifier("file:///benchmark.adb", 2), changeEvents);
+
+		String json = GSON.toJson(params);
+
+		payload.characters   += json.length();
+		payload.changeEvents += changeEvents.size();
+
+		DidChangeTextDocumentParams receivedParams =
+			GSON.fromJson(json, DidChangeTextDocumentParams.class);
+
+		StringBuilder serverText = new StringBuilder(baseText);
+
+		for (TextDocumentContentChangeEvent changeEvent : receivedParams.getContentChanges()) {
+
+			if (changeEvent.getRange() == null) {
+				serverText.replace(0, serverText.length(), changeEvent.getText());
+				continue;
+			}
+
+			int start = offset(serverText, changeEvent.getRange().getStart());
+			int end   = offset(serverText, changeEvent.getRange().getEnd());
+
+			serverText.replace(start, end, changeEvent.getText());
+
+		}
+
+		return serverText.toString();
+
+	}
+
+	/**
+	 * Returns the offset of the given position in the given text.
+	 *
+	 * @param text The text.
+	 * @param position The position.
+	 * @return The corresponding offset.
+	 */
+	private static int offset(CharSequence text, Position position) {
+
+		int offset = 0;
+
+		for (int line = 0 ; line < position.getLine() ; offset++) {
+			if (text.charAt(offset) == '\n') { line++; }
+		}
+
+		return offset + position.getCharacter();
+
+	}
+
+	/**
+	 * Sends the merged changes of the trace.
+	 *
+	 * @param payload The payload counters to update.
+	 * @return The text of the document on the server.
+	 */
+	@Benchmark
+	public String incremental(Payload payload) {
+		return send(recordEdits().toContentChangeEvents(editedText), payload);
+	}
+
+	/**
+	 * Sends the full text of the edited document.
+	 *
+	 * @param payload The payload counters to update.
+	 * @return The text of the document on the server.
+	 */
+	@Benchmark
+	public String full(Payload payload) {
+
+		recordEdits();
+
+		return send(Collections.singletonList(new TextDocumentContentChangeEvent(editedText)), payload);
+
+	}
+
+	/**
+	 * Sends either the merged changes of the trace or the full text of
+	 * the edited document, whichever the cost model deems cheaper.
+	 *
+	 * @param payload The payload counters to update.
+	 * @return The text of the document on the server.
+	 */
+	@Benchmark
+	public String adaptive(Payload payload) {
+
+		ContentChangeBatch batch = recordEdits();
+
+		return send(
+			batch.fullSyncCheaper(editedText.length()) ?
+				Collections.singletonList(new TextDocumentContentChangeEvent(editedText)) :
+				batch.toContentChangeEvents(editedText),
+			payload
+		);
+
+	}
+
+}
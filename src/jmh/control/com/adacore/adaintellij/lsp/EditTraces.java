@@ -0,0 +1,243 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.*;
+import java.util.regex.*;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Deterministic traces of document edits, reproducing typical editing
+ * sessions on a given source, for document synchronization benchmarks.
+ */
+final class EditTraces {
+
+	/*
+		Constants
+	*/
+
+	/**
+	 * The names of the available traces:
+	 *
+	 * typing      => Words typed at a few places, with some backspaces.
+	 * paste       => A single large block of code pasted in the middle.
+	 * reformat    => The indentation of every line changed.
+	 * replace-all => Every occurrence of an identifier renamed.
+	 */
+	static final String TYPING      = "typing";
+	static final String PASTE       = "paste";
+	static final String REFORMAT    = "reformat";
+	static final String REPLACE_ALL = "replace-all";
+
+	/**
+	 * The seed of trace generation, so that all benchmark runs replay
+	 * the exact same edits.
+	 */
+	private static final long TRACE_SEED = 0xADA;
+
+	/**
+	 * Private default constructor to prevent instantiation.
+	 */
+	private EditTraces() {}
+
+	/**
+	 * A document edit, replacing a range of the document, as it is
+	 * before the edit, by some text.
+	 */
+	static final class Edit {
+
+		/**
+		 * The start offset and length of the replaced range.
+		 */
+		final int offset;
+		final int oldLength;
+
+		/**
+		 * The replacing text.
+		 */
+		@NotNull
+		final String newText;
+
+		/**
+		 * Constructs a new Edit.
+		 *
+		 * @param offset The start offset of the replaced range.
+		 * @param oldLength The length of the replaced range.
+		 * @param newText The replacing text.
+		 */
+		Edit(int offset, int oldLength, @NotNull String newText) {
+			this.offset    = offset;
+			this.oldLength = oldLength;
+			this.newText   = newText;
+		}
+
+		/**
+		 * Applies this edit to the given text.
+		 *
+		 * @param text The text to edit.
+		 */
+		void applyTo(@NotNull StringBuilder text) {
+			text.replace(offset, offset + oldLength, newText);
+		}
+
+	}
+
+	/**
+	 * Returns the trace with the given name, applied in order to the
+	 * given source.
+	 *
+	 * @param name The name of the trace.
+	 * @param source The source to which the trace applies.
+	 * @return The edits of the trace.
+	 */
+	@NotNull
+	static List<Edit> trace(@NotNull String name, @NotNull String source) {
+
+		switch (name) {
+
+			case TYPING:      return typing(source);
+			case PASTE:       return paste(source);
+			case REFORMAT:    return reformat(source);
+			case REPLACE_ALL: return replaceAll(source);
+
+			default: throw new IllegalArgumentException("No edit trace named " + name);
+
+		}
+
+	}
+
+	/**
+	 * Returns a trace typing a few statements, character by character,
+	 * at random places of the given source, with occasional backspaces.
+	 *
+	 * @param source The source to edit.
+	 * @return The edits of the trace.
+	 */
+	@NotNull
+	private static List<Edit> typing(@NotNull String source) {
+
+		Random     random = new Random(TRACE_SEED);
+		List<Edit> edits  = new ArrayList<>();
+
+		String statement = "      Total_Sum := Total_Sum + Count'Length;\n";
+
+		for (int burst = 0 ; burst < 4 ; burst++) {
+
+			int cursor = source.indexOf('\n', random.nextInt(source.length())) + 1;
+
+			for (int index = 0 ; index < statement.length() ; index++) {
+
+				// Mistype and correct about one character in ten
+
+				if (random.nextInt(10) == 0) {
+					edits.add(new Edit(cursor, 0, "x"));
+					edits.add(new Edit(cursor, 1, ""));
+				}
+
+				edits.add(new Edit(cursor, 0, statement.substring(index, index + 1)));
+
+				cursor++;
+
+			}
+
+			source = source.substring(0, cursor - statement.length()) + statement +
+				source.substring(cursor - statement.length());
+
+		}
+
+		return edits;
+
+	}
+
+	/**
+	 * Returns a trace pasting a quarter of the given source in its
+	 * middle.
+	 *
+	 * @param source The source to edit.
+	 * @return The edits of the trace.
+	 */
+	@NotNull
+	private static List<Edit> paste(@NotNull String source) {
+
+		int middle = source.indexOf('\n', source.length() / 2) + 1;
+
+		return Collections.singletonList(new Edit(middle, 0, source.substring(0, source.length() / 4)));
+
+	}
+
+	/**
+	 * Returns a trace changing the indentation of every line of the given
+	 * source from multiples of three to multiples of four spaces, as
+	 * IntelliJ's formatter does, one line at a time from the end.
+	 *
+	 * @param source The source to edit.
+	 * @return The edits of the trace.
+	 */
+	@NotNull
+	private static List<Edit> reformat(@NotNull String source) {
+
+		List<Edit> edits = new ArrayList<>();
+
+		Matcher matcher = Pattern.compile("(?m)^( {3})+").matcher(source);
+
+		while (matcher.find()) {
+
+			int indentation = matcher.end() - matcher.start();
+
+			edits.add(new Edit(matcher.start(), indentation, spaces(indentation / 3 * 4)));
+
+		}
+
+		Collections.reverse(edits);
+
+		return edits;
+
+	}
+
+	/**
+	 * Returns a trace renaming every occurrence of an identifier in the
+	 * given source, from the start, as IntelliJ's replace-all does.
+	 *
+	 * @param source The source to edit.
+	 * @return The edits of the trace.
+	 */
+	@NotNull
+	private static List<Edit> replaceAll(@NotNull String source) {
+
+		List<Edit> edits = new ArrayList<>();
+
+		String identifier  = "Count";
+		String replacement = "Item_Count";
+
+		int shift = 0;
+
+		for (
+			int offset = source.indexOf(identifier) ;
+			offset >= 0 ;
+			offset = source.indexOf(identifier, offset + identifier.length())
+		) {
+			edits.add(new Edit(offset + shift, identifier.length(), replacement));
+			shift += replacement.length() - identifier.length();
+		}
+
+		return edits;
+
+	}
+
+	/**
+	 * Returns a string of the given number of spaces.
+	 *
+	 * @param count The number of spaces.
+	 * @return The string of spaces.
+	 */
+	@NotNull
+	private static String spaces(int count) {
+
+		char[] spaces = new char[count];
+
+		Arrays.fill(spaces, ' ');
+
+		return new String(spaces);
+
+	}
+
+}
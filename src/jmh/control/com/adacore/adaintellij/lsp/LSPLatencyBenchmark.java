@@ -0,0 +1,267 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.openjdk.jmh.annotations.*;
+
+import org.eclipse.lsp4j.*;
+
+import com.adacore.adaintellij.analysis.lexical.BenchmarkSources;
+
+/**
+ * JMH benchmark measuring end-to-end LSP latencies against the fake
+ * Ada Language Server, with injected server latencies: the time from
+ * sending a completion, definition, references or document symbol
+ * request to receiving its response, and the time from sending the
+ * changes of a typing trace to receiving the diagnostics of the
+ * resulting document version ("keystroke to squiggle").
+ *
+ * Requests go through the same request pipeline, lsp4j client layer
+ * and instrumentation as the driver's, so the measured time covers
+ * request coalescing and scheduling, serialization, the wire, message
+ * dispatching and the injected server latency.
+ *
+ * @see FakeAdaLanguageServer
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LSPLatencyBenchmark {
+
+	/*
+		Constants
+	*/
+
+	/**
+	 * The URI of the benchmark document.
+	 */
+	private static final String DOCUMENT_URI = "file:///benchmark.adb";
+
+	/**
+	 * The URI of a document with the same text, not open in an editor.
+	 */
+	private static final String CLOSED_DOCUMENT_URI = "file:///benchmark_closed.adb";
+
+	/**
+	 * The maximum time, in milliseconds, to wait for a response.
+	 */
+	private static final long WAIT_TIMEOUT = 10000;
+
+	/*
+		Parameters
+	*/
+
+	/**
+	 * The latency, in milliseconds, injected by the fake server in
+	 * responses and diagnostics.
+	 */
+	@Param({ "0", "5" })
+	public long latency;
+
+	/**
+	 * The number of results of every request.
+	 */
+	@Param({ "20", "1000" })
+	public int resultCount;
+
+	/*
+		Fields
+	*/
+
+	/**
+	 * The connection to the fake server.
+	 */
+	private FakeServerConnection connection;
+
+	/**
+	 * The text of the document before and after the typing trace.
+	 */
+	private String baseText;
+	private String editedText;
+
+	/**
+	 * The edits of the typing trace.
+	 */
+	private List<EditTraces.Edit> edits;
+
+	/**
+	 * Request parameters, at a position in the middle of the document.
+	 */
+	private CompletionParams           completionParams;
+	private TextDocumentPositionParams positionParams;
+	private ReferenceParams            referenceParams;
+	private DocumentSymbolParams       documentSymbolParams;
+	private TextDocumentPositionParams closedPositionParams;
+
+	/**
+	 * Connects to a fake server and opens the benchmark document in an
+	 * editor.
+	 *
+	 * @throws Exception If a problem occurs while reading the source
+	 *                   or connecting to the fake server.
+	 */
+	@Setup
+	public void setUp() throws Exception {
+
+		baseText = BenchmarkSources.input("synthetic-64k");
+		edits    = EditTraces.trace(EditTraces.TYPING, baseText);
+
+		StringBuilder text = new StringBuilder(baseText);
+
+		edits.forEach(edit -> edit.applyTo(text));
+
+		editedText = text.toString();
+
+		connection = new FakeServerConnection(new FakeAdaLanguageServer.Behavior()
+			.latency(latency)
+			.diagnosticsLatency(latency)
+			.resultCount(resultCount));
+
+		connection.initialize();
+
+		connection.openDocument(DOCUMENT_URI, baseText);
+		connection.addDocument(CLOSED_DOCUMENT_URI, baseText);
+
+		TextDocumentIdentifier document = new TextDocumentIdentifier(DOCUMENT_URI);
+		Position               position = new Position(baseText.split("\n", -1).length / 2, 4);
+
+		completionParams = new CompletionParams();
+
+		completionParams.setTextDocument(document);
+		completionParams.setPosition(position);
+
+		positionParams = new TextDocumentPositionParams(document, position);
+
+		referenceParams = new ReferenceParams(new ReferenceContext(true));
+
+		referenceParams.setTextDocument(document);
+		referenceParams.setPosition(position);
+
+		documentSymbolParams = new DocumentSymbolParams(document);
+
+		closedPositionParams = new TextDocumentPositionParams(new TextDocumentIdentifier(CLOSED_DOCUMENT_URI), position);
+
+	}
+
+	/**
+	 * Closes the connection to the fake server.
+	 */
+	@TearDown
+	public void tearDown() { connection.close(); }
+
+	/**
+	 * Waits for the response of the given request.
+	 *
+	 * @param request The request.
+	 * @param <T> The type of the result.
+	 * @return The result of the request.
+	 * @throws Exception If the request fails or times out.
+	 */
+	private static <T> T await(CompletableFuture<T> request) throws Exception {
+		return request.get(WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Makes a completion request.
+	 *
+	 * @return The completion result.
+	 * @throws Exception If the request fails or times out.
+	 */
+	@Benchmark
+	public Object completion() throws Exception {
+		return await(connection.request("textDocument/completion", DOCUMENT_URI, completionParams,
+			RequestPriority.INTERACTIVE, documents -> documents.completion(completionParams)));
+	}
+
+	/**
+	 * Makes a definition request.
+	 *
+	 * @return The definition result.
+	 * @throws Exception If the request fails or times out.
+	 */
+	@Benchmark
+	public Object definition() throws Exception {
+		return await(connection.request("textDocument/definition", DOCUMENT_URI, positionParams,
+			RequestPriority.INTERACTIVE, documents -> documents.definition(positionParams)));
+	}
+
+	/**
+	 * Makes a definition request on a document not open in an editor,
+	 * kept warm on the server between requests.
+	 *
+	 * @return The definition result.
+	 * @throws Exception If the request fails or times out.
+	 */
+	@Benchmark
+	public Object definitionInClosedDocument() throws Exception {
+		return await(connection.request("textDocument/definition", CLOSED_DOCUMENT_URI, closedPositionParams,
+			RequestPriority.INTERACTIVE, documents -> documents.definition(closedPositionParams)));
+	}
+
+	/**
+	 * Makes a references request.
+	 *
+	 * @return The references result.
+	 * @throws Exception If the request fails or times out.
+	 */
+	@Benchmark
+	public Object references() throws Exception {
+		return await(connection.request("textDocument/references", DOCUMENT_URI, referenceParams,
+			RequestPriority.BACKGROUND, documents -> documents.references(referenceParams)));
+	}
+
+	/**
+	 * Makes a document symbol request.
+	 *
+	 * @return The document symbol result.
+	 * @throws Exception If the request fails or times out.
+	 */
+	@Benchmark
+	public Object documentSymbol() throws Exception {
+		return await(connection.request("textDocument/documentSymbol", DOCUMENT_URI, documentSymbolParams,
+			RequestPriority.VISIBLE_EDITOR, documents -> documents.documentSymbol(documentSymbolParams)));
+	}
+
+	/**
+	 * Records the edits of the typing trace in a change batch, sends the
+	 * merged changes and waits for the diagnostics of the new version.
+	 *
+	 * @return The published diagnostics.
+	 * @throws InterruptedException If the waiting thread is interrupted.
+	 */
+	@Benchmark
+	public Object documentSync() throws InterruptedException {
+
+		ContentChangeBatch batch = new ContentChangeBatch(baseText);
+
+		edits.forEach(edit -> batch.addChange(edit.offset, edit.oldLength, edit.newText.length()));
+
+		int version = connection.changeDocument(DOCUMENT_URI, editedText, batch.toContentChangeEvents(editedText));
+
+		PublishDiagnosticsParams diagnostics = connection.awaitDiagnostics(DOCUMENT_URI, version, WAIT_TIMEOUT);
+
+		if (diagnostics == null) { throw new IllegalStateException("No diagnostics published"); }
+
+		return diagnostics;
+
+	}
+
+	/**
+	 * Restores the base text of the document on the fake server after
+	 * every document synchronization, without waiting for diagnostics.
+	 */
+	@TearDown(Level.Invocation)
+	public void restoreDocument() {
+
+		if (connection.documentVersion(DOCUMENT_URI) == 1) { return; }
+
+		connection.changeDocument(DOCUMENT_URI, baseText,
+			Collections.singletonList(new TextDocumentContentChangeEvent(baseText)));
+
+	}
+
+}
@@ -1,7 +1,6 @@
 package com.adacore.adaintellij.analysis.lexical;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 import com.intellij.psi.tree.IElementType;
 import org.jetbrains.annotations.*;
@@ -288,6 +287,20 @@ public final class AdaLexer extends Lexer {
 
 	private static final LexerRegex XOR_KEYWORD_REGEX          = new UnitRegex(XOR_KEYWORD.TOKEN_TEXT         , 1);
 
+	// States
+
+	/**
+	 * The state in which the token following an identifier
+	 * is analysed.
+	 */
+	private static final int AFTER_IDENTIFIER_STATE = 1;
+
+	/**
+	 * The state in which the token following an apostrophe
+	 * is analysed.
+	 */
+	private static final int AFTER_APOSTROPHE_STATE = 2;
+
 	// Lexer data
 
 	/**
@@ -297,9 +310,15 @@ public final class AdaLexer extends Lexer {
 	private static final Map<LexerRegex, IElementType> REGEX_TOKEN_TYPES;
 
 	/**
-	 * The set of all root regexes except keyword regexes.
+	 * The case-insensitive automaton precompiled from all root regexes.
 	 */
-	private static final Set<LexerRegex> NON_KEYWORD_ROOT_REGEXES;
+	private static final LexerAutomaton<IElementType> AUTOMATON;
+
+	/**
+	 * The case-insensitive automaton precompiled from all root regexes
+	 * except keyword regexes.
+	 */
+	private static final LexerAutomaton<IElementType> NON_KEYWORD_AUTOMATON;
 
 	/*
 		Static Initializer
@@ -309,7 +328,7 @@ public final class AdaLexer extends Lexer {
 
 		// Populate the regex -> token-type map
 
-		Map<LexerRegex, IElementType> regexTokenTypes = new HashMap<>();
+		Map<LexerRegex, IElementType> regexTokenTypes = new LinkedHashMap<>();
 
 		regexTokenTypes.put(WHITESPACES_REGEX         , WHITESPACES);
 
@@ -443,12 +462,18 @@ public final class AdaLexer extends Lexer {
 
 		REGEX_TOKEN_TYPES = Collections.unmodifiableMap(regexTokenTypes);
 
-		// Populate the non-keyword root regex set
+		// Precompile the automata
+
+		Map<LexerRegex, IElementType> nonKeywordRegexTokenTypes = new LinkedHashMap<>();
 
-		NON_KEYWORD_ROOT_REGEXES = REGEX_TOKEN_TYPES.keySet()
-			.stream()
-			.filter(regex -> !KEYWORD_TOKEN_SET.contains(REGEX_TOKEN_TYPES.get(regex)))
-			.collect(Collectors.toSet());
+		REGEX_TOKEN_TYPES.forEach((regex, tokenType) -> {
+			if (!KEYWORD_TOKEN_SET.contains(tokenType)) {
+				nonKeywordRegexTokenTypes.put(regex, tokenType);
+			}
+		});
+
+		AUTOMATON             = new LexerAutomaton<>(REGEX_TOKEN_TYPES, true);
+		NON_KEYWORD_AUTOMATON = new LexerAutomaton<>(nonKeywordRegexTokenTypes, true);
 
 	}
 
@@ -460,46 +485,38 @@ public final class AdaLexer extends Lexer {
 	protected IElementType badCharacterTokenType() { return BAD_CHARACTER; }
 
 	/**
-	 * @see com.adacore.adaintellij.analysis.lexical.Lexer#regexTokenTypeMap()
+	 * @see com.adacore.adaintellij.analysis.lexical.Lexer#getLexingAutomaton()
 	 */
 	@NotNull
 	@Override
-	protected Map<LexerRegex, IElementType> regexTokenTypeMap() { return REGEX_TOKEN_TYPES; }
+	protected LexerAutomaton<IElementType> getLexingAutomaton() {
+		return state == AFTER_APOSTROPHE_STATE ? NON_KEYWORD_AUTOMATON : AUTOMATON;
+	}
 
 	/**
-	 * @see com.adacore.adaintellij.analysis.lexical.Lexer#getLexingStartingRegexes()
+	 * Encodes the context needed to disambiguate apostrophes: after an
+	 * identifier, an apostrophe always starts an attribute, and after
+	 * an apostrophe, no keyword can be matched.
+	 *
+	 * @see com.adacore.adaintellij.analysis.lexical.Lexer#stateAfterToken(IElementType)
 	 */
-	@NotNull
 	@Override
-	protected Set<LexerRegex> getLexingStartingRegexes() {
-		return getTokenType() == APOSTROPHE ?
-			NON_KEYWORD_ROOT_REGEXES : super.getLexingStartingRegexes();
+	protected int stateAfterToken(@NotNull IElementType tokenType) {
+		return tokenType == IDENTIFIER ? AFTER_IDENTIFIER_STATE :
+			tokenType == APOSTROPHE ? AFTER_APOSTROPHE_STATE : INITIAL_STATE;
 	}
 
 	/**
-	 * @see com.intellij.lexer.Lexer#advance()
+	 * @see com.adacore.adaintellij.analysis.lexical.Lexer#lexToken()
 	 */
 	@Override
-	public void advance() {
-
-		// If the end of the text is reached, then call the
-		// original `advance` method to handle it properly
-
-		if (reachedEndOfText()) {
-			super.advance();
-			return;
-		}
-
-		// The next character to be analysed
-		Character nextCharacter = nextCharacter();
+	protected void lexToken() {
 
 		// If the next character is an apostrophe and the last token
 		// was an identifier, then immediately mark this token as an
 		// apostrophe token and return
 
-		if (nextCharacter != null && nextCharacter == '\'' && getTokenType() == IDENTIFIER) {
-
-			tokenStart = tokenEnd;
+		if (state == AFTER_IDENTIFIER_STATE && nextCharacter() == '\'') {
 
 			lexingOffset = tokenEnd = tokenStart + 1;
 
@@ -509,7 +526,7 @@ public final class AdaLexer extends Lexer {
 
 		}
 
-		super.advance();
+		super.lexToken();
 
 	}
 
@@ -87,6 +87,11 @@ public final class GPRFileLexer extends Lexer {
 	 */
 	private static final Map<LexerRegex, IElementType> REGEX_TOKEN_TYPES;
 
+	/**
+	 * The case-insensitive automaton precompiled from all root regexes.
+	 */
+	private static final LexerAutomaton<IElementType> AUTOMATON;
+
 	/*
 		Static Initializer
 	*/
@@ -95,7 +100,7 @@ public final class GPRFileLexer extends Lexer {
 
 		// Populate the regex -> token-type map
 
-		Map<LexerRegex, IElementType> regexTokenTypes = new HashMap<>();
+		Map<LexerRegex, IElementType> regexTokenTypes = new LinkedHashMap<>();
 
 		regexTokenTypes.put(WHITESPACES_REGEX             , WHITESPACES);
 
@@ -155,6 +160,10 @@ public final class GPRFileLexer extends Lexer {
 
 		REGEX_TOKEN_TYPES = Collections.unmodifiableMap(regexTokenTypes);
 
+		// Precompile the automaton
+
+		AUTOMATON = new LexerAutomaton<>(REGEX_TOKEN_TYPES, true);
+
 	}
 
 	/**
@@ -165,10 +174,10 @@ public final class GPRFileLexer extends Lexer {
 	protected IElementType badCharacterTokenType() { return BAD_CHARACTER; }
 
 	/**
-	 * @see com.adacore.adaintellij.analysis.lexical.Lexer#regexTokenTypeMap()
+	 * @see com.adacore.adaintellij.analysis.lexical.Lexer#getLexingAutomaton()
 	 */
 	@NotNull
 	@Override
-	protected Map<LexerRegex, IElementType> regexTokenTypeMap() { return REGEX_TOKEN_TYPES; }
+	protected LexerAutomaton<IElementType> getLexingAutomaton() { return AUTOMATON; }
 
 }
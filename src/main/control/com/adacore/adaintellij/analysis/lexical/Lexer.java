@@ -17,6 +17,15 @@ abstract class Lexer extends LexerBase {
 		Constants
 	*/
 
+	// States
+
+	/**
+	 * The state in which lexing starts at the beginning of a text,
+	 * i.e. a state in which no previous token influences the lexing
+	 * of the next token.
+	 */
+	protected static final int INITIAL_STATE = 0;
+
 	// Whitespaces
 
 	/**
@@ -230,41 +239,14 @@ abstract class Lexer extends LexerBase {
 			new UnitRegex("\"")
 		);
 
-	// Lexer data
-
-	/**
-	 * A map associating root regexes with the token types
-	 * they represent.
-	 */
-	private final Map<LexerRegex, IElementType> REGEX_TOKEN_TYPES;
-
-	/**
-	 * The set of all root regexes (defined above).
-	 */
-	private final Set<LexerRegex> ROOT_REGEXES;
-
-	/*
-		Instance Initializer
-	*/
-
-	{
-
-		// Set the regex -> token-type map
-
-		REGEX_TOKEN_TYPES = Collections.unmodifiableMap(regexTokenTypeMap());
-
-		// Set the root regexes set from the regex -> token-type map's keyset
-
-		ROOT_REGEXES = Collections.unmodifiableSet(REGEX_TOKEN_TYPES.keySet());
-
-	}
-
 	/*
 		Fields
 	*/
 
 	/**
-	 * The lowercase version of the text to be analysed.
+	 * The text to be analysed. Lexers are case-insensitive, but the
+	 * text is never converted to lowercase: characters are instead
+	 * folded on the fly by the lexing automata (see LexerAutomaton).
 	 */
 	protected CharSequence text;
 
@@ -279,7 +261,8 @@ abstract class Lexer extends LexerBase {
 	protected int lexingOffset;
 
 	/**
-	 * The current state of the Lexer.
+	 * The current state of the Lexer, i.e. the state in which the
+	 * current token was analysed (see getState()).
 	 */
 	protected int state;
 
@@ -311,26 +294,30 @@ abstract class Lexer extends LexerBase {
 	protected abstract IElementType badCharacterTokenType();
 
 	/**
-	 * Returns the mapping from root-regexes to token-types to be used
-	 * for this lexer.
+	 * Returns the automaton to use at the start of a token lexing round.
+	 * Implementations typically return a case-insensitive automaton
+	 * precompiled once per lexer class from its root regexes (see
+	 * LexerAutomaton), but may also return different automata based on
+	 * the state of the lexer in order to limit the set of token types
+	 * that may match in a lexing round.
 	 *
-	 * @return The regex -> token-type mapping of this lexer.
+	 * @return The automaton to use when lexing a token.
 	 */
 	@NotNull
-	protected abstract Map<LexerRegex, IElementType> regexTokenTypeMap();
+	protected abstract LexerAutomaton<IElementType> getLexingAutomaton();
 
 	/**
-	 * Returns the set of root regexes to use at the start of a token
-	 * lexing round. This method may be overridden by subclasses to
-	 * limit the set of regexes that may match in a lexing round based
-	 * on the state of the lexer.
+	 * Returns the state in which to analyse the token following a token
+	 * of the given type. Lexers for which the analysis of a token depends
+	 * on previously analysed tokens must encode that context in states,
+	 * in order for IntelliJ to be able to restart lexing at any token
+	 * boundary (see getState()). By default, lexing is context-free and
+	 * every token is analysed in the initial state.
 	 *
-	 * @return The set of root regexes to use when lexing a token.
+	 * @param tokenType The type of the previous token.
+	 * @return The state in which to analyse the next token.
 	 */
-	@NotNull
-	protected Set<LexerRegex> getLexingStartingRegexes() {
-		return ROOT_REGEXES;
-	}
+	protected int stateAfterToken(@NotNull IElementType tokenType) { return INITIAL_STATE; }
 
 	/**
 	 * Returns whether or not this lexer has reached the end of
@@ -343,15 +330,12 @@ abstract class Lexer extends LexerBase {
 	}
 
 	/**
-	 * Returns the next character to be analysed.
+	 * Returns the next character to be analysed. This method must not
+	 * be called once the end of the text was reached.
 	 *
 	 * @return The next character to be analysed.
 	 */
-	@Nullable
-	protected Character nextCharacter() {
-		return lexingOffset < 0 || lexingOffset >= lexingEndOffset ?
-			null : text.charAt(lexingOffset);
-	}
+	protected char nextCharacter() { return text.charAt(lexingOffset); }
 
 	/**
 	 * @see com.intellij.lexer.Lexer#start(CharSequence, int, int, int)
@@ -377,7 +361,7 @@ abstract class Lexer extends LexerBase {
 
 		// Initialize lexer fields
 
-		text            = buffer.toString().toLowerCase(Locale.ROOT);
+		text            = buffer;
 
 		lexingEndOffset = endOffset;
 		lexingOffset    = startOffset;
@@ -397,6 +381,12 @@ abstract class Lexer extends LexerBase {
 	}
 
 	/**
+	 * Returns the state in which the current token was analysed.
+	 * Starting this lexer at the start offset of the current token
+	 * with the returned state (for example when IntelliJ incrementally
+	 * re-highlights a document) yields the same tokens as those
+	 * obtained by continuing to lex from the current position.
+	 *
 	 * @see com.intellij.lexer.Lexer#getState()
 	 */
 	@Override
@@ -438,200 +428,101 @@ abstract class Lexer extends LexerBase {
 			return;
 		}
 
-		// Set the start of the next token to the end of the previous one
-
-		tokenStart = tokenEnd;
-
-		// The offset by which the lexer needs to be rolled back before
-		// marking the end of the matched token. This happens for example
-		// when lexing the sequence "'Access" where:
-		// 1. After the "'" character, only the following regexes advance:
-		//    * APOSTROPHE_REGEX and it is nullable at this point
-		//    * CHARACTER_LITERAL_REGEX and it is not nullable at this point
-		// 2. After the "A" character, only the following regex advances:
-		//    * CHARACTER_LITERAL_REGEX and it is not nullable at this point
-		// 3. After the first "c" character, no regexes advance
-		// At this point, the matching regex is the nullable APOSTROPHE_REGEX
-		// obtained at step 1, so the lexer needs to "mark" the sequence "'"
-		// as the apostrophe token and roll back to the "A" character in
-		// order to start from there during the next call to `advance`
-		int rollBackOffset = 0;
-
-		// The set of regexes that successfully advanced so far
-		Set<LexerRegex> regexes = new HashSet<>(getLexingStartingRegexes());
-
-		// The last set of regexes, resulting from an iteration of
-		// characterLoop, that contained at least one nullable regex
-		// (see rollBackOffset description for an example)
-		Set<LexerRegex> matchingRegexes = new HashSet<>();
-
-		// A map specifying the root regex from which every regex originates
-		// by a series of calls to regex.advanced(char)
-		final Map<LexerRegex, LexerRegex> regexLineages = new HashMap<>();
-
-		// The next character to be analysed
-		Character nextCharacter = nextCharacter();
-
-		// While the next token has not been determined...
-
-		characterLoop: // label only used for reference in comments
-		while (tokenEnd == tokenStart) {
-
-			final Character character = nextCharacter;
-
-			// The set of regexes that will have advanced successfully
-			// at the end of this iteration of characterLoop
-			final Set<LexerRegex> advancedRegexes = new HashSet<>();
-
-			// For each regex that successfully advanced by all
-			// characters so far...
-
-			if (character != null) {
-
-				regexes.forEach(regex -> {
-
-					// Try to advance the regex
+		// Set the state of the next token based on the previous one,
+		// unless this is the first token since the lexer was started,
+		// in which case the initial state given to `start` is kept
 
-					LexerRegex advancedRegex = regex.advanced(character);
+		if (tokenType != null) { state = stateAfterToken(tokenType); }
 
-					// If the regex advanced successfully, store it for the next
-					// iteration of characterLoop, and keep track of the root
-					// regex that is the ancestor of the advanced regex
-
-					if (advancedRegex != null) {
-
-						advancedRegexes.add(advancedRegex);
-
-						LexerRegex ancestor = regexLineages.get(regex);
-
-						if (advancedRegex.nullable() || !regex.nullable()) {
-							regexLineages.remove(regex);
-						}
-
-						regexLineages.put(advancedRegex, ancestor == null ? regex : ancestor);
-
-					}
-
-				});
-
-			}
-
-			// Set the regex set to be the advanced regex set
-
-			regexes = advancedRegexes;
-
-			// If no remaining matching regexes exist, then choose a regex
-			// from those that last matched and had at least one nullable
-			// regex (or the empty set if either that was never the case, or
-			// this is the first iteration of characterLoop)
-
-			if (regexes.size() == 0) {
-
-				// Find the matching regex with the highest priority
-				// The chosen regex still has to be nullable, which prevents for
-				// example the word "proc" at the end of an Ada file from being
-				// assigned the token of the procedure keyword, as its regex for
-				// that has a higher priority than the identifier regex, and it
-				// does match the sequence "proc" (but it should not be chosen
-				// as its advanced regex at that point is not nullable, in other
-				// words it still requires the sequence "edure" to "fully match")
-
-				LexerRegex highestPriorityRegex = null;
-
-				for (LexerRegex regex : matchingRegexes) {
-
-					if (
-						regex.nullable() &&
-							(
-								highestPriorityRegex == null ||
-									regex.PRIORITY > highestPriorityRegex.PRIORITY
-							)
-					) {
-						highestPriorityRegex = regex;
-					}
-
-				}
-
-				// If a non nullable regex (with highest priority) was found,
-				// then get the root regex from which this regex originates,
-				// get the token type corresponding to that root regex and set
-				// the lexer token type to that type
-
-				if (highestPriorityRegex != null) {
-
-					LexerRegex rootRegex =
-						regexLineages.getOrDefault(highestPriorityRegex, highestPriorityRegex);
-
-					tokenType =
-						REGEX_TOKEN_TYPES.get(rootRegex);
-
-				}
-
-				// Otherwise, set the token type to BAD_CHARACTER
-
-				else {
-
-					tokenType = badCharacterTokenType();
-
-					// If this is a single-character, then the lexing offset
-					// needs to be advanced manually to avoid infinite calls
-					// to `advance`
-
-					if (lexingOffset == tokenStart) { lexingOffset++; }
-
-					// Reset the rollback offset
-
-					rollBackOffset = 0;
-
-				}
+		// Set the start of the next token to the end of the previous one
 
-				// Roll the lexer back by the necessary offset
+		tokenStart = tokenEnd;
 
-				lexingOffset -= rollBackOffset;
+		// Analyse the next token
 
-				// Set the token end offset to the lexing offset
-				// This will also break the execution of characterLoop
+		lexToken();
 
-				tokenEnd = lexingOffset;
+	}
 
+	/**
+	 * Analyses the token starting at the current lexing offset, in the
+	 * current state, and sets the lexer token type and end offset.
+	 * This method may be overridden by subclasses to analyse specific
+	 * tokens without running the lexing automaton.
+	 */
+	protected void lexToken() {
+
+		// Run the automaton over the text, character by character,
+		// until it reaches the dead state or the end of the text,
+		// keeping track of the last accepting state encountered.
+		// Keeping track of the last match is necessary since the lexer
+		// may need to roll back by a few characters before marking the
+		// end of the matched token. This happens for example when lexing
+		// the sequence "'Access" where:
+		// 1. After the "'" character, the reached state accepts the
+		//    apostrophe token, but may still lead to a character literal
+		// 2. After the "A" character, the reached state may only lead
+		//    to a character literal, and is not accepting
+		// 3. After the first "c" character, the automaton dies
+		// At this point, the last match is the apostrophe obtained at
+		// step 1, so the lexer needs to "mark" the sequence "'" as the
+		// apostrophe token and roll back to the "A" character in order
+		// to start from there during the next call to `advance`
+		// The token chosen by an accepting state is the one with the
+		// highest priority, which prevents for example the word "proc"
+		// at the end of an Ada file from being assigned the token of the
+		// procedure keyword: the state reached after "proc" may still lead
+		// to the procedure keyword, but only accepts an identifier
+
+		final LexerAutomaton<IElementType> automaton = getLexingAutomaton();
+
+		int          automatonState   = LexerAutomaton.START_STATE;
+		IElementType matchedTokenType = null;
+		int          matchEndOffset   = lexingOffset;
+
+		while (lexingOffset < lexingEndOffset) {
+
+			automatonState = automaton.nextState(automatonState, text.charAt(lexingOffset));
+
+			if (automatonState == LexerAutomaton.DEAD_STATE) { break; }
+
+			lexingOffset++;
+
+			if (automaton.accepting(automatonState)) {
+				matchedTokenType = automaton.acceptedValue(automatonState);
+				matchEndOffset   = lexingOffset;
 			}
 
-			// Otherwise, there are still matching regexes and the last character
-			// in the text was not yet reached, so get the next character and
-			// execute the next iteration of characterLoop
-
-			else {
+		}
 
-				// If at least one of the regexes that advanced successfully in
-				// this iteration of characterLoop is nullable, then store that
-				// set of regexes to be potentially used in the next iteration
-				// to find matching regexes, and reset the rollback offset
+		// If a match was found, set the lexer token type to the matched
+		// token type and roll the lexer back to the end of the match
 
-				if (regexes.stream().anyMatch(LexerRegex::nullable)) {
+		if (matchedTokenType != null) {
 
-					matchingRegexes = new HashSet<>(regexes);
+			tokenType    = matchedTokenType;
+			lexingOffset = matchEndOffset;
 
-					rollBackOffset = 0;
+		}
 
-				}
+		// Otherwise, set the token type to BAD_CHARACTER, the bad token
+		// spanning all characters the automaton advanced by
 
-				// Otherwise, do not overwrite the last set of regexes with at
-				// least one nullable regex and increase the rollback offset
+		else {
 
-				else {
-					rollBackOffset++;
-				}
+			tokenType = badCharacterTokenType();
 
-				// Advance the lexer to the next character
+			// If this is a single-character, then the lexing offset
+			// needs to be advanced manually to avoid infinite calls
+			// to `advance`
 
-				lexingOffset++;
+			if (lexingOffset == tokenStart) { lexingOffset++; }
 
-				nextCharacter = lexingOffset == lexingEndOffset ?
-					null : text.charAt(lexingOffset);
+		}
 
-			}
+		// Set the token end offset to the lexing offset
 
-		}
+		tokenEnd = lexingOffset;
 
 	}
 
@@ -1,22 +1,108 @@
 package com.adacore.adaintellij.analysis.lexical.regex;
 
-import java.util.regex.Pattern;
+import java.util.*;
 
 import org.jetbrains.annotations.*;
 
 /**
  * Regex matching a single character from a specific "General Category",
  * as defined by the Unicode standard.
- * Internally, a regex of this class stores a Java pattern compiled to
- * match only characters from a specific general category.
+ * Internally, a regex of this class stores the set of categories it
+ * matches as a bit mask over the values returned by `Character.getType`,
+ * and tests characters against a category table precomputed for the
+ * whole Basic Multilingual Plane, so that matching a character never
+ * allocates memory.
  */
 public final class GeneralCategoryRegex extends LexerRegex {
 
+	/*
+		Constants
+	*/
+
+	/**
+	 * The number of characters in the Latin-1 range, for which each
+	 * general category regex keeps a dense bitmap of matched characters.
+	 */
+	private static final int LATIN_1_SIZE = 256;
+
+	/**
+	 * The general category of every character of the Basic Multilingual
+	 * Plane, as returned by `Character.getType`, indexed by character.
+	 */
+	private static final byte[] CHARACTER_CATEGORIES = new byte[Character.MAX_VALUE + 1];
+
 	/**
-	 * The internal pattern used to match a character
-	 * based on its general category.
+	 * Mapping of general category identifier strings to the
+	 * corresponding `Character.getType` values.
 	 */
-	private final Pattern PATTERN;
+	private static final Map<String, Byte> CATEGORY_TYPES = new HashMap<>();
+
+	static {
+
+		for (int character = 0 ; character <= Character.MAX_VALUE ; character++) {
+			CHARACTER_CATEGORIES[character] = (byte)Character.getType((char)character);
+		}
+
+		CATEGORY_TYPES.put("Cn", Character.UNASSIGNED);
+		CATEGORY_TYPES.put("Lu", Character.UPPERCASE_LETTER);
+		CATEGORY_TYPES.put("Ll", Character.LOWERCASE_LETTER);
+		CATEGORY_TYPES.put("Lt", Character.TITLECASE_LETTER);
+		CATEGORY_TYPES.put("Lm", Character.MODIFIER_LETTER);
+		CATEGORY_TYPES.put("Lo", Character.OTHER_LETTER);
+		CATEGORY_TYPES.put("Mn", Character.NON_SPACING_MARK);
+		CATEGORY_TYPES.put("Me", Character.ENCLOSING_MARK);
+		CATEGORY_TYPES.put("Mc", Character.COMBINING_SPACING_MARK);
+		CATEGORY_TYPES.put("Nd", Character.DECIMAL_DIGIT_NUMBER);
+		CATEGORY_TYPES.put("Nl", Character.LETTER_NUMBER);
+		CATEGORY_TYPES.put("No", Character.OTHER_NUMBER);
+		CATEGORY_TYPES.put("Zs", Character.SPACE_SEPARATOR);
+		CATEGORY_TYPES.put("Zl", Character.LINE_SEPARATOR);
+		CATEGORY_TYPES.put("Zp", Character.PARAGRAPH_SEPARATOR);
+		CATEGORY_TYPES.put("Cc", Character.CONTROL);
+		CATEGORY_TYPES.put("Cf", Character.FORMAT);
+		CATEGORY_TYPES.put("Co", Character.PRIVATE_USE);
+		CATEGORY_TYPES.put("Cs", Character.SURROGATE);
+		CATEGORY_TYPES.put("Pd", Character.DASH_PUNCTUATION);
+		CATEGORY_TYPES.put("Ps", Character.START_PUNCTUATION);
+		CATEGORY_TYPES.put("Pe", Character.END_PUNCTUATION);
+		CATEGORY_TYPES.put("Pc", Character.CONNECTOR_PUNCTUATION);
+		CATEGORY_TYPES.put("Po", Character.OTHER_PUNCTUATION);
+		CATEGORY_TYPES.put("Sm", Character.MATH_SYMBOL);
+		CATEGORY_TYPES.put("Sc", Character.CURRENCY_SYMBOL);
+		CATEGORY_TYPES.put("Sk", Character.MODIFIER_SYMBOL);
+		CATEGORY_TYPES.put("So", Character.OTHER_SYMBOL);
+		CATEGORY_TYPES.put("Pi", Character.INITIAL_QUOTE_PUNCTUATION);
+		CATEGORY_TYPES.put("Pf", Character.FINAL_QUOTE_PUNCTUATION);
+
+	}
+
+	/**
+	 * The regex resulting from advancing a general category regex
+	 * on a character it matches. As regexes are immutable, a single
+	 * instance is shared by all general category regexes.
+	 */
+	private static final LexerRegex MATCHED_REGEX = new UnitRegex("");
+
+	/*
+		Fields
+	*/
+
+	/**
+	 * The general category identifier string matched by this regex.
+	 */
+	final String GENERAL_CATEGORY;
+
+	/**
+	 * Bit mask of the `Character.getType` values matched by this regex.
+	 */
+	private final int CATEGORY_MASK;
+
+	/**
+	 * Bitmap of the Latin-1 characters matched by this regex, which
+	 * keeps the classification of the most common characters within
+	 * a few bytes instead of going through the full category table.
+	 */
+	private final long[] LATIN_1_MATCHES = new long[LATIN_1_SIZE / Long.SIZE];
 
 	/**
 	 * Constructs a new general category regex given a general category
@@ -32,13 +118,73 @@ public final class GeneralCategoryRegex extends LexerRegex {
 	 * Constructs a new general category regex given a general category
 	 * identifier string (e.g. "Lu" for category "Letter, uppercase")
 	 * and a priority.
+	 * A single-letter identifier (e.g. "L" for category "Letter")
+	 * matches all categories whose identifiers start with that letter.
 	 *
 	 * @param generalCategory The general category identifier string.
 	 * @param priority The priority to assign to the constructed regex.
+	 * @throws IllegalArgumentException If the given string does not
+	 *                                  identify a general category.
 	 */
 	public GeneralCategoryRegex(@NotNull String generalCategory, int priority) {
+
 		super(priority);
-		PATTERN  = Pattern.compile(String.format("\\p{%s}", generalCategory));
+
+		GENERAL_CATEGORY = generalCategory;
+		CATEGORY_MASK    = categoryMask(generalCategory);
+
+		for (int character = 0 ; character < LATIN_1_SIZE ; character++) {
+
+			if (matchesCategory(CHARACTER_CATEGORIES[character])) {
+				LATIN_1_MATCHES[character >>> 6] |= 1L << character;
+			}
+
+		}
+
+	}
+
+	/**
+	 * Returns the bit mask of the `Character.getType` values
+	 * identified by the given general category identifier string.
+	 *
+	 * @param generalCategory The general category identifier string.
+	 * @return The corresponding category bit mask.
+	 * @throws IllegalArgumentException If the given string does not
+	 *                                  identify a general category.
+	 */
+	private static int categoryMask(@NotNull String generalCategory) {
+
+		int mask = 0;
+
+		for (Map.Entry<String, Byte> entry : CATEGORY_TYPES.entrySet()) {
+
+			String category = entry.getKey();
+
+			if (category.equals(generalCategory) ||
+				(generalCategory.length() == 1 && category.charAt(0) == generalCategory.charAt(0)))
+			{
+				mask |= 1 << entry.getValue();
+			}
+
+		}
+
+		if (mask == 0) {
+			throw new IllegalArgumentException("Unknown general category: " + generalCategory);
+		}
+
+		return mask;
+
+	}
+
+	/**
+	 * Returns whether or not the given `Character.getType` value
+	 * belongs to the categories matched by this regex.
+	 *
+	 * @param category The category to test.
+	 * @return Whether or not the category is matched.
+	 */
+	private boolean matchesCategory(int category) {
+		return (CATEGORY_MASK & (1 << category)) != 0;
 	}
 
 	/**
@@ -59,8 +205,13 @@ public final class GeneralCategoryRegex extends LexerRegex {
 	@Nullable
 	@Override
 	public LexerRegex advanced(char character) {
-		return PATTERN.matcher(String.valueOf(character)).find() ?
-			new UnitRegex("") : null;
+
+		boolean matches = character < LATIN_1_SIZE ?
+			(LATIN_1_MATCHES[character >>> 6] & (1L << character)) != 0 :
+			matchesCategory(CHARACTER_CATEGORIES[character]);
+
+		return matches ? MATCHED_REGEX : null;
+
 	}
 
 }
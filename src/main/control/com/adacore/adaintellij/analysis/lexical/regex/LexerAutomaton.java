@@ -0,0 +1,701 @@
+package com.adacore.adaintellij.analysis.lexical.regex;
+
+import java.util.*;
+
+import org.jetbrains.annotations.*;
+
+/**
+ * Deterministic finite automaton precompiled from a set of root
+ * lexer regexes, each associated with a value (typically a token type).
+ *
+ * The automaton is built ahead of time by repeatedly advancing the
+ * root regexes (see LexerRegex#advanced(char)) by one representative
+ * character of every character class, and identifying advanced regex
+ * combinations that are structurally equal. The result is a set of
+ * integer transition and acceptance tables, which allows a lexer to
+ * scan text without performing any regex operations at lexing time.
+ *
+ * Characters are partitioned into classes such that all characters
+ * of a class are either matched or not matched by every unit regex
+ * and general category regex in the root regexes. In practice, every
+ * character explicitly appearing in a unit regex has its own class,
+ * and all other characters are classified by their general category.
+ *
+ * A case-insensitive automaton folds every character to lowercase
+ * (using `Character.toLowerCase`) before classifying it, which allows
+ * lexers to analyse text without creating a lowercase copy of it.
+ * The root regexes of such an automaton should then only explicitly
+ * use lowercase characters.
+ *
+ * Every state of the automaton accepts at most one value: that of
+ * the nullable advanced regex with the highest priority, ties being
+ * broken in favor of the root regex that comes first in the map
+ * given at construction time.
+ *
+ * @param <T> The type of values accepted by the automaton.
+ */
+public final class LexerAutomaton<T> {
+
+	/*
+		Constants
+	*/
+
+	/**
+	 * The state in which the automaton is before analysing
+	 * any character.
+	 */
+	public static final int START_STATE = 0;
+
+	/**
+	 * Pseudo-state returned by transitions that do not lead to any
+	 * valid state, i.e. when no root regex can match the analysed
+	 * sequence of characters.
+	 */
+	public static final int DEAD_STATE = -1;
+
+	/**
+	 * The maximum number of states an automaton may have. This limit
+	 * guards against root regexes whose advanced regexes never repeat
+	 * structurally, which would otherwise lead to a never-ending
+	 * automaton construction.
+	 */
+	private static final int MAX_STATES = 1 << 16;
+
+	/**
+	 * The number of characters with a dedicated entry in the dense
+	 * character class table (ASCII and Latin-1).
+	 */
+	private static final int DENSE_CHARACTERS = 256;
+
+	/**
+	 * The number of possible values returned by `Character.getType`.
+	 */
+	private static final int GENERAL_CATEGORIES = 32;
+
+	/**
+	 * Placeholder for general categories that have no character
+	 * other than those explicitly appearing in unit regexes.
+	 * The character \uffff is unassigned, and since many unassigned
+	 * characters precede it, it is never chosen as a representative.
+	 */
+	private static final char NO_REPRESENTATIVE = '\uffff';
+
+	/*
+		Fields
+	*/
+
+	/**
+	 * Whether or not characters are folded to lowercase
+	 * before being classified.
+	 */
+	private final boolean CASE_INSENSITIVE;
+
+	/**
+	 * The character class of every ASCII/Latin-1 character
+	 * (after case folding for case-insensitive automata).
+	 */
+	private final int[] DENSE_CHARACTER_CLASSES = new int[DENSE_CHARACTERS];
+
+	/**
+	 * The sorted non-Latin-1 characters that explicitly appear in
+	 * unit regexes, and their respective character classes.
+	 */
+	private final char[] SPARSE_CHARACTERS;
+	private final int[]  SPARSE_CHARACTER_CLASSES;
+
+	/**
+	 * The character class of every general category, for characters
+	 * that are neither Latin-1 nor explicitly used in unit regexes.
+	 */
+	private final int[] CATEGORY_CHARACTER_CLASSES = new int[GENERAL_CATEGORIES];
+
+	/**
+	 * The number of character classes.
+	 */
+	private final int CHARACTER_CLASS_COUNT;
+
+	/**
+	 * The transition table of this automaton. The state reached from
+	 * state `s` by a character of class `c` is stored at the index
+	 * `s * CHARACTER_CLASS_COUNT + c`.
+	 */
+	private final int[] TRANSITIONS;
+
+	/**
+	 * The index of the root regex accepted by every state of this
+	 * automaton, or -1 for non-accepting states.
+	 */
+	private final int[] ACCEPTED_ROOTS;
+
+	/**
+	 * The priority with which every state of this automaton accepts
+	 * its root regex (meaningless for non-accepting states).
+	 */
+	private final int[] ACCEPTED_PRIORITIES;
+
+	/**
+	 * The values associated with the root regexes, indexed in the
+	 * iteration order of the map given at construction time.
+	 */
+	private final Object[] ROOT_VALUES;
+
+	/*
+		Constructors
+	*/
+
+	/**
+	 * Constructs a new case-sensitive automaton given a mapping from
+	 * root regexes to their values.
+	 *
+	 * @param rootRegexValues The root regex -> value mapping.
+	 *
+	 * @see LexerAutomaton#LexerAutomaton(Map, boolean)
+	 */
+	public LexerAutomaton(@NotNull Map<LexerRegex, T> rootRegexValues) {
+		this(rootRegexValues, false);
+	}
+
+	/**
+	 * Constructs a new automaton given a mapping from root regexes
+	 * to their values. The iteration order of the given map defines
+	 * which root regex takes precedence when several of them match
+	 * with the same priority, so an ordered map should be used.
+	 *
+	 * @param rootRegexValues The root regex -> value mapping.
+	 * @param caseInsensitive Whether or not the constructed automaton
+	 *                        should fold characters to lowercase.
+	 * @throws IllegalArgumentException If a regex of an unsupported
+	 *                                  type is encountered.
+	 * @throws IllegalStateException If the automaton grows beyond
+	 *                               the maximum number of states.
+	 */
+	public LexerAutomaton(@NotNull Map<LexerRegex, T> rootRegexValues, boolean caseInsensitive) {
+
+		CASE_INSENSITIVE = caseInsensitive;
+
+		int rootCount = rootRegexValues.size();
+
+		LexerRegex[] rootRegexes = new LexerRegex[rootCount];
+
+		ROOT_VALUES = new Object[rootCount];
+
+		int rootIndex = 0;
+
+		for (Map.Entry<LexerRegex, T> entry : rootRegexValues.entrySet()) {
+			rootRegexes[rootIndex] = entry.getKey();
+			ROOT_VALUES[rootIndex] = entry.getValue();
+			rootIndex++;
+		}
+
+		// Compute character classes
+
+		SortedSet<Character> explicitCharacters = new TreeSet<>();
+
+		for (LexerRegex rootRegex : rootRegexes) {
+			collectExplicitCharacters(rootRegex, explicitCharacters);
+		}
+
+		List<Character> classRepresentatives = new ArrayList<>();
+
+		char[] categoryRepresentatives = categoryRepresentatives(explicitCharacters);
+
+		for (int category = 0 ; category < GENERAL_CATEGORIES ; category++) {
+
+			if (categoryRepresentatives[category] == NO_REPRESENTATIVE) {
+				CATEGORY_CHARACTER_CLASSES[category] = -1;
+				continue;
+			}
+
+			CATEGORY_CHARACTER_CLASSES[category] = classRepresentatives.size();
+
+			classRepresentatives.add(categoryRepresentatives[category]);
+
+		}
+
+		List<Character> sparseCharacters = new ArrayList<>();
+
+		for (char character : explicitCharacters) {
+			if (character >= DENSE_CHARACTERS) {
+				sparseCharacters.add(character);
+			}
+		}
+
+		SPARSE_CHARACTERS        = new char[sparseCharacters.size()];
+		SPARSE_CHARACTER_CLASSES = new int[sparseCharacters.size()];
+
+		for (int i = 0 ; i < SPARSE_CHARACTERS.length ; i++) {
+
+			char character = sparseCharacters.get(i);
+
+			SPARSE_CHARACTERS[i]        = character;
+			SPARSE_CHARACTER_CLASSES[i] = classRepresentatives.size();
+
+			classRepresentatives.add(character);
+
+		}
+
+		for (char character = 0 ; character < DENSE_CHARACTERS ; character++) {
+
+			if (explicitCharacters.contains(character)) {
+
+				DENSE_CHARACTER_CLASSES[character] = classRepresentatives.size();
+
+				classRepresentatives.add(character);
+
+			} else {
+
+				DENSE_CHARACTER_CLASSES[character] =
+					CATEGORY_CHARACTER_CLASSES[Character.getType(character)];
+
+			}
+
+		}
+
+		// Fold uppercase characters into the class of their lowercase
+		// counterparts, which are never themselves affected by folding
+
+		if (CASE_INSENSITIVE) {
+
+			for (char character = 0 ; character < DENSE_CHARACTERS ; character++) {
+
+				char lowercaseCharacter = Character.toLowerCase(character);
+
+				if (lowercaseCharacter != character) {
+					DENSE_CHARACTER_CLASSES[character] = characterClass(lowercaseCharacter);
+				}
+
+			}
+
+		}
+
+		CHARACTER_CLASS_COUNT = classRepresentatives.size();
+
+		// Build states by advancing root regexes by every character
+		// class representative, starting from the root regexes
+		// themselves and identifying structurally equal states
+
+		List<LexerRegex[]>   states           = new ArrayList<>();
+		Map<String, Integer> stateIndexes     = new HashMap<>();
+		List<int[]>          stateTransitions = new ArrayList<>();
+
+		states.add(rootRegexes);
+		stateIndexes.put(stateKey(rootRegexes), START_STATE);
+
+		for (int stateIndex = 0 ; stateIndex < states.size() ; stateIndex++) {
+
+			LexerRegex[] state       = states.get(stateIndex);
+			int[]        transitions = new int[CHARACTER_CLASS_COUNT];
+
+			for (int characterClass = 0 ; characterClass < CHARACTER_CLASS_COUNT ; characterClass++) {
+
+				char character = classRepresentatives.get(characterClass);
+
+				LexerRegex[] advancedState = new LexerRegex[rootCount];
+				boolean      advanced      = false;
+
+				for (int i = 0 ; i < rootCount ; i++) {
+
+					if (state[i] == null) { continue; }
+
+					advancedState[i] = state[i].advanced(character);
+
+					advanced |= advancedState[i] != null;
+
+				}
+
+				if (!advanced) {
+					transitions[characterClass] = DEAD_STATE;
+					continue;
+				}
+
+				String  advancedStateKey   = stateKey(advancedState);
+				Integer advancedStateIndex = stateIndexes.get(advancedStateKey);
+
+				if (advancedStateIndex == null) {
+
+					if (states.size() == MAX_STATES) {
+						throw new IllegalStateException(
+							"Lexer automaton exceeds the maximum number of states: " + MAX_STATES);
+					}
+
+					advancedStateIndex = states.size();
+
+					states.add(advancedState);
+					stateIndexes.put(advancedStateKey, advancedStateIndex);
+
+				}
+
+				transitions[characterClass] = advancedStateIndex;
+
+			}
+
+			stateTransitions.add(transitions);
+
+		}
+
+		// Flatten transitions and compute accepted roots
+
+		int stateCount = states.size();
+
+		TRANSITIONS         = new int[stateCount * CHARACTER_CLASS_COUNT];
+		ACCEPTED_ROOTS      = new int[stateCount];
+		ACCEPTED_PRIORITIES = new int[stateCount];
+
+		for (int stateIndex = 0 ; stateIndex < stateCount ; stateIndex++) {
+
+			System.arraycopy(stateTransitions.get(stateIndex), 0,
+				TRANSITIONS, stateIndex * CHARACTER_CLASS_COUNT, CHARACTER_CLASS_COUNT);
+
+			LexerRegex[] state = states.get(stateIndex);
+
+			int acceptedRoot = -1;
+
+			for (int i = 0 ; i < rootCount ; i++) {
+
+				LexerRegex regex = state[i];
+
+				if (
+					regex != null && regex.nullable() &&
+						(acceptedRoot == -1 || regex.PRIORITY > state[acceptedRoot].PRIORITY)
+				) {
+					acceptedRoot = i;
+				}
+
+			}
+
+			ACCEPTED_ROOTS[stateIndex]      = acceptedRoot;
+			ACCEPTED_PRIORITIES[stateIndex] = acceptedRoot == -1 ? 0 : state[acceptedRoot].PRIORITY;
+
+		}
+
+	}
+
+	/*
+		Methods
+	*/
+
+	/**
+	 * Returns the character class of the given character.
+	 *
+	 * @param character The character to classify.
+	 * @return The class of the character.
+	 */
+	private int characterClass(char character) {
+
+		if (character < DENSE_CHARACTERS) {
+			return DENSE_CHARACTER_CLASSES[character];
+		}
+
+		if (CASE_INSENSITIVE) {
+
+			character = Character.toLowerCase(character);
+
+			if (character < DENSE_CHARACTERS) {
+				return DENSE_CHARACTER_CLASSES[character];
+			}
+
+		}
+
+		if (SPARSE_CHARACTERS.length > 0) {
+
+			int index = Arrays.binarySearch(SPARSE_CHARACTERS, character);
+
+			if (index >= 0) { return SPARSE_CHARACTER_CLASSES[index]; }
+
+		}
+
+		return CATEGORY_CHARACTER_CLASSES[Character.getType(character)];
+
+	}
+
+	/**
+	 * Returns the state reached from the given state by the given
+	 * character, or DEAD_STATE if no root regex can match the
+	 * resulting sequence of characters.
+	 *
+	 * @param state The state from which to transition.
+	 * @param character The character by which to transition.
+	 * @return The reached state.
+	 */
+	public int nextState(int state, char character) {
+		return TRANSITIONS[state * CHARACTER_CLASS_COUNT + characterClass(character)];
+	}
+
+	/**
+	 * Returns whether or not the given state accepts the sequence of
+	 * characters that led to it.
+	 *
+	 * @param state The state to check.
+	 * @return Whether or not the state is accepting.
+	 */
+	public boolean accepting(int state) { return ACCEPTED_ROOTS[state] != -1; }
+
+	/**
+	 * Returns the value of the root regex accepted by the given state,
+	 * or null if the state is not accepting.
+	 *
+	 * @param state The state to check.
+	 * @return The accepted value.
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	public T acceptedValue(int state) {
+
+		int acceptedRoot = ACCEPTED_ROOTS[state];
+
+		return acceptedRoot == -1 ? null : (T)ROOT_VALUES[acceptedRoot];
+
+	}
+
+	/**
+	 * Returns the priority with which the given state accepts its
+	 * root regex, or 0 if the state is not accepting.
+	 *
+	 * @param state The state to check.
+	 * @return The acceptance priority.
+	 */
+	public int acceptedPriority(int state) { return ACCEPTED_PRIORITIES[state]; }
+
+	/**
+	 * Returns the number of states in this automaton.
+	 *
+	 * @return The number of states.
+	 */
+	public int stateCount() { return ACCEPTED_ROOTS.length; }
+
+	/*
+		Construction Helpers
+	*/
+
+	/**
+	 * Adds all characters explicitly appearing in unit regexes
+	 * in the given regex hierarchy to the given set.
+	 *
+	 * @param regex The regex hierarchy to explore.
+	 * @param characters The set to which to add characters.
+	 * @throws IllegalArgumentException If a regex of an unsupported
+	 *                                  type is encountered.
+	 */
+	private static void collectExplicitCharacters(
+		@NotNull LexerRegex      regex,
+		@NotNull Set<Character>  characters
+	) {
+
+		if (regex instanceof UnitRegex) {
+
+			for (char character : ((UnitRegex)regex).SEQUENCE.toCharArray()) {
+				characters.add(character);
+			}
+
+		} else if (regex instanceof ConcatenationRegex) {
+
+			collectExplicitCharacters(((ConcatenationRegex)regex).FIRST_REGEX, characters);
+			collectExplicitCharacters(((ConcatenationRegex)regex).SECOND_REGEX, characters);
+
+		} else if (regex instanceof UnionRegex) {
+
+			collectExplicitCharacters(((UnionRegex)regex).FIRST_REGEX, characters);
+			collectExplicitCharacters(((UnionRegex)regex).SECOND_REGEX, characters);
+
+		} else if (regex instanceof IntersectionRegex) {
+
+			collectExplicitCharacters(((IntersectionRegex)regex).FIRST_REGEX, characters);
+			collectExplicitCharacters(((IntersectionRegex)regex).SECOND_REGEX, characters);
+
+		} else if (regex instanceof NotRegex) {
+
+			collectExplicitCharacters(((NotRegex)regex).REGEX, characters);
+
+		} else if (regex instanceof ZeroOrOneRegex) {
+
+			collectExplicitCharacters(((ZeroOrOneRegex)regex).REGEX, characters);
+
+		} else if (regex instanceof ZeroOrMoreRegex) {
+
+			collectExplicitCharacters(((ZeroOrMoreRegex)regex).REGEX, characters);
+
+		} else if (regex instanceof OneOrMoreRegex) {
+
+			collectExplicitCharacters(((OneOrMoreRegex)regex).REGEX, characters);
+
+		} else if (!(regex instanceof GeneralCategoryRegex)) {
+
+			throw new IllegalArgumentException(
+				"Unsupported regex type in lexer automaton: " + regex.getClass().getName());
+
+		}
+
+	}
+
+	/**
+	 * Returns, for every general category, a character of that category
+	 * that does not explicitly appear in any unit regex, or
+	 * NO_REPRESENTATIVE if no such character exists.
+	 *
+	 * @param explicitCharacters The characters appearing in unit regexes.
+	 * @return The representative character of every general category.
+	 */
+	@NotNull
+	private static char[] categoryRepresentatives(@NotNull Set<Character> explicitCharacters) {
+
+		char[] representatives = new char[GENERAL_CATEGORIES];
+
+		Arrays.fill(representatives, NO_REPRESENTATIVE);
+
+		for (int character = 0 ; character <= Character.MAX_VALUE ; character++) {
+
+			int category = Character.getType(character);
+
+			if (
+				representatives[category] == NO_REPRESENTATIVE &&
+					!explicitCharacters.contains((char)character)
+			) {
+				representatives[category] = (char)character;
+			}
+
+		}
+
+		return representatives;
+
+	}
+
+	/**
+	 * Returns a string uniquely identifying the structure of the given
+	 * automaton state, i.e. of the advanced regexes of all root regexes.
+	 *
+	 * @param state The state to identify.
+	 * @return The key of the state.
+	 */
+	@NotNull
+	private static String stateKey(@NotNull LexerRegex[] state) {
+
+		StringBuilder keyBuilder = new StringBuilder();
+
+		for (LexerRegex regex : state) {
+
+			if (regex != null) { appendRegexKey(regex, keyBuilder); }
+
+			keyBuilder.append(';');
+
+		}
+
+		return keyBuilder.toString();
+
+	}
+
+	/**
+	 * Appends a string uniquely identifying the structure and priorities
+	 * of the given regex hierarchy to the given string builder.
+	 * Nested union regexes of the same priority are flattened, sorted
+	 * and deduplicated, so that unions matching the same language
+	 * are identified regardless of the order in which they were built.
+	 *
+	 * @param regex The regex hierarchy to identify.
+	 * @param keyBuilder The builder to which to append the key.
+	 */
+	private static void appendRegexKey(@NotNull LexerRegex regex, @NotNull StringBuilder keyBuilder) {
+
+		keyBuilder.append(regex.PRIORITY);
+
+		if (regex instanceof UnitRegex) {
+
+			String sequence = ((UnitRegex)regex).SEQUENCE;
+
+			keyBuilder.append('u').append(sequence.length()).append(':').append(sequence);
+
+		} else if (regex instanceof GeneralCategoryRegex) {
+
+			keyBuilder.append('g').append(((GeneralCategoryRegex)regex).GENERAL_CATEGORY);
+
+		} else if (regex instanceof ConcatenationRegex) {
+
+			keyBuilder.append("c(");
+			appendRegexKey(((ConcatenationRegex)regex).FIRST_REGEX, keyBuilder);
+			keyBuilder.append(',');
+			appendRegexKey(((ConcatenationRegex)regex).SECOND_REGEX, keyBuilder);
+			keyBuilder.append(')');
+
+		} else if (regex instanceof UnionRegex) {
+
+			SortedSet<String> alternativeKeys = new TreeSet<>();
+
+			collectUnionAlternativeKeys(regex, regex.PRIORITY, alternativeKeys);
+
+			keyBuilder.append("|(");
+			alternativeKeys.forEach(key -> keyBuilder.append(key).append(','));
+			keyBuilder.append(')');
+
+		} else if (regex instanceof IntersectionRegex) {
+
+			keyBuilder.append("&(");
+			appendRegexKey(((IntersectionRegex)regex).FIRST_REGEX, keyBuilder);
+			keyBuilder.append(',');
+			appendRegexKey(((IntersectionRegex)regex).SECOND_REGEX, keyBuilder);
+			keyBuilder.append(')');
+
+		} else if (regex instanceof NotRegex) {
+
+			keyBuilder.append("!(");
+			appendRegexKey(((NotRegex)regex).REGEX, keyBuilder);
+			keyBuilder.append(')');
+
+		} else if (regex instanceof ZeroOrOneRegex) {
+
+			keyBuilder.append("?(");
+			appendRegexKey(((ZeroOrOneRegex)regex).REGEX, keyBuilder);
+			keyBuilder.append(')');
+
+		} else if (regex instanceof ZeroOrMoreRegex) {
+
+			keyBuilder.append("*(");
+			appendRegexKey(((ZeroOrMoreRegex)regex).REGEX, keyBuilder);
+			keyBuilder.append(')');
+
+		} else if (regex instanceof OneOrMoreRegex) {
+
+			keyBuilder.append("+(");
+			appendRegexKey(((OneOrMoreRegex)regex).REGEX, keyBuilder);
+			keyBuilder.append(')');
+
+		} else {
+
+			throw new IllegalArgumentException(
+				"Unsupported regex type in lexer automaton: " + regex.getClass().getName());
+
+		}
+
+	}
+
+	/**
+	 * Collects the keys of the alternatives of the given union regex
+	 * hierarchy, descending into nested union regexes that have the
+	 * given priority.
+	 *
+	 * @param regex The regex hierarchy to explore.
+	 * @param priority The priority of the outermost union regex.
+	 * @param alternativeKeys The set to which to add keys.
+	 */
+	private static void collectUnionAlternativeKeys(
+		@NotNull LexerRegex        regex,
+		         int               priority,
+		@NotNull SortedSet<String> alternativeKeys
+	) {
+
+		if (regex instanceof UnionRegex && regex.PRIORITY == priority) {
+
+			collectUnionAlternativeKeys(((UnionRegex)regex).FIRST_REGEX, priority, alternativeKeys);
+			collectUnionAlternativeKeys(((UnionRegex)regex).SECOND_REGEX, priority, alternativeKeys);
+
+		} else {
+
+			StringBuilder keyBuilder = new StringBuilder();
+
+			appendRegexKey(regex, keyBuilder);
+
+			alternativeKeys.add(keyBuilder.toString());
+
+		}
+
+	}
+
+}
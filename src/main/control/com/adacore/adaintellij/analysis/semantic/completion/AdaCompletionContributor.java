@@ -1,23 +1,25 @@
 package com.adacore.adaintellij.analysis.semantic.completion;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import com.intellij.codeInsight.completion.CompletionContributor;
-import com.intellij.codeInsight.completion.CompletionParameters;
-import com.intellij.codeInsight.completion.CompletionResultSet;
-import com.intellij.codeInsight.lookup.LookupElementBuilder;
+import com.intellij.codeInsight.completion.*;
+import com.intellij.codeInsight.lookup.*;
+import com.intellij.codeInsight.lookup.impl.LookupImpl;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.project.Project;
 import com.intellij.psi.PsiFile;
-import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.*;
 
-import org.eclipse.lsp4j.CompletionItem;
+import org.eclipse.lsp4j.*;
 
-import com.adacore.adaintellij.lsp.AdaLSPDriver;
-import com.adacore.adaintellij.lsp.AdaLSPServer;
+import com.adacore.adaintellij.lsp.*;
 
 import static com.adacore.adaintellij.Utils.getPsiFileDocument;
+import static com.adacore.adaintellij.lsp.LSPUtils.awaitResult;
 import static com.adacore.adaintellij.lsp.LSPUtils.offsetToPosition;
 
 /**
@@ -32,6 +34,11 @@ public final class AdaCompletionContributor extends CompletionContributor {
 	 * Makes a `textDocument/completion` request to the ALS to get a
 	 * list of completion items for the current caret position, and
 	 * adds them to the given completion results.
+	 *
+	 * The last complete result is cached and filtered on the client as
+	 * the completed prefix grows, so the ALS is only queried again when
+	 * its result was incomplete or when the caret moves to another word.
+	 * @see CompletionResultCache
 	 */
 	@Override
 	public void fillCompletionVariants(
@@ -47,44 +54,237 @@ public final class AdaCompletionContributor extends CompletionContributor {
 
 		Project project = parameters.getOriginalFile().getProject();
 
-		// Make the request and wait for the result
-
 		AdaLSPServer lspServer = AdaLSPDriver.getServer(project);
 
 		if (lspServer == null) { return; }
 
-		List<CompletionItem> completionItems =
-			lspServer.completion(documentUri, offsetToPosition(document, parameters.getOffset()));
+		// Get the completed prefix, i.e. the identifier
+		// characters preceding the caret
 
-		// Map completion items to instances of `LookupElement`
-		// and add them all to the given `CompletionResult`
+		CharSequence text        = document.getImmutableCharSequence();
+		int          offset      = parameters.getOffset();
+		int          startOffset = CompletionResultCache.wordStart(text, offset);
+		String       prefix      = text.subSequence(startOffset, offset).toString();
 
-		result.addAllElements(
-			completionItems
-				.stream()
-				.map(completionItem -> {
+		// Filter the cached result if it can be reused, and
+		// otherwise make the request and wait for the result
 
-					LookupElementBuilder element =
-						LookupElementBuilder.create(completionItem.getLabel())
-							.bold();
+		CompletionResultCache completionCache = lspServer.getCompletionCache();
 
-					Boolean deprecated = completionItem.getDeprecated();
+		List<CompletionItem> completionItems = completionCache.lookup(documentUri, startOffset, prefix);
 
-					if (deprecated != null && deprecated) {
-						element = element.strikeout();
-					}
+		if (completionItems == null) {
+
+			CompletionList completionList = awaitResult(
+				lspServer.completion(documentUri, offsetToPosition(document, offset)));
+
+			// No result is available if the server is not ready, or
+			// if the request failed or its result was stale, in which
+			// case nothing is cached so that the next completion
+			// queries the ALS again
+
+			if (completionList == null || completionList.getItems() == null) { return; }
+
+			completionCache.store(documentUri, startOffset, prefix, completionList);
+
+			completionItems = CompletionResultCache.filterAndRank(completionList.getItems(), prefix);
+
+			// Query the ALS again as the prefix changes if
+			// it did not return all matching items
+
+			if (completionList.isIncomplete()) {
+				result.restartCompletionOnAnyPrefixChange();
+			}
+
+		}
+
+		// Map completion items to instances of `LookupElement`, ranked
+		// in the order of the filtered items, and add them all to the
+		// given `CompletionResult`, matching prefixes as the filter does
+
+		CompletionResultSet adaResult = result.withPrefixMatcher(new AdaPrefixMatcher(prefix));
+
+		for (int index = 0 ; index < completionItems.size() ; index++) {
+
+			adaResult.addElement(PrioritizedLookupElement.withPriority(
+				new AdaLookupElement(completionItems.get(index), lspServer, parameters.getEditor()),
+				completionItems.size() - index
+			));
+
+		}
+
+	}
+
+	/**
+	 * Prefix matcher matching names as the completion result cache does.
+	 * @see CompletionResultCache#matchClass(String, String)
+	 */
+	private static final class AdaPrefixMatcher extends PrefixMatcher {
+
+		/**
+		 * Constructs a new AdaPrefixMatcher given a prefix.
+		 *
+		 * @param prefix The prefix to match.
+		 */
+		AdaPrefixMatcher(@NotNull String prefix) { super(prefix); }
+
+		/**
+		 * @see com.intellij.codeInsight.completion.PrefixMatcher#prefixMatches(String)
+		 */
+		@Override
+		public boolean prefixMatches(@NotNull String name) {
+			return CompletionResultCache.matchClass(name, getPrefix()) != CompletionResultCache.NO_MATCH;
+		}
+
+		/**
+		 * @see com.intellij.codeInsight.completion.PrefixMatcher#cloneWithPrefix(String)
+		 */
+		@NotNull
+		@Override
+		public PrefixMatcher cloneWithPrefix(@NotNull String prefix) { return new AdaPrefixMatcher(prefix); }
+
+	}
+
+	/**
+	 * Lookup element representing an LSP completion item, whose details
+	 * are resolved through a `completionItem/resolve` request when it
+	 * becomes the current item of the lookup.
+	 * @see AdaCompletionItemResolver
+	 */
+	static final class AdaLookupElement extends LookupElement {
 
-					String detail = completionItem.getDetail();
+		/**
+		 * The represented completion item, replaced by the resolved
+		 * item once it is resolved.
+		 */
+		@NotNull
+		private volatile CompletionItem item;
 
-					if (detail != null) {
-						element = element.withTypeText(detail, null, false);
+		/**
+		 * Whether or not the item is being, or was, resolved.
+		 */
+		private final AtomicBoolean resolveRequested = new AtomicBoolean(false);
+
+		/**
+		 * The server resolving the item.
+		 */
+		@NotNull
+		private final AdaLSPServer lspServer;
+
+		/**
+		 * The editor in which the item is proposed.
+		 */
+		@NotNull
+		private final Editor editor;
+
+		/**
+		 * Constructs a new AdaLookupElement.
+		 *
+		 * @param item The represented completion item.
+		 * @param lspServer The server resolving the item.
+		 * @param editor The editor in which the item is proposed.
+		 */
+		AdaLookupElement(
+			@NotNull CompletionItem item,
+			@NotNull AdaLSPServer   lspServer,
+			@NotNull Editor         editor
+		) {
+			this.item      = item;
+			this.lspServer = lspServer;
+			this.editor    = editor;
+		}
+
+		/**
+		 * @see com.intellij.codeInsight.lookup.LookupElement#getLookupString()
+		 */
+		@NotNull
+		@Override
+		public String getLookupString() { return item.getLabel(); }
+
+		/**
+		 * @see com.intellij.codeInsight.lookup.LookupElement#getAllLookupStrings()
+		 */
+		@Override
+		public Set<String> getAllLookupStrings() {
+			return new HashSet<>(Arrays.asList(item.getLabel(), CompletionResultCache.filterText(item)));
+		}
+
+		/**
+		 * @see com.intellij.codeInsight.lookup.LookupElement#renderElement(LookupElementPresentation)
+		 */
+		@Override
+		public void renderElement(LookupElementPresentation presentation) {
+
+			CompletionItem renderedItem = item;
+
+			presentation.setItemText(renderedItem.getLabel());
+			presentation.setItemTextBold(true);
+
+			Boolean deprecated = renderedItem.getDeprecated();
+
+			if (deprecated != null && deprecated) {
+				presentation.setStrikeout(true);
+			}
+
+			String detail = renderedItem.getDetail();
+
+			if (detail != null) {
+				presentation.setTypeText(detail);
+			}
+
+		}
+
+		/**
+		 * Resolves the details of the represented item, unless they are
+		 * known or already being resolved, then stores the resolved item
+		 * in the completion result cache and refreshes the active lookup
+		 * to render them. Canceling the returned future cancels the
+		 * request, after which the item can be resolved again.
+		 *
+		 * @return A future completing with the resolved item, or null if
+		 *         the item is not resolved.
+		 */
+		@Nullable
+		CompletableFuture<CompletionItem> resolveDetails() {
+
+			CompletionItem unresolvedItem = item;
+
+			if (unresolvedItem.getDetail() != null || !resolveRequested.compareAndSet(false, true)) {
+				return null;
+			}
+
+			CompletableFuture<CompletionItem> future = lspServer.resolveCompletionItem(unresolvedItem);
+
+			future.whenComplete((resolvedItem, throwable) -> {
+
+				if (throwable != null) {
+					resolveRequested.set(false);
+					return;
+				}
+
+				if (resolvedItem == unresolvedItem || resolvedItem.getDetail() == null) { return; }
+
+				item = resolvedItem;
+
+				lspServer.getCompletionCache().itemResolved(unresolvedItem, resolvedItem);
+
+				ApplicationManager.getApplication().invokeLater(() -> {
+
+					if (editor.isDisposed()) { return; }
+
+					Lookup lookup = LookupManager.getActiveLookup(editor);
+
+					if (lookup instanceof LookupImpl) {
+						((LookupImpl)lookup).refreshUi(false, false);
 					}
 
-					return element;
+				});
+
+			});
+
+			return future;
 
-				})
-				.collect(Collectors.toList())
-		);
+		}
 
 	}
 
@@ -0,0 +1,131 @@
+package com.adacore.adaintellij.analysis.semantic.completion;
+
+import java.beans.PropertyChangeEvent;
+import java.util.concurrent.CompletableFuture;
+
+import com.intellij.codeInsight.lookup.*;
+import com.intellij.openapi.components.ProjectComponent;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.*;
+
+import com.adacore.adaintellij.analysis.semantic.completion.AdaCompletionContributor.AdaLookupElement;
+
+/**
+ * Project component resolving the details of Ada completion items
+ * lazily, i.e. only for the current item of the active lookup, as the
+ * user moves through the lookup, rather than for every proposed item.
+ *
+ * At most one `completionItem/resolve` request is pending per lookup:
+ * the request resolving the previous current item is canceled when the
+ * current item changes, and when the lookup is closed.
+ * @see AdaLookupElement#resolveDetails()
+ */
+public final class AdaCompletionItemResolver implements ProjectComponent {
+
+	/**
+	 * The project to which this component belongs.
+	 */
+	private Project project;
+
+	/**
+	 * Constructs a new AdaCompletionItemResolver given a project.
+	 *
+	 * @param project The project to attach to the constructed resolver.
+	 */
+	public AdaCompletionItemResolver(@NotNull Project project) {
+		this.project = project;
+	}
+
+	/**
+	 * @see com.intellij.openapi.components.NamedComponent#getComponentName()
+	 */
+	@NotNull
+	@Override
+	public String getComponentName() {
+		return "com.adacore.adaintellij.analysis.semantic.completion.AdaCompletionItemResolver";
+	}
+
+	/**
+	 * @see com.intellij.openapi.components.ProjectComponent#projectOpened()
+	 *
+	 * Listens to every lookup that becomes active in the project.
+	 */
+	@Override
+	public void projectOpened() {
+		LookupManager.getInstance(project).addPropertyChangeListener(this::activeLookupChanged, project);
+	}
+
+	/**
+	 * Adds a listener resolving current items to the newly active
+	 * lookup, if any.
+	 *
+	 * @param event The lookup manager property change event.
+	 */
+	private void activeLookupChanged(@NotNull PropertyChangeEvent event) {
+
+		if (
+			!LookupManager.PROP_ACTIVE_LOOKUP.equals(event.getPropertyName()) ||
+			!(event.getNewValue() instanceof Lookup)
+		) { return; }
+
+		((Lookup)event.getNewValue()).addLookupListener(new ResolvingLookupListener());
+
+	}
+
+	/**
+	 * Lookup listener resolving the current item of a lookup, and
+	 * canceling the pending resolution of the previous one. Lookup
+	 * listeners are notified on the event dispatch thread.
+	 */
+	private static final class ResolvingLookupListener implements LookupListener {
+
+		/**
+		 * The future of the pending resolution of the current item,
+		 * or null if there is none.
+		 */
+		@Nullable
+		private CompletableFuture<?> pendingResolution;
+
+		/**
+		 * @see com.intellij.codeInsight.lookup.LookupListener#currentItemChanged(LookupEvent)
+		 */
+		@Override
+		public void currentItemChanged(@NotNull LookupEvent event) {
+
+			cancelPendingResolution();
+
+			LookupElement element = event.getItem();
+
+			if (element instanceof AdaLookupElement) {
+				pendingResolution = ((AdaLookupElement)element).resolveDetails();
+			}
+
+		}
+
+		/**
+		 * @see com.intellij.codeInsight.lookup.LookupListener#itemSelected(LookupEvent)
+		 */
+		@Override
+		public void itemSelected(@NotNull LookupEvent event) { cancelPendingResolution(); }
+
+		/**
+		 * @see com.intellij.codeInsight.lookup.LookupListener#lookupCanceled(LookupEvent)
+		 */
+		@Override
+		public void lookupCanceled(@NotNull LookupEvent event) { cancelPendingResolution(); }
+
+		/**
+		 * Cancels the pending resolution of the current item, if any.
+		 */
+		private void cancelPendingResolution() {
+
+			if (pendingResolution != null) {
+				pendingResolution.cancel(true);
+				pendingResolution = null;
+			}
+
+		}
+
+	}
+
+}
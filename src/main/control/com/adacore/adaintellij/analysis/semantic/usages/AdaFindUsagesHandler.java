@@ -1,20 +1,25 @@
 package com.adacore.adaintellij.analysis.semantic.usages;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.*;
 
 import com.intellij.find.findUsages.*;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.progress.*;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
 import com.intellij.psi.search.SearchScope;
 import com.intellij.usageView.UsageInfo;
 import com.intellij.util.Processor;
-import org.jetbrains.annotations.NotNull;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.*;
 
-import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.*;
 
 import com.adacore.adaintellij.lsp.*;
 
@@ -27,6 +32,19 @@ import static com.adacore.adaintellij.lsp.LSPUtils.*;
  */
 public final class AdaFindUsagesHandler extends FindUsagesHandler {
 
+	/**
+	 * The maximum number of files whose usages are materialized in
+	 * parallel.
+	 */
+	private static final int MAX_PARALLEL_FILES =
+		Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+	/**
+	 * The bounded pool in which the usages of files are materialized.
+	 */
+	private static final ExecutorService USAGES_EXECUTOR =
+		AppExecutorUtil.createBoundedApplicationPoolExecutor("Ada Find Usages", MAX_PARALLEL_FILES);
+
 	/**
 	 * The project in which this handler is used.
 	 */
@@ -47,23 +65,124 @@ public final class AdaFindUsagesHandler extends FindUsagesHandler {
 	 * processor. This method is used by the IDE when the standard
 	 * find-usages action is called.
 	 *
+	 * Reference locations returned by the ALS are grouped by file, and
+	 * the usages of every file are materialized in a bounded pool, as
+	 * ranges of that file computed from a line start table, without
+	 * loading documents or parsing files. The usages of a file are passed
+	 * to the processor as soon as that file is done.
+	 *
 	 * @param element The element for which to find usages.
 	 * @param processor The processor of found usages.
 	 * @param options The find-usages options.
-	 * @return The boolean value true.
+	 * @return Whether or not all usages were processed, i.e. the
+	 *         processor did not stop the search.
 	 */
 	@Override
 	public boolean processElementUsages(
-		@NotNull PsiElement           element,
+		@NotNull PsiElement                   element,
 		@NotNull Processor<? super UsageInfo> processor,
-		@NotNull FindUsagesOptions    options
+		@NotNull FindUsagesOptions            options
 	) {
 
-		ApplicationManager.getApplication().runReadAction(() ->
-			findReferences(element, false).forEach(reference ->
-				processor.process(new UsageInfo(reference.getElement()))));
+		List<Location> referenceLocations = findReferenceLocations(element, false);
+
+		if (referenceLocations == null) { return true; }
+
+		// Group locations by file, keeping the order of
+		// files and of locations within files
+
+		Map<String, List<Range>> fileRanges = new LinkedHashMap<>();
+
+		referenceLocations.forEach(location ->
+			fileRanges.computeIfAbsent(location.getUri(), uri -> new ArrayList<>()).add(location.getRange()));
+
+		// Materialize the usages of every file in the pool,
+		// passing them to the processor one file at a time,
+		// under the progress indicator of the search so that
+		// canceling the search stops them and the processor
+		// reports progress to it
+
+		ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+		AtomicBoolean     stopped   = new AtomicBoolean(false);
+		Object            lock      = new Object();
+
+		CompletableFuture<?>[] fileFutures = fileRanges.entrySet().stream()
+			.map(entry -> CompletableFuture.runAsync(() -> ProgressManager.getInstance().runProcess(() -> {
+
+				if (stopped.get()) { return; }
+
+				ProgressManager.checkCanceled();
+
+				List<UsageInfo> usages = ApplicationManager.getApplication().runReadAction(
+					(Computable<List<UsageInfo>>)() -> fileUsages(entry.getKey(), entry.getValue()));
+
+				synchronized (lock) {
 
-		return true;
+					for (UsageInfo usage : usages) {
+
+						if (stopped.get() || !processor.process(usage)) {
+							stopped.set(true);
+							return;
+						}
+
+					}
+
+				}
+
+			}, indicator), USAGES_EXECUTOR))
+			.toArray(CompletableFuture[]::new);
+
+		try {
+			awaitResult(CompletableFuture.allOf(fileFutures));
+		} catch (ProcessCanceledException exception) {
+			stopped.set(true);
+			throw exception;
+		}
+
+		return !stopped.get();
+
+	}
+
+	/**
+	 * Returns usages at the given ranges of the file with the given URI.
+	 * Ranges are converted to offsets using a line start table of the
+	 * file's contents, and usages are created on the file itself, so
+	 * the file is not parsed. Must be called in a read action, under
+	 * the progress indicator of the search.
+	 *
+	 * @param uri The URI of the file.
+	 * @param ranges The ranges of the usages in the file.
+	 * @return The usages, or an empty list if the file was not found.
+	 */
+	@NotNull
+	private List<UsageInfo> fileUsages(@NotNull String uri, @NotNull List<Range> ranges) {
+
+		VirtualFile file = findFileByUrlString(uri);
+
+		if (file == null) { return Collections.emptyList(); }
+
+		PsiFile psiFile = getVirtualFilePsiFile(project, file);
+
+		if (psiFile == null) { return Collections.emptyList(); }
+
+		// The view provider's contents are those of the document if
+		// it is loaded, and of the file otherwise
+
+		LineStartTable  lineStarts = new LineStartTable(psiFile.getViewProvider().getContents());
+		List<UsageInfo> usages     = new ArrayList<>(ranges.size());
+
+		for (Range range : ranges) {
+
+			ProgressManager.checkCanceled();
+
+			int startOffset = lineStarts.offsetOf(range.getStart());
+			int endOffset   = lineStarts.offsetOf(range.getEnd());
+
+			usages.add(new UsageInfo(psiFile, startOffset, Math.max(startOffset, endOffset)));
+
+		}
+
+		return usages;
 
 	}
 
@@ -89,37 +208,78 @@ public final class AdaFindUsagesHandler extends FindUsagesHandler {
 	}
 
 	/**
-	 * General purpose method that finds references to the given target
-	 * element.
 	 * Makes a `textDocument/references` request to the ALS to get the
-	 * list of references to the given element, and returns them as a
-	 * stream.
+	 * locations of references to the given target element, and waits
+	 * for its result.
 	 *
 	 * @param target The target to which to find references.
 	 * @param includeDefinition Whether or not to include the target
 	 *                          element itself with the returned
 	 *                          references.
+	 * @return The reference locations, or null if the request could
+	 *         not be made or failed.
 	 */
-	@NotNull
-	private Stream<PsiReference> findReferences(
+	@Nullable
+	private List<Location> findReferenceLocations(
 		@NotNull PsiElement target,
 		         boolean    includeDefinition
 	) {
 
-		PsiFile  file        = target.getContainingFile();
-		Document document    = getPsiFileDocument(file);
-		String   documentUri = file.getVirtualFile().getUrl();
+		// Get the target's document and position in a read action,
+		// without holding it while waiting for the result
+
+		TextDocumentPositionParams targetPosition = ApplicationManager.getApplication().runReadAction(
+			(Computable<TextDocumentPositionParams>)() -> {
+
+				PsiFile  file     = target.getContainingFile();
+				Document document = getPsiFileDocument(file);
+
+				if (document == null) { return null; }
 
-		if (document == null) { return Stream.empty(); }
+				return new TextDocumentPositionParams(
+					new TextDocumentIdentifier(file.getVirtualFile().getUrl()),
+					offsetToPosition(document, target.getTextOffset())
+				);
+
+			});
+
+		if (targetPosition == null) { return null; }
 
 		// Make the request and wait for the result
 
 		AdaLSPServer lspServer = AdaLSPDriver.getServer(project);
 
-		if (lspServer == null) { return Stream.empty(); }
+		if (lspServer == null) { return null; }
+
+		return awaitResult(lspServer.references(
+			targetPosition.getTextDocument().getUri(),
+			targetPosition.getPosition(),
+			includeDefinition,
+			RequestPriority.INTERACTIVE
+		));
+
+	}
+
+	/**
+	 * General purpose method that finds references to the given target
+	 * element.
+	 * Gets the list of references to the given element from the ALS,
+	 * and returns them as a stream of PSI references.
+	 *
+	 * @param target The target to which to find references.
+	 * @param includeDefinition Whether or not to include the target
+	 *                          element itself with the returned
+	 *                          references.
+	 */
+	@NotNull
+	private Stream<PsiReference> findReferences(
+		@NotNull PsiElement target,
+		         boolean    includeDefinition
+	) {
+
+		List<Location> referenceLocations = findReferenceLocations(target, includeDefinition);
 
-		List<Location> referenceLocations = lspServer.references(
-			documentUri, offsetToPosition(document, target.getTextOffset()), includeDefinition);
+		if (referenceLocations == null) { return Stream.empty(); }
 
 		// Map the returned locations to PSI references and
 		// return them as a stream
@@ -1,16 +1,36 @@
 package com.adacore.adaintellij.analysis.semantic.usages;
 
+import java.util.*;
+
 import com.intellij.codeInsight.highlighting.ReadWriteAccessDetector;
 import com.intellij.psi.*;
-import org.jetbrains.annotations.NotNull;
+import com.intellij.psi.tree.*;
+import com.intellij.psi.util.PsiTreeUtil;
+import org.jetbrains.annotations.*;
 
 import com.adacore.adaintellij.analysis.syntactic.*;
 
+import static com.adacore.adaintellij.analysis.lexical.AdaTokenTypes.*;
+
 /**
  * Read/write access detector for Ada.
+ *
+ * Accesses are classified locally, without requests to the ALS: a
+ * reference is a declaration if it is at the location of the element
+ * it references, that element being resolved once per search by the
+ * platform, and otherwise accesses are classified from the tokens
+ * surrounding the reference (e.g. `X : Integer` declares `X`, and
+ * `X := 0` writes it).
+ *
+ * @see LexicalAccessClassifier
  */
 public final class AdaReadWriteAccessDetector extends ReadWriteAccessDetector {
 
+	/**
+	 * Tokens skipped when looking for the tokens surrounding a reference.
+	 */
+	private static final TokenSet SKIPPED_TOKENS = TokenSet.orSet(WHITESPACE_TOKEN_SET, COMMENT_TOKEN_SET);
+
 	/**
 	 * Returns whether or not the given element can be classified
 	 * as a read and/or write access.
@@ -26,7 +46,7 @@ public final class AdaReadWriteAccessDetector extends ReadWriteAccessDetector {
 
 	/**
 	 * Returns whether or not the given element is a write access
-	 * of a declaration.
+	 * of a declaration, based on the tokens surrounding it.
 	 *
 	 * @param element The element to test.
 	 * @return Whether or not the given element is a write access
@@ -34,12 +54,14 @@ public final class AdaReadWriteAccessDetector extends ReadWriteAccessDetector {
 	 */
 	@Override
 	public boolean isDeclarationWriteAccess(@NotNull PsiElement element) {
-		return element instanceof AdaPsiReference &&
-			((AdaPsiReference)element).isDeclaration();
+		return element instanceof AdaPsiReference && isLexicalDeclaration(element);
 	}
 
 	/**
 	 * Returns the access type of the given reference.
+	 * The given referenced element is the declaration site of the
+	 * search, so the reference is a declaration if it is at the same
+	 * location, and is otherwise classified from its surrounding tokens.
 	 *
 	 * @param referencedElement The element referenced by the
 	 *                          given reference.
@@ -53,7 +75,13 @@ public final class AdaReadWriteAccessDetector extends ReadWriteAccessDetector {
 		@NotNull PsiElement   referencedElement,
 		@NotNull PsiReference reference
 	) {
-		return getExpressionAccess(reference.getElement());
+
+		PsiElement element = reference.getElement();
+
+		if (AdaPsiElement.areEqual(element, referencedElement)) { return Access.Write; }
+
+		return isAssignmentTarget(element) ? Access.Write : Access.Read;
+
 	}
 
 	/**
@@ -66,7 +94,127 @@ public final class AdaReadWriteAccessDetector extends ReadWriteAccessDetector {
 	@NotNull
 	@Override
 	public Access getExpressionAccess(@NotNull PsiElement expression) {
-		return isDeclarationWriteAccess(expression) ? Access.Write : Access.Read;
+		return isDeclarationWriteAccess(expression) || isAssignmentTarget(expression) ?
+			Access.Write : Access.Read;
+	}
+
+	/**
+	 * Returns whether or not the given element is the target of an
+	 * assignment, e.g. `X` in `X := 0` or `A` in `A (I) := 0`.
+	 *
+	 * @param element The element to test.
+	 * @return Whether or not the given element is assigned.
+	 */
+	private static boolean isAssignmentTarget(@NotNull PsiElement element) {
+		return LexicalAccessClassifier.isAssignmentTarget(followingTokenTypes(element));
+	}
+
+	/**
+	 * Returns whether or not the given element is declared at its
+	 * location, judging from the tokens surrounding it.
+	 *
+	 * @param element The element to test.
+	 * @return Whether or not the given element is a declaration.
+	 */
+	private static boolean isLexicalDeclaration(@NotNull PsiElement element) {
+		return LexicalAccessClassifier.isDeclaration(
+			elementType(previousToken(element)), followingTokenTypes(element));
+	}
+
+	/**
+	 * Returns the types of the tokens following the given element,
+	 * skipping whitespace and comments. Tokens are looked up lazily,
+	 * as they are iterated.
+	 *
+	 * @param element The element.
+	 * @return An iterator over the types of the following tokens.
+	 */
+	@NotNull
+	private static Iterator<IElementType> followingTokenTypes(@NotNull PsiElement element) {
+		return new Iterator<IElementType>() {
+
+			/**
+			 * The next token, or null if there is none.
+			 */
+			@Nullable
+			private PsiElement token = nextToken(element);
+
+			/**
+			 * @see java.util.Iterator#hasNext()
+			 */
+			@Override
+			public boolean hasNext() { return token != null; }
+
+			/**
+			 * @see java.util.Iterator#next()
+			 */
+			@Override
+			public IElementType next() {
+
+				if (token == null) { throw new NoSuchElementException(); }
+
+				IElementType type = elementType(token);
+
+				token = nextToken(token);
+
+				return type;
+
+			}
+
+		};
+	}
+
+	/**
+	 * Returns the token following the given element, skipping whitespace
+	 * and comments.
+	 *
+	 * @param element The element.
+	 * @return The following token, or null if there is none.
+	 */
+	@Nullable
+	private static PsiElement nextToken(@Nullable PsiElement element) {
+
+		if (element == null) { return null; }
+
+		PsiElement token = PsiTreeUtil.nextLeaf(element);
+
+		while (token != null && SKIPPED_TOKENS.contains(elementType(token))) {
+			token = PsiTreeUtil.nextLeaf(token);
+		}
+
+		return token;
+
+	}
+
+	/**
+	 * Returns the token preceding the given element, skipping whitespace
+	 * and comments.
+	 *
+	 * @param element The element.
+	 * @return The preceding token, or null if there is none.
+	 */
+	@Nullable
+	private static PsiElement previousToken(@NotNull PsiElement element) {
+
+		PsiElement token = PsiTreeUtil.prevLeaf(element);
+
+		while (token != null && SKIPPED_TOKENS.contains(elementType(token))) {
+			token = PsiTreeUtil.prevLeaf(token);
+		}
+
+		return token;
+
+	}
+
+	/**
+	 * Returns the type of the given token.
+	 *
+	 * @param token The token.
+	 * @return The type of the token, or null if there is no token.
+	 */
+	@Nullable
+	private static IElementType elementType(@Nullable PsiElement token) {
+		return token == null ? null : token.getNode().getElementType();
 	}
 
 }
@@ -1,18 +1,38 @@
 package com.adacore.adaintellij.analysis.semantic.usages;
 
-import com.intellij.psi.PsiElement;
+import java.util.*;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.progress.*;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.*;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
 import com.intellij.refactoring.listeners.RefactoringElementListener;
 import com.intellij.refactoring.rename.RenamePsiElementProcessor;
 import com.intellij.usageView.UsageInfo;
 import org.jetbrains.annotations.*;
 
+import org.eclipse.lsp4j.*;
+
 import com.adacore.adaintellij.analysis.syntactic.*;
+import com.adacore.adaintellij.lsp.*;
+import com.adacore.adaintellij.misc.cache.*;
+
+import static com.adacore.adaintellij.Utils.*;
+import static com.adacore.adaintellij.lsp.LSPUtils.*;
 
 /**
  * Processor of renaming operations over Ada PSI elements.
  */
 public class AdaRenamePsiElementProcessor extends RenamePsiElementProcessor {
 
+	/**
+	 * Key of the renaming prepared in a file, whose workspace edit was
+	 * returned by the ALS before usages were searched.
+	 */
+	private static final CacheKey<PreparedRenaming> PREPARED_RENAMING_KEY = CacheKey.getNewKey();
+
 	/**
 	 * Returns whether or not the given element can be renamed.
 	 *
@@ -31,11 +51,46 @@ public class AdaRenamePsiElementProcessor extends RenamePsiElementProcessor {
 		return canRenameElement(element);
 	}
 
+	/**
+	 * Prepares the renaming of the given element to the given name by
+	 * making a `textDocument/rename` request to the ALS, under a modal
+	 * progress, and keeping the returned workspace edit until the
+	 * renaming is performed, so that the request is not made while the
+	 * documents are being modified.
+	 *
+	 * @param element The element to rename.
+	 * @param newName The new element name.
+	 * @param allRenames The elements to rename, mapped to their new
+	 *                   names.
+	 */
+	@Override
+	public void prepareRenaming(
+		@NotNull PsiElement              element,
+		@NotNull String                  newName,
+		@NotNull Map<PsiElement, String> allRenames
+	) {
+
+		PsiElement patchedElement = patchElement(element);
+		PsiFile    file           = patchedElement.getContainingFile();
+
+		if (file == null) { return; }
+
+		Cacher.cacheData(file, PREPARED_RENAMING_KEY, requestRenaming(patchedElement, newName));
+
+	}
+
 	/**
 	 * Performs the actual process of renaming the given element
 	 * to the given name, as well as the given usages of that
 	 * element, and notifies the given refactoring listener.
 	 *
+	 * The element and its usages are renamed by applying the edits,
+	 * of the element itself and of the given usages, of the workspace
+	 * edit returned by the ALS when the renaming was prepared, which
+	 * updates every edited document in bulk and commits it once. The
+	 * given usages are renamed one by one if the ALS could not rename
+	 * the element.
+	 *
 	 * This method seems to be called with an empty array of usages
 	 * when the rename action is called from one of the usages,
 	 * instead of the declaration itself, so in that case we manually
@@ -57,13 +112,7 @@ public class AdaRenamePsiElementProcessor extends RenamePsiElementProcessor {
 		@Nullable RefactoringElementListener listener
 	) {
 
-		// Get an Ada PSI element from the given element
-
-		AdaPsiElement adaPsiElement = AdaPsiElement.getFrom(element);
-
-		// Use the Ada PSI element if it is available
-
-		PsiElement patchedElement = adaPsiElement == null ? element : adaPsiElement;
+		PsiElement patchedElement = patchElement(element);
 
 		// Patch the element's usages in case they were not given
 
@@ -73,10 +122,234 @@ public class AdaRenamePsiElementProcessor extends RenamePsiElementProcessor {
 				.map(reference -> createUsageInfo(patchedElement, reference, reference.getElement()))
 				.toArray(UsageInfo[]::new);
 
+		// Rename the element and its usages through the ALS if possible
+
+		PreparedRenaming renaming = takePreparedRenaming(patchedElement, newName);
+
+		if (renaming != null && renameWithServer(patchedElement, renaming.edit, patchedUsages, listener)) {
+			return;
+		}
+
 		// Perform the renaming
 
 		super.renameElement(patchedElement, newName, patchedUsages, listener);
 
 	}
 
+	/**
+	 * Returns the Ada PSI element of the given element if it is
+	 * available, or the given element itself otherwise.
+	 *
+	 * @param element The element.
+	 * @return The patched element.
+	 */
+	@NotNull
+	private static PsiElement patchElement(@NotNull PsiElement element) {
+
+		AdaPsiElement adaPsiElement = AdaPsiElement.getFrom(element);
+
+		return adaPsiElement == null ? element : adaPsiElement;
+
+	}
+
+	/**
+	 * Makes a `textDocument/rename` request to the ALS for the given
+	 * element and new name, and waits for its result under a modal,
+	 * cancelable progress.
+	 *
+	 * @param element The element to rename.
+	 * @param newName The new element name.
+	 * @return The prepared renaming, or null if the request could not
+	 *         be made, failed or was canceled.
+	 */
+	@Nullable
+	private static PreparedRenaming requestRenaming(@NotNull PsiElement element, @NotNull String newName) {
+
+		Project  project  = element.getProject();
+		PsiFile  file     = element.getContainingFile();
+		Document document = getPsiFileDocument(file);
+
+		if (document == null || file.getVirtualFile() == null) { return null; }
+
+		AdaLSPServer lspServer = AdaLSPDriver.getServer(project);
+
+		if (lspServer == null) { return null; }
+
+		int      startOffset = element.getTextOffset();
+		String   documentUri = file.getVirtualFile().getUrl();
+		Position position    = offsetToPosition(document, startOffset);
+
+		WorkspaceEdit edit;
+
+		try {
+			edit = ProgressManager.getInstance().runProcessWithProgressSynchronously(
+				(ThrowableComputable<WorkspaceEdit, RuntimeException>)() -> awaitResult(
+					lspServer.rename(documentUri, position, newName, RequestPriority.INTERACTIVE)),
+				"Preparing Rename",
+				true,
+				project
+			);
+		} catch (ProcessCanceledException exception) {
+			return null;
+		}
+
+		return edit == null ? null : new PreparedRenaming(startOffset, newName, edit);
+
+	}
+
+	/**
+	 * Removes the renaming prepared in the file of the given element, and
+	 * returns it if it is the renaming of that element to the given name.
+	 *
+	 * @param element The element to rename.
+	 * @param newName The new element name.
+	 * @return The prepared renaming of the element, or null if there is
+	 *         none.
+	 */
+	@Nullable
+	private static PreparedRenaming takePreparedRenaming(@NotNull PsiElement element, @NotNull String newName) {
+
+		PsiFile file = element.getContainingFile();
+
+		if (file == null) { return null; }
+
+		PreparedRenaming renaming = Cacher.getCachedData(file, PREPARED_RENAMING_KEY).data;
+
+		Cacher.clearCachedData(file, PREPARED_RENAMING_KEY);
+
+		return renaming != null &&
+			renaming.startOffset == element.getTextOffset() &&
+			renaming.newName.equals(newName) ? renaming : null;
+
+	}
+
+	/**
+	 * Renames the given element and the given usages by applying their
+	 * edits of the given workspace edit, returned by the ALS, and notifies
+	 * the given refactoring listener with the renamed element. Edits of
+	 * usages excluded by the user are not applied.
+	 *
+	 * @param element The element to rename.
+	 * @param edit The workspace edit renaming the element.
+	 * @param usages The element's usages to rename.
+	 * @param listener Refactoring listener to be notified.
+	 * @return Whether or not the element was renamed.
+	 */
+	private static boolean renameWithServer(
+		@NotNull  PsiElement                 element,
+		@NotNull  WorkspaceEdit              edit,
+		@NotNull  UsageInfo[]                usages,
+		@Nullable RefactoringElementListener listener
+	) {
+
+		Project  project  = element.getProject();
+		PsiFile  file     = element.getContainingFile();
+		Document document = getPsiFileDocument(file);
+
+		if (document == null || file.getVirtualFile() == null) { return false; }
+
+		int startOffset = element.getTextOffset();
+
+		// Gather the ranges of the element and of the usages
+		// to rename, by file
+
+		Map<VirtualFile, List<Segment>> renamedRanges = new HashMap<>();
+
+		renamedRanges.computeIfAbsent(file.getVirtualFile(), key -> new ArrayList<>()).add(element.getTextRange());
+
+		for (UsageInfo usage : usages) {
+
+			VirtualFile usageFile = usage.getVirtualFile();
+			Segment     segment   = usage.getSegment();
+
+			if (usageFile != null && segment != null) {
+				renamedRanges.computeIfAbsent(usageFile, key -> new ArrayList<>()).add(segment);
+			}
+
+		}
+
+		// Apply the edits starting in those ranges
+
+		Map<Document, TextEditBatch> documentBatches = WorkspaceEditApplier.apply(project, edit,
+			(editedDocument, textEdit) -> {
+
+				VirtualFile   editedFile = getDocumentVirtualFile(editedDocument);
+				List<Segment> ranges     = editedFile == null ? null : renamedRanges.get(editedFile);
+
+				if (ranges == null) { return false; }
+
+				int editOffset = positionToOffset(editedDocument, textEdit.getRange().getStart());
+
+				return ranges.stream().anyMatch(range ->
+					range.getStartOffset() <= editOffset && editOffset <= range.getEndOffset());
+
+			});
+
+		// An edit without changes means that the ALS could not
+		// rename the element
+
+		if (documentBatches == null || documentBatches.isEmpty()) { return false; }
+
+		// Notify the listener with the renamed element, at the offset
+		// of the element in the edited document
+
+		if (listener != null) {
+
+			TextEditBatch batch   = documentBatches.get(document);
+			PsiFile       newFile = PsiDocumentManager.getInstance(project).getPsiFile(document);
+
+			PsiElement renamedElement = newFile == null ? null :
+				newFile.findElementAt(batch == null ? startOffset : batch.mapOffset(startOffset));
+
+			AdaPsiElement adaRenamedElement = renamedElement == null ?
+				null : AdaPsiElement.getFrom(renamedElement);
+
+			if (adaRenamedElement != null) {
+				listener.elementRenamed(adaRenamedElement);
+			}
+
+		}
+
+		return true;
+
+	}
+
+	/**
+	 * A renaming prepared before usages are searched: the workspace edit
+	 * returned by the ALS to rename an element to a new name.
+	 */
+	private static final class PreparedRenaming {
+
+		/**
+		 * The offset of the renamed element in its file.
+		 */
+		final int startOffset;
+
+		/**
+		 * The new name of the element.
+		 */
+		@NotNull
+		final String newName;
+
+		/**
+		 * The workspace edit renaming the element and its usages.
+		 */
+		@NotNull
+		final WorkspaceEdit edit;
+
+		/**
+		 * Constructs a new PreparedRenaming.
+		 *
+		 * @param startOffset The offset of the renamed element.
+		 * @param newName The new name of the element.
+		 * @param edit The workspace edit renaming the element.
+		 */
+		PreparedRenaming(int startOffset, @NotNull String newName, @NotNull WorkspaceEdit edit) {
+			this.startOffset = startOffset;
+			this.newName     = newName;
+			this.edit        = edit;
+		}
+
+	}
+
 }
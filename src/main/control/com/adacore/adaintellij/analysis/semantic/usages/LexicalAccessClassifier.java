@@ -0,0 +1,147 @@
+package com.adacore.adaintellij.analysis.semantic.usages;
+
+import java.util.Iterator;
+
+import com.intellij.psi.tree.*;
+import org.jetbrains.annotations.*;
+
+import static com.adacore.adaintellij.analysis.lexical.AdaTokenTypes.*;
+
+/**
+ * Classification of the accesses of names from the types of the
+ * tokens surrounding them, whitespace and comments excluded, so that
+ * it does not depend on the PSI.
+ *
+ * @see AdaReadWriteAccessDetector
+ */
+final class LexicalAccessClassifier {
+
+	/**
+	 * Keywords introducing the declaration of the name that follows
+	 * them, e.g. `procedure Main` or `package body Greetings`.
+	 */
+	private static final TokenSet DECLARING_KEYWORDS = TokenSet.create(
+		PROCEDURE_KEYWORD, FUNCTION_KEYWORD, PACKAGE_KEYWORD,
+		TYPE_KEYWORD, SUBTYPE_KEYWORD, TASK_KEYWORD,
+		PROTECTED_KEYWORD, ENTRY_KEYWORD, BODY_KEYWORD
+	);
+
+	/**
+	 * Private default constructor to prevent instantiation.
+	 */
+	private LexicalAccessClassifier() {}
+
+	/**
+	 * Returns whether or not a name is the target of an assignment, i.e.
+	 * whether it is followed by an assignment, possibly after a suffix of
+	 * the name made of balanced parenthesized indexes or slices and of
+	 * selectors, e.g. `A` in `A (I) := 0`, and `R` and `F` in
+	 * `R.F (1) := X`, but not `I` in `A (I) := 0`.
+	 *
+	 * @param followingTypes The types of the tokens following the name.
+	 * @return Whether or not the name is assigned.
+	 */
+	static boolean isAssignmentTarget(@NotNull Iterator<IElementType> followingTypes) {
+
+		IElementType type = next(followingTypes);
+
+		while (true) {
+
+			if (type == LEFT_PARENTHESIS) {
+
+				if (!skipParenthesized(followingTypes)) { return false; }
+
+			} else if (type == FULL_STOP) {
+
+				IElementType selectorType = next(followingTypes);
+
+				if (selectorType != IDENTIFIER && selectorType != ALL_KEYWORD) { return false; }
+
+			} else {
+
+				return type == ASSIGNMENT;
+
+			}
+
+			type = next(followingTypes);
+
+		}
+
+	}
+
+	/**
+	 * Returns whether or not a name is declared at its location. A name
+	 * is considered declared if it follows a declaring keyword, if it is
+	 * a loop parameter, or if it is followed by a colon, possibly after
+	 * other names (e.g. `X, Y : Integer`).
+	 *
+	 * @param previousType The type of the token preceding the name, or
+	 *                     null if there is none.
+	 * @param followingTypes The types of the tokens following the name.
+	 * @return Whether or not the name is a declaration.
+	 */
+	static boolean isDeclaration(
+		@Nullable IElementType           previousType,
+		@NotNull  Iterator<IElementType> followingTypes
+	) {
+
+		if (previousType != null && DECLARING_KEYWORDS.contains(previousType)) { return true; }
+
+		IElementType nextType = next(followingTypes);
+
+		if (previousType == FOR_KEYWORD && (nextType == IN_KEYWORD || nextType == OF_KEYWORD)) {
+			return true;
+		}
+
+		// Skip other names of the same declaration
+
+		while (nextType == COMMA && next(followingTypes) == IDENTIFIER) {
+			nextType = next(followingTypes);
+		}
+
+		return nextType == COLON;
+
+	}
+
+	/**
+	 * Skips the tokens up to and including the parenthesis closing an
+	 * opening parenthesis that was just consumed. Parentheses are not
+	 * looked for past the end of the statement.
+	 *
+	 * @param types The types of the following tokens.
+	 * @return Whether or not the closing parenthesis was found.
+	 */
+	private static boolean skipParenthesized(@NotNull Iterator<IElementType> types) {
+
+		int depth = 1;
+
+		while (depth > 0) {
+
+			IElementType type = next(types);
+
+			if (type == null || type == SEMICOLON) { return false; }
+
+			if (type == LEFT_PARENTHESIS) {
+				depth++;
+			} else if (type == RIGHT_PARENTHESIS) {
+				depth--;
+			}
+
+		}
+
+		return true;
+
+	}
+
+	/**
+	 * Returns the next token type of the given iterator.
+	 *
+	 * @param types The token types.
+	 * @return The next token type, or null if there is none.
+	 */
+	@Nullable
+	private static IElementType next(@NotNull Iterator<IElementType> types) {
+		return types.hasNext() ? types.next() : null;
+	}
+
+}
@@ -0,0 +1,37 @@
+package com.adacore.adaintellij.analysis.syntactic;
+
+import com.intellij.lang.Language;
+import com.intellij.psi.tree.IElementType;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+import com.adacore.adaintellij.AdaLanguage;
+
+/**
+ * Type of an Ada syntactic construct spanning one or more tokens,
+ * such as a package, a subprogram, a declaration or a statement.
+ *
+ * @see AdaCompositeElementTypes
+ */
+public final class AdaCompositeElementType extends IElementType {
+
+	/**
+	 * Constructs a new Ada composite element type.
+	 *
+	 * @param debugName The name of the element type, used for debugging purposes.
+	 *
+	 * @see com.intellij.psi.tree.IElementType#IElementType(String, Language)
+	 */
+	AdaCompositeElementType(@NotNull @NonNls String debugName) {
+		super(debugName, AdaLanguage.INSTANCE);
+	}
+
+	/**
+	 * Returns a string representation of this element type.
+	 *
+	 * @return A string representation of this element type.
+	 */
+	@Override
+	public String toString() { return "AdaCompositeElementType." + super.toString(); }
+
+}
@@ -0,0 +1,105 @@
+package com.adacore.adaintellij.analysis.syntactic;
+
+import com.intellij.psi.tree.TokenSet;
+
+/**
+ * Types of the composite elements produced by the Ada parser.
+ * The types of bodies are reparseable, so that edits inside a body
+ * only cause that body to be reparsed.
+ *
+ * @see AdaReparseableElementType
+ * @see AdaParser
+ */
+public final class AdaCompositeElementTypes {
+
+	/*
+		Context Clauses and Pragmas
+	*/
+
+	public static final AdaCompositeElementType WITH_CLAUSE             = new AdaCompositeElementType("WITH_CLAUSE");
+	public static final AdaCompositeElementType USE_CLAUSE              = new AdaCompositeElementType("USE_CLAUSE");
+	public static final AdaCompositeElementType PRAGMA                  = new AdaCompositeElementType("PRAGMA");
+
+	/*
+		Program Units
+	*/
+
+	public static final AdaCompositeElementType PACKAGE_SPECIFICATION   = new AdaCompositeElementType("PACKAGE_SPECIFICATION");
+	public static final AdaReparseableElementType PACKAGE_BODY          = new AdaReparseableElementType("PACKAGE_BODY");
+	public static final AdaCompositeElementType SUBPROGRAM_DECLARATION  = new AdaCompositeElementType("SUBPROGRAM_DECLARATION");
+	public static final AdaReparseableElementType SUBPROGRAM_BODY       = new AdaReparseableElementType("SUBPROGRAM_BODY");
+	public static final AdaCompositeElementType TASK_SPECIFICATION      = new AdaCompositeElementType("TASK_SPECIFICATION");
+	public static final AdaReparseableElementType TASK_BODY             = new AdaReparseableElementType("TASK_BODY");
+	public static final AdaCompositeElementType PROTECTED_SPECIFICATION = new AdaCompositeElementType("PROTECTED_SPECIFICATION");
+	public static final AdaReparseableElementType PROTECTED_BODY        = new AdaReparseableElementType("PROTECTED_BODY");
+	public static final AdaCompositeElementType ENTRY_DECLARATION       = new AdaCompositeElementType("ENTRY_DECLARATION");
+	public static final AdaReparseableElementType ENTRY_BODY            = new AdaReparseableElementType("ENTRY_BODY");
+	public static final AdaCompositeElementType GENERIC_DECLARATION     = new AdaCompositeElementType("GENERIC_DECLARATION");
+	public static final AdaCompositeElementType GENERIC_FORMAL          = new AdaCompositeElementType("GENERIC_FORMAL");
+	public static final AdaCompositeElementType GENERIC_INSTANTIATION   = new AdaCompositeElementType("GENERIC_INSTANTIATION");
+	public static final AdaCompositeElementType RENAMING_DECLARATION    = new AdaCompositeElementType("RENAMING_DECLARATION");
+
+	/*
+		Basic Declarations
+	*/
+
+	public static final AdaCompositeElementType TYPE_DECLARATION        = new AdaCompositeElementType("TYPE_DECLARATION");
+	public static final AdaCompositeElementType OBJECT_DECLARATION      = new AdaCompositeElementType("OBJECT_DECLARATION");
+	public static final AdaCompositeElementType REPRESENTATION_CLAUSE   = new AdaCompositeElementType("REPRESENTATION_CLAUSE");
+
+	/*
+		Statements
+	*/
+
+	public static final AdaCompositeElementType SIMPLE_STATEMENT        = new AdaCompositeElementType("SIMPLE_STATEMENT");
+	public static final AdaCompositeElementType RETURN_STATEMENT        = new AdaCompositeElementType("RETURN_STATEMENT");
+	public static final AdaCompositeElementType BLOCK_STATEMENT         = new AdaCompositeElementType("BLOCK_STATEMENT");
+	public static final AdaCompositeElementType IF_STATEMENT            = new AdaCompositeElementType("IF_STATEMENT");
+	public static final AdaCompositeElementType CASE_STATEMENT          = new AdaCompositeElementType("CASE_STATEMENT");
+	public static final AdaCompositeElementType LOOP_STATEMENT          = new AdaCompositeElementType("LOOP_STATEMENT");
+	public static final AdaCompositeElementType SELECT_STATEMENT        = new AdaCompositeElementType("SELECT_STATEMENT");
+	public static final AdaCompositeElementType ACCEPT_STATEMENT        = new AdaCompositeElementType("ACCEPT_STATEMENT");
+
+	/*
+		Element Sets
+	*/
+
+	/**
+	 * Element set representing Ada program units, i.e. the
+	 * constructs that may themselves contain declarations.
+	 */
+	public static final TokenSet PROGRAM_UNIT_ELEMENT_SET = TokenSet.create(
+		PACKAGE_SPECIFICATION, PACKAGE_BODY, SUBPROGRAM_BODY, TASK_SPECIFICATION, TASK_BODY,
+		PROTECTED_SPECIFICATION, PROTECTED_BODY, ENTRY_BODY, GENERIC_DECLARATION
+	);
+
+	/**
+	 * Element set representing Ada declarations.
+	 */
+	public static final TokenSet DECLARATION_ELEMENT_SET = TokenSet.create(
+		SUBPROGRAM_DECLARATION, ENTRY_DECLARATION, GENERIC_FORMAL, GENERIC_INSTANTIATION,
+		RENAMING_DECLARATION, TYPE_DECLARATION, OBJECT_DECLARATION, REPRESENTATION_CLAUSE
+	);
+
+	/**
+	 * Element set representing Ada statements.
+	 */
+	public static final TokenSet STATEMENT_ELEMENT_SET = TokenSet.create(
+		SIMPLE_STATEMENT, RETURN_STATEMENT, BLOCK_STATEMENT, IF_STATEMENT,
+		CASE_STATEMENT, LOOP_STATEMENT, SELECT_STATEMENT, ACCEPT_STATEMENT
+	);
+
+	/**
+	 * Element set representing all Ada composite elements.
+	 */
+	public static final TokenSet ALL_COMPOSITE_ELEMENTS = TokenSet.orSet(
+		TokenSet.create(WITH_CLAUSE, USE_CLAUSE, PRAGMA),
+		PROGRAM_UNIT_ELEMENT_SET, DECLARATION_ELEMENT_SET, STATEMENT_ELEMENT_SET
+	);
+
+	/**
+	 * Private default constructor to prevent instantiation.
+	 */
+	private AdaCompositeElementTypes() {}
+
+}
@@ -0,0 +1,734 @@
+package com.adacore.adaintellij.analysis.syntactic;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.intellij.openapi.components.ProjectComponent;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.*;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.fileEditor.FileDocumentManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Segment;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.*;
+import org.jetbrains.annotations.*;
+
+import com.adacore.adaintellij.editor.AdaDocumentListener;
+import com.adacore.adaintellij.misc.cache.CacheResult;
+
+/**
+ * Project component caching the definitions to which Ada references
+ * resolve, as returned by the ALS.
+ *
+ * Definitions are cached per document, by the start offset of the
+ * reference in that document, and only for the document version
+ * (modification stamp) for which they were requested. They hold smart
+ * pointers to their target elements, so they neither keep PSI trees
+ * of other files in memory nor become invalid when files are reparsed.
+ *
+ * Edits invalidate cached definitions as follows:
+ *   - Definitions of references touched by an edit are discarded,
+ *     and those of references after it have their offsets remapped
+ *     to the edited document.
+ *   - Definitions whose targets are touched by an edit are discarded.
+ *   - Definitions of references whose names appear in the text
+ *     inserted or removed by an edit, in any document, are discarded,
+ *     including cached absences of definitions, as such an edit may
+ *     add, remove or rename declarations that the references resolve
+ *     to or that hide their targets.
+ *   - Cached absences of definitions in an edited document are
+ *     discarded, as an edit to that document (e.g. to its context
+ *     clauses) may make its unresolved references resolvable.
+ * Definitions are indexed by the files of their targets and by the
+ * names of their references, so that an edit only checks the
+ * definitions that it may invalidate.
+ * Documents whose versions do not match those of their cached
+ * definitions (e.g. after an edit that was not reported to this
+ * component) have their cached definitions discarded.
+ */
+public final class AdaDefinitionCache implements ProjectComponent {
+
+	/**
+	 * Class-wide logger for the AdaDefinitionCache class.
+	 */
+	private static final Logger LOGGER = Logger.getInstance(AdaDefinitionCache.class);
+
+	/**
+	 * The project to which this component belongs.
+	 */
+	private Project project;
+
+	/**
+	 * Cached definitions, mapped to the documents of their references.
+	 * Documents are weakly referenced so that the definitions of
+	 * documents that are no longer loaded are discarded with them,
+	 * and definitions refer to the files of their targets rather than
+	 * to their documents, so that no document is kept in memory.
+	 */
+	private final Map<Document, DocumentDefinitions> documentDefinitions = new WeakHashMap<>();
+
+	/**
+	 * Cached definitions with targets, mapped to the files of their
+	 * targets, and cached definitions, including absences of
+	 * definitions, mapped to the lowercase names of their references.
+	 * Definitions are weakly referenced in these indexes, as they are
+	 * held by the definitions of their documents.
+	 */
+	private final Map<VirtualFile, Set<Definition>> targetFileDefinitions = new HashMap<>();
+	private final Map<String, Set<Definition>>      nameDefinitions       = new HashMap<>();
+
+	/**
+	 * Cache hit and miss counters.
+	 */
+	private final AtomicLong hitCount  = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * Constructs a new AdaDefinitionCache given a project.
+	 *
+	 * @param project The project to attach to the constructed cache.
+	 */
+	public AdaDefinitionCache(@NotNull Project project) {
+		this.project = project;
+	}
+
+	/**
+	 * @see com.intellij.openapi.components.NamedComponent#getComponentName()
+	 */
+	@NotNull
+	@Override
+	public String getComponentName() {
+		return "com.adacore.adaintellij.analysis.syntactic.AdaDefinitionCache";
+	}
+
+	/**
+	 * @see com.intellij.openapi.components.ProjectComponent#projectOpened()
+	 */
+	@Override
+	public void projectOpened() {
+
+		EditorFactory.getInstance().getEventMulticaster().addDocumentListener(new AdaDocumentListener() {
+
+			/**
+			 * @see com.adacore.adaintellij.editor.AdaDocumentListener#beforeAdaDocumentChanged(DocumentEvent)
+			 */
+			@Override
+			public void beforeAdaDocumentChanged(@NotNull DocumentEvent event) {
+				beforeDocumentEdited(event);
+			}
+
+			/**
+			 * @see com.adacore.adaintellij.editor.AdaDocumentListener#adaDocumentChanged(DocumentEvent)
+			 */
+			@Override
+			public void adaDocumentChanged(@NotNull DocumentEvent event) {
+				afterDocumentEdited(event);
+			}
+
+		}, project);
+
+	}
+
+	/**
+	 * @see com.intellij.openapi.components.ProjectComponent#projectClosed()
+	 */
+	@Override
+	public void projectClosed() {
+
+		LOGGER.debug("Definition cache: " + hitCount.get() + " hits, " + missCount.get() + " misses");
+
+		synchronized (this) {
+			documentDefinitions.clear();
+			targetFileDefinitions.clear();
+			nameDefinitions.clear();
+		}
+
+	}
+
+	/**
+	 * Returns the AdaDefinitionCache project component of the given
+	 * project.
+	 *
+	 * @param project The project for which to get the component.
+	 * @return The project component.
+	 */
+	@NotNull
+	public static AdaDefinitionCache getInstance(@NotNull Project project) {
+		return project.getComponent(AdaDefinitionCache.class);
+	}
+
+	/**
+	 * Returns the number of lookups for which a definition was cached.
+	 *
+	 * @return The number of cache hits.
+	 */
+	public long getHitCount() { return hitCount.get(); }
+
+	/**
+	 * Returns the number of lookups for which no definition was cached.
+	 *
+	 * @return The number of cache misses.
+	 */
+	public long getMissCount() { return missCount.get(); }
+
+	/**
+	 * Returns the cached definition of the reference starting at the
+	 * given offset in the given document, as a cache result. The data
+	 * of a cache hit is null if the reference is cached as having no
+	 * definition.
+	 *
+	 * @param document The document of the reference.
+	 * @param offset The start offset of the reference.
+	 * @return The cached definition as a cache result.
+	 */
+	@NotNull
+	public CacheResult<AdaPsiElement> getDefinition(@NotNull Document document, int offset) {
+
+		CacheResult<AdaPsiElement> result = lookUpDefinition(document, offset);
+
+		(result.hit ? hitCount : missCount).incrementAndGet();
+
+		return result;
+
+	}
+
+	/**
+	 * Caches the definition of the reference starting at the given
+	 * offset in the given document, as requested for the given
+	 * version of that document. The definition is not cached if the
+	 * document changed since that version.
+	 *
+	 * @param document The document of the reference.
+	 * @param documentStamp The modification stamp of the document
+	 *                      at the time the definition was requested.
+	 * @param reference The reference.
+	 * @param definition The definition of the reference, or null if
+	 *                   the reference has no definition.
+	 */
+	public void cacheDefinition(
+		@NotNull  Document        document,
+		          long            documentStamp,
+		@NotNull  AdaPsiReference reference,
+		@Nullable AdaPsiElement   definition
+	) {
+
+		if (!isCommitted(document)) { return; }
+
+		// Create the pointer to the definition before
+		// locking, as it requires accessing its file
+
+		VirtualFile                           targetFile        = null;
+		SmartPsiElementPointer<AdaPsiElement> definitionPointer = null;
+
+		if (definition != null) {
+
+			PsiFile definitionFile = definition.getContainingFile();
+
+			if (
+				definitionFile == null ||
+				definitionFile.getVirtualFile() == null ||
+				PsiDocumentManager.getInstance(project).getDocument(definitionFile) == null
+			) { return; }
+
+			targetFile        = definitionFile.getVirtualFile();
+			definitionPointer = SmartPointerManager.getInstance(project)
+				.createSmartPsiElementPointer(definition, definitionFile);
+
+		}
+
+		int    offset = reference.getStartOffset();
+		int    length = reference.getTextLength();
+		String name   = reference.getName().toLowerCase();
+
+		synchronized (this) {
+
+			if (document.getModificationStamp() != documentStamp) { return; }
+
+			DocumentDefinitions definitions = documentDefinitions.get(document);
+
+			if (definitions == null || definitions.documentStamp != documentStamp) {
+				discardDocumentDefinitions(document);
+				definitions = new DocumentDefinitions(documentStamp);
+				documentDefinitions.put(document, definitions);
+			}
+
+			Definition cachedDefinition =
+				new Definition(definitions, offset, length, name, targetFile, definitionPointer);
+
+			Definition replacedDefinition = definitions.definitions.get(offset);
+
+			if (replacedDefinition != null) {
+				discard(replacedDefinition);
+			}
+
+			definitions.definitions.put(offset, cachedDefinition);
+
+			index(cachedDefinition);
+
+		}
+
+	}
+
+	/**
+	 * Looks up the cached definition of the reference starting at the
+	 * given offset in the given document.
+	 *
+	 * @param document The document of the reference.
+	 * @param offset The start offset of the reference.
+	 * @return The cached definition as a cache result.
+	 */
+	@NotNull
+	private synchronized CacheResult<AdaPsiElement> lookUpDefinition(@NotNull Document document, int offset) {
+
+		if (!isCommitted(document)) { return new CacheResult<>(); }
+
+		DocumentDefinitions definitions = documentDefinitions.get(document);
+
+		if (definitions == null) { return new CacheResult<>(); }
+
+		// If the document changed since its definitions were
+		// cached, then discard them
+
+		if (definitions.documentStamp != document.getModificationStamp()) {
+			discardDocumentDefinitions(document);
+			return new CacheResult<>();
+		}
+
+		Definition definition = definitions.definitions.get(offset);
+
+		if (definition == null) { return new CacheResult<>(); }
+
+		if (definition.definitionPointer == null) { return new CacheResult<>(null); }
+
+		// Restore the definition from its pointer, and discard
+		// it if the pointer could not be restored
+
+		AdaPsiElement element = definition.definitionPointer.getElement();
+
+		if (element == null || !element.isValid()) {
+			discard(definition);
+			return new CacheResult<>();
+		}
+
+		return new CacheResult<>(element);
+
+	}
+
+	/**
+	 * Invalidates cached definitions according to the given document
+	 * event, before the corresponding edit is applied, and remaps the
+	 * offsets of the definitions of the edited document.
+	 *
+	 * @param event The document event.
+	 */
+	private synchronized void beforeDocumentEdited(@NotNull DocumentEvent event) {
+
+		Document document  = event.getDocument();
+		int      editStart = event.getOffset();
+		int      editEnd   = editStart + event.getOldLength();
+
+		// Discard the definitions of references whose names
+		// appear in the removed text
+
+		discardNamedDefinitions(identifiersAround(document.getImmutableCharSequence(), editStart, editEnd));
+
+		// Discard the definitions whose targets are in the edited
+		// document and are touched by the edit
+
+		VirtualFile     file              = FileDocumentManager.getInstance().getFile(document);
+		Set<Definition> targetDefinitions = file == null ? null : targetFileDefinitions.get(file);
+
+		if (targetDefinitions != null) {
+
+			List<Definition> touchedTargetDefinitions = new ArrayList<>();
+
+			for (Definition definition : targetDefinitions) {
+
+				Segment definitionRange = definition.definitionPointer == null ?
+					null : definition.definitionPointer.getRange();
+
+				if (
+					definitionRange == null ||
+					touches(definitionRange.getStartOffset(), definitionRange.getEndOffset(), editStart, editEnd)
+				) {
+					touchedTargetDefinitions.add(definition);
+				}
+
+			}
+
+			touchedTargetDefinitions.forEach(this::discard);
+
+		}
+
+		DocumentDefinitions definitions = documentDefinitions.get(document);
+
+		if (definitions == null) { return; }
+
+		// Discard the absences of definitions of the edited document,
+		// as the edit may make its unresolved references resolvable
+
+		new ArrayList<>(definitions.absences).forEach(this::discard);
+
+		// Discard the definitions of references touched by the
+		// edit and shift those of references after it
+
+		NavigableMap<Integer, Definition> documentEntries = definitions.definitions;
+
+		Integer firstAffectedOffset = documentEntries.floorKey(editStart);
+
+		SortedMap<Integer, Definition> affectedEntries =
+			documentEntries.tailMap(firstAffectedOffset == null ? editStart : firstAffectedOffset);
+
+		List<Definition> keptDefinitions    = new ArrayList<>();
+		List<Definition> touchedDefinitions = new ArrayList<>();
+		int              offsetDelta        = event.getNewLength() - event.getOldLength();
+
+		Iterator<Definition> iterator = affectedEntries.values().iterator();
+
+		while (iterator.hasNext()) {
+
+			Definition definition = iterator.next();
+
+			iterator.remove();
+
+			if (touches(definition.offset, definition.offset + definition.length, editStart, editEnd)) {
+				touchedDefinitions.add(definition);
+				continue;
+			}
+
+			if (definition.offset > editEnd) {
+				definition.offset += offsetDelta;
+			}
+
+			keptDefinitions.add(definition);
+
+		}
+
+		keptDefinitions.forEach(definition -> documentEntries.put(definition.offset, definition));
+		touchedDefinitions.forEach(this::discard);
+
+	}
+
+	/**
+	 * Invalidates cached definitions according to the given document
+	 * event, after the corresponding edit is applied, and updates the
+	 * version of the definitions of the edited document.
+	 *
+	 * @param event The document event.
+	 */
+	private synchronized void afterDocumentEdited(@NotNull DocumentEvent event) {
+
+		Document document  = event.getDocument();
+		int      editStart = event.getOffset();
+
+		// Discard the definitions of references whose names
+		// appear in the inserted text
+
+		discardNamedDefinitions(identifiersAround(
+			document.getImmutableCharSequence(), editStart, editStart + event.getNewLength()));
+
+		DocumentDefinitions definitions = documentDefinitions.get(document);
+
+		if (definitions != null) {
+			definitions.documentStamp = document.getModificationStamp();
+		}
+
+	}
+
+	/**
+	 * Indexes the given cached definition by the file of its target and
+	 * by the name of its reference, and records it as an absence of
+	 * definition if it has no target.
+	 *
+	 * @param definition The definition to index.
+	 */
+	private void index(@NotNull Definition definition) {
+
+		indexedDefinitions(nameDefinitions, definition.name).add(definition);
+
+		if (definition.targetFile != null) {
+			indexedDefinitions(targetFileDefinitions, definition.targetFile).add(definition);
+		}
+
+		if (definition.definitionPointer == null) {
+			definition.documentDefinitions.absences.add(definition);
+		}
+
+	}
+
+	/**
+	 * Discards the given cached definition from the definitions of its
+	 * document and from the indexes.
+	 *
+	 * @param definition The definition to discard.
+	 */
+	private void discard(@NotNull Definition definition) {
+
+		definition.documentDefinitions.definitions.remove(definition.offset, definition);
+		definition.documentDefinitions.absences.remove(definition);
+
+		unindex(nameDefinitions, definition.name, definition);
+
+		if (definition.targetFile != null) {
+			unindex(targetFileDefinitions, definition.targetFile, definition);
+		}
+
+	}
+
+	/**
+	 * Discards the cached definitions of the given document.
+	 *
+	 * @param document The document whose definitions to discard.
+	 */
+	private void discardDocumentDefinitions(@NotNull Document document) {
+
+		DocumentDefinitions definitions = documentDefinitions.remove(document);
+
+		if (definitions != null) {
+			new ArrayList<>(definitions.definitions.values()).forEach(this::discard);
+		}
+
+	}
+
+	/**
+	 * Discards the cached definitions, and absences of definitions, of
+	 * the references with the given lowercase names, in any document.
+	 *
+	 * @param names The names of the references.
+	 */
+	private void discardNamedDefinitions(@NotNull Set<String> names) {
+
+		for (String name : names) {
+
+			Set<Definition> definitions = nameDefinitions.remove(name);
+
+			if (definitions != null) {
+				new ArrayList<>(definitions).forEach(this::discard);
+			}
+
+		}
+
+	}
+
+	/**
+	 * Returns the definitions indexed by the given key in the given
+	 * index, adding an empty set of definitions for that key if there
+	 * is none.
+	 *
+	 * @param index The index.
+	 * @param key The key.
+	 * @param <K> The type of the keys of the index.
+	 * @return The indexed definitions.
+	 */
+	@NotNull
+	private static <K> Set<Definition> indexedDefinitions(@NotNull Map<K, Set<Definition>> index, @NotNull K key) {
+		return index.computeIfAbsent(key, newKey -> Collections.newSetFromMap(new WeakHashMap<>()));
+	}
+
+	/**
+	 * Removes the given definition from the definitions indexed by the
+	 * given key in the given index, removing the key once it indexes
+	 * no definition.
+	 *
+	 * @param index The index.
+	 * @param key The key.
+	 * @param definition The definition to remove.
+	 * @param <K> The type of the keys of the index.
+	 */
+	private static <K> void unindex(
+		@NotNull Map<K, Set<Definition>> index,
+		@NotNull K                       key,
+		@NotNull Definition              definition
+	) {
+
+		Set<Definition> definitions = index.get(key);
+
+		if (definitions == null) { return; }
+
+		definitions.remove(definition);
+
+		if (definitions.isEmpty()) {
+			index.remove(key);
+		}
+
+	}
+
+	/**
+	 * Returns whether or not the PSI tree of the given document is in
+	 * sync with it, i.e. whether or not reference offsets in the PSI
+	 * tree are also offsets in the document.
+	 *
+	 * @param document The document to check.
+	 * @return Whether or not the document is committed.
+	 */
+	private boolean isCommitted(@NotNull Document document) {
+		return PsiDocumentManager.getInstance(project).isCommitted(document);
+	}
+
+	/**
+	 * Returns whether or not the given ranges overlap or are adjacent.
+	 *
+	 * @param start1 The start offset of the first range.
+	 * @param end1 The end offset of the first range.
+	 * @param start2 The start offset of the second range.
+	 * @param end2 The end offset of the second range.
+	 * @return Whether or not the ranges touch.
+	 */
+	private static boolean touches(int start1, int end1, int start2, int end2) {
+		return start1 <= end2 && start2 <= end1;
+	}
+
+	/**
+	 * Returns the lowercase names of the identifiers in the given
+	 * range of the given text, including those that only partially
+	 * lie in that range.
+	 *
+	 * @param text The text.
+	 * @param start The start offset of the range.
+	 * @param end The end offset of the range.
+	 * @return The names of the identifiers in the range.
+	 */
+	@NotNull
+	private static Set<String> identifiersAround(@NotNull CharSequence text, int start, int end) {
+
+		Set<String> names = new HashSet<>();
+
+		// Extend the range to the identifiers that it cuts
+
+		while (start > 0 && isIdentifierCharacter(text.charAt(start - 1))) { start--; }
+
+		while (end < text.length() && isIdentifierCharacter(text.charAt(end))) { end++; }
+
+		int identifierStart = -1;
+
+		for (int offset = start ; offset <= end ; offset++) {
+
+			boolean identifierCharacter =
+				offset < end && isIdentifierCharacter(text.charAt(offset));
+
+			if (identifierCharacter && identifierStart < 0) {
+				identifierStart = offset;
+			} else if (!identifierCharacter && identifierStart >= 0) {
+				names.add(text.subSequence(identifierStart, offset).toString().toLowerCase());
+				identifierStart = -1;
+			}
+
+		}
+
+		return names;
+
+	}
+
+	/**
+	 * Returns whether or not the given character may be part of an
+	 * Ada identifier.
+	 *
+	 * @param character The character to check.
+	 * @return Whether or not the character may be part of an identifier.
+	 */
+	private static boolean isIdentifierCharacter(char character) {
+		return character == '_' || Character.isLetterOrDigit(character);
+	}
+
+	/**
+	 * The cached definitions of the references in a document, for a
+	 * given version of that document.
+	 */
+	private static final class DocumentDefinitions {
+
+		/**
+		 * The modification stamp of the document version to which
+		 * the definitions correspond.
+		 */
+		long documentStamp;
+
+		/**
+		 * The definitions, mapped to the start offsets of their
+		 * references.
+		 */
+		final NavigableMap<Integer, Definition> definitions = new TreeMap<>();
+
+		/**
+		 * The definitions of references that have no definition.
+		 */
+		final Set<Definition> absences = new HashSet<>();
+
+		/**
+		 * Constructs a new DocumentDefinitions given a document stamp.
+		 *
+		 * @param documentStamp The modification stamp of the document.
+		 */
+		DocumentDefinitions(long documentStamp) {
+			this.documentStamp = documentStamp;
+		}
+
+	}
+
+	/**
+	 * The cached definition of a reference.
+	 */
+	private static final class Definition {
+
+		/**
+		 * The definitions of the document of the reference.
+		 */
+		@NotNull
+		final DocumentDefinitions documentDefinitions;
+
+		/**
+		 * The start offset and length of the reference.
+		 */
+		int       offset;
+		final int length;
+
+		/**
+		 * The lowercase name of the reference.
+		 */
+		final String name;
+
+		/**
+		 * The file of the definition, or null if the reference has no
+		 * definition.
+		 */
+		@Nullable
+		final VirtualFile targetFile;
+
+		/**
+		 * A pointer to the definition, or null if the reference has
+		 * no definition.
+		 */
+		@Nullable
+		final SmartPsiElementPointer<AdaPsiElement> definitionPointer;
+
+		/**
+		 * Constructs a new Definition given the definitions of its
+		 * reference's document, its reference's range and name, and
+		 * its target.
+		 *
+		 * @param documentDefinitions The definitions of the document.
+		 * @param offset The start offset of the reference.
+		 * @param length The length of the reference.
+		 * @param name The lowercase name of the reference.
+		 * @param targetFile The file of the definition.
+		 * @param definitionPointer A pointer to the definition.
+		 */
+		Definition(
+			@NotNull  DocumentDefinitions                   documentDefinitions,
+			          int                                   offset,
+			          int                                   length,
+			@NotNull  String                                name,
+			@Nullable VirtualFile                           targetFile,
+			@Nullable SmartPsiElementPointer<AdaPsiElement> definitionPointer
+		) {
+			this.documentDefinitions = documentDefinitions;
+			this.offset              = offset;
+			this.length              = length;
+			this.name                = name;
+			this.targetFile          = targetFile;
+			this.definitionPointer   = definitionPointer;
+		}
+
+	}
+
+}
@@ -1,8 +1,17 @@
 package com.adacore.adaintellij.analysis.syntactic;
 
 import com.intellij.lang.*;
-import com.intellij.psi.tree.IElementType;
-import org.jetbrains.annotations.NotNull;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.Ref;
+import com.intellij.psi.TokenType;
+import com.intellij.psi.tree.*;
+import com.intellij.util.diff.FlyweightCapableTreeStructure;
+import org.jetbrains.annotations.*;
+
+import com.adacore.adaintellij.analysis.lexical.AdaFixedTokenType;
+
+import static com.adacore.adaintellij.analysis.lexical.AdaTokenTypes.*;
+import static com.adacore.adaintellij.analysis.syntactic.AdaCompositeElementTypes.*;
 
 /**
  * Parser for the Ada language.
@@ -14,51 +23,62 @@ import org.jetbrains.annotations.NotNull;
  *
  * However, these operations still need to go through an AST in the format
  * defined by the IntelliJ platform, which consists of the various classes
- * from the the PSI family.
+ * from the the PSI family, and purely structural features (structure view,
+ * folding, navigation between enclosing constructs...) are best computed
+ * locally rather than through a round trip to the ALS.
  *
- * To address this, the Ada-IntelliJ plugin provides some sort of dummy parser
- * for Ada files, that simply outputs an AST in the form of a flat tree of nodes
- * that directly map to the tokens produced by the Ada lexer.
+ * To address this, the Ada-IntelliJ plugin provides an error-tolerant
+ * recursive-descent parser that recognizes the structure of Ada compilation
+ * units (packages, subprograms, tasks, protected units, declarations, blocks
+ * and statements) without analysing expressions, and outputs an AST in which
+ * every token produced by the Ada lexer is wrapped in its own leaf node, and
+ * in which sequences of such leaves are grouped into composite nodes.
  *
  * Consider the following example:
  *
- *       Code            Lexer Tokens                   Parsed PSI Tree
- *  ===========================================================================
- *  ...                      ...       -------             ...---|
- *  declare            DECLARE_KEYWORD -------   AdaPsiElement---|
- *     X : Integer;      WHITE_SPACE   -------   AdaPsiElement---|
- *  begin                IDENTIFIER    ------- AdaPsiReference---|
- *     X := A + 1;       WHITE_SPACE   -------   AdaPsiElement---|
- *  end;                    COLON      -------   AdaPsiElement---|
- *  ...                  WHITE_SPACE   -------   AdaPsiElement---|
- *                       IDENTIFIER    ------- AdaPsiReference---|
- *                        SEMICOLON    -------   AdaPsiElement---|
- *                       WHITE_SPACE   -------   AdaPsiElement---|
- *                      BEGIN_KEYWORD  -------   AdaPsiElement---|
- *                       WHITE_SPACE   -------   AdaPsiElement---|
- *                       IDENTIFIER    ------- AdaPsiReference---|---AdaPsiFile
- *                       WHITE_SPACE   -------   AdaPsiElement---|
- *                       ASSIGNMENT    -------   AdaPsiElement---|
- *                       WHITE_SPACE   -------   AdaPsiElement---|
- *                       IDENTIFIER    ------- AdaPsiReference---|
- *                       WHITE_SPACE   -------   AdaPsiElement---|
- *                        PLUS_SIGN    -------   AdaPsiElement---|
- *                       WHITE_SPACE   -------   AdaPsiElement---|
- *                     DECIMAL_LITERAL -------   AdaPsiElement---|
- *                        SEMICOLON    -------   AdaPsiElement---|
- *                       WHITE_SPACE   -------   AdaPsiElement---|
- *                       END_KEYWORD   -------   AdaPsiElement---|
- *                        SEMICOLON    -------   AdaPsiElement---|
- *                           ...       -------             ...---|
+ *       Code                         Parsed PSI Tree
+ *  ================================================================
+ *  declare                  BLOCK_STATEMENT
+ *     X : Integer;           |-   AdaPsiElement (DECLARE_KEYWORD)
+ *  begin                     |- OBJECT_DECLARATION
+ *     X := A + 1;            |   |- AdaPsiReference (IDENTIFIER)
+ *  end;                      |   |-   AdaPsiElement (COLON)
+ *                            |   |- AdaPsiReference (IDENTIFIER)
+ *                            |   |-   AdaPsiElement (SEMICOLON)
+ *                            |-   AdaPsiElement (BEGIN_KEYWORD)
+ *                            |- SIMPLE_STATEMENT
+ *                            |   |- AdaPsiReference (IDENTIFIER)
+ *                            |   |-   AdaPsiElement (ASSIGNMENT)
+ *                            |   |- AdaPsiReference (IDENTIFIER)
+ *                            |   |-   AdaPsiElement (PLUS_SIGN)
+ *                            |   |-   AdaPsiElement (DECIMAL_LITERAL)
+ *                            |   |-   AdaPsiElement (SEMICOLON)
+ *                            |-   AdaPsiElement (END_KEYWORD)
+ *                            |-   AdaPsiElement (SEMICOLON)
+ *
+ * (Whitespace and comment tokens are omitted from this example.)
+ *
+ * Composite nodes are mapped to instances of `AdaPsiCompositeElement`, and
+ * their types are defined in `AdaCompositeElementTypes`. Token nodes are
+ * mapped to instances of `AdaPsiElement`, or its subclass `AdaPsiReference`
+ * in the case of identifiers, so that the Ada-IntelliJ plugin can override
+ * operations defined on them and "outsource" the actual work required for
+ * those operations to the ALS. Whitespace and comment tokens are not wrapped
+ * in leaf nodes, and are attached by the PSI builder to the innermost
+ * composite node surrounding them.
  *
- * As this example demonstrates, the final abstract trees returned by this
- * parser are not ASTs in the proper, traditional sense of the word, namely:
- *  - They maintain ALL elements of the source code, including whitespaces,
- *    comments, delimiters, etc.
- *  - They have absolutely no semantic dimension to them
- * Their only purpose is to act as placeholders that enable the Ada-IntelliJ
- * plugin to override operations defined on their nodes and "outsource" the
- * actual work required for those operations to the ALS.
+ * The parser never fails: when it encounters unexpected tokens, it records
+ * an error in the tree and resynchronizes on the next semicolon or on the
+ * next keyword delimiting a construct (e.g. `begin` or `end`). Such errors
+ * are only used to recover the structure of the file, and are not reported
+ * to the user, as the ALS already reports syntax errors.
+ * @see com.adacore.adaintellij.analysis.syntactic.diagnostics.AdaHighlightErrorFilter
+ *
+ * Bodies are nodes of reparseable types: when a file is edited, only the
+ * innermost body enclosing the edit is reparsed, as long as its new text
+ * still forms a single body. Parsing times are recorded in `STATISTICS`,
+ * and logged at debug level.
+ * @see AdaReparseableElementType
  *
  * Note that, as an intermediate step, before building the final AST consisting
  * of PSI elements, the PSI builder builds a tree consisting of instances of the
@@ -70,38 +90,145 @@ import org.jetbrains.annotations.NotNull;
  * https://www.jetbrains.org/intellij/sdk/docs/reference_guide/custom_language_support/img/PsiBuilder.gif
  *
  * The intermediate tree does not necessarily have a one-to-one mapping to the
- * final PSI tree. In fact, for every "leaf" marker (except for whitespace and
- * comments), the PSI builder seems to add to the intermediate tree a
- * `CompositeElement` containing a single child `LeafElement`. In the final PSI
- * tree, the `CompositeElement` is mapped to an `AdaPsiElement` or an
- * `AdaPsiReference` and the `LeafElement` is mapped to some other instance of a
- * class implementing `PsiElement`. This means that, unlike what is shown in the
- * example above, the actual final parsed PSI tree has a depth of 2. Here is an
- * example diagram with arrows illustrating references:
+ * final PSI tree. In fact, for every token "leaf" marker, the PSI builder adds
+ * to the intermediate tree a `CompositeElement` containing a single child
+ * `LeafElement`. In the final PSI tree, the `CompositeElement` is mapped to an
+ * `AdaPsiElement` or an `AdaPsiReference` and the `LeafElement` is mapped to
+ * some other instance of a class implementing `PsiElement`. Here is an example
+ * diagram with arrows illustrating references:
  *
  *                                  AdaPsiFile
- *                                   ^ ^  ^ ^
- *                                   | |  | |
- *             ----------------------- |  | ----------------------
- *             |                --------  --------               |
- *             |                |                |               |
- *             v                v                v               v
- *       AdaPsiElement   AdaPsiReference   AdaPsiElement   AdaPsiElement
- *             ^                ^                ^               ^
- *             |                |                |               |
- *         PsiElement      PsiElement      PsiElement      PsiElement
+ *                                   ^      ^
+ *                                   |      |
+ *                     ---------------      ---------------
+ *                     |                                 |
+ *                     v                                 v
+ *           AdaPsiCompositeElement             AdaPsiCompositeElement
+ *                 ^         ^                           ^
+ *                 |         |                           |
+ *                 v         v                           v
+ *       AdaPsiElement   AdaPsiReference   ...     AdaPsiElement
+ *             ^                ^                        ^
+ *             |                |                        |
+ *         PsiElement      PsiElement                PsiElement
  *
  * As you can see, Ada PSI elements do not hold references to their "child"
  * nodes since they are implemented as leaf nodes.
  * It is important to keep this structure in mind as the IntelliJ platform API
  * deals with instances of `PsiElement`, and in some cases those instances
  * happen to be the the "hidden" leaves of the PSI tree when the Ada-IntelliJ
- * plugin actually needs to work with the first-level `AdaPsiElement` leaves. In
+ * plugin actually needs to work with the `AdaPsiElement` token leaves. In
  * those cases, you should use the static method `AdaPsiElement.getFrom` to
  * ensure that the element you are working with is an Ada PSI element.
  */
 public final class AdaParser implements PsiParser {
 
+	/*
+		Constants
+	*/
+
+	/**
+	 * The logger used to report parsing times.
+	 */
+	private static final Logger LOGGER = Logger.getInstance(AdaParser.class);
+
+	/**
+	 * The times spent parsing files and reparsing edited bodies.
+	 */
+	public static final ParseTimeStatistics STATISTICS = new ParseTimeStatistics();
+
+	/**
+	 * Keywords that end a sequence of statements.
+	 * Keywords that can only start a declaration are included so that
+	 * a missing `end` does not cause the following declarations to be
+	 * parsed as statements.
+	 */
+	private static final TokenSet STATEMENT_SEQUENCE_END = TokenSet.create(
+		END_KEYWORD, ELSE_KEYWORD, ELSIF_KEYWORD, WHEN_KEYWORD, EXCEPTION_KEYWORD,
+		OR_KEYWORD, THEN_KEYWORD, PRIVATE_KEYWORD, PROCEDURE_KEYWORD, FUNCTION_KEYWORD,
+		PACKAGE_KEYWORD, GENERIC_KEYWORD, TYPE_KEYWORD, SUBTYPE_KEYWORD, TASK_KEYWORD,
+		PROTECTED_KEYWORD, OVERRIDING_KEYWORD, ENTRY_KEYWORD, WITH_KEYWORD, USE_KEYWORD
+	);
+
+	/**
+	 * Keywords that end a declarative part.
+	 */
+	private static final TokenSet DECLARATIVE_PART_END = TokenSet.create(
+		BEGIN_KEYWORD, END_KEYWORD, PRIVATE_KEYWORD
+	);
+
+	/**
+	 * Keywords at which skipping over the tokens of a construct stops,
+	 * even when enclosed in parentheses, as they always delimit an
+	 * enclosing construct.
+	 */
+	private static final TokenSet SYNCHRONIZATION_TOKENS = TokenSet.create(
+		BEGIN_KEYWORD, END_KEYWORD
+	);
+
+	/**
+	 * Keywords at which skipping over the tokens of a simple statement
+	 * stops, as they cannot appear in a simple statement outside of
+	 * parentheses.
+	 */
+	private static final TokenSet SIMPLE_STATEMENT_END = TokenSet.create(
+		IF_KEYWORD, CASE_KEYWORD, LOOP_KEYWORD, WHILE_KEYWORD, FOR_KEYWORD,
+		DECLARE_KEYWORD, SELECT_KEYWORD, ELSIF_KEYWORD, EXCEPTION_KEYWORD
+	);
+
+	/**
+	 * Keywords that may follow `end` to close a specific construct
+	 * (e.g. `end if`, `end loop`), and that therefore never follow
+	 * the `end` of a construct closed by `end [name];`.
+	 */
+	private static final TokenSet END_QUALIFIERS = TokenSet.create(
+		IF_KEYWORD, CASE_KEYWORD, LOOP_KEYWORD, SELECT_KEYWORD, RECORD_KEYWORD, RETURN_KEYWORD
+	);
+
+	/**
+	 * Tokens that can make up the designator of a program unit
+	 * (e.g. `Ada.Text_IO`, or `"+"` for an operator function).
+	 */
+	private static final TokenSet DESIGNATOR_TOKENS = TokenSet.create(
+		IDENTIFIER, STRING_LITERAL, FULL_STOP
+	);
+
+	/**
+	 * Keywords following `is` in subprogram declarations that are
+	 * not subprogram bodies (e.g. `is abstract`, `is null`).
+	 */
+	private static final TokenSet NON_BODY_SUBPROGRAM_COMPLETIONS = TokenSet.create(
+		ABSTRACT_KEYWORD, NULL_KEYWORD, SEPARATE_KEYWORD, LEFT_PARENTHESIS
+	);
+
+	/**
+	 * Keywords starting the declaration of the unit of a generic
+	 * declaration, after its formal part.
+	 */
+	private static final TokenSet GENERIC_UNIT_START = TokenSet.create(
+		PACKAGE_KEYWORD, PROCEDURE_KEYWORD, FUNCTION_KEYWORD
+	);
+
+	/**
+	 * Keywords starting the proper body of a subunit, after
+	 * `separate (parent_unit_name)`.
+	 */
+	private static final TokenSet SUBUNIT_BODY_START = TokenSet.create(
+		PACKAGE_KEYWORD, PROCEDURE_KEYWORD, FUNCTION_KEYWORD, TASK_KEYWORD, PROTECTED_KEYWORD
+	);
+
+	/**
+	 * Tokens ending the various parts of constructs skipped over
+	 * without analysis (headers, conditions, choices...).
+	 */
+	private static final TokenSet UNIT_HEADER_END      = TokenSet.create(IS_KEYWORD, RENAMES_KEYWORD);
+	private static final TokenSet BODY_HEADER_END      = TokenSet.create(IS_KEYWORD);
+	private static final TokenSet INTERFACE_LIST_END   = TokenSet.create(WITH_KEYWORD);
+	private static final TokenSet CHOICES_END          = TokenSet.create(ARROW);
+	private static final TokenSet CONDITION_END        = TokenSet.create(THEN_KEYWORD);
+	private static final TokenSet ITERATION_SCHEME_END = TokenSet.create(LOOP_KEYWORD);
+	private static final TokenSet OPTIONAL_BODY_START  = TokenSet.create(DO_KEYWORD);
+
 	/**
 	 * @see com.intellij.lang.PsiParser#parse(IElementType, PsiBuilder)
 	 */
@@ -109,6 +236,8 @@ public final class AdaParser implements PsiParser {
 	@Override
 	public ASTNode parse(@NotNull IElementType root, @NotNull PsiBuilder builder) {
 
+		long startTime = System.nanoTime();
+
 		// Set the root marker for the whole source text
 		// Note: This absolutely needs to be done before any calls to `builder.advance`
 		//       *AND* `builder.getTokenType`. In the case of `PsiBuilderImpl`, the
@@ -121,56 +250,1019 @@ public final class AdaParser implements PsiParser {
 
 		PsiBuilder.Marker rootMarker = builder.mark();
 
-		// Get the first token
+		if (root instanceof AdaReparseableElementType) {
+
+			// The source text is the new text of a single body being
+			// reparsed after an edit, whose validity was checked by
+			// `AdaReparseableElementType#isParsable`, so parse that
+			// body directly into the root marker
+
+			parseDeclarativeItem(builder, rootMarker);
+
+		} else {
+
+			// Parse compilation units until the end of the source
+			// file is reached
+
+			while (!builder.eof()) {
+
+				if (SYNCHRONIZATION_TOKENS.contains(builder.getTokenType())) {
+					skipErroneousTokens(builder, "Compilation unit expected");
+				} else {
+					parseDeclarativeItem(builder);
+				}
+
+			}
+
+			// Mark the root marker as done
+
+			rootMarker.done(root);
+
+		}
+
+		// Build the tree and return it
+
+		ASTNode tree = builder.getTreeBuilt();
+
+		// Record the parsing time
+
+		long parseNanos = System.nanoTime() - startTime;
+
+		if (root instanceof AdaReparseableElementType) {
+			STATISTICS.bodyReparsed(parseNanos);
+		} else {
+			STATISTICS.fileParsed(parseNanos);
+		}
+
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug(String.format("Parsed %s (%d characters) in %.3f ms",
+				root, builder.getOriginalText().length(), parseNanos / 1e6));
+		}
+
+		return tree;
+
+	}
+
+	/**
+	 * Parses the given source text as a sequence of declarative items,
+	 * and returns whether or not the whole text consists of exactly one
+	 * construct of the given type, without syntax errors, and without
+	 * surrounding whitespaces or comments. This is used to check whether
+	 * the new text of a body can be reparsed on its own.
+	 *
+	 * @param elementType The expected type of the construct.
+	 * @param builder The PSI builder to use.
+	 * @return Whether or not the text consists of a single construct
+	 *         of the given type.
+	 */
+	static boolean parsesAsSingleElement(@NotNull IElementType elementType, @NotNull PsiBuilder builder) {
+
+		PsiBuilder.Marker rootMarker = builder.mark();
+
+		while (!builder.eof()) {
+			parseDeclarativeItem(builder);
+		}
+
+		rootMarker.done(elementType);
+
+		// Check that the root contains nothing but
+		// a single construct of the given type
+
+		FlyweightCapableTreeStructure<LighterASTNode> tree = builder.getLightTree();
+
+		Ref<LighterASTNode[]> childrenReference = new Ref<>();
+
+		if (tree.getChildren(tree.getRoot(), childrenReference) != 1) { return false; }
+
+		LighterASTNode element = childrenReference.get()[0];
+
+		return element.getTokenType() == elementType && !containsErrors(tree, element);
+
+	}
+
+	/**
+	 * Returns whether or not the given light tree node contains
+	 * an error element.
+	 *
+	 * @param tree The light tree containing the node.
+	 * @param node The node to check.
+	 * @return Whether or not the node contains an error element.
+	 */
+	private static boolean containsErrors(
+		@NotNull FlyweightCapableTreeStructure<LighterASTNode> tree,
+		@NotNull LighterASTNode                                node
+	) {
+
+		Ref<LighterASTNode[]> childrenReference = new Ref<>();
+
+		int childCount = tree.getChildren(node, childrenReference);
+
+		LighterASTNode[] children = childrenReference.get();
+
+		for (int i = 0 ; i < childCount ; i++) {
+
+			LighterASTNode child = children[i];
+
+			if (child.getTokenType() == TokenType.ERROR_ELEMENT || containsErrors(tree, child)) {
+				return true;
+			}
+
+		}
+
+		return false;
+
+	}
+
+	/*
+		Tokens
+	*/
+
+	/**
+	 * Wraps the current token in its own leaf node and advances
+	 * the builder to the next token. Does nothing at the end of the
+	 * file, where there is no token to wrap.
+	 *
+	 * @param builder The PSI builder to use.
+	 */
+	private static void consumeToken(@NotNull PsiBuilder builder) {
 
 		IElementType tokenType = builder.getTokenType();
 
-		// Set the leaf node marker
+		if (tokenType == null) { return; }
 
 		PsiBuilder.Marker marker = builder.mark();
 
-		// While the lexer still produces tokens...
+		builder.advanceLexer();
+
+		marker.done(tokenType);
+
+	}
+
+	/**
+	 * Consumes the current token if it is of the given type.
+	 *
+	 * @param builder The PSI builder to use.
+	 * @param tokenType The expected token type.
+	 * @return Whether or not a token was consumed.
+	 */
+	private static boolean consumeTokenIf(@NotNull PsiBuilder builder, @NotNull IElementType tokenType) {
 
-		// `tokenType != null` should be guaranteed to be false
-		// by the preceding check `!builder.eof()`, but we check
-		// nullability anyways just to be safe
-		while (!builder.eof() && tokenType != null) {
+		if (builder.getTokenType() != tokenType) { return false; }
 
-			// Advance to the next token
+		consumeToken(builder);
 
-			builder.advanceLexer();
+		return true;
 
-			// Set the next leaf node marker and mark the previous
-			// marker as done right before the newly created marker
-			// This is a neat little facility provided by the
-			// `PsiBuilder.Marker` interface
+	}
 
-			PsiBuilder.Marker nextMarker = builder.mark();
-			marker.doneBefore(tokenType, nextMarker);
+	/**
+	 * Consumes the current token if it is of the given type,
+	 * or records an error otherwise.
+	 *
+	 * @param builder The PSI builder to use.
+	 * @param tokenType The expected token type.
+	 * @return Whether or not a token was consumed.
+	 */
+	private static boolean expectToken(@NotNull PsiBuilder builder, @NotNull AdaFixedTokenType tokenType) {
 
-			// Store the newly created marker for the next iteration
+		if (consumeTokenIf(builder, tokenType)) { return true; }
 
-			marker = nextMarker;
+		builder.error("'" + tokenType.TOKEN_TEXT + "' expected");
 
-			// Get the next token
+		return false;
 
-			tokenType = builder.getTokenType();
+	}
 
+	/**
+	 * Consumes the tokens of a designator (e.g. `Ada.Text_IO`),
+	 * if any.
+	 *
+	 * @param builder The PSI builder to use.
+	 */
+	private static void consumeDesignator(@NotNull PsiBuilder builder) {
+
+		while (DESIGNATOR_TOKENS.contains(builder.getTokenType())) {
+			consumeToken(builder);
 		}
 
-		// The end of the source file was reached but we still
-		// have a set marker that does not correspond to any token,
-		// so drop it
+	}
 
-		marker.drop();
+	/**
+	 * Consumes tokens until one of the given stop tokens is reached
+	 * outside of parentheses, or a semicolon is reached outside of
+	 * parentheses, or a synchronization token is reached. The token
+	 * at which consumption stops is not consumed.
+	 * The `then` and `else` of short-circuit operators (`and then`,
+	 * `or else`) are never considered stop tokens.
+	 *
+	 * @param builder The PSI builder to use.
+	 * @param stopTokens The tokens at which to stop.
+	 * @return Whether or not consumption stopped at one of the
+	 *         given stop tokens.
+	 */
+	private static boolean consumeUntil(@NotNull PsiBuilder builder, @NotNull TokenSet stopTokens) {
 
-		// Mark the root marker as done
+		int          depth         = 0;
+		IElementType previousToken = null;
 
-		rootMarker.done(root);
+		while (!builder.eof()) {
 
-		// Build the tree and return it
+			IElementType tokenType = builder.getTokenType();
+
+			if (SYNCHRONIZATION_TOKENS.contains(tokenType)) { return false; }
+
+			boolean shortCircuit =
+				(tokenType == THEN_KEYWORD && previousToken == AND_KEYWORD) ||
+				(tokenType == ELSE_KEYWORD && previousToken == OR_KEYWORD);
+
+			if (depth == 0 && !shortCircuit) {
+				if (stopTokens.contains(tokenType)) { return true; }
+				if (tokenType == SEMICOLON)         { return false; }
+			}
+
+			if (tokenType == LEFT_PARENTHESIS) {
+				depth++;
+			} else if (tokenType == RIGHT_PARENTHESIS && depth > 0) {
+				depth--;
+			}
+
+			consumeToken(builder);
+
+			previousToken = tokenType;
+
+		}
+
+		return false;
+
+	}
+
+	/**
+	 * Consumes the tokens of a declaration up to and including its
+	 * terminating semicolon, taking record definitions, which contain
+	 * semicolons of their own, into account.
+	 *
+	 * @param builder The PSI builder to use.
+	 */
+	private static void consumeDeclaration(@NotNull PsiBuilder builder) {
+
+		int          depth         = 0;
+		int          recordDepth   = 0;
+		IElementType previousToken = null;
+
+		while (!builder.eof()) {
+
+			IElementType tokenType = builder.getTokenType();
+
+			if (tokenType == BEGIN_KEYWORD) { break; }
+
+			if (tokenType == END_KEYWORD) {
+
+				if (recordDepth == 0) { break; }
+
+				// `end record` closes a record definition, while any other
+				// `end` in a record definition closes a variant part
+
+				consumeToken(builder);
+
+				if (consumeTokenIf(builder, RECORD_KEYWORD)) { recordDepth--; }
+
+				previousToken = tokenType;
+
+				continue;
+
+			}
+
+			if (depth == 0 && recordDepth == 0 && tokenType == SEMICOLON) {
+				consumeToken(builder);
+				return;
+			}
+
+			if (tokenType == LEFT_PARENTHESIS) {
+				depth++;
+			} else if (tokenType == RIGHT_PARENTHESIS && depth > 0) {
+				depth--;
+			} else if (tokenType == RECORD_KEYWORD && previousToken != NULL_KEYWORD) {
+				recordDepth++;
+			}
+
+			consumeToken(builder);
+
+			previousToken = tokenType;
+
+		}
+
+		builder.error("';' expected");
+
+	}
+
+	/**
+	 * Wraps the tokens up to and including the next semicolon, or up to
+	 * the next synchronization token, in an error element. At least one
+	 * token is consumed, unless the end of the file is reached, in which
+	 * case the error element is empty.
+	 *
+	 * @param builder The PSI builder to use.
+	 * @param message The error message.
+	 */
+	private static void skipErroneousTokens(@NotNull PsiBuilder builder, @NotNull String message) {
+
+		PsiBuilder.Marker marker = builder.mark();
+
+		int startOffset = builder.getCurrentOffset();
+
+		consumeUntil(builder, TokenSet.EMPTY);
+
+		if (
+			!consumeTokenIf(builder, SEMICOLON) &&
+			builder.getCurrentOffset() == startOffset &&
+			!builder.eof()
+		) {
+			consumeToken(builder);
+		}
+
+		marker.error(message);
+
+	}
+
+	/**
+	 * Consumes the closing `end` of a construct, along with the given
+	 * qualifier keyword if any (e.g. `end if`), the optional designator
+	 * repeating the name of the construct, and the terminating semicolon.
+	 * Records an error and consumes nothing if the current tokens do not
+	 * close the construct, leaving them to enclosing constructs.
+	 *
+	 * @param builder The PSI builder to use.
+	 * @param qualifier The keyword following `end`, or null if the
+	 *                  construct is closed by `end [name];`.
+	 */
+	private static void parseEnd(@NotNull PsiBuilder builder, @Nullable AdaFixedTokenType qualifier) {
+
+		IElementType followingToken = builder.lookAhead(1);
+
+		boolean closesConstruct = builder.getTokenType() == END_KEYWORD && (qualifier == null ?
+			!END_QUALIFIERS.contains(followingToken) : followingToken == qualifier);
+
+		if (!closesConstruct) {
+			builder.error(qualifier == null ? "'end' expected" : "'end " + qualifier.TOKEN_TEXT + "' expected");
+			return;
+		}
+
+		consumeToken(builder);
+
+		if (qualifier != null) { consumeToken(builder); }
+
+		consumeDesignator(builder);
+
+		expectToken(builder, SEMICOLON);
+
+	}
+
+	/*
+		Declarations
+	*/
+
+	/**
+	 * Parses declarative items until the end of the enclosing
+	 * declarative part.
+	 *
+	 * @param builder The PSI builder to use.
+	 */
+	private static void parseDeclarations(@NotNull PsiBuilder builder) {
+
+		while (!builder.eof() && !DECLARATIVE_PART_END.contains(builder.getTokenType())) {
+			parseDeclarativeItem(builder);
+		}
+
+	}
+
+	/**
+	 * Parses a single declarative item: a context clause, a pragma,
+	 * a program unit or a basic declaration. Always consumes at least
+	 * one token if not at the end of the file.
+	 *
+	 * @param builder The PSI builder to use.
+	 */
+	private static void parseDeclarativeItem(@NotNull PsiBuilder builder) {
+		parseDeclarativeItem(builder, builder.mark());
+	}
+
+	/**
+	 * Parses a single declarative item into the given marker, which
+	 * is either done with the type of the item or dropped.
+	 *
+	 * @param builder The PSI builder to use.
+	 * @param marker The marker set at the start of the item.
+	 */
+	private static void parseDeclarativeItem(@NotNull PsiBuilder builder, @NotNull PsiBuilder.Marker marker) {
+
+		// Consume the prefixes of library items, context
+		// clauses, subunits and overriding indicators
+
+		while (builder.getTokenType() == PRIVATE_KEYWORD || builder.getTokenType() == LIMITED_KEYWORD) {
+			consumeToken(builder);
+		}
+
+		if (consumeTokenIf(builder, SEPARATE_KEYWORD)) {
+			consumeUntil(builder, SUBUNIT_BODY_START);
+		}
+
+		if (builder.getTokenType() == NOT_KEYWORD && builder.lookAhead(1) == OVERRIDING_KEYWORD) {
+			consumeToken(builder);
+		}
+
+		consumeTokenIf(builder, OVERRIDING_KEYWORD);
+
+		// Parse the item based on its first keyword
+
+		IElementType tokenType = builder.getTokenType();
+
+		if (tokenType == PRAGMA_KEYWORD) {
+			parseSimpleConstruct(builder, marker, PRAGMA);
+		} else if (tokenType == WITH_KEYWORD) {
+			parseSimpleConstruct(builder, marker, WITH_CLAUSE);
+		} else if (tokenType == USE_KEYWORD) {
+			parseSimpleConstruct(builder, marker, USE_CLAUSE);
+		} else if (tokenType == GENERIC_KEYWORD) {
+			parseGenericDeclaration(builder, marker);
+		} else if (tokenType == PACKAGE_KEYWORD) {
+			parsePackage(builder, marker);
+		} else if (tokenType == PROCEDURE_KEYWORD || tokenType == FUNCTION_KEYWORD) {
+			parseSubprogram(builder, marker);
+		} else if (tokenType == TASK_KEYWORD || tokenType == PROTECTED_KEYWORD) {
+			parseTaskOrProtectedUnit(builder, marker);
+		} else if (tokenType == ENTRY_KEYWORD) {
+			parseEntry(builder, marker);
+		} else if (tokenType == TYPE_KEYWORD || tokenType == SUBTYPE_KEYWORD) {
+			consumeDeclaration(builder);
+			marker.done(TYPE_DECLARATION);
+		} else if (tokenType == FOR_KEYWORD) {
+			consumeDeclaration(builder);
+			marker.done(REPRESENTATION_CLAUSE);
+		} else if (tokenType == IDENTIFIER) {
+			consumeDeclaration(builder);
+			marker.done(OBJECT_DECLARATION);
+		} else {
+			marker.drop();
+			skipErroneousTokens(builder, "Declaration expected");
+		}
+
+	}
+
+	/**
+	 * Parses a construct consisting of tokens up to and including
+	 * a semicolon, such as a pragma or a context clause.
+	 *
+	 * @param builder The PSI builder to use.
+	 * @param marker The marker set at the start of the construct.
+	 * @param elementType The type of the construct.
+	 */
+	private static void parseSimpleConstruct(
+		@NotNull PsiBuilder        builder,
+		@NotNull PsiBuilder.Marker marker,
+		@NotNull IElementType      elementType
+	) {
+
+		consumeToken(builder);
+
+		consumeUntil(builder, TokenSet.EMPTY);
+
+		expectToken(builder, SEMICOLON);
+
+		marker.done(elementType);
+
+	}
+
+	/**
+	 * Parses a generic declaration, consisting of a generic formal part
+	 * followed by a package or subprogram declaration.
+	 *
+	 * @param builder The PSI builder to use.
+	 * @param marker The marker set at the start of the declaration.
+	 */
+	private static void parseGenericDeclaration(@NotNull PsiBuilder builder, @NotNull PsiBuilder.Marker marker) {
+
+		consumeToken(builder);
+
+		while (!builder.eof() &&
+			!GENERIC_UNIT_START.contains(builder.getTokenType()) &&
+			!SYNCHRONIZATION_TOKENS.contains(builder.getTokenType()))
+		{
+
+			PsiBuilder.Marker formalMarker = builder.mark();
+
+			boolean isPragma = builder.getTokenType() == PRAGMA_KEYWORD;
+
+			consumeDeclaration(builder);
+
+			formalMarker.done(isPragma ? PRAGMA : GENERIC_FORMAL);
+
+		}
+
+		if (GENERIC_UNIT_START.contains(builder.getTokenType())) {
+			parseDeclarativeItem(builder);
+		} else {
+			builder.error("Generic unit declaration expected");
+		}
+
+		marker.done(GENERIC_DECLARATION);
+
+	}
+
+	/**
+	 * Parses a package specification, package body, package
+	 * instantiation or package renaming declaration.
+	 *
+	 * @param builder The PSI builder to use.
+	 * @param marker The marker set at the start of the package.
+	 */
+	private static void parsePackage(@NotNull PsiBuilder builder, @NotNull PsiBuilder.Marker marker) {
+
+		consumeToken(builder);
+
+		boolean isBody = consumeTokenIf(builder, BODY_KEYWORD);
+
+		consumeDesignator(builder);
+
+		// Consume aspect specifications, if any
+
+		consumeUntil(builder, UNIT_HEADER_END);
+
+		if (consumeTokenIf(builder, RENAMES_KEYWORD)) {
+			consumeUntil(builder, TokenSet.EMPTY);
+			expectToken(builder, SEMICOLON);
+			marker.done(RENAMING_DECLARATION);
+			return;
+		}
+
+		if (!expectToken(builder, IS_KEYWORD)) {
+			consumeTokenIf(builder, SEMICOLON);
+			marker.done(isBody ? PACKAGE_BODY : PACKAGE_SPECIFICATION);
+			return;
+		}
+
+		IElementType tokenType = builder.getTokenType();
+
+		if (tokenType == NEW_KEYWORD || tokenType == SEPARATE_KEYWORD) {
+			consumeUntil(builder, TokenSet.EMPTY);
+			expectToken(builder, SEMICOLON);
+			marker.done(isBody ? PACKAGE_BODY : GENERIC_INSTANTIATION);
+			return;
+		}
+
+		parseDeclarations(builder);
+
+		if (isBody) {
+			parseOptionalHandledStatements(builder);
+		} else if (consumeTokenIf(builder, PRIVATE_KEYWORD)) {
+			parseDeclarations(builder);
+		}
+
+		parseEnd(builder, null);
+
+		marker.done(isBody ? PACKAGE_BODY : PACKAGE_SPECIFICATION);
+
+	}
+
+	/**
+	 * Parses a subprogram declaration, subprogram body, subprogram
+	 * instantiation or subprogram renaming declaration.
+	 *
+	 * @param builder The PSI builder to use.
+	 * @param marker The marker set at the start of the subprogram.
+	 */
+	private static void parseSubprogram(@NotNull PsiBuilder builder, @NotNull PsiBuilder.Marker marker) {
+
+		consumeToken(builder);
+
+		consumeDesignator(builder);
+
+		// Consume the parameter profile and aspect
+		// specifications, if any
+
+		consumeUntil(builder, UNIT_HEADER_END);
+
+		IElementType tokenType = builder.getTokenType();
+
+		if (tokenType == RENAMES_KEYWORD) {
+			consumeUntil(builder, TokenSet.EMPTY);
+			expectToken(builder, SEMICOLON);
+			marker.done(RENAMING_DECLARATION);
+			return;
+		}
+
+		if (tokenType != IS_KEYWORD) {
+			expectToken(builder, SEMICOLON);
+			marker.done(SUBPROGRAM_DECLARATION);
+			return;
+		}
+
+		IElementType completionToken = builder.lookAhead(1);
+
+		if (completionToken == NEW_KEYWORD || NON_BODY_SUBPROGRAM_COMPLETIONS.contains(completionToken)) {
+			consumeToken(builder);
+			consumeUntil(builder, TokenSet.EMPTY);
+			expectToken(builder, SEMICOLON);
+			marker.done(completionToken == NEW_KEYWORD ? GENERIC_INSTANTIATION : SUBPROGRAM_DECLARATION);
+			return;
+		}
+
+		consumeToken(builder);
+
+		parseBody(builder);
+
+		marker.done(SUBPROGRAM_BODY);
+
+	}
+
+	/**
+	 * Parses a task or protected unit specification or body.
+	 *
+	 * @param builder The PSI builder to use.
+	 * @param marker The marker set at the start of the unit.
+	 */
+	private static void parseTaskOrProtectedUnit(@NotNull PsiBuilder builder, @NotNull PsiBuilder.Marker marker) {
+
+		boolean isTask = builder.getTokenType() == TASK_KEYWORD;
+
+		consumeToken(builder);
+
+		boolean isBody = consumeTokenIf(builder, BODY_KEYWORD);
+
+		consumeTokenIf(builder, TYPE_KEYWORD);
+
+		consumeDesignator(builder);
+
+		// Consume the discriminant part and aspect
+		// specifications, if any
+
+		consumeUntil(builder, BODY_HEADER_END);
+
+		IElementType elementType = isTask ?
+			(isBody ? TASK_BODY : TASK_SPECIFICATION) :
+			(isBody ? PROTECTED_BODY : PROTECTED_SPECIFICATION);
+
+		if (!consumeTokenIf(builder, IS_KEYWORD)) {
+			expectToken(builder, SEMICOLON);
+			marker.done(elementType);
+			return;
+		}
+
+		if (builder.getTokenType() == SEPARATE_KEYWORD) {
+			consumeUntil(builder, TokenSet.EMPTY);
+			expectToken(builder, SEMICOLON);
+			marker.done(elementType);
+			return;
+		}
+
+		// Consume the interface list, if any
+
+		if (consumeTokenIf(builder, NEW_KEYWORD)) {
+			consumeUntil(builder, INTERFACE_LIST_END);
+			expectToken(builder, WITH_KEYWORD);
+		}
+
+		parseDeclarations(builder);
+
+		if (isTask && isBody) {
+			parseOptionalHandledStatements(builder);
+		} else if (!isBody && consumeTokenIf(builder, PRIVATE_KEYWORD)) {
+			parseDeclarations(builder);
+		}
+
+		parseEnd(builder, null);
+
+		marker.done(elementType);
+
+	}
+
+	/**
+	 * Parses an entry declaration or entry body.
+	 *
+	 * @param builder The PSI builder to use.
+	 * @param marker The marker set at the start of the entry.
+	 */
+	private static void parseEntry(@NotNull PsiBuilder builder, @NotNull PsiBuilder.Marker marker) {
+
+		consumeToken(builder);
+
+		// Consume the entry name, family index, parameter
+		// profile and barrier, if any
+
+		consumeUntil(builder, BODY_HEADER_END);
+
+		if (!consumeTokenIf(builder, IS_KEYWORD)) {
+			expectToken(builder, SEMICOLON);
+			marker.done(ENTRY_DECLARATION);
+			return;
+		}
+
+		parseBody(builder);
+
+		marker.done(ENTRY_BODY);
+
+	}
+
+	/**
+	 * Parses the part of a body following `is`: a declarative part,
+	 * a handled sequence of statements and the closing `end`.
+	 *
+	 * @param builder The PSI builder to use.
+	 */
+	private static void parseBody(@NotNull PsiBuilder builder) {
+
+		parseDeclarations(builder);
+
+		if (builder.getTokenType() == BEGIN_KEYWORD) {
+			parseOptionalHandledStatements(builder);
+		} else {
+			builder.error("'begin' expected");
+		}
+
+		parseEnd(builder, null);
+
+	}
+
+	/*
+		Statements
+	*/
+
+	/**
+	 * Parses a handled sequence of statements, starting with `begin`
+	 * and optionally followed by exception handlers, if the current
+	 * token is `begin`.
+	 *
+	 * @param builder The PSI builder to use.
+	 */
+	private static void parseOptionalHandledStatements(@NotNull PsiBuilder builder) {
+
+		if (!consumeTokenIf(builder, BEGIN_KEYWORD)) { return; }
+
+		parseStatements(builder);
+
+		if (!consumeTokenIf(builder, EXCEPTION_KEYWORD)) { return; }
+
+		while (builder.getTokenType() == WHEN_KEYWORD) {
+			parseAlternative(builder);
+		}
+
+	}
+
+	/**
+	 * Parses an alternative introduced by `when` and `=>`, as found
+	 * in case statements, exception handlers and select statements.
+	 *
+	 * @param builder The PSI builder to use.
+	 */
+	private static void parseAlternative(@NotNull PsiBuilder builder) {
+
+		consumeToken(builder);
+
+		consumeUntil(builder, CHOICES_END);
+
+		expectToken(builder, ARROW);
+
+		parseStatements(builder);
+
+	}
+
+	/**
+	 * Parses statements until the end of the enclosing
+	 * sequence of statements.
+	 *
+	 * @param builder The PSI builder to use.
+	 */
+	private static void parseStatements(@NotNull PsiBuilder builder) {
+
+		while (!builder.eof() && !STATEMENT_SEQUENCE_END.contains(builder.getTokenType())) {
+			parseStatement(builder);
+		}
+
+	}
+
+	/**
+	 * Parses a single statement, along with its labels and statement
+	 * identifier if any. Always consumes at least one token.
+	 *
+	 * @param builder The PSI builder to use.
+	 */
+	private static void parseStatement(@NotNull PsiBuilder builder) {
+
+		PsiBuilder.Marker marker = builder.mark();
+
+		int startOffset = builder.getCurrentOffset();
+
+		// Consume labels (e.g. `<<Retry>>`) and
+		// statement identifiers (e.g. `Outer :`)
+
+		while (consumeTokenIf(builder, LEFT_LABEL_BRACKET)) {
+			consumeDesignator(builder);
+			expectToken(builder, RIGHT_LABEL_BRACKET);
+		}
+
+		if (builder.getTokenType() == IDENTIFIER && builder.lookAhead(1) == COLON) {
+			consumeToken(builder);
+			consumeToken(builder);
+		}
+
+		// Parse the statement based on its first keyword
+
+		IElementType tokenType = builder.getTokenType();
+
+		if (tokenType == PRAGMA_KEYWORD) {
+			parseSimpleConstruct(builder, marker, PRAGMA);
+		} else if (tokenType == IF_KEYWORD) {
+			parseIfStatement(builder, marker);
+		} else if (tokenType == CASE_KEYWORD) {
+			parseCaseStatement(builder, marker);
+		} else if (tokenType == LOOP_KEYWORD || tokenType == WHILE_KEYWORD || tokenType == FOR_KEYWORD) {
+			parseLoopStatement(builder, marker);
+		} else if (tokenType == DECLARE_KEYWORD || tokenType == BEGIN_KEYWORD) {
+			parseBlockStatement(builder, marker);
+		} else if (tokenType == SELECT_KEYWORD) {
+			parseSelectStatement(builder, marker);
+		} else if (tokenType == ACCEPT_KEYWORD || tokenType == RETURN_KEYWORD) {
+			parseStatementWithOptionalBody(builder, marker);
+		} else {
+
+			consumeUntil(builder, SIMPLE_STATEMENT_END);
+
+			if (!consumeTokenIf(builder, SEMICOLON)) {
+
+				if (builder.getCurrentOffset() == startOffset) {
+					consumeToken(builder);
+				}
+
+				builder.error("';' expected");
+
+			}
+
+			marker.done(SIMPLE_STATEMENT);
+
+		}
+
+	}
+
+	/**
+	 * Parses an if statement.
+	 *
+	 * @param builder The PSI builder to use.
+	 * @param marker The marker set at the start of the statement.
+	 */
+	private static void parseIfStatement(@NotNull PsiBuilder builder, @NotNull PsiBuilder.Marker marker) {
+
+		do {
+
+			consumeToken(builder);
+
+			consumeUntil(builder, CONDITION_END);
+
+			expectToken(builder, THEN_KEYWORD);
+
+			parseStatements(builder);
+
+		} while (builder.getTokenType() == ELSIF_KEYWORD);
+
+		if (consumeTokenIf(builder, ELSE_KEYWORD)) {
+			parseStatements(builder);
+		}
+
+		parseEnd(builder, IF_KEYWORD);
+
+		marker.done(IF_STATEMENT);
+
+	}
+
+	/**
+	 * Parses a case statement.
+	 *
+	 * @param builder The PSI builder to use.
+	 * @param marker The marker set at the start of the statement.
+	 */
+	private static void parseCaseStatement(@NotNull PsiBuilder builder, @NotNull PsiBuilder.Marker marker) {
+
+		consumeToken(builder);
+
+		consumeUntil(builder, BODY_HEADER_END);
+
+		expectToken(builder, IS_KEYWORD);
+
+		while (builder.getTokenType() == WHEN_KEYWORD) {
+			parseAlternative(builder);
+		}
+
+		parseEnd(builder, CASE_KEYWORD);
+
+		marker.done(CASE_STATEMENT);
+
+	}
+
+	/**
+	 * Parses a loop statement, with or without an iteration scheme.
+	 *
+	 * @param builder The PSI builder to use.
+	 * @param marker The marker set at the start of the statement.
+	 */
+	private static void parseLoopStatement(@NotNull PsiBuilder builder, @NotNull PsiBuilder.Marker marker) {
+
+		if (builder.getTokenType() != LOOP_KEYWORD) {
+			consumeToken(builder);
+			consumeUntil(builder, ITERATION_SCHEME_END);
+		}
+
+		expectToken(builder, LOOP_KEYWORD);
+
+		parseStatements(builder);
+
+		parseEnd(builder, LOOP_KEYWORD);
+
+		marker.done(LOOP_STATEMENT);
+
+	}
+
+	/**
+	 * Parses a block statement, with or without a declarative part.
+	 *
+	 * @param builder The PSI builder to use.
+	 * @param marker The marker set at the start of the statement.
+	 */
+	private static void parseBlockStatement(@NotNull PsiBuilder builder, @NotNull PsiBuilder.Marker marker) {
+
+		if (consumeTokenIf(builder, DECLARE_KEYWORD)) {
+			parseBody(builder);
+		} else {
+			parseOptionalHandledStatements(builder);
+			parseEnd(builder, null);
+		}
+
+		marker.done(BLOCK_STATEMENT);
+
+	}
+
+	/**
+	 * Parses a select statement.
+	 *
+	 * @param builder The PSI builder to use.
+	 * @param marker The marker set at the start of the statement.
+	 */
+	private static void parseSelectStatement(@NotNull PsiBuilder builder, @NotNull PsiBuilder.Marker marker) {
+
+		do {
+
+			consumeToken(builder);
+
+			if (builder.getTokenType() == WHEN_KEYWORD) {
+				parseAlternative(builder);
+			} else {
+				parseStatements(builder);
+			}
+
+		} while (builder.getTokenType() == OR_KEYWORD);
+
+		if (consumeTokenIf(builder, ELSE_KEYWORD)) {
+			parseStatements(builder);
+		} else if (consumeTokenIf(builder, THEN_KEYWORD)) {
+			expectToken(builder, ABORT_KEYWORD);
+			parseStatements(builder);
+		}
+
+		parseEnd(builder, SELECT_KEYWORD);
+
+		marker.done(SELECT_STATEMENT);
+
+	}
+
+	/**
+	 * Parses an accept statement or a return statement, both of which
+	 * may have a handled sequence of statements introduced by `do`.
+	 *
+	 * @param builder The PSI builder to use.
+	 * @param marker The marker set at the start of the statement.
+	 */
+	private static void parseStatementWithOptionalBody(@NotNull PsiBuilder builder, @NotNull PsiBuilder.Marker marker) {
+
+		boolean isAccept = builder.getTokenType() == ACCEPT_KEYWORD;
+
+		consumeToken(builder);
+
+		consumeUntil(builder, OPTIONAL_BODY_START);
+
+		if (consumeTokenIf(builder, DO_KEYWORD)) {
+
+			parseStatements(builder);
+
+			if (consumeTokenIf(builder, EXCEPTION_KEYWORD)) {
+				while (builder.getTokenType() == WHEN_KEYWORD) {
+					parseAlternative(builder);
+				}
+			}
+
+			parseEnd(builder, isAccept ? null : RETURN_KEYWORD);
+
+		} else {
+			expectToken(builder, SEMICOLON);
+		}
 
-		return builder.getTreeBuilt();
+		marker.done(isAccept ? ACCEPT_STATEMENT : RETURN_STATEMENT);
 
 	}
 
@@ -52,8 +52,18 @@ public final class AdaParserDefinition implements ParserDefinition {
 	@NotNull
 	@Override
 	public PsiElement createElement(ASTNode node) {
-		return AdaTokenTypes.IDENTIFIER_TOKEN_SET.contains(node.getElementType()) ?
+
+		IElementType elementType = node.getElementType();
+
+		if (elementType instanceof AdaCompositeElementType ||
+			elementType instanceof AdaReparseableElementType)
+		{
+			return new AdaPsiCompositeElement(node);
+		}
+
+		return AdaTokenTypes.IDENTIFIER_TOKEN_SET.contains(elementType) ?
 			new AdaPsiReference(node) : new AdaPsiElement(node);
+
 	}
 
 	/**
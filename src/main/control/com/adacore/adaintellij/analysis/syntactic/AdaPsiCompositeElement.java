@@ -0,0 +1,37 @@
+package com.adacore.adaintellij.analysis.syntactic;
+
+import com.intellij.extapi.psi.ASTWrapperPsiElement;
+import com.intellij.lang.ASTNode;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Ada AST node representing a syntactic construct spanning one or
+ * more tokens, such as a package, a subprogram, a declaration or a
+ * statement. Its children are other composite elements as well as
+ * the `AdaPsiElement` leaves of the tokens it spans.
+ *
+ * For detailed information about the structure of ASTs built by the
+ * Ada-IntelliJ Ada parser:
+ * @see AdaParser
+ */
+public final class AdaPsiCompositeElement extends ASTWrapperPsiElement {
+
+	/**
+	 * Constructs a new AdaPsiCompositeElement given a tree node.
+	 *
+	 * @param node The tree node to back the constructed
+	 *             PSI element.
+	 */
+	AdaPsiCompositeElement(@NotNull ASTNode node) { super(node); }
+
+	/**
+	 * Returns a string representation of this PSI element.
+	 *
+	 * @return A string representation of this PSI element.
+	 */
+	@Override
+	public String toString() {
+		return "AdaPsiCompositeElement(" + getNode().getElementType().toString() + ")";
+	}
+
+}
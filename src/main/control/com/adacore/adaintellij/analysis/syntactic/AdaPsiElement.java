@@ -12,12 +12,13 @@ import com.adacore.adaintellij.Icons;
 import com.adacore.adaintellij.Utils;
 
 /**
- * Ada AST node that is not a root node.
+ * Ada AST node representing a single token.
  * Due to the way the Ada-IntelliJ plugin constructs ASTs, all tokens
  * produced by the Ada lexer are directly mapped to instances of this
  * class, or its subclass `AdaPsiReference` in some cases (e.g.
- * identifiers). All elements of this class are therefore leaves in
- * their respective trees.
+ * identifiers), and grouped under `AdaPsiCompositeElement` nodes.
+ * All elements of this class are therefore leaves in their
+ * respective trees.
  *
  * For detailed information about the structure of ASTs built by the
  * Ada-IntelliJ Ada parser:
@@ -118,7 +119,13 @@ public class AdaPsiElement extends LeafPsiElement implements NavigatablePsiEleme
 	 * @see com.intellij.psi.PsiElement#getContainingFile()
 	 */
 	@Override
-	public PsiFile getContainingFile() { return (PsiFile)getParent(); }
+	public PsiFile getContainingFile() {
+
+		PsiElement parent = getParent();
+
+		return parent == null ? null : parent.getContainingFile();
+
+	}
 
 	/**
 	 * @see com.intellij.psi.PsiElement#findReferenceAt(int)
@@ -280,11 +287,11 @@ public class AdaPsiElement extends LeafPsiElement implements NavigatablePsiEleme
 	}
 
 	/**
-	 * Compares two PSI elements and returns true if they represent the
-	 * same element in the same file. Due to the flat nature of the ASTs
-	 * built by the Ada parser, this comparison can be accomplished by
-	 * simply checking that the two elements are in the same file and that
-	 * their offsets within that file are equal.
+	 * Compares two PSI token elements and returns true if they represent
+	 * the same element in the same file. As tokens never overlap, this
+	 * comparison can be accomplished by simply checking that the two
+	 * elements are in the same file and that their offsets within that
+	 * file are equal.
 	 *
 	 * @param element1 The first element to compare.
 	 * @param element2 The second element to compare.
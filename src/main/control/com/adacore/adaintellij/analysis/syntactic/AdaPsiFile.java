@@ -2,9 +2,8 @@ package com.adacore.adaintellij.analysis.syntactic;
 
 import com.intellij.extapi.psi.PsiFileBase;
 import com.intellij.openapi.fileTypes.FileType;
-import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.*;
-import com.intellij.util.FileContentUtilCore;
+import com.intellij.psi.tree.TokenSet;
 import org.jetbrains.annotations.NotNull;
 
 import com.adacore.adaintellij.analysis.lexical.AdaTokenTypes;
@@ -21,6 +20,13 @@ import com.adacore.adaintellij.AdaLanguage;
  */
 public final class AdaPsiFile extends PsiFileBase implements Markable {
 
+	/**
+	 * The types of the elements returned as children of an Ada file:
+	 * valid tokens and composite elements.
+	 */
+	private static final TokenSet CHILD_ELEMENT_TYPES = TokenSet.orSet(
+		AdaTokenTypes.ALL_VALID_TOKENS, AdaCompositeElementTypes.ALL_COMPOSITE_ELEMENTS);
+
 	/**
 	 * The file view provider corresponding to this Ada file.
 	 */
@@ -52,13 +58,11 @@ public final class AdaPsiFile extends PsiFileBase implements Markable {
 
 		super.subtreeChanged();
 
-		// Reparse the file
-
-		VirtualFile file = getVirtualFile();
+		// The file is reparsed incrementally, so that its
+		// PSI tree survives modifications: invalidate the
+		// patches applied to it
 
-		if (file != null) {
-			FileContentUtilCore.reparseFiles(file);
-		}
+		AdaPsiStructureManager.invalidatePatches(this);
 
 	}
 
@@ -69,7 +73,7 @@ public final class AdaPsiFile extends PsiFileBase implements Markable {
 	@Override
 	public PsiElement[] getChildren() {
 		return calcTreeElement().getChildrenAsPsiElements(
-			AdaTokenTypes.ALL_VALID_TOKENS, PsiElement.ARRAY_FACTORY);
+			CHILD_ELEMENT_TYPES, PsiElement.ARRAY_FACTORY);
 	}
 
 }
@@ -10,7 +10,7 @@ import org.jetbrains.annotations.*;
 
 import org.eclipse.lsp4j.Location;
 
-import com.adacore.adaintellij.misc.cache.*;
+import com.adacore.adaintellij.misc.cache.CacheResult;
 import com.adacore.adaintellij.lsp.*;
 
 import static com.adacore.adaintellij.Utils.*;
@@ -27,15 +27,9 @@ import static com.adacore.adaintellij.Utils.*;
  * @see AdaParser
  */
 public final class AdaPsiReference extends AdaPsiElement
-	implements PsiReference, PsiNameIdentifierOwner, Cacher
+	implements PsiReference, PsiNameIdentifierOwner
 {
 
-	/**
-	 * Cash key for cashed resolved elements of Ada PSI references.
-	 */
-	private static final CacheKey<AdaPsiElement>
-		RESOLVED_ELEMENT_CACHE_KEY = CacheKey.getNewKey();
-
 	/**
 	 * The underlying tree node.
 	 */
@@ -127,12 +121,14 @@ public final class AdaPsiReference extends AdaPsiElement
 	 * this reference represents a declaration and does not resolve to
 	 * a different element than itself, hence the separation between
 	 * this method and `resolveAdaReference`.
+	 * This method is mostly called when navigating to declarations,
+	 * hence the priority of the underlying request.
 	 */
 	@Nullable
 	@Override
 	public AdaPsiElement resolve() {
 
-		AdaPsiElement definition = resolveAdaReference();
+		AdaPsiElement definition = resolveAdaReference(RequestPriority.INTERACTIVE);
 
 		return AdaPsiElement.areEqual(definition, this) ? null : definition;
 
@@ -144,27 +140,35 @@ public final class AdaPsiReference extends AdaPsiElement
 	 * makes a `textDocument/definition` request to the ALS to get the
 	 * element referenced by this element and returns it, or null if no
 	 * such element was found or if something went wrong.
+	 * Results are cached in the project's definition cache.
+	 * @see AdaDefinitionCache
 	 *
+	 * @param priority The priority of the request to the ALS, if
+	 *                 one needs to be made.
 	 * @return The element to which this reference resolves, or null
 	 *         if no such element is found.
 	 */
 	@Nullable
-	public AdaPsiElement resolveAdaReference() {
+	public AdaPsiElement resolveAdaReference(@NotNull RequestPriority priority) {
+
+		// Get the document of the containing file
+
+		PsiFile  containingFile = getContainingFile();
+		Document document       = getPsiFileDocument(containingFile);
+
+		if (document == null) { return null; }
 
 		// Check if the resolved element is cached
 		// and if it is, then return it
 
+		AdaDefinitionCache definitionCache = AdaDefinitionCache.getInstance(getProject());
+
 		CacheResult<AdaPsiElement> cacheResult =
-			getCachedData(RESOLVED_ELEMENT_CACHE_KEY);
+			definitionCache.getDefinition(document, getStartOffset());
 
 		if (cacheResult.hit) { return cacheResult.data; }
 
-		// Get the document of the containing file
-
-		PsiFile  containingFile = getContainingFile();
-		Document document       = getPsiFileDocument(containingFile);
-
-		if (document == null) { return null; }
+		long documentStamp = document.getModificationStamp();
 
 		String documentUri = containingFile.getVirtualFile().getUrl();
 
@@ -179,14 +183,14 @@ public final class AdaPsiReference extends AdaPsiElement
 
 		if (lspServer == null) { return null; }
 
-		Location definitionLocation = lspServer.definition(
-			documentUri, LSPUtils.offsetToPosition(document, getStartOffset()));
+		Location definitionLocation = LSPUtils.awaitResult(lspServer.definition(
+			documentUri, LSPUtils.offsetToPosition(document, getStartOffset()), priority));
 
 		// If no valid result was returned, cash the result
 		// (no resolved element) and return null
 
 		if (definitionLocation == null) {
-			cacheData(RESOLVED_ELEMENT_CACHE_KEY, null);
+			definitionCache.cacheDefinition(document, documentStamp, this, null);
 			return null;
 		}
 
@@ -217,7 +221,7 @@ public final class AdaPsiReference extends AdaPsiElement
 		// If the element was found, then cash it
 
 		if (adaDefinition != null) {
-			cacheData(RESOLVED_ELEMENT_CACHE_KEY, adaDefinition);
+			definitionCache.cacheDefinition(document, documentStamp, this, adaDefinition);
 		}
 
 		// Return the element (or null if it was not found)
@@ -254,11 +258,15 @@ public final class AdaPsiReference extends AdaPsiElement
 
 	/**
 	 * @see com.intellij.psi.PsiReference#isReferenceTo(PsiElement)
+	 *
+	 * This method is mostly called to compute information displayed in
+	 * editors, such as highlighted usages and read/write accesses, hence
+	 * the priority of the underlying request.
 	 */
 	@Override
 	public boolean isReferenceTo(@NotNull PsiElement element) {
 		return getText().toLowerCase().equals(element.getText().toLowerCase()) &&
-			AdaPsiElement.areEqual(resolveAdaReference(), element);
+			AdaPsiElement.areEqual(resolveAdaReference(RequestPriority.VISIBLE_EDITOR), element);
 	}
 
 	/**
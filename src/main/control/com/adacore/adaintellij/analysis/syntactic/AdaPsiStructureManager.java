@@ -39,10 +39,11 @@ public class AdaPsiStructureManager {
 	 * Patch markers used to mark PSI files that already underwent
 	 * their corresponding patches. This is useful to avoid
 	 * reapplying the same patches to files that were not modified.
-	 * File modifications result in new PSI files being generated
-	 * without the markers added to previous PSI files, effectively
-	 * invalidating all patches previously applied to a file.
+	 * File modifications remove these markers from the modified file,
+	 * effectively invalidating all patches previously applied to it.
 	 * Each patch must have its own marker.
+	 *
+	 * @see AdaPsiStructureManager#invalidatePatches(AdaPsiFile)
 	 */
 	private static final Marker SYMBOLS_PATCH_MARKER = Marker.getNewMarker();
 
@@ -55,6 +56,17 @@ public class AdaPsiStructureManager {
 		patchPsiFileElementTypes(psiFile);
 	}
 
+	/**
+	 * Invalidates all patches applied to the given PSI file, so that
+	 * they are reapplied the next time they are requested. Must be
+	 * called whenever the file is modified.
+	 *
+	 * @param psiFile The modified PSI file.
+	 */
+	public static void invalidatePatches(@NotNull AdaPsiFile psiFile) {
+		psiFile.unmark(SYMBOLS_PATCH_MARKER);
+	}
+
 	/**
 	 * Makes a `textDocument/documentSymbol` request to the ALS and
 	 * patches the given PSI file with Ada element types based on
@@ -82,7 +94,10 @@ public class AdaPsiStructureManager {
 
 				if (lspServer == null) { return; }
 
-				List<DocumentSymbol> symbols = lspServer.documentSymbol(documentUri);
+				List<DocumentSymbol> symbols = LSPUtils.awaitResult(
+					lspServer.documentSymbol(documentUri, RequestPriority.BACKGROUND));
+
+				if (symbols == null) { return; }
 
 				// For each symbol in the result...
 
@@ -0,0 +1,91 @@
+package com.adacore.adaintellij.analysis.syntactic;
+
+import com.intellij.lang.*;
+import com.intellij.openapi.project.Project;
+import com.intellij.psi.impl.source.tree.LazyParseableElement;
+import com.intellij.psi.tree.*;
+import org.jetbrains.annotations.NonNls;
+import org.jetbrains.annotations.NotNull;
+
+import com.adacore.adaintellij.AdaLanguage;
+
+/**
+ * Type of an Ada body (subprogram, package, task, protected or entry
+ * body) that can be reparsed on its own when edited.
+ *
+ * When a document changes, the IntelliJ platform looks for the innermost
+ * node of such a type that encloses the change, and checks whether its
+ * new text still parses as a single body of the same type. If so, only
+ * that text is re-lexed and reparsed, and the rest of the file's PSI
+ * tree (along with any data cached on it) is left untouched. Otherwise,
+ * the platform tries the next enclosing body, and eventually the whole
+ * file.
+ *
+ * Nodes of this type are built eagerly by the Ada parser, so they are
+ * never collapsed during the initial parsing of a file. Only the nodes
+ * replacing edited bodies are created unparsed.
+ *
+ * @see AdaParser
+ */
+public final class AdaReparseableElementType extends IReparseableElementType implements ICompositeElementType {
+
+	/**
+	 * Constructs a new Ada reparseable element type.
+	 *
+	 * @param debugName The name of the element type, used for debugging purposes.
+	 *
+	 * @see com.intellij.psi.tree.IReparseableElementType#IReparseableElementType(String, Language)
+	 */
+	AdaReparseableElementType(@NotNull @NonNls String debugName) {
+		super(debugName, AdaLanguage.INSTANCE);
+	}
+
+	/**
+	 * Creates an already parsed node of this type, to which the PSI
+	 * builder adds children during the initial parsing of a file.
+	 *
+	 * @see com.intellij.psi.tree.ICompositeElementType#createCompositeNode()
+	 */
+	@NotNull
+	@Override
+	public ASTNode createCompositeNode() { return new LazyParseableElement(this, null); }
+
+	/**
+	 * Creates an unparsed node of this type holding the given text, which
+	 * the platform substitutes for the edited node when reparsing it, and
+	 * which is parsed when its children are first accessed.
+	 *
+	 * @see com.intellij.psi.tree.ILazyParseableElementType#createNode(CharSequence)
+	 */
+	@NotNull
+	@Override
+	public ASTNode createNode(CharSequence text) { return new LazyParseableElement(this, text); }
+
+	/**
+	 * Returns whether or not the given text, replacing the text of a
+	 * node of this type after an edit, still parses as a single
+	 * construct of this type without errors.
+	 *
+	 * @see com.intellij.psi.tree.IReparseableElementType#isParsable(CharSequence, Language, Project)
+	 */
+	@Override
+	public boolean isParsable(@NotNull CharSequence buffer, @NotNull Language fileLanguage, @NotNull Project project) {
+
+		ParserDefinition parserDefinition = LanguageParserDefinitions.INSTANCE.forLanguage(getLanguage());
+
+		PsiBuilder builder = PsiBuilderFactory.getInstance().createBuilder(
+			parserDefinition, parserDefinition.createLexer(project), buffer);
+
+		return AdaParser.parsesAsSingleElement(this, builder);
+
+	}
+
+	/**
+	 * Returns a string representation of this element type.
+	 *
+	 * @return A string representation of this element type.
+	 */
+	@Override
+	public String toString() { return "AdaReparseableElementType." + super.toString(); }
+
+}
@@ -0,0 +1,104 @@
+package com.adacore.adaintellij.analysis.syntactic;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the time spent by the Ada parser parsing whole files and
+ * reparsing single edited bodies, shared by all projects. They are
+ * exposed as gauges of the LSP session metrics, in the internal metrics
+ * tool window, so that the benefit of incremental reparsing can be
+ * checked on real edits.
+ * @see AdaParser#STATISTICS
+ */
+public final class ParseTimeStatistics {
+
+	/**
+	 * The number of parsed files, and the total time spent parsing
+	 * them, in nanoseconds.
+	 */
+	private final AtomicLong fileParseCount = new AtomicLong();
+	private final AtomicLong fileParseNanos = new AtomicLong();
+
+	/**
+	 * The number of reparsed bodies, the total time spent reparsing
+	 * them and the longest reparse time, in nanoseconds.
+	 */
+	private final AtomicLong bodyReparseCount    = new AtomicLong();
+	private final AtomicLong bodyReparseNanos    = new AtomicLong();
+	private final AtomicLong maxBodyReparseNanos = new AtomicLong();
+
+	/**
+	 * Records the parsing of a whole file.
+	 *
+	 * @param nanos The time spent parsing the file, in nanoseconds.
+	 */
+	void fileParsed(long nanos) {
+		fileParseCount.incrementAndGet();
+		fileParseNanos.addAndGet(nanos);
+	}
+
+	/**
+	 * Records the reparsing of a single body after an edit.
+	 *
+	 * @param nanos The time spent reparsing the body, in nanoseconds.
+	 */
+	void bodyReparsed(long nanos) {
+		bodyReparseCount.incrementAndGet();
+		bodyReparseNanos.addAndGet(nanos);
+		maxBodyReparseNanos.accumulateAndGet(nanos, Math::max);
+	}
+
+	/**
+	 * Returns the number of parsed files.
+	 *
+	 * @return The number of parsed files.
+	 */
+	public long getFileParseCount() { return fileParseCount.get(); }
+
+	/**
+	 * Returns the average time spent parsing a file.
+	 *
+	 * @return The average file parse time, in microseconds, or 0 if no
+	 *         file was parsed.
+	 */
+	public long getAverageFileParseMicros() { return averageMicros(fileParseNanos, fileParseCount); }
+
+	/**
+	 * Returns the number of bodies reparsed after edits.
+	 *
+	 * @return The number of reparsed bodies.
+	 */
+	public long getBodyReparseCount() { return bodyReparseCount.get(); }
+
+	/**
+	 * Returns the average time spent reparsing a body after an edit.
+	 *
+	 * @return The average reparse time, in microseconds, or 0 if no
+	 *         body was reparsed.
+	 */
+	public long getAverageBodyReparseMicros() { return averageMicros(bodyReparseNanos, bodyReparseCount); }
+
+	/**
+	 * Returns the longest time spent reparsing a body after an edit.
+	 *
+	 * @return The longest reparse time, in microseconds.
+	 */
+	public long getMaxBodyReparseMicros() { return TimeUnit.NANOSECONDS.toMicros(maxBodyReparseNanos.get()); }
+
+	/**
+	 * Returns the average of the given total time over the given count.
+	 *
+	 * @param totalNanos The total time, in nanoseconds.
+	 * @param count The count.
+	 * @return The average time, in microseconds, or 0 if the count is 0.
+	 */
+	private static long averageMicros(AtomicLong totalNanos, AtomicLong count) {
+
+		long currentCount = count.get();
+
+		return currentCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.get() / currentCount);
+
+	}
+
+}
@@ -5,6 +5,7 @@ import java.util.List;
 import com.intellij.lang.annotation.*;
 import com.intellij.openapi.editor.*;
 import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
 import org.jetbrains.annotations.*;
 
@@ -23,21 +24,14 @@ import static com.adacore.adaintellij.lsp.LSPUtils.diagnosticSeverityToHighlight
  */
 public class AdaAnnotator extends ExternalAnnotator<List<Diagnostic>, List<Diagnostic>> {
 
-	/**
-	 * Maximum number of attempts to get a document's diagnostics.
-	 */
-	private static final int MAXIMUM_GET_DIAGNOSTICS_ATTEMPTS = 7;
-
-	/**
-	 * The interval duration, in milliseconds, before trying to get
-	 * a document's internally stored diagnostics.
-	 */
-	private static final long GET_DIAGNOSTICS_INTERVAL = 100;
-
 	/**
 	 * @see com.intellij.lang.annotation.ExternalAnnotator#collectInformation(PsiFile)
 	 *
-	 * Fetches and returns the list of diagnostics from the LSP client.
+	 * Returns the diagnostics last published by the ALS for the
+	 * file, if they apply to the current version of the file.
+	 * Diagnostics are pushed by the LSP client, which restarts
+	 * highlighting for the file when they change, so this method
+	 * never waits for diagnostics.
 	 */
 	@Nullable
 	@Override
@@ -49,34 +43,25 @@ public class AdaAnnotator extends ExternalAnnotator<List<Diagnostic>, List<Diagn
 
 		if (document == null) { return null; }
 
-		// Get the list of diagnostics from the document's cache
-
-		CacheResult<List<Diagnostic>> cacheResult =
-			Cacher.getCachedData(document, AdaLSPClient.DIAGNOSTICS_CACHE_KEY);
+		// Get the diagnostics from the document's cache
 
-		int attempts = MAXIMUM_GET_DIAGNOSTICS_ATTEMPTS;
+		VersionedDiagnostics diagnostics =
+			Cacher.getCachedData(document, AdaLSPClient.DIAGNOSTICS_CACHE_KEY).data;
 
-		// While the cache read was a miss and the number of attempts
-		// has not reached the maximum number of attempts, sleep for
-		// a short duration of time and try again
+		// If no diagnostics were published for the current
+		// version of the document yet, i.e. for the last version
+		// sent to the server with no changes pending since, then
+		// return null
 
-		while (!cacheResult.hit) {
-
-			try {
-				Thread.sleep(GET_DIAGNOSTICS_INTERVAL);
-			} catch (InterruptedException exception) {}
-
-			cacheResult = Cacher.getCachedData(document, AdaLSPClient.DIAGNOSTICS_CACHE_KEY);
-
-			attempts--;
-
-			if (attempts == 0) { break; }
-
-		}
+		VirtualFile  virtualFile = file.getVirtualFile();
+		AdaLSPServer lspServer   = AdaLSPDriver.getServer(file.getProject());
 
-		// Return the last cache read result
+		if (
+			diagnostics == null || virtualFile == null || lspServer == null ||
+			!lspServer.isCurrentVersion(virtualFile.getUrl(), diagnostics.documentVersion)
+		) { return null; }
 
-		return cacheResult.data;
+		return diagnostics.diagnostics;
 
 	}
 
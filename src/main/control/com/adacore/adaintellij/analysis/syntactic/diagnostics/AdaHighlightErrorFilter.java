@@ -0,0 +1,30 @@
+package com.adacore.adaintellij.analysis.syntactic.diagnostics;
+
+import com.intellij.codeInsight.highlighting.HighlightErrorFilter;
+import com.intellij.psi.PsiErrorElement;
+import org.jetbrains.annotations.NotNull;
+
+import com.adacore.adaintellij.analysis.syntactic.AdaPsiFile;
+
+/**
+ * Filter hiding the errors recorded by the Ada parser.
+ *
+ * The Ada parser only recognizes the structure of Ada source code,
+ * and records errors solely to recover from unexpected tokens. Syntax
+ * errors are reported to the user by the Ada annotator instead, based
+ * on the diagnostics of the Ada Language Server (ALS).
+ *
+ * @see com.adacore.adaintellij.analysis.syntactic.AdaParser
+ * @see AdaAnnotator
+ */
+public final class AdaHighlightErrorFilter extends HighlightErrorFilter {
+
+	/**
+	 * @see com.intellij.codeInsight.highlighting.HighlightErrorFilter#shouldHighlightErrorElement(PsiErrorElement)
+	 */
+	@Override
+	public boolean shouldHighlightErrorElement(@NotNull PsiErrorElement element) {
+		return !(element.getContainingFile() instanceof AdaPsiFile);
+	}
+
+}
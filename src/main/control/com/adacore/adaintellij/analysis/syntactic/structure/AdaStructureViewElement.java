@@ -1,11 +1,10 @@
 package com.adacore.adaintellij.analysis.syntactic.structure;
 
-import java.util.stream.Stream;
-
 import com.intellij.ide.structureView.StructureViewTreeElement;
 import com.intellij.ide.util.treeView.smartTree.*;
 import com.intellij.navigation.ItemPresentation;
 import com.intellij.psi.NavigatablePsiElement;
+import com.intellij.psi.util.PsiTreeUtil;
 import org.jetbrains.annotations.NotNull;
 
 import com.adacore.adaintellij.analysis.syntactic.*;
@@ -72,19 +71,14 @@ public final class AdaStructureViewElement implements StructureViewTreeElement,
 
 		if (!(element instanceof AdaPsiFile)) { return TreeElement.EMPTY_ARRAY; }
 
-		// Filter this element's children by Ada element type,
-		// map them to `AdaStructureViewElement` and return them
-
-		return Stream.of(element.getChildren())
-			.filter(element -> {
-
-				if (element == null) { return false; }
-
-				AdaPsiElement adaPsiElement = AdaPsiElement.getFrom(element);
+		// Filter the identifiers in this element by Ada element
+		// type, map them to `AdaStructureViewElement` and
+		// return them
 
-				if (!(adaPsiElement instanceof AdaPsiReference)) { return false; }
+		return PsiTreeUtil.findChildrenOfType(element, AdaPsiReference.class).stream()
+			.filter(reference -> {
 
-				AdaElementType elementType = adaPsiElement.getAdaElementType();
+				AdaElementType elementType = reference.getAdaElementType();
 
 				return
 					elementType == AdaElementType.PACKAGE_SPEC_IDENTIFIER ||
@@ -96,7 +90,7 @@ public final class AdaStructureViewElement implements StructureViewTreeElement,
 					elementType == AdaElementType.FUNCTION_IDENTIFIER;
 
 			})
-			.map(element -> new AdaStructureViewElement((AdaPsiReference)element))
+			.map(AdaStructureViewElement::new)
 			.toArray(TreeElement[]::new);
 
 	}
@@ -4,6 +4,7 @@ import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import javax.swing.*;
 
+import com.intellij.codeInsight.daemon.DaemonCodeAnalyzer;
 import com.intellij.notification.Notifications;
 import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
@@ -11,6 +12,7 @@ import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiFile;
 
 import org.eclipse.lsp4j.*;
 import org.eclipse.lsp4j.jsonrpc.CompletableFutures;
@@ -32,7 +34,7 @@ public final class AdaLSPClient implements LanguageClient {
 	/**
 	 * Cache key for document diagnostics.
 	 */
-	public static final CacheKey<List<Diagnostic>>
+	public static final CacheKey<VersionedDiagnostics>
 		DIAGNOSTICS_CACHE_KEY = CacheKey.getNewKey();
 
 	/**
@@ -219,10 +221,19 @@ public final class AdaLSPClient implements LanguageClient {
 	public CompletableFuture<ApplyWorkspaceEditResponse> applyEdit(ApplyWorkspaceEditParams params) {
 
 		if (!driver.initialized()) {
-			return CompletableFuture.completedFuture(null);
+			return CompletableFuture.completedFuture(new ApplyWorkspaceEditResponse(false));
 		}
 
-		throw new UnsupportedOperationException("Method: workspace/applyEdit");
+		// Apply the edit on the event dispatch thread, without
+		// blocking the thread reading messages from the server
+
+		CompletableFuture<ApplyWorkspaceEditResponse> response = new CompletableFuture<>();
+
+		ApplicationManager.getApplication().invokeLater(() -> response.complete(new ApplyWorkspaceEditResponse(
+			!project.isDisposed() &&
+				WorkspaceEditApplier.applyInCommand(project, params.getEdit(), params.getLabel()))));
+
+		return response;
 
 	}
 
@@ -250,11 +261,42 @@ public final class AdaLSPClient implements LanguageClient {
 		Document document = ApplicationManager.getApplication().runReadAction(
 			(Computable<Document>)() -> Utils.getVirtualFileDocument(virtualFile));
 
-		if (document == null) { return; }
+		AdaLSPServer server = AdaLSPDriver.getServer(project);
+
+		if (document == null || server == null) { return; }
+
+		// Store the diagnostics in the document, along with
+		// the document version to which they apply: the server
+		// publishes diagnostics after processing the changes it
+		// received, so they apply to the last version sent to it
+		// (the published diagnostics do not carry their version
+		// in this version of the protocol)
+
+		VersionedDiagnostics previousDiagnostics =
+			Cacher.getCachedData(document, DIAGNOSTICS_CACHE_KEY).data;
+
+		VersionedDiagnostics currentDiagnostics = new VersionedDiagnostics(
+			diagnostics.getDiagnostics(), server.documentVersion(virtualFile.getUrl()));
+
+		Cacher.cacheData(document, DIAGNOSTICS_CACHE_KEY, currentDiagnostics);
+
+		driver.semanticHighlightAvailable();
+
+		// If the diagnostics changed, then restart highlighting
+		// for the corresponding file only, so that the annotator
+		// picks up the new diagnostics
+
+		if (currentDiagnostics.sameAs(previousDiagnostics)) { return; }
+
+		ApplicationManager.getApplication().invokeLater(() -> {
+
+			PsiFile psiFile = Utils.getVirtualFilePsiFile(project, virtualFile);
 
-		// Store the diagnostics in the document
+			if (psiFile != null) {
+				DaemonCodeAnalyzer.getInstance(project).restart(psiFile);
+			}
 
-		Cacher.cacheData(document, DIAGNOSTICS_CACHE_KEY, diagnostics.getDiagnostics());
+		}, project.getDisposed());
 
 	}
 
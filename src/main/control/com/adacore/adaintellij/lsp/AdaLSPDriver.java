@@ -2,16 +2,22 @@ package com.adacore.adaintellij.lsp;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
 
 import com.intellij.execution.*;
 import com.intellij.notification.*;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.ProjectComponent;
-import com.intellij.openapi.editor.*;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.EditorFactory;
 import com.intellij.openapi.editor.event.DocumentEvent;
 import com.intellij.openapi.fileEditor.*;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import com.intellij.util.execution.ParametersListUtil;
 import com.intellij.util.messages.MessageBus;
 import org.jetbrains.annotations.*;
 
@@ -20,10 +26,10 @@ import org.eclipse.lsp4j.jsonrpc.Launcher;
 import org.eclipse.lsp4j.launch.LSPLauncher;
 import org.eclipse.lsp4j.services.LanguageServer;
 
+import com.adacore.adaintellij.analysis.syntactic.AdaParser;
 import com.adacore.adaintellij.build.*;
 import com.adacore.adaintellij.editor.*;
 import com.adacore.adaintellij.file.AdaFileType;
-import com.adacore.adaintellij.misc.cache.Cacher;
 import com.adacore.adaintellij.notifications.AdaIJNotification;
 import com.adacore.adaintellij.project.*;
 
@@ -39,16 +45,21 @@ import static com.adacore.adaintellij.Utils.*;
 public final class AdaLSPDriver implements ProjectComponent {
 
 	/**
-	 * The number of tolerable failed requests before an LSP session is terminated.
+	 * Class-wide logger for the AdaLSPDriver class.
+	 */
+	private static final Logger LOGGER = Logger.getInstance(AdaLSPDriver.class);
+
+	/**
+	 * The number of tolerable failed requests before an LSP session is restarted.
 	 */
 	static final int FAILURE_COUNT_THRESHOLD = 7;
 
 	/**
-	 * The interval duration, in milliseconds, before checking if the operation
-	 * within the IntelliJ platform that resulted in a certain request to the ALS
-	 * was canceled.
+	 * The interval duration, in milliseconds, between checks of whether the
+	 * operations within the IntelliJ platform that resulted in pending requests
+	 * to the ALS were canceled.
 	 */
-	static final int CHECK_CANCELED_INTERVAL = 250;
+	static final int CHECK_CANCELED_INTERVAL = 20;
 
 	/**
 	 * Unique key for registering the driver's GPR file change listener.
@@ -83,8 +94,20 @@ public final class AdaLSPDriver implements ProjectComponent {
 
 	/**
 	 * The LSP driver's server interface.
+	 * Replaced from the supervisor's threads when the server is restarted.
+	 */
+	private volatile AdaLSPServer server;
+
+	/**
+	 * The command starting the ALS, i.e. the path to the ALS executable
+	 * followed by its arguments.
+	 */
+	private List<String> alsCommand;
+
+	/**
+	 * The supervisor restarting the server when it fails.
 	 */
-	private AdaLSPServer server;
+	private volatile AdaLSPSupervisor supervisor;
 
 	/**
 	 * Whether or not the LSP session has been fully initialized.
@@ -94,7 +117,46 @@ public final class AdaLSPDriver implements ProjectComponent {
 	 * notification containing a project file path, and not after it sends the
 	 * `initialized` notification.
 	 */
-	private boolean initialized = false;
+	private volatile boolean initialized = false;
+
+	/**
+	 * Whether or not the `initialize`/`initialized` handshake with the
+	 * current server is complete, so that the workspace configuration
+	 * can be sent to it.
+	 */
+	private volatile boolean handshakeComplete = false;
+
+	/**
+	 * Whether or not the project was closed.
+	 */
+	private volatile boolean projectClosed = false;
+
+	/**
+	 * Whether or not file listeners have been set.
+	 */
+	private boolean fileListenersSet = false;
+
+	/**
+	 * Requests made while the server is starting.
+	 */
+	private final ParkedRequestQueue<AdaLSPServer> parkedRequests = new ParkedRequestQueue<>();
+
+	/**
+	 * The metrics of the LSP session, kept across server restarts.
+	 */
+	private final LSPMetrics metrics = new LSPMetrics();
+
+	/**
+	 * The time, in milliseconds, at which the project was opened.
+	 */
+	private long projectOpenTime;
+
+	/**
+	 * The time, in milliseconds, between the opening of the project and
+	 * the first semantic highlight, or -1 if no semantic highlight has
+	 * occurred yet.
+	 */
+	private volatile long firstSemanticHighlightDelay = -1;
 
 	/**
 	 * Aggregate document change consumer operation that makes `textDocument/didChange`
@@ -136,14 +198,31 @@ public final class AdaLSPDriver implements ProjectComponent {
 
 		if (!adaProject.isAdaProject()) { return; }
 
-		// Get ALS path
+		projectOpenTime = System.currentTimeMillis();
+
+		// Get the ALS command, either set through a system property,
+		// e.g. to run a fake server, or made of the ALS path
+
+		String alsCommandLine = System.getProperty(LSPUtils.ALS_COMMAND_PROPERTY);
+
+		if (alsCommandLine != null && !alsCommandLine.trim().isEmpty()) {
 
-		String alsPath = getPathFromSystemPath(LSPUtils.ALS_NAME, false);
+			alsCommand = ParametersListUtil.parse(alsCommandLine);
+
+		} else {
+
+			String alsPath = getPathFromSystemPath(LSPUtils.ALS_NAME, false);
+
+			if (alsPath != null) {
+				alsCommand = Collections.singletonList(alsPath);
+			}
+
+		}
 
 		// If the ALS is not found on the PATH, then notify the
 		// user to install the ALS and add it to their PATH
 
-		if (alsPath == null) {
+		if (alsCommand == null) {
 
 			Notifications.Bus.notify(new AdaIJNotification(
 				"Ada Language Server not found on PATH",
@@ -160,98 +239,343 @@ public final class AdaLSPDriver implements ProjectComponent {
 
 		}
 
+		client = new AdaLSPClient(this, project);
+
+		registerGauges();
+
+		// Park requests made until the server is ready, then start the
+		// server in the background so as not to delay project opening
+
+		parkedRequests.startParking();
+
+		ApplicationManager.getApplication().executeOnPooledThread(this::startServer);
+
+		// Add a GPR file change listener and a GPRbuild configuration
+		// selection/change listener in order to send workspace
+		// configuration changes to the server
+
+		gprFileManager.addGprFileChangeListener(
+			GPR_FILE_CHANGE_LISTENER_KEY, this::setConfiguration);
+
+		gprbuildConfigurationManager.addRunManagerListener(new RunManagerListener() {
+
+			/**
+			 * Called when a configuration is changed.
+			 *
+			 * @param settings The changed configuration's settings.
+			 */
+			@Override
+			public void runConfigurationChanged(@NotNull RunnerAndConfigurationSettings settings) {
+				setConfiguration();
+			}
+
+			/**
+			 * Called when a different configuration is selected.
+			 */
+			@Override
+			public void runConfigurationSelected() {
+				setConfiguration();
+			}
+
+		});
+
+	}
+
+	/**
+	 * Starts the server, supervises it so that it is restarted if it
+	 * dies, hangs or becomes unreliable, and sets the workspace
+	 * configuration, then drains the requests parked in the meantime.
+	 * Waits for the server, so must not be called on the EDT.
+	 */
+	private void startServer() {
+
+		ServerSession session = startSession(true);
+
+		if (session == null) {
+			parkedRequests.drain(null);
+			return;
+		}
+
+		// If the project was closed in the meantime, then
+		// terminate the session
+
+		if (projectClosed) {
+			session.terminate();
+			parkedRequests.drain(null);
+			return;
+		}
+
+		supervisor = new AdaLSPSupervisor(
+			this::restartSession,
+			this::abandonServer,
+			AppExecutorUtil.getAppScheduledExecutorService()
+		);
+
+		supervisor.supervise(session);
+
+		// Try to set up the LSP server with the project's GPR file path
+		// This may not complete in case no GPR files exist in the project
+		// or in case multiple ones exist and the user has not chosen one,
+		// in which case the server will not be marked as initialized and
+		// no requests will be made to it until a GPR file path is set and
+		// successfully communicated to the server
+
+		setConfiguration();
+
+		LOGGER.info("ALS started " + (System.currentTimeMillis() - projectOpenTime) +
+			" ms after project open");
+
+		drainParkedRequests();
+
+	}
+
+	/**
+	 * Makes the parked requests to the server if it is initialized, or
+	 * completes them with their fallback results otherwise.
+	 */
+	private void drainParkedRequests() { parkedRequests.drain(initialized ? server : null); }
+
+	/**
+	 * Registers the gauges of the LSP session's metrics, sampling the
+	 * state of the current server.
+	 */
+	private void registerGauges() {
+
+		metrics.registerGauge("parkedRequests", parkedRequests::parkedRequestCount);
+		metrics.registerGauge("queuedRequests", () -> {
+			AdaLSPServer currentServer = server;
+			return currentServer == null ? 0 : currentServer.queuedRequestCount();
+		});
+		metrics.registerGauge("dispatchedRequests", () -> {
+			AdaLSPServer currentServer = server;
+			return currentServer == null ? 0 : currentServer.dispatchedRequestCount();
+		});
+		metrics.registerGauge("warmDocuments", () -> {
+			AdaLSPServer currentServer = server;
+			return currentServer == null ? 0 : currentServer.warmDocumentCount();
+		});
+		metrics.registerGauge("restartAttempts", () -> {
+			AdaLSPSupervisor currentSupervisor = supervisor;
+			return currentSupervisor == null ? 0 : currentSupervisor.getRestartAttempts();
+		});
+		metrics.registerGauge("firstSemanticHighlightMs", () -> firstSemanticHighlightDelay);
+
+		// Parsing is not part of the LSP session, but its times are
+		// reported along with the latency of semantic features
+
+		metrics.registerGauge("fileParses", AdaParser.STATISTICS::getFileParseCount);
+		metrics.registerGauge("fileParseAvgMicros", AdaParser.STATISTICS::getAverageFileParseMicros);
+		metrics.registerGauge("bodyReparses", AdaParser.STATISTICS::getBodyReparseCount);
+		metrics.registerGauge("bodyReparseAvgMicros", AdaParser.STATISTICS::getAverageBodyReparseMicros);
+		metrics.registerGauge("bodyReparseMaxMicros", AdaParser.STATISTICS::getMaxBodyReparseMicros);
+
+	}
+
+	/**
+	 * Makes the given request to the server once it is initialized, and
+	 * returns a future completing with its result. If the server is
+	 * starting, the request is parked until the server is ready,
+	 * otherwise it is made right away if the server is initialized, or
+	 * completes with the given fallback result if it is not.
+	 *
+	 * @param request The request, made using the server.
+	 * @param fallback The result of the request if the server is not
+	 *                 initialized.
+	 * @param <T> The type of the request's response result.
+	 * @return A future completing with the result of the request.
+	 */
+	@NotNull
+	<T> CompletableFuture<T> whenInitialized(
+		@NotNull Function<AdaLSPServer, CompletableFuture<T>> request,
+		         T                                            fallback
+	) {
+
+		CompletableFuture<T> parkedFuture = parkedRequests.park(request, fallback);
+
+		if (parkedFuture != null) { return parkedFuture; }
+
+		AdaLSPServer currentServer = server;
+
+		return initialized && currentServer != null ?
+			request.apply(currentServer) : CompletableFuture.completedFuture(fallback);
+
+	}
+
+	/**
+	 * Records the first semantic highlight since the project was opened,
+	 * i.e. the first time diagnostics are published by the server.
+	 */
+	void semanticHighlightAvailable() {
+
+		if (firstSemanticHighlightDelay >= 0) { return; }
+
+		firstSemanticHighlightDelay = System.currentTimeMillis() - projectOpenTime;
+
+		LOGGER.info("First semantic highlight " + firstSemanticHighlightDelay +
+			" ms after project open");
+
+	}
+
+	/**
+	 * Returns the time, in milliseconds, between the opening of the
+	 * project and the first semantic highlight.
+	 *
+	 * @return The time to the first semantic highlight, or -1 if no
+	 *         semantic highlight has occurred yet.
+	 */
+	long getFirstSemanticHighlightDelay() { return firstSemanticHighlightDelay; }
+
+	/**
+	 * Starts the server process, connects to it and performs the
+	 * initialization handshake, and returns the resulting session.
+	 *
+	 * @param notifyFailure Whether or not to notify the user if the
+	 *                      server could not be started.
+	 * @return The started session, or null if the server could not be
+	 *         started or initialized.
+	 */
+	@Nullable
+	private ServerSession startSession(boolean notifyFailure) {
+
 		Process process;
 
 		try {
 
 			// Try to start the server process
 
-			process = new ProcessBuilder(alsPath).start();
+			process = new ProcessBuilder(alsCommand).start();
 
 		} catch (IOException exception) {
 
 			// Notify the user that the server could not be started
 
-			Notifications.Bus.notify(new AdaIJNotification(
-				"Failed to start Ada Language Server",
-				"Reload the current project to try again.",
-				NotificationType.ERROR
-			));
+			LOGGER.warn("Failed to start ALS", exception);
 
-			return;
+			if (notifyFailure) {
+				Notifications.Bus.notify(new AdaIJNotification(
+					"Failed to start Ada Language Server",
+					"Reload the current project to try again.",
+					NotificationType.ERROR
+				));
+			}
+
+			return null;
 
 		}
 
-		// Connect to the server process' input/output
+		// Connect to the server process' input/output, recording
+		// the messages exchanged with the server
 
-		client = new AdaLSPClient(this, project);
+		Launcher<LanguageServer> serverLauncher = metrics.instrument(
+			new LSPLauncher.Builder<LanguageServer>()
+				.setLocalService(client)
+				.setRemoteInterface(LanguageServer.class),
+			process.getInputStream(),
+			process.getOutputStream()
+		).create();
 
-		Launcher<LanguageServer> serverLauncher = LSPLauncher.createClientLauncher(
-			client, process.getInputStream(), process.getOutputStream());
+		AdaLSPServer newServer = new AdaLSPServer(this, serverLauncher.getRemoteProxy(), metrics);
 
-		server = new AdaLSPServer(this, serverLauncher.getRemoteProxy());
+		ServerSession session = new ServerSession(
+			process, serverLauncher, newServer, serverLauncher.startListening());
 
-		serverLauncher.startListening();
+		// Requests made to the new server until it is
+		// initialized are parked
+
+		server = newServer;
 
 		// Send the `initialize` request to initialize the server
 
-		InitializeResult result = server.initialize(getInitParams());
+		InitializeResult result = newServer.initialize(getInitParams()).join();
 
 		if (result == null) {
 
 			// Notify the user that the initialization failed
 
-			Notifications.Bus.notify(new AdaIJNotification(
-				"Failed to initialize Ada Language Server",
-				"Reload the current project to try again.",
-				NotificationType.ERROR
-			));
+			LOGGER.warn("Failed to initialize ALS");
 
-			return;
+			session.terminate();
+
+			if (notifyFailure) {
+				Notifications.Bus.notify(new AdaIJNotification(
+					"Failed to initialize Ada Language Server",
+					"Reload the current project to try again.",
+					NotificationType.ERROR
+				));
+			}
+
+			return null;
 
 		}
 
-		server.setCapabilities(result.getCapabilities());
+		newServer.setCapabilities(result.getCapabilities());
 
-		server.initialized(new InitializedParams());
+		newServer.initialized(new InitializedParams());
 
-		// Try to set up the LSP server with the project's GPR file path
-		// This may not complete in case no GPR files exist in the project
-		// or in case multiple ones exist and the user has not chosen one,
-		// in which case the server will not be marked as initialized and
-		// no requests will be made to it until a GPR file path is set and
-		// successfully communicated to the server
+		handshakeComplete = true;
+
+		return session;
+
+	}
+
+	/**
+	 * Starts a new session to replace a failed one, replaying the
+	 * configuration and the open documents of the failed session.
+	 *
+	 * @return The started session, or null if the server could not be
+	 *         started or initialized.
+	 */
+	@Nullable
+	private ServerSession restartSession() {
+
+		parkedRequests.startParking();
+
+		ServerSession session = startSession(false);
+
+		if (session == null) {
+			parkedRequests.drain(null);
+			return null;
+		}
+
+		// Replay the configuration, which marks the server as
+		// initialized and replays open documents if a GPR file
+		// is set
 
 		setConfiguration();
 
-		// Add a GPR file change listener and a GPRbuild configuration
-		// selection/change listener in order to send workspace
-		// configuration changes to the server
+		drainParkedRequests();
 
-		gprFileManager.addGprFileChangeListener(
-			GPR_FILE_CHANGE_LISTENER_KEY, this::setConfiguration);
+		return session;
 
-		gprbuildConfigurationManager.addRunManagerListener(new RunManagerListener() {
+	}
 
-			/**
-			 * Called when a configuration is changed.
-			 *
-			 * @param settings The changed configuration's settings.
-			 */
-			@Override
-			public void runConfigurationChanged(@NotNull RunnerAndConfigurationSettings settings) {
-				setConfiguration();
-			}
+	/**
+	 * Restarts the given server, e.g. when too many requests to it failed,
+	 * unless it was already replaced.
+	 *
+	 * @param failedServer The failed server.
+	 */
+	void restartServer(@NotNull AdaLSPServer failedServer) {
 
-			/**
-			 * Called when a different configuration is selected.
-			 */
-			@Override
-			public void runConfigurationSelected() {
-				setConfiguration();
-			}
+		if (failedServer != server || supervisor == null) { return; }
 
-		});
+		supervisor.sessionFailed();
+
+	}
+
+	/**
+	 * Notifies the user that the server kept failing and was not
+	 * restarted again.
+	 */
+	private void abandonServer() {
+
+		Notifications.Bus.notify(new AdaIJNotification(
+			"Ada Language Server keeps failing",
+			"The ALS failed and was restarted too many times in a row, " +
+				"which will disable smart features such as find-usages and " +
+				"code completion.\nReload the current project to try again.",
+			NotificationType.ERROR
+		));
 
 	}
 
@@ -263,6 +587,8 @@ public final class AdaLSPDriver implements ProjectComponent {
 
 		if (!adaProject.isAdaProject()) { return; }
 
+		projectClosed = true;
+
 		// Shut down the server
 
 		shutDownServer();
@@ -298,11 +624,30 @@ public final class AdaLSPDriver implements ProjectComponent {
 		return project.getComponent(AdaLSPDriver.class).server;
 	}
 
+	/**
+	 * Returns the metrics of the given project's LSP session.
+	 *
+	 * @param project The project for which to get the metrics.
+	 * @return The given project's LSP metrics.
+	 */
+	@NotNull
+	public static LSPMetrics getMetrics(@NotNull Project project) {
+		return project.getComponent(AdaLSPDriver.class).metrics;
+	}
+
 	/**
 	 * Shuts down the LSP server.
 	 */
 	void shutDownServer() {
 
+		// Stop restarting the server
+
+		if (supervisor != null) {
+			supervisor.stop();
+		}
+
+		parkedRequests.drain(null);
+
 		if (!initialized) { return; }
 
 		// Mark the server as not initialized
@@ -313,13 +658,10 @@ public final class AdaLSPDriver implements ProjectComponent {
 
 		documentChangeOperation.stop();
 
-		// Send the shutdown request
+		// Send the shutdown request, then the exit
+		// notification once the request is answered
 
-		server.shutdown();
-
-		// Send the exit notification
-
-		server.exit();
+		server.shutdown().thenRun(server::exit);
 
 	}
 
@@ -350,6 +692,11 @@ public final class AdaLSPDriver implements ProjectComponent {
 	 */
 	private void setConfiguration(@Nullable String gprFilePath) {
 
+		// The configuration is sent once the initialization
+		// handshake with the server is complete
+
+		if (!handshakeComplete) { return; }
+
 		String path = gprFilePath;
 
 		// If no GPR file path was provided, get it
@@ -385,7 +732,8 @@ public final class AdaLSPDriver implements ProjectComponent {
 	}
 
 	/**
-	 * Marks the LSP session as initialized and sets file listeners.
+	 * Marks the LSP session as initialized, sets file listeners if not
+	 * already set, and opens the files already open in editors.
 	 */
 	private void setInitialized() {
 
@@ -397,9 +745,25 @@ public final class AdaLSPDriver implements ProjectComponent {
 
 		initialized = true;
 
-		// Set file listeners
+		// Set file listeners, which outlive server restarts
 
-		setFileListeners();
+		if (!fileListenersSet) {
+			fileListenersSet = true;
+			setFileListeners();
+		}
+
+		// Open the files opened in editors before the server was
+		// initialized, e.g. while it was starting or restarting
+
+		ApplicationManager.getApplication().runReadAction(() -> {
+
+			for (VirtualFile file : FileEditorManager.getInstance(project).getOpenFiles()) {
+				if (AdaFileType.isAdaFile(file)) {
+					server.didOpen(file);
+				}
+			}
+
+		});
 
 	}
 
@@ -426,13 +790,7 @@ public final class AdaLSPDriver implements ProjectComponent {
 				@NotNull Pair<FileEditor[], FileEditorProvider[]> editors
 			) {
 
-				if (!AdaFileType.isAdaFile(file)) { return; }
-
-				Document document = getVirtualFileDocument(file);
-
-				if (document != null) {
-					Cacher.cacheData(document, AdaLSPClient.DIAGNOSTICS_CACHE_KEY, null);
-				}
+				if (!initialized || !AdaFileType.isAdaFile(file)) { return; }
 
 				server.didOpen(file);
 
@@ -446,7 +804,7 @@ public final class AdaLSPDriver implements ProjectComponent {
 			@Override
 			public void fileClosed(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
 
-				if (!AdaFileType.isAdaFile(file)) { return; }
+				if (!initialized || !AdaFileType.isAdaFile(file)) { return; }
 
 				server.didClose(file);
 
@@ -456,8 +814,9 @@ public final class AdaLSPDriver implements ProjectComponent {
 
 		messageBus.connect().subscribe(FileEditorManagerListener.FILE_EDITOR_MANAGER, listener);
 
-		// Set document change listener to clear
-		// document diagnostics
+		// Set document change listener recording changes to send
+		// to the server, and dropping queued requests made on
+		// previous versions of changed documents
 
 		EditorFactory.getInstance().getEventMulticaster().addDocumentListener(new AdaDocumentListener() {
 
@@ -466,15 +825,29 @@ public final class AdaLSPDriver implements ProjectComponent {
 			 */
 			@Override
 			public void beforeAdaDocumentChanged(@NotNull DocumentEvent event) {
-				Cacher.clearCachedData(event.getDocument(), AdaLSPClient.DIAGNOSTICS_CACHE_KEY);
+				server.beforeDocumentChanged(event);
 			}
 
-		});
+			/**
+			 * @see com.adacore.adaintellij.editor.AdaDocumentListener#adaDocumentChanged(DocumentEvent)
+			 */
+			@Override
+			public void adaDocumentChanged(@NotNull DocumentEvent event) {
+				server.dropStaleRequests(event.getDocument());
+			}
 
-		// Initialize document change operation
+		}, project);
+
+		// Initialize document change operation, skipping changes made
+		// while the server is restarting, as the restarted server
+		// receives the full text of open documents
 
 		documentChangeOperation = BusyEditorAwareScheduler.getInstance(project)
-			.createDocumentChangeOperation(server::didChange);
+			.createDocumentChangeOperation(events -> {
+				if (initialized) {
+					server.didChange(events);
+				}
+			});
 
 	}
 
@@ -776,4 +1149,93 @@ public final class AdaLSPDriver implements ProjectComponent {
 
 	}
 
+	/**
+	 * ALS session of a server process, supervised by the driver's
+	 * supervisor.
+	 */
+	private final class ServerSession implements AdaLSPSupervisor.Session {
+
+		/**
+		 * The server process.
+		 */
+		@NotNull
+		private final Process process;
+
+		/**
+		 * The launcher connected to the server process.
+		 */
+		@NotNull
+		private final Launcher<LanguageServer> launcher;
+
+		/**
+		 * The server interface of the session.
+		 */
+		@NotNull
+		private final AdaLSPServer sessionServer;
+
+		/**
+		 * The future of the task listening to the server process' output.
+		 */
+		@NotNull
+		private final Future<Void> listening;
+
+		/**
+		 * Constructs a new ServerSession.
+		 *
+		 * @param process The server process.
+		 * @param launcher The launcher connected to the server process.
+		 * @param sessionServer The server interface of the session.
+		 * @param listening The future of the listening task.
+		 */
+		ServerSession(
+			@NotNull Process                  process,
+			@NotNull Launcher<LanguageServer> launcher,
+			@NotNull AdaLSPServer             sessionServer,
+			@NotNull Future<Void>             listening
+		) {
+			this.process       = process;
+			this.launcher      = launcher;
+			this.sessionServer = sessionServer;
+			this.listening     = listening;
+		}
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.AdaLSPSupervisor.Session#isAlive()
+		 */
+		@Override
+		public boolean isAlive() { return process.isAlive(); }
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.AdaLSPSupervisor.Session#probe()
+		 */
+		@NotNull
+		@Override
+		public CompletableFuture<?> probe() {
+			return launcher.getRemoteEndpoint().request(AdaLSPSupervisor.PROBE_METHOD, null);
+		}
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.AdaLSPSupervisor.Session#terminate()
+		 *
+		 * Also marks the LSP session as not initialized until a new
+		 * session is started, so that no requests are made to the
+		 * terminated server.
+		 */
+		@Override
+		public void terminate() {
+
+			if (sessionServer == server) {
+				initialized       = false;
+				handshakeComplete = false;
+			}
+
+			sessionServer.terminated();
+
+			listening.cancel(true);
+			process.destroy();
+
+		}
+
+	}
+
 }
@@ -2,15 +2,19 @@ package com.adacore.adaintellij.lsp;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.*;
 import java.util.stream.*;
 
 import com.intellij.notification.*;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.event.DocumentEvent;
 import com.intellij.openapi.progress.*;
+import com.intellij.openapi.util.Computable;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.*;
 
 import org.eclipse.lsp4j.*;
@@ -23,6 +27,7 @@ import com.adacore.adaintellij.lsp.objects.AdaSettingsObject;
 import com.adacore.adaintellij.notifications.AdaIJNotification;
 
 import static com.adacore.adaintellij.Utils.*;
+import static com.adacore.adaintellij.lsp.RequestFutures.transformResult;
 
 /**
  * Public API of the Ada Language Server (ALS) within the
@@ -44,6 +49,11 @@ public final class AdaLSPServer {
 	private static final List<Location>       EMPTY_LOCATION_LIST        = Collections.emptyList();
 	private static final List<DocumentSymbol> EMPTY_DOCUMENT_SYMBOL_LIST = Collections.emptyList();
 
+	/**
+	 * The version of a document that was never changed.
+	 */
+	private static final int INITIAL_DOCUMENT_VERSION = 1;
+
 	/**
 	 * The LSP driver to which this server belongs.
 	 */
@@ -54,6 +64,11 @@ public final class AdaLSPServer {
 	 */
 	private LanguageServer server;
 
+	/**
+	 * The metrics of the LSP session, shared by successive servers.
+	 */
+	private LSPMetrics metrics;
+
 	/**
 	 * Server capabilities.
 	 */
@@ -70,23 +85,52 @@ public final class AdaLSPServer {
 	/**
 	 * The number of failed requests to the server.
 	 */
-	private int failureCount = 0;
+	private AtomicInteger failureCount = new AtomicInteger(0);
+
+	/**
+	 * The pipeline through which document requests are made.
+	 */
+	private DocumentRequestPipeline requestPipeline;
+
+	/**
+	 * Cache of the last complete completion result, reused while the
+	 * completed prefix grows.
+	 */
+	private CompletionResultCache completionCache = new CompletionResultCache();
+
+	/**
+	 * Batches of document changes not yet sent to the server, mapped
+	 * to the URIs of the changed documents.
+	 */
+	private Map<String, ContentChangeBatch> pendingChanges = new HashMap<>();
 
 	/**
-	 * The set of open files in the IDE.
+	 * The versions of documents known to the server, mapped to their
+	 * URIs. A document's version increases by one with every
+	 * `textDocument/didChange` notification sent for that document,
+	 * and is kept when that document is closed so that it never
+	 * decreases.
+	 * Guarded by `pendingChanges`, so that versions are sent in order.
 	 */
-	private Set<String> openFiles = new HashSet<>();
+	private Map<String, Integer> documentVersions = new HashMap<>();
 
 	/**
-	 * Constructs a new AdaLSPServer given its driver and the corresponding
-	 * internal LSP4J server.
+	 * Constructs a new AdaLSPServer given its driver, the corresponding
+	 * internal LSP4J server and the metrics of the LSP session.
 	 *
 	 * @param driver The driver to attach to this server.
 	 * @param server The internal server corresponding to this server.
+	 * @param metrics The metrics in which to record requests.
 	 */
-	AdaLSPServer(@NotNull AdaLSPDriver driver, @NotNull LanguageServer server) {
-		this.driver = driver;
-		this.server = server;
+	AdaLSPServer(
+		@NotNull AdaLSPDriver   driver,
+		@NotNull LanguageServer server,
+		@NotNull LSPMetrics     metrics
+	) {
+		this.driver          = driver;
+		this.server          = server;
+		this.metrics         = metrics;
+		this.requestPipeline = new DocumentRequestPipeline(new PipelineHost(), metrics);
 	}
 
 	/**
@@ -160,160 +204,258 @@ public final class AdaLSPServer {
 	 * Generic request wrapper allowing to systematically perform certain
 	 * operations on every request, such as logging and keeping track of failed
 	 * requests.
-	 * Waits for the response to the given request, and returns its result.
+	 * Makes the given request and returns a future that completes with the
+	 * result of the request, or with null if the request failed, timed out
+	 * or was canceled. The returned future never completes exceptionally,
+	 * and no thread waits for the response.
 	 * The given supplier should be a simple wrapper around a server request,
 	 * for example (using a Java lambda for the Supplier anonymous class):
 	 *
 	 * () -> server.getTextDocumentService().definition(params)
 	 *
+	 * The request is canceled, which makes LSP4J send a `$/cancelRequest`
+	 * notification to the server, when the returned future is canceled,
+	 * when the method timeout is reached, or as soon as the progress
+	 * indicator of the operation making the request, if any, is canceled.
+	 *
 	 * @param method The name of the request's method.
 	 * @param requestSupplier A supplier representing the request to be made.
 	 * @param <T> The type of the request's response result.
-	 * @return The result of the response to the request.
+	 * @return A future completing with the result of the response to the request.
 	 */
-	@Nullable
-	private <T> T request(
+	@NotNull
+	private <T> CompletableFuture<T> request(
 		@NotNull String method,
 		@NotNull Supplier<CompletableFuture<T>> requestSupplier
-	) {
+	) { return cancelWithProgress(sendRequest(method, requestSupplier)); }
 
-		T result = null;
+	/**
+	 * Variant of `request` that does not watch the progress indicator
+	 * of the operation making the request, for requests whose results
+	 * may be shared by multiple operations.
+	 * @see AdaLSPServer#request(String, Supplier)
+	 *
+	 * @param method The name of the request's method.
+	 * @param requestSupplier A supplier representing the request to be made.
+	 * @param <T> The type of the request's response result.
+	 * @return A future completing with the result of the response to the request.
+	 */
+	@NotNull
+	private <T> CompletableFuture<T> sendRequest(
+		@NotNull String method,
+		@NotNull Supplier<CompletableFuture<T>> requestSupplier
+	) {
 
 		// Get the request future
 
 		CompletableFuture<T> requestFuture = requestSupplier.get();
 
-		// Get the timeout for the given method
-
-		int requestTimeout = Timeouts.getMethodTimeout(method);
+		// Create the result future, propagating
+		// its cancellation to the request future
 
-		// Keep looping to get the request's result
-		// while the method timeout is not reached
+		CompletableFuture<T> resultFuture = new CompletableFuture<T>() {
 
-		while (requestTimeout > 0) {
+			/**
+			 * @see java.util.concurrent.CompletableFuture#cancel(boolean)
+			 */
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				requestFuture.cancel(mayInterruptIfRunning);
+				return super.cancel(mayInterruptIfRunning);
+			}
 
-			try {
+		};
 
-				// Try to make the request and get the result before
-				// the end of the next check-cancel interval
+		requestFuture.whenComplete((result, throwable) -> {
 
-				result = requestFuture.get(
-					AdaLSPDriver.CHECK_CANCELED_INTERVAL,
-					TimeUnit.MILLISECONDS
-				);
+			if (throwable != null && !(throwable instanceof CancellationException)) {
+				handleFailedRequest(method, throwable);
+			}
 
-				// The request resolved before the end of the next
-				// check-cancel interval, so break immediately
+			resultFuture.complete(throwable == null ? result : null);
 
-				break;
+		});
 
-			} catch (TimeoutException timeoutException) {
+		// Cancel the request when the method timeout is reached
 
-				// The check-cancel interval is over, so decrease the
-				// request timeout then check if the operation was
-				// canceled, and if it was then break
+		ScheduledFuture<?> timeoutTask = AppExecutorUtil.getAppScheduledExecutorService().schedule(
+			() -> {
+				if (requestFuture.cancel(true)) {
+					metrics.requestTimedOut(method);
+				}
+			},
+			Timeouts.getMethodTimeout(method),
+			TimeUnit.MILLISECONDS
+		);
 
-				requestTimeout -= AdaLSPDriver.CHECK_CANCELED_INTERVAL;
+		resultFuture.whenComplete((result, throwable) -> timeoutTask.cancel(false));
 
-				try {
-					ProgressManager.checkCanceled();
-				} catch (ProcessCanceledException canceledException) {
-					break;
-				}
+		// Return the result future
 
-			} catch (Exception exception) {
+		return resultFuture;
 
-				// Log the failed request
+	}
 
-				LOGGER.error("Request '" + method + "' to ALS failed", exception);
+	/**
+	 * Cancels the given request future as soon as the progress indicator
+	 * of the current operation, if any, is canceled, and returns it.
+	 *
+	 * @param future The request future to cancel.
+	 * @param <T> The type of the request's response result.
+	 * @return The given future.
+	 */
+	@Contract("_ -> param1")
+	@NotNull
+	private static <T> CompletableFuture<T> cancelWithProgress(@NotNull CompletableFuture<T> future) {
 
-				// Increment the number of failed requests
+		ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
 
-				failureCount++;
+		if (indicator != null) {
+			ProgressCancellationWatcher.watch(future, indicator);
+		}
 
-				// If the number of failed requests reaches the threshold defined in
-				// the driver, then notify the user and shut down the server
+		return future;
 
-				if (failureCount == AdaLSPDriver.FAILURE_COUNT_THRESHOLD) {
+	}
 
-					Notifications.Bus.notify(new AdaIJNotification(
-						"Connection to Ada Language Server unreliable",
-						"The ALS has been shut down due to multiple failed requests, " +
-							"which will disable smart features such as find-usages and " +
-							"code completion.\nReload the current project to try again.",
-						NotificationType.ERROR
-					));
+	/**
+	 * Logs the given failed request and keeps track of the number of
+	 * failed requests, shutting down the server if it becomes unreliable.
+	 *
+	 * @param method The name of the failed request's method.
+	 * @param throwable The cause of the failure.
+	 */
+	private void handleFailedRequest(@NotNull String method, @NotNull Throwable throwable) {
 
-					driver.shutDownServer();
+		// Log the failed request
 
-				}
+		LOGGER.error("Request '" + method + "' to ALS failed", throwable);
 
-				// Break out of the loop
+		metrics.requestFailed(method);
 
-				break;
+		// Increment the number of failed requests, and if it reaches
+		// the threshold defined in the driver, then notify the user
+		// and restart the server
 
-			}
+		if (failureCount.incrementAndGet() == AdaLSPDriver.FAILURE_COUNT_THRESHOLD) {
 
-		}
+			Notifications.Bus.notify(new AdaIJNotification(
+				"Connection to Ada Language Server unreliable",
+				"The ALS is being restarted due to multiple failed requests.",
+				NotificationType.WARNING
+			));
 
-		// Return the result
+			driver.restartServer(this);
 
-		return result;
+		}
 
 	}
 
 	/**
 	 * Wrapper around requests that are relative to a document.
 	 * Basically any request whose parameters specify a document URI must be made
-	 * indirectly through this method and NOT directly. This is because the
-	 * IntelliJ platform often performs certain operations, such as resolving a
-	 * reference or performing find-references, on elements from files that are
-	 * not actually open in the IDE, which would be problematic if those files
-	 * were not open in the server's perspective.
-	 * To solve this, this wrapper checks if the file referenced by the given
-	 * request is already open and, if it is not, sends a `textDocument/didOpen`
-	 * notification before performing the request and a `textDocument/didClose`
-	 * notification after.
+	 * indirectly through this method and NOT directly, so that the document is
+	 * open on the server and up to date when the request is made, and so that
+	 * the request is coalesced with identical requests and scheduled by priority.
+	 * @see DocumentRequestPipeline
 	 * See base request wrapper for information about expected parameters.
 	 *
 	 * @param method The name of the request's method.
 	 * @param documentUri The URI of the document referenced by the given request.
+	 * @param params The parameters of the request, identifying it along with
+	 *               the method and the document version.
+	 * @param priority The priority of the request.
 	 * @param requestSupplier A supplier representing the request to be made.
 	 * @param <T> The type of the request's response result.
-	 * @return The result of the response to the request.
+	 * @return A future completing with the result of the response to the request.
 	 */
-	@Nullable
-	private <T> T documentRequest(
-		@NotNull String method,
-		@NotNull String documentUri,
+	@NotNull
+	private <T> CompletableFuture<T> documentRequest(
+		@NotNull String          method,
+		@NotNull String          documentUri,
+		@NotNull Object          params,
+		@NotNull RequestPriority priority,
 		@NotNull Supplier<CompletableFuture<T>> requestSupplier
 	) {
+		return cancelWithProgress(
+			requestPipeline.request(method, documentUri, params, priority, requestSupplier));
+	}
 
-		boolean openOnlyForRequest =
-			serverSyncPolicy.getOpenClose() &&
-			!openFiles.contains(documentUri);
+	/**
+	 * Drops the queued requests made on a version of the given
+	 * document other than its current one. Must be called whenever
+	 * the document changes.
+	 *
+	 * @param document The changed document.
+	 */
+	void dropStaleRequests(@NotNull Document document) {
+		requestPipeline.dropStaleRequests(document);
+	}
 
-		// If the file is not already open, send a `textDocument/didOpen`
-		// notification to tell the server that the file is open
+	/**
+	 * Returns the number of document requests queued in the scheduler,
+	 * waiting to be sent to the server.
+	 *
+	 * @return The number of queued requests.
+	 */
+	int queuedRequestCount() { return requestPipeline.queuedRequestCount(); }
 
-		if (openOnlyForRequest) {
-			didOpen(documentUri);
-		}
+	/**
+	 * Returns the cache of the last complete completion result of this
+	 * server.
+	 *
+	 * @return The completion result cache.
+	 */
+	@NotNull
+	public CompletionResultCache getCompletionCache() { return completionCache; }
 
-		// Make the request and store the result
+	/**
+	 * Returns the number of document requests sent by the scheduler
+	 * and not completed yet.
+	 *
+	 * @return The number of dispatched requests.
+	 */
+	int dispatchedRequestCount() { return requestPipeline.dispatchedRequestCount(); }
 
-		T result = request(method, requestSupplier);
+	/**
+	 * Returns the number of documents kept open on the server while
+	 * they are not open in the IDE.
+	 *
+	 * @return The number of warm documents.
+	 */
+	int warmDocumentCount() { return requestPipeline.warmDocumentCount(); }
 
-		// If the file was not already open, send a `textDocument/didClose`
-		// notification to tell the server that the file is closed
+	/**
+	 * Returns the version of the document with the given URI known to
+	 * the server.
+	 *
+	 * @param documentUri The URI of the document.
+	 * @return The version of the document.
+	 */
+	int documentVersion(@NotNull String documentUri) {
 
-		if (openOnlyForRequest) {
-			didClose(documentUri);
+		synchronized (pendingChanges) {
+			return documentVersions.getOrDefault(documentUri, INITIAL_DOCUMENT_VERSION);
 		}
 
-		// Return the result
+	}
+
+	/**
+	 * Returns whether or not the given version of the document with the
+	 * given URI is the one whose text is current in the IDE, i.e. whether
+	 * it is the last version of that document sent to the server and no
+	 * changes of that document are pending.
+	 *
+	 * @param documentUri The URI of the document.
+	 * @param version The version to check.
+	 * @return Whether or not the given version is current.
+	 */
+	public boolean isCurrentVersion(@NotNull String documentUri, int version) {
 
-		return result;
+		synchronized (pendingChanges) {
+			return !pendingChanges.containsKey(documentUri) &&
+				documentVersions.getOrDefault(documentUri, INITIAL_DOCUMENT_VERSION) == version;
+		}
 
 	}
 
@@ -324,10 +466,10 @@ public final class AdaLSPServer {
 	/**
 	 * @see org.eclipse.lsp4j.services.LanguageServer#initialize(InitializeParams)
 	 */
-	@Nullable
-	InitializeResult initialize(InitializeParams params) {
+	@NotNull
+	CompletableFuture<InitializeResult> initialize(InitializeParams params) {
 
-		if (initializeRequestSent) { return null; }
+		if (initializeRequestSent) { return CompletableFuture.completedFuture(null); }
 
 		initializeRequestSent = true;
 
@@ -351,13 +493,29 @@ public final class AdaLSPServer {
 	/**
 	 * @see org.eclipse.lsp4j.services.LanguageServer#shutdown()
 	 */
-	void shutdown() { request("shutdown", () -> server.shutdown()); }
+	@NotNull
+	CompletableFuture<Object> shutdown() {
+
+		// Stop closing warm documents, as the server
+		// closes all documents when shutting down
+
+		requestPipeline.clearWarmDocuments();
+
+		return request("shutdown", () -> server.shutdown());
+
+	}
 
 	/**
 	 * @see org.eclipse.lsp4j.services.LanguageServer#exit()
 	 */
 	void exit() { server.exit(); }
 
+	/**
+	 * Stops closing warm documents once the server process is
+	 * terminated, as all documents are closed along with it.
+	 */
+	void terminated() { requestPipeline.clearWarmDocuments(); }
+
 	/*
 		'workspace/_' methods
 	*/
@@ -389,41 +547,84 @@ public final class AdaLSPServer {
 
 	/**
 	 * @see org.eclipse.lsp4j.services.TextDocumentService#didOpen(DidOpenTextDocumentParams)
+	 *
+	 * Marks the given file as open in the IDE, sending a
+	 * `textDocument/didOpen` notification unless the file is
+	 * already kept open on the server.
 	 */
-	void didOpen(@NotNull String documentUri) {
-
-		VirtualFile file = findFileByUrlString(documentUri);
+	void didOpen(@NotNull VirtualFile file) {
 
-		if (file == null) { return; }
+		if (!serverSyncPolicy.getOpenClose() ||
+			!AdaFileType.isAdaFile(file)) { return; }
 
-		didOpen(file);
+		requestPipeline.editorOpened(file.getUrl());
 
 	}
 
 	/**
 	 * @see org.eclipse.lsp4j.services.TextDocumentService#didOpen(DidOpenTextDocumentParams)
 	 */
-	void didOpen(@NotNull VirtualFile file) {
+	private void openDocument(@NotNull String documentUri) {
 
-		if (!serverSyncPolicy.getOpenClose() ||
-			!AdaFileType.isAdaFile(file)) { return; }
-
-		String   documentUri = file.getUrl();
-		Document document    = getVirtualFileDocument(file);
+		VirtualFile file     = findFileByUrlString(documentUri);
+		Document    document = file == null ? null : getVirtualFileDocument(file);
 
 		if (document == null) { return; }
 
-		TextDocumentItem textDocumentItem = new TextDocumentItem(
-			documentUri, LSPUtils.ADA_LSP_LANGUAGE_ID, 1, document.getText());
+		// The opened document's full text includes any pending changes,
+		// and is sent with the current version of the document
+
+		synchronized (pendingChanges) {
+
+			pendingChanges.remove(documentUri);
+
+			TextDocumentItem textDocumentItem = new TextDocumentItem(
+				documentUri, LSPUtils.ADA_LSP_LANGUAGE_ID,
+				documentVersions.getOrDefault(documentUri, INITIAL_DOCUMENT_VERSION),
+				document.getText()
+			);
+
+			server.getTextDocumentService().didOpen(new DidOpenTextDocumentParams(textDocumentItem));
 
-		server.getTextDocumentService().didOpen(new DidOpenTextDocumentParams(textDocumentItem));
+		}
+
+	}
+
+	/**
+	 * Records the change of the given document event, before it is
+	 * applied to its document, in the batch of pending changes of that
+	 * document, to be sent with the next `textDocument/didChange`
+	 * notification for that document.
+	 * Must be called for every change of an Ada document.
+	 *
+	 * @param event The document event.
+	 */
+	void beforeDocumentChanged(@NotNull DocumentEvent event) {
 
-		openFiles.add(documentUri);
+		VirtualFile file = getDocumentVirtualFile(event.getDocument());
+
+		if (file == null) { return; }
+
+		completionCache.documentChanged(
+			file.getUrl(), event.getOffset(), event.getOldLength(), event.getNewLength());
+
+		synchronized (pendingChanges) {
+
+			pendingChanges
+				.computeIfAbsent(file.getUrl(),
+					uri -> new ContentChangeBatch(event.getDocument().getImmutableCharSequence()))
+				.addChange(event.getOffset(), event.getOldLength(), event.getNewLength());
+
+		}
 
 	}
 
 	/**
 	 * @see org.eclipse.lsp4j.services.TextDocumentService#didChange(DidChangeTextDocumentParams)
+	 *
+	 * Sends the pending changes of the document of the given events.
+	 * Changes are recorded as they are made:
+	 * @see AdaLSPServer#beforeDocumentChanged(DocumentEvent)
 	 */
 	void didChange(@NotNull List<DocumentEvent> events) {
 
@@ -450,6 +651,23 @@ public final class AdaLSPServer {
 				"with change events from different documents");
 		}
 
+		sendPendingChanges(changedDocument);
+
+	}
+
+	/**
+	 * Sends the pending changes of the given document, if any, in a
+	 * `textDocument/didChange` notification tagged with the next version
+	 * of that document.
+	 *
+	 * @param changedDocument The changed document.
+	 */
+	private void sendPendingChanges(@NotNull Document changedDocument) {
+
+		TextDocumentSyncKind changePolicy = serverSyncPolicy.getChange();
+
+		if (changePolicy == TextDocumentSyncKind.None) { return; }
+
 		// Get the changed document's corresponding file
 		// and check that it is an Ada file
 
@@ -457,42 +675,58 @@ public final class AdaLSPServer {
 
 		if (changedFile == null || !AdaFileType.isAdaFile(changedFile)) { return; }
 
-		List<TextDocumentContentChangeEvent> changeEvents;
+		String documentUri = changedFile.getUrl();
 
-		// If the server's sync change policy is "Incremental",
-		// then map the given document events to LSP change events
+		// Changes are computed and sent while holding the lock, so that
+		// notifications are sent in the order of their versions
 
-		if (changePolicy == TextDocumentSyncKind.Incremental) {
+		synchronized (pendingChanges) {
 
-			changeEvents = events.stream()
-				.map(LSPUtils::documentEventToContentChangeEvent)
-				.collect(Collectors.toList());
+			ContentChangeBatch changeBatch = pendingChanges.remove(documentUri);
 
-		}
+			if (changeBatch == null) { return; }
 
-		// Otherwise, if the server's sync change policy is "Full",
-		// then create a single LSP change event with the full text
-		// of the changed document
+			List<TextDocumentContentChangeEvent> changeEvents;
 
-		else if (changePolicy == TextDocumentSyncKind.Full) {
+			// If the server's sync change policy is "Incremental" and
+			// sending the merged pending changes of the document is
+			// cheaper than sending its full text, then send them
 
-			changeEvents = Collections.singletonList(
-				new TextDocumentContentChangeEvent(changedDocument.getText()));
+			if (
+				changePolicy == TextDocumentSyncKind.Incremental &&
+				!changeBatch.fullSyncCheaper(changedDocument.getTextLength())
+			) {
 
-		}
+				changeEvents = changeBatch.toContentChangeEvents(
+					changedDocument.getImmutableCharSequence());
 
-		// Will never execute
-		else { return; }
+				if (changeEvents.isEmpty()) { return; }
 
-		// Send the notification with the computed changes and
-		// and the changed document's virtual file modification
-		// stamp as document version
+			}
 
-		didChange(
-			changedFile.getUrl(),
-			(int)changedFile.getModificationStamp(),
-			changeEvents
-		);
+			// Otherwise, the server's sync change policy is "Full" or
+			// the document has many pending changes, so create a single
+			// LSP change event with the full text of the changed
+			// document (a change event without range replaces the full
+			// text, whatever the sync policy)
+
+			else {
+
+				changeEvents = Collections.singletonList(
+					new TextDocumentContentChangeEvent(changedDocument.getText()));
+
+			}
+
+			// Send the notification with the computed changes
+			// and the next version of the changed document
+
+			int version = documentVersions.getOrDefault(documentUri, INITIAL_DOCUMENT_VERSION) + 1;
+
+			documentVersions.put(documentUri, version);
+
+			didChange(documentUri, version, changeEvents);
+
+		}
 
 	}
 
@@ -546,11 +780,11 @@ public final class AdaLSPServer {
 	 * @see org.eclipse.lsp4j.services.TextDocumentService#willSaveWaitUntil(WillSaveTextDocumentParams)
 	 */
 	@NotNull
-	List<TextEdit> willSaveWaitUntil(@NotNull VirtualFile file) {
+	CompletableFuture<List<TextEdit>> willSaveWaitUntil(@NotNull VirtualFile file) {
 
 		if (!serverSyncPolicy.getWillSaveWaitUntil() ||
 			!AdaFileType.isAdaFile(file))
-		{ return EMPTY_TEXT_EDIT_LIST; }
+		{ return CompletableFuture.completedFuture(EMPTY_TEXT_EDIT_LIST); }
 
 		String documentUri = file.getUrl();
 
@@ -559,11 +793,11 @@ public final class AdaLSPServer {
 		params.setTextDocument(new TextDocumentIdentifier(documentUri));
 		params.setReason(TextDocumentSaveReason.Manual);
 
-		List<TextEdit> textEdits =
-			documentRequest("textDocument/willSaveWaitUntil", documentUri,
-				() -> server.getTextDocumentService().willSaveWaitUntil(params));
-
-		return textEdits == null ? EMPTY_TEXT_EDIT_LIST : textEdits;
+		return transformResult(
+			documentRequest("textDocument/willSaveWaitUntil", documentUri, params, RequestPriority.INTERACTIVE,
+				() -> server.getTextDocumentService().willSaveWaitUntil(params)),
+			textEdits -> textEdits == null ? EMPTY_TEXT_EDIT_LIST : textEdits
+		);
 
 	}
 
@@ -597,45 +831,50 @@ public final class AdaLSPServer {
 
 	/**
 	 * @see org.eclipse.lsp4j.services.TextDocumentService#didClose(DidCloseTextDocumentParams)
+	 *
+	 * Marks the given file as closed in the IDE, keeping it open on the
+	 * server as a warm document, so that reopening it or making requests
+	 * on it soon after does not make the server analyze it again.
+	 * @see WarmDocumentSet
 	 */
-	void didClose(@NotNull String documentUri) {
-
-		VirtualFile file = findFileByUrlString(documentUri);
+	void didClose(@NotNull VirtualFile file) {
 
-		if (file == null) { return; }
+		if (!serverSyncPolicy.getOpenClose() ||
+			!AdaFileType.isAdaFile(file)) { return; }
 
-		didClose(file);
+		requestPipeline.editorClosed(file.getUrl());
 
 	}
 
 	/**
 	 * @see org.eclipse.lsp4j.services.TextDocumentService#didClose(DidCloseTextDocumentParams)
 	 */
-	void didClose(@NotNull VirtualFile file) {
-
-		if (!serverSyncPolicy.getOpenClose() ||
-			!AdaFileType.isAdaFile(file)) { return; }
-
-		String documentUri = file.getUrl();
-
+	private void closeDocument(@NotNull String documentUri) {
 		server.getTextDocumentService().didClose(
 			new DidCloseTextDocumentParams(new TextDocumentIdentifier(documentUri)));
-
-		openFiles.remove(documentUri);
-
 	}
 
 	/**
 	 * @see org.eclipse.lsp4j.services.TextDocumentService#completion(CompletionParams)
+	 *
+	 * Completes with null if no completion result is available, i.e. if
+	 * the server is not initialized, or if the request fails, times out
+	 * or its result is discarded as stale, so that callers do not
+	 * mistake the absence of a result for a complete empty one.
 	 */
 	@NotNull
-	public List<CompletionItem> completion(
+	public CompletableFuture<CompletionList> completion(
 		@NotNull String   documentUri,
 		@NotNull Position position
 	) {
 
-		if (!driver.initialized() || capabilities.getCompletionProvider() == null) {
-			return EMPTY_COMPLETION_ITEM_LIST;
+		if (!driver.initialized()) {
+			return cancelWithProgress(driver.whenInitialized(
+				readyServer -> readyServer.completion(documentUri, position), null));
+		}
+
+		if (capabilities.getCompletionProvider() == null) {
+			return CompletableFuture.completedFuture(new CompletionList(EMPTY_COMPLETION_ITEM_LIST));
 		}
 
 		final CompletionParams params = new CompletionParams();
@@ -643,40 +882,79 @@ public final class AdaLSPServer {
 		params.setTextDocument(new TextDocumentIdentifier(documentUri));
 		params.setPosition(position);
 
-		Either<List<CompletionItem>, CompletionList> completionResult =
-			documentRequest("textDocument/completion", documentUri,
-				() -> server.getTextDocumentService().completion(params));
+		return transformResult(
+			documentRequest("textDocument/completion", documentUri, params, RequestPriority.INTERACTIVE,
+				() -> server.getTextDocumentService().completion(params)),
+			completionResult ->
+				completionResult == null   ? null :
+				completionResult.isLeft()  ? new CompletionList(completionResult.getLeft()) :
+				completionResult.isRight() ? completionResult.getRight() : null
+		);
 
-		if (completionResult == null) { return EMPTY_COMPLETION_ITEM_LIST; }
+	}
 
-		return
-			completionResult.isLeft()  ? completionResult.getLeft() :
-			completionResult.isRight() ? completionResult.getRight().getItems() :
-				EMPTY_COMPLETION_ITEM_LIST;
+	/**
+	 * @see org.eclipse.lsp4j.services.TextDocumentService#resolveCompletionItem(CompletionItem)
+	 *
+	 * Completes with the given item itself if the server does not
+	 * resolve completion items or if the request fails.
+	 * The request is scheduled as an interactive request, as only the
+	 * current item of a lookup is resolved. The progress indicator of
+	 * the calling operation is not watched, as items are resolved once
+	 * completion has finished, and the request is canceled by canceling
+	 * the returned future instead.
+	 */
+	@NotNull
+	public CompletableFuture<CompletionItem> resolveCompletionItem(@NotNull CompletionItem item) {
+
+		if (
+			!driver.initialized() ||
+			capabilities.getCompletionProvider() == null ||
+			!Boolean.TRUE.equals(capabilities.getCompletionProvider().getResolveProvider())
+		) { return CompletableFuture.completedFuture(item); }
+
+		return transformResult(
+			requestPipeline.schedule("completionItem/resolve", RequestPriority.INTERACTIVE,
+				() -> server.getTextDocumentService().resolveCompletionItem(item)),
+			resolvedItem -> resolvedItem == null ? item : resolvedItem
+		);
 
 	}
 
 	/**
 	 * @see org.eclipse.lsp4j.services.TextDocumentService#definition(TextDocumentPositionParams)
 	 */
-	@Nullable
-	public Location definition(@NotNull String documentUri, @NotNull Position position) {
+	@NotNull
+	public CompletableFuture<Location> definition(
+		@NotNull String          documentUri,
+		@NotNull Position        position,
+		@NotNull RequestPriority priority
+	) {
 
-		if (!driver.initialized() || !capabilities.getDefinitionProvider()) {
-			return null;
+		if (!driver.initialized()) {
+			return cancelWithProgress(driver.whenInitialized(
+				readyServer -> readyServer.definition(documentUri, position, priority), null));
+		}
+
+		if (!capabilities.getDefinitionProvider()) {
+			return CompletableFuture.completedFuture(null);
 		}
 
 		final TextDocumentPositionParams params = new TextDocumentPositionParams(
 			new TextDocumentIdentifier(documentUri), position);
 
-		List<? extends Location> locations =
-			documentRequest("textDocument/definition", documentUri,
-				() -> server.getTextDocumentService().definition(params));
+		return transformResult(
+			documentRequest("textDocument/definition", documentUri, params, priority,
+				() -> server.getTextDocumentService().definition(params)),
+			locations -> {
+
+				if (locations == null || locations.size() == 0) { return null; }
 
-		if (locations == null || locations.size() == 0) { return null; }
+				// TODO: Decide how to handle multiple locations
+				return locations.get(0);
 
-		// TODO: Decide how to handle multiple locations
-		return locations.get(0);
+			}
+		);
 
 	}
 
@@ -684,15 +962,23 @@ public final class AdaLSPServer {
 	 * @see org.eclipse.lsp4j.services.TextDocumentService#references(ReferenceParams)
 	 */
 	@NotNull
-	public List<Location> references(
-		@NotNull String   documentUri,
-		@NotNull Position position,
-		         boolean  includeDefinition
+	public CompletableFuture<List<Location>> references(
+		@NotNull String          documentUri,
+		@NotNull Position        position,
+		         boolean         includeDefinition,
+		@NotNull RequestPriority priority
 	) {
 
-		if (!driver.initialized() ||
-			!capabilities.getReferencesProvider())
-		{ return EMPTY_LOCATION_LIST; }
+		if (!driver.initialized()) {
+			return cancelWithProgress(driver.whenInitialized(
+				readyServer -> readyServer.references(documentUri, position, includeDefinition, priority),
+				EMPTY_LOCATION_LIST
+			));
+		}
+
+		if (!capabilities.getReferencesProvider()) {
+			return CompletableFuture.completedFuture(EMPTY_LOCATION_LIST);
+		}
 
 		final ReferenceParams params = new ReferenceParams();
 
@@ -700,34 +986,94 @@ public final class AdaLSPServer {
 		params.setPosition(position);
 		params.setContext(new ReferenceContext(includeDefinition));
 
-		List<? extends Location> locations =
-			documentRequest("textDocument/references", documentUri,
-				() -> server.getTextDocumentService().references(params));
+		return transformResult(
+			documentRequest("textDocument/references", documentUri, params, priority,
+				() -> server.getTextDocumentService().references(params)),
+			locations -> {
 
-		if (locations == null) { return EMPTY_LOCATION_LIST; }
+				if (locations == null) { return EMPTY_LOCATION_LIST; }
 
-		return locations
-			.stream()
-			.map(location -> (Location)location)
-			.collect(Collectors.toList());
+				return locations
+					.stream()
+					.map(location -> (Location)location)
+					.collect(Collectors.toList());
+
+			}
+		);
+
+	}
+
+	/**
+	 * @see org.eclipse.lsp4j.services.TextDocumentService#rename(RenameParams)
+	 */
+	@NotNull
+	public CompletableFuture<WorkspaceEdit> rename(
+		@NotNull String          documentUri,
+		@NotNull Position        position,
+		@NotNull String          newName,
+		@NotNull RequestPriority priority
+	) {
+
+		if (!driver.initialized()) {
+			return cancelWithProgress(driver.whenInitialized(
+				readyServer -> readyServer.rename(documentUri, position, newName, priority), null));
+		}
+
+		Either<Boolean, RenameOptions> renameProvider = capabilities.getRenameProvider();
+
+		if (
+			renameProvider == null ||
+			(renameProvider.isLeft() && !renameProvider.getLeft())
+		) { return CompletableFuture.completedFuture(null); }
+
+		final RenameParams params = new RenameParams(
+			new TextDocumentIdentifier(documentUri), position, newName);
+
+		return documentRequest("textDocument/rename", documentUri, params, priority,
+			() -> server.getTextDocumentService().rename(params));
 
 	}
 
 	/**
 	 * @see org.eclipse.lsp4j.services.TextDocumentService#documentSymbol(DocumentSymbolParams)
 	 */
-	public List<DocumentSymbol> documentSymbol(@NotNull String documentUri) {
+	@NotNull
+	public CompletableFuture<List<DocumentSymbol>> documentSymbol(
+		@NotNull String          documentUri,
+		@NotNull RequestPriority priority
+	) {
 
-		if (!driver.initialized() ||
-			!capabilities.getDocumentSymbolProvider())
-		{ return EMPTY_DOCUMENT_SYMBOL_LIST; }
+		if (!driver.initialized()) {
+			return cancelWithProgress(driver.whenInitialized(
+				readyServer -> readyServer.documentSymbol(documentUri, priority), EMPTY_DOCUMENT_SYMBOL_LIST));
+		}
+
+		if (!capabilities.getDocumentSymbolProvider()) {
+			return CompletableFuture.completedFuture(EMPTY_DOCUMENT_SYMBOL_LIST);
+		}
 
 		final DocumentSymbolParams params = new DocumentSymbolParams(
 			new TextDocumentIdentifier(documentUri));
 
-		List<Either<SymbolInformation, DocumentSymbol>> symbols =
-			documentRequest("textDocument/documentSymbol", documentUri,
-				() -> server.getTextDocumentService().documentSymbol(params));
+		return transformResult(
+			documentRequest("textDocument/documentSymbol", documentUri, params, priority,
+				() -> server.getTextDocumentService().documentSymbol(params)),
+			AdaLSPServer::toDocumentSymbols
+		);
+
+	}
+
+	/**
+	 * Translates the given result of a `textDocument/documentSymbol`
+	 * request to a list of document symbols.
+	 *
+	 * @param symbols The result to translate.
+	 * @return The corresponding document symbols.
+	 */
+	@NotNull
+	private static List<DocumentSymbol> toDocumentSymbols(
+		@Nullable List<Either<SymbolInformation, DocumentSymbol>> symbols
+	) {
 
 		if (symbols == null) { return EMPTY_DOCUMENT_SYMBOL_LIST; }
 
@@ -767,4 +1113,82 @@ public final class AdaLSPServer {
 
 	}
 
+	/**
+	 * Host of the request pipeline of this server.
+	 */
+	private final class PipelineHost implements DocumentRequestPipeline.Host {
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.DocumentRequestPipeline.Host#findDocument(String)
+		 */
+		@Nullable
+		@Override
+		public Document findDocument(@NotNull String documentUri) {
+
+			VirtualFile file = findFileByUrlString(documentUri);
+
+			return file == null ? null : getVirtualFileDocument(file);
+
+		}
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.DocumentRequestPipeline.Host#sendPendingChanges(Document)
+		 *
+		 * Changes are sent in a read action, during which the document
+		 * cannot change, so that its pending changes are consistent with
+		 * its current text, whether or not the caller holds read access.
+		 */
+		@Override
+		public long sendPendingChanges(@NotNull Document document) {
+			return ApplicationManager.getApplication().runReadAction((Computable<Long>)() -> {
+
+				AdaLSPServer.this.sendPendingChanges(document);
+
+				return document.getModificationStamp();
+
+			});
+		}
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.DocumentRequestPipeline.Host#documentVersion(String)
+		 */
+		@Override
+		public int documentVersion(@NotNull String documentUri) {
+			return AdaLSPServer.this.documentVersion(documentUri);
+		}
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.DocumentRequestPipeline.Host#syncsOpenClose()
+		 */
+		@Override
+		public boolean syncsOpenClose() { return serverSyncPolicy.getOpenClose(); }
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.DocumentRequestPipeline.Host#openDocument(String)
+		 */
+		@Override
+		public void openDocument(@NotNull String documentUri) {
+			AdaLSPServer.this.openDocument(documentUri);
+		}
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.DocumentRequestPipeline.Host#closeDocument(String)
+		 */
+		@Override
+		public void closeDocument(@NotNull String documentUri) {
+			AdaLSPServer.this.closeDocument(documentUri);
+		}
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.DocumentRequestPipeline.Host#sendRequest(String, Supplier)
+		 */
+		@NotNull
+		@Override
+		public <T> CompletableFuture<T> sendRequest(
+			@NotNull String method,
+			@NotNull Supplier<CompletableFuture<T>> requestSupplier
+		) { return AdaLSPServer.this.sendRequest(method, requestSupplier); }
+
+	}
+
 }
@@ -0,0 +1,439 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import com.intellij.openapi.diagnostic.Logger;
+import org.jetbrains.annotations.*;
+
+/**
+ * Supervisor of ALS sessions, restarting the server when it dies, hangs
+ * or becomes unreliable.
+ *
+ * The supervised session is periodically checked: if the server process
+ * is dead, or if several consecutive probe requests are left unanswered,
+ * the session is terminated and a new one is started, after a delay that
+ * doubles with every consecutive restart. Starting a session includes
+ * replaying the state of the previous one (initialization handshake,
+ * configuration and open documents).
+ *
+ * Once a session runs long enough without failing, the restart delay is
+ * reset. If too many consecutive restarts fail, the supervisor gives up.
+ */
+final class AdaLSPSupervisor {
+
+	/**
+	 * Class-wide logger for the AdaLSPSupervisor class.
+	 */
+	private static final Logger LOGGER = Logger.getInstance(AdaLSPSupervisor.class);
+
+	/**
+	 * The method of probe requests. Methods starting with `$/` are
+	 * implementation-dependent, and servers must answer requests with
+	 * such methods that they do not implement with an error, so that
+	 * any response proves that the server is responsive.
+	 */
+	static final String PROBE_METHOD = "$/alsProbe";
+
+	/**
+	 * The interval, in milliseconds, between checks of the supervised
+	 * session.
+	 */
+	static final long PROBE_INTERVAL = 10000;
+
+	/**
+	 * The number of consecutive unanswered probe requests after which
+	 * the server is considered hung.
+	 */
+	static final int MAX_MISSED_PROBES = 2;
+
+	/**
+	 * The delay, in milliseconds, before the first restart of a failed
+	 * session, and the maximum delay before any restart.
+	 */
+	static final long INITIAL_RESTART_DELAY = 1000;
+	static final long MAX_RESTART_DELAY     = 60000;
+
+	/**
+	 * The number of consecutive restarts after which the supervisor
+	 * gives up.
+	 */
+	static final int MAX_RESTART_ATTEMPTS = 5;
+
+	/**
+	 * The duration, in milliseconds, after which a session answering
+	 * probes is considered stable, resetting the restart delay.
+	 */
+	static final long STABLE_SESSION_DURATION = 300000;
+
+	/**
+	 * A supervised ALS session.
+	 */
+	interface Session {
+
+		/**
+		 * Returns whether or not the server process of this session
+		 * is alive.
+		 *
+		 * @return Whether or not the server process is alive.
+		 */
+		boolean isAlive();
+
+		/**
+		 * Sends a probe request to the server and returns its future,
+		 * which completes, normally or exceptionally, once the server
+		 * answers the request.
+		 *
+		 * @return The future of the probe request.
+		 */
+		@NotNull
+		CompletableFuture<?> probe();
+
+		/**
+		 * Terminates this session, killing its server process.
+		 */
+		void terminate();
+
+	}
+
+	/**
+	 * The supplier starting new sessions, returning null if a session
+	 * could not be started.
+	 */
+	@NotNull
+	private final Supplier<Session> sessionStarter;
+
+	/**
+	 * The handler called when the supervisor gives up restarting sessions.
+	 */
+	@NotNull
+	private final Runnable giveUpHandler;
+
+	/**
+	 * The executor running checks and restarts.
+	 */
+	@NotNull
+	private final ScheduledExecutorService executor;
+
+	/**
+	 * The check interval, the probe timeout and the initial restart
+	 * delay, in milliseconds.
+	 */
+	private final long probeInterval;
+	private final long probeTimeout;
+	private final long initialRestartDelay;
+
+	/**
+	 * The supervised session, or null if no session is running.
+	 */
+	@Nullable
+	private Session session = null;
+
+	/**
+	 * The time, in milliseconds, at which the supervised session started.
+	 */
+	private long sessionStartTime = 0;
+
+	/**
+	 * The future of the last probe request, or null if no probe was sent
+	 * to the supervised session yet.
+	 */
+	@Nullable
+	private CompletableFuture<?> lastProbe = null;
+
+	/**
+	 * The number of consecutive unanswered probe requests.
+	 */
+	private int missedProbes = 0;
+
+	/**
+	 * The number of consecutive restarts.
+	 */
+	private int restartAttempts = 0;
+
+	/**
+	 * The periodic check task, or null if not started.
+	 */
+	@Nullable
+	private ScheduledFuture<?> checkTask = null;
+
+	/**
+	 * Whether or not a restart is scheduled or in progress.
+	 */
+	private boolean restarting = false;
+
+	/**
+	 * Whether or not the supervisor was stopped.
+	 */
+	private boolean stopped = false;
+
+	/**
+	 * Constructs a new AdaLSPSupervisor with default timings.
+	 *
+	 * @param sessionStarter The supplier starting new sessions.
+	 * @param giveUpHandler The handler called when giving up.
+	 * @param executor The executor running checks and restarts.
+	 */
+	AdaLSPSupervisor(
+		@NotNull Supplier<Session>        sessionStarter,
+		@NotNull Runnable                 giveUpHandler,
+		@NotNull ScheduledExecutorService executor
+	) {
+		this(sessionStarter, giveUpHandler, executor,
+			PROBE_INTERVAL, Timeouts.getMethodTimeout(PROBE_METHOD), INITIAL_RESTART_DELAY);
+	}
+
+	/**
+	 * Constructs a new AdaLSPSupervisor.
+	 *
+	 * @param sessionStarter The supplier starting new sessions.
+	 * @param giveUpHandler The handler called when giving up.
+	 * @param executor The executor running checks and restarts.
+	 * @param probeInterval The interval between checks.
+	 * @param probeTimeout The timeout of probe requests.
+	 * @param initialRestartDelay The delay before the first restart.
+	 */
+	AdaLSPSupervisor(
+		@NotNull Supplier<Session>        sessionStarter,
+		@NotNull Runnable                 giveUpHandler,
+		@NotNull ScheduledExecutorService executor,
+		         long                     probeInterval,
+		         long                     probeTimeout,
+		         long                     initialRestartDelay
+	) {
+		this.sessionStarter      = sessionStarter;
+		this.giveUpHandler       = giveUpHandler;
+		this.executor            = executor;
+		this.probeInterval       = probeInterval;
+		this.probeTimeout        = probeTimeout;
+		this.initialRestartDelay = initialRestartDelay;
+	}
+
+	/**
+	 * Starts supervising the given session, which must have been
+	 * successfully started.
+	 *
+	 * @param session The session to supervise.
+	 */
+	synchronized void supervise(@NotNull Session session) {
+
+		if (stopped) { return; }
+
+		setSession(session);
+
+		if (checkTask == null) {
+			checkTask = executor.scheduleWithFixedDelay(
+				this::checkSession, probeInterval, probeInterval, TimeUnit.MILLISECONDS);
+		}
+
+	}
+
+	/**
+	 * Restarts the supervised session, e.g. when too many requests to its
+	 * server failed. Does nothing if a restart is already scheduled.
+	 */
+	synchronized void sessionFailed() {
+
+		if (session == null) { return; }
+
+		LOGGER.warn("ALS session failed, restarting the ALS");
+
+		scheduleRestart();
+
+	}
+
+	/**
+	 * Stops supervising sessions. The supervised session, if any, is
+	 * left running.
+	 */
+	synchronized void stop() {
+
+		stopped = true;
+		session = null;
+
+		if (checkTask != null) {
+			checkTask.cancel(false);
+			checkTask = null;
+		}
+
+	}
+
+	/**
+	 * Returns the number of consecutive restarts.
+	 *
+	 * @return The number of consecutive restarts.
+	 */
+	synchronized int getRestartAttempts() { return restartAttempts; }
+
+	/**
+	 * Sets the supervised session and resets its probe state.
+	 *
+	 * @param session The new supervised session.
+	 */
+	private void setSession(@NotNull Session session) {
+		this.session     = session;
+		sessionStartTime = System.currentTimeMillis();
+		lastProbe        = null;
+		missedProbes     = 0;
+	}
+
+	/**
+	 * Checks that the process of the supervised session is alive, and
+	 * sends it a probe request unless the previous one is still pending.
+	 */
+	private synchronized void checkSession() {
+
+		Session checkedSession = session;
+
+		if (checkedSession == null) { return; }
+
+		if (!checkedSession.isAlive()) {
+
+			LOGGER.warn("ALS process died, restarting the ALS");
+
+			scheduleRestart();
+
+			return;
+
+		}
+
+		if (lastProbe != null && !lastProbe.isDone()) { return; }
+
+		CompletableFuture<?> probe = checkedSession.probe();
+
+		lastProbe = probe;
+
+		ScheduledFuture<?> timeoutTask = executor.schedule(
+			() -> probeTimedOut(checkedSession, probe), probeTimeout, TimeUnit.MILLISECONDS);
+
+		probe.whenComplete((result, throwable) -> {
+
+			timeoutTask.cancel(false);
+
+			if (!(throwable instanceof CancellationException)) {
+				probeAnswered(checkedSession);
+			}
+
+		});
+
+	}
+
+	/**
+	 * Handles the answer of a probe request sent to the given session.
+	 *
+	 * @param probedSession The probed session.
+	 */
+	private synchronized void probeAnswered(@NotNull Session probedSession) {
+
+		if (probedSession != session) { return; }
+
+		missedProbes = 0;
+
+		if (System.currentTimeMillis() - sessionStartTime >= STABLE_SESSION_DURATION) {
+			restartAttempts = 0;
+		}
+
+	}
+
+	/**
+	 * Handles the timeout of a probe request sent to the given session,
+	 * restarting that session if too many consecutive probes timed out.
+	 *
+	 * @param probedSession The probed session.
+	 * @param probe The future of the probe request.
+	 */
+	private synchronized void probeTimedOut(
+		@NotNull Session              probedSession,
+		@NotNull CompletableFuture<?> probe
+	) {
+
+		probe.cancel(true);
+
+		if (probedSession != session) { return; }
+
+		missedProbes++;
+
+		if (missedProbes < MAX_MISSED_PROBES) { return; }
+
+		LOGGER.warn("ALS unresponsive, restarting the ALS");
+
+		scheduleRestart();
+
+	}
+
+	/**
+	 * Terminates the supervised session and schedules the start of a new
+	 * one after a delay depending on the number of consecutive restarts,
+	 * or gives up if there were too many consecutive restarts.
+	 */
+	private void scheduleRestart() {
+
+		if (stopped || restarting) { return; }
+
+		Session failedSession = session;
+
+		session = null;
+
+		if (failedSession != null) {
+			failedSession.terminate();
+		}
+
+		if (restartAttempts >= MAX_RESTART_ATTEMPTS) {
+
+			LOGGER.warn("ALS failed " + restartAttempts + " consecutive times, giving up");
+
+			stop();
+
+			executor.execute(giveUpHandler);
+
+			return;
+
+		}
+
+		long delay = Math.min(initialRestartDelay << restartAttempts, MAX_RESTART_DELAY);
+
+		restartAttempts++;
+		restarting = true;
+
+		executor.schedule(this::restart, delay, TimeUnit.MILLISECONDS);
+
+	}
+
+	/**
+	 * Starts a new session and supervises it, or schedules another
+	 * restart if it could not be started.
+	 * The session is started outside of the lock of this supervisor,
+	 * as starting a session waits for the server.
+	 */
+	private void restart() {
+
+		Session newSession = sessionStarter.get();
+
+		synchronized (this) {
+
+			restarting = false;
+
+			if (stopped) {
+
+				if (newSession != null) {
+					newSession.terminate();
+				}
+
+				return;
+
+			}
+
+			if (newSession == null) {
+				scheduleRestart();
+				return;
+			}
+
+			LOGGER.info("ALS restarted (attempt " + restartAttempts + ")");
+
+			setSession(newSession);
+
+		}
+
+	}
+
+}
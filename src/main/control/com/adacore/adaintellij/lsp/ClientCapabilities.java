@@ -22,7 +22,7 @@ final class ClientCapabilities {
 
 		private Workspace() {}
 
-		static final boolean APPLY_EDIT = false;
+		static final boolean APPLY_EDIT = true;
 
 		static final class WorkspaceEdit {
 
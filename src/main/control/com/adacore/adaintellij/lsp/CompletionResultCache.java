@@ -0,0 +1,294 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.*;
+
+import org.jetbrains.annotations.*;
+
+import org.eclipse.lsp4j.*;
+
+/**
+ * Cache of the last complete result of a `textDocument/completion`
+ * request, filtered and ranked on the client as the completed prefix
+ * grows, so that completion does not query the server on every typed
+ * character.
+ *
+ * A result is cached for a document and for the start offset of the
+ * completed word, and is reused as long as the document is only edited
+ * within that word and the prefix still starts with the prefix for
+ * which the result was requested. Results marked as incomplete by the
+ * server and empty results are never cached, and typing past a word boundary moves the
+ * start offset of the completed word, both of which lead to a new
+ * request.
+ *
+ * Ada identifiers being case-insensitive, prefixes are matched
+ * ignoring case.
+ */
+public final class CompletionResultCache {
+
+	/**
+	 * Match classes of completion items, in ranking order.
+	 */
+	public static final int NO_MATCH          = -1;
+	public static final int PREFIX_MATCH      = 0;
+	public static final int WORD_PREFIX_MATCH = 1;
+
+	/**
+	 * The URI of the document of the cached result, or null if no
+	 * result is cached.
+	 */
+	@Nullable
+	private String documentUri;
+
+	/**
+	 * The start offset of the completed word.
+	 */
+	private int startOffset;
+
+	/**
+	 * The end offset of the completed prefix in the document, updated
+	 * as the prefix is edited.
+	 */
+	private int prefixEnd;
+
+	/**
+	 * The prefix for which the cached result was requested.
+	 */
+	@NotNull
+	private String requestPrefix = "";
+
+	/**
+	 * The items of the cached result, in server order.
+	 */
+	@NotNull
+	private List<CompletionItem> items = Collections.emptyList();
+
+	/**
+	 * Returns the start offset of the word completed at the given offset
+	 * of the given text, i.e. the offset of the first character of the
+	 * identifier characters preceding the given offset.
+	 *
+	 * @param text The text.
+	 * @param offset The completion offset.
+	 * @return The start offset of the completed word.
+	 */
+	public static int wordStart(@NotNull CharSequence text, int offset) {
+
+		int start = offset;
+
+		while (start > 0 && isIdentifierPart(text.charAt(start - 1))) {
+			start--;
+		}
+
+		return start;
+
+	}
+
+	/**
+	 * Returns whether or not the given character can be part of an Ada
+	 * identifier.
+	 *
+	 * @param character The character.
+	 * @return Whether or not the character can be part of an identifier.
+	 */
+	private static boolean isIdentifierPart(char character) {
+		return Character.isLetterOrDigit(character) || character == '_';
+	}
+
+	/**
+	 * Caches the given result of a completion request made for the given
+	 * prefix of the word starting at the given offset of the document
+	 * with the given URI, replacing any previously cached result.
+	 * Incomplete and empty results are not cached, as an empty result
+	 * may only mean that the server could not complete the prefix yet.
+	 *
+	 * @param documentUri The URI of the document.
+	 * @param startOffset The start offset of the completed word.
+	 * @param prefix The completed prefix.
+	 * @param result The result of the completion request.
+	 */
+	public synchronized void store(
+		@NotNull String         documentUri,
+		         int            startOffset,
+		@NotNull String         prefix,
+		@NotNull CompletionList result
+	) {
+
+		if (result.isIncomplete() || result.getItems() == null || result.getItems().isEmpty()) {
+			invalidate();
+			return;
+		}
+
+		this.documentUri   = documentUri;
+		this.startOffset   = startOffset;
+		this.prefixEnd     = startOffset + prefix.length();
+		this.requestPrefix = prefix;
+		this.items         = new ArrayList<>(result.getItems());
+
+	}
+
+	/**
+	 * Returns the items of the cached result matching the given prefix
+	 * of the word starting at the given offset of the document with the
+	 * given URI, ranked, or null if no cached result can be reused for
+	 * that prefix.
+	 *
+	 * @param documentUri The URI of the document.
+	 * @param startOffset The start offset of the completed word.
+	 * @param prefix The completed prefix.
+	 * @return The matching items, or null if the server must be queried.
+	 */
+	@Nullable
+	public synchronized List<CompletionItem> lookup(
+		@NotNull String documentUri,
+		         int    startOffset,
+		@NotNull String prefix
+	) {
+
+		if (
+			!documentUri.equals(this.documentUri) ||
+			startOffset != this.startOffset ||
+			startOffset + prefix.length() != prefixEnd ||
+			!prefix.regionMatches(true, 0, requestPrefix, 0, requestPrefix.length())
+		) { return null; }
+
+		return filterAndRank(items, prefix);
+
+	}
+
+	/**
+	 * Replaces the given item of the cached result, if any, by the given
+	 * resolved item, so that the item is not resolved again when the
+	 * cached result is reused.
+	 *
+	 * @param item The resolved completion item.
+	 * @param resolvedItem The item with its resolved details.
+	 */
+	public synchronized void itemResolved(@NotNull CompletionItem item, @NotNull CompletionItem resolvedItem) {
+
+		for (int index = 0 ; index < items.size() ; index++) {
+
+			if (items.get(index) == item) {
+				items.set(index, resolvedItem);
+				return;
+			}
+
+		}
+
+	}
+
+	/**
+	 * Records a change of the document with the given URI, before it is
+	 * applied, discarding the cached result if the change is not within
+	 * the completed prefix.
+	 *
+	 * @param documentUri The URI of the changed document.
+	 * @param offset The start offset of the changed range.
+	 * @param oldLength The length of the changed range.
+	 * @param newLength The length of the text replacing that range.
+	 */
+	public synchronized void documentChanged(
+		@NotNull String documentUri,
+		         int    offset,
+		         int    oldLength,
+		         int    newLength
+	) {
+
+		if (!documentUri.equals(this.documentUri)) { return; }
+
+		if (offset < startOffset || offset + oldLength > prefixEnd) {
+			invalidate();
+			return;
+		}
+
+		prefixEnd += newLength - oldLength;
+
+	}
+
+	/**
+	 * Discards the cached result, if any.
+	 */
+	public synchronized void invalidate() {
+		documentUri   = null;
+		requestPrefix = "";
+		items         = Collections.emptyList();
+	}
+
+	/**
+	 * Returns the given completion items matching the given prefix,
+	 * items whose names start with the prefix first, then items with a
+	 * word of their names starting with the prefix (e.g. `Line` for
+	 * `Put_Line`), each ordered by sort text.
+	 *
+	 * @param items The completion items.
+	 * @param prefix The completed prefix.
+	 * @return The matching items, ranked.
+	 */
+	@NotNull
+	public static List<CompletionItem> filterAndRank(
+		@NotNull List<CompletionItem> items,
+		@NotNull String               prefix
+	) {
+
+		List<CompletionItem>         matchingItems = new ArrayList<>();
+		Map<CompletionItem, Integer> matchClasses  = new IdentityHashMap<>();
+
+		for (CompletionItem item : items) {
+
+			int matchClass = matchClass(filterText(item), prefix);
+
+			if (matchClass == NO_MATCH) { continue; }
+
+			matchingItems.add(item);
+			matchClasses.put(item, matchClass);
+
+		}
+
+		matchingItems.sort(Comparator
+			.<CompletionItem>comparingInt(matchClasses::get)
+			.thenComparing(item -> item.getSortText() == null ? item.getLabel() : item.getSortText()));
+
+		return matchingItems;
+
+	}
+
+	/**
+	 * Returns the text of the given completion item against which
+	 * prefixes are matched.
+	 *
+	 * @param item The completion item.
+	 * @return The filter text of the item.
+	 */
+	@NotNull
+	public static String filterText(@NotNull CompletionItem item) {
+		return item.getFilterText() == null ? item.getLabel() : item.getFilterText();
+	}
+
+	/**
+	 * Returns how the given name matches the given prefix: whether the
+	 * name starts with the prefix, whether a word of the name, following
+	 * an underscore or a dot, starts with the prefix, or neither.
+	 *
+	 * @param name The name to match.
+	 * @param prefix The prefix.
+	 * @return The match class of the name.
+	 */
+	public static int matchClass(@NotNull String name, @NotNull String prefix) {
+
+		if (name.regionMatches(true, 0, prefix, 0, prefix.length())) { return PREFIX_MATCH; }
+
+		for (int index = 1 ; index < name.length() ; index++) {
+
+			char previous = name.charAt(index - 1);
+
+			if (
+				(previous == '_' || previous == '.') &&
+				name.regionMatches(true, index, prefix, 0, prefix.length())
+			) { return WORD_PREFIX_MATCH; }
+
+		}
+
+		return NO_MATCH;
+
+	}
+
+}
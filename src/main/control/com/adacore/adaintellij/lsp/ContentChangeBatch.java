@@ -0,0 +1,308 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.*;
+
+import org.jetbrains.annotations.NotNull;
+
+import org.eclipse.lsp4j.*;
+
+/**
+ * Batch of changes made to a document since the last time its changes
+ * were sent to the ALS, merged into a minimal set of disjoint changed
+ * regions.
+ *
+ * Changes are recorded as they are made, with offsets relative to the
+ * document at that time. Each changed region maps a range of the text
+ * of the document before the first change of the batch (i.e. the text
+ * known to the server) to a range of the current text of the document.
+ * Overlapping and adjacent changes are merged into a single region, so
+ * that, for example, typing a word results in a single change.
+ *
+ * LSP ranges are computed from the text known to the server, so they
+ * do not depend on changes made after the recorded changes.
+ *
+ * When a batch contains many changes, e.g. after a reformat or a
+ * replace-all, sending the full text of the document may be cheaper
+ * than sending the changes, once the cost of transferring them and
+ * of the server applying them are added up. A simple cost model,
+ * counting changed characters and change events against the document
+ * length, decides which is cheaper.
+ */
+final class ContentChangeBatch {
+
+	/**
+	 * The estimated cost, in transferred characters, of the structure
+	 * and range of a content change event.
+	 */
+	static final int CHANGE_EVENT_TRANSFER_COST = 100;
+
+	/**
+	 * The ratio between the cost of transferring (serializing, sending
+	 * and deserializing) a character and the cost of the server
+	 * scanning or shifting a character of its copy of a document.
+	 * Servers store documents as flat text, so applying any change
+	 * event costs about one pass over the document.
+	 */
+	static final int TRANSFER_TO_SCAN_COST_RATIO = 10;
+
+	/**
+	 * The text of the document before the first change of this batch.
+	 */
+	@NotNull
+	private final CharSequence baseText;
+
+	/**
+	 * The changed regions, sorted by offset, and neither overlapping nor
+	 * adjacent.
+	 */
+	private final List<ChangedRegion> regions = new ArrayList<>();
+
+	/**
+	 * Constructs a new ContentChangeBatch given the text of a document
+	 * before the first change of the batch.
+	 *
+	 * @param baseText The text of the document before any change.
+	 */
+	ContentChangeBatch(@NotNull CharSequence baseText) { this.baseText = baseText; }
+
+	/**
+	 * Records a change replacing the given range of the document by text
+	 * of the given length. Must be called for every change of the
+	 * document, in order, with offsets relative to the document before
+	 * the change.
+	 *
+	 * @param offset The start offset of the replaced range.
+	 * @param oldLength The length of the replaced range.
+	 * @param newLength The length of the replacement text.
+	 */
+	void addChange(int offset, int oldLength, int newLength) {
+
+		int changeEnd   = offset + oldLength;
+		int lengthDelta = newLength - oldLength;
+
+		// Skip regions before the change, accumulating the length
+		// differences they introduce in the current text
+
+		int index        = 0;
+		int regionsDelta = 0;
+
+		while (index < regions.size() && regions.get(index).currentEnd < offset) {
+			regionsDelta += regions.get(index).lengthDelta();
+			index++;
+		}
+
+		// Merge the change with the regions it overlaps or is adjacent to
+
+		int currentStart = offset;
+		int currentEnd   = changeEnd;
+		int baseStart    = offset - regionsDelta;
+
+		while (index < regions.size() && regions.get(index).currentStart <= changeEnd) {
+
+			ChangedRegion region = regions.remove(index);
+
+			if (region.currentStart < currentStart) {
+				currentStart = region.currentStart;
+				baseStart    = region.baseStart;
+			}
+
+			currentEnd    = Math.max(currentEnd, region.currentEnd);
+			regionsDelta += region.lengthDelta();
+
+		}
+
+		regions.add(index, new ChangedRegion(
+			baseStart, currentEnd - regionsDelta, currentStart, currentEnd + lengthDelta));
+
+		// Shift the regions after the change
+
+		for (int i = index + 1 ; i < regions.size() ; i++) {
+			regions.get(i).currentStart += lengthDelta;
+			regions.get(i).currentEnd   += lengthDelta;
+		}
+
+	}
+
+	/**
+	 * Returns whether or not sending the full text of the document,
+	 * given its current length, is cheaper than sending the changes of
+	 * this batch, all costs included.
+	 *
+	 * In transferred characters, sending changes costs the length of the
+	 * text and the structure of each changed region, plus a pass over
+	 * the document on the server for each of them. Sending the full text
+	 * costs the length and the structure of the whole document, plus a
+	 * single pass over it on the server.
+	 *
+	 * @param documentLength The current length of the document.
+	 * @return Whether or not a full-text synchronization is cheaper.
+	 */
+	boolean fullSyncCheaper(int documentLength) {
+
+		long documentScanCost = documentLength / TRANSFER_TO_SCAN_COST_RATIO;
+
+		long fullSyncCost    = documentLength + CHANGE_EVENT_TRANSFER_COST + documentScanCost;
+		long incrementalCost = 0;
+
+		for (ChangedRegion region : regions) {
+
+			incrementalCost += (region.currentEnd - region.currentStart) +
+				CHANGE_EVENT_TRANSFER_COST + documentScanCost;
+
+			if (incrementalCost >= fullSyncCost) { return true; }
+
+		}
+
+		return false;
+
+	}
+
+	/**
+	 * Returns the LSP content change events corresponding to this batch,
+	 * given the current text of the document.
+	 * Events are sorted in descending order of offsets, so that each
+	 * event's range is unaffected by the events applied before it.
+	 * Regions whose text is unchanged are skipped.
+	 *
+	 * @param currentText The current text of the document.
+	 * @return The content change events.
+	 */
+	@NotNull
+	List<TextDocumentContentChangeEvent> toContentChangeEvents(@NotNull CharSequence currentText) {
+
+		List<TextDocumentContentChangeEvent> changeEvents = new ArrayList<>();
+
+		// Compute region positions in the base text in a single pass
+
+		PositionScanner scanner = new PositionScanner(baseText);
+
+		Position[] starts = new Position[regions.size()];
+		Position[] ends   = new Position[regions.size()];
+
+		for (int i = 0 ; i < regions.size() ; i++) {
+			starts[i] = scanner.positionOf(regions.get(i).baseStart);
+			ends[i]   = scanner.positionOf(regions.get(i).baseEnd);
+		}
+
+		for (int i = regions.size() - 1 ; i >= 0 ; i--) {
+
+			ChangedRegion region = regions.get(i);
+
+			String newText = currentText.subSequence(region.currentStart, region.currentEnd).toString();
+
+			if (newText.contentEquals(baseText.subSequence(region.baseStart, region.baseEnd))) {
+				continue;
+			}
+
+			TextDocumentContentChangeEvent changeEvent = new TextDocumentContentChangeEvent();
+
+			changeEvent.setRange(new Range(starts[i], ends[i]));
+			changeEvent.setRangeLength(region.baseEnd - region.baseStart);
+			changeEvent.setText(newText);
+
+			changeEvents.add(changeEvent);
+
+		}
+
+		return changeEvents;
+
+	}
+
+	/**
+	 * Scanner computing the LSP positions of increasing offsets in a
+	 * text in a single pass over that text.
+	 */
+	private static final class PositionScanner {
+
+		/**
+		 * The scanned text.
+		 */
+		@NotNull
+		private final CharSequence text;
+
+		/**
+		 * The line and line start offset of the last scanned offset.
+		 */
+		private int line      = 0;
+		private int lineStart = 0;
+
+		/**
+		 * The offset up to which the text was scanned.
+		 */
+		private int scannedOffset = 0;
+
+		/**
+		 * Constructs a new PositionScanner given a text.
+		 *
+		 * @param text The text to scan.
+		 */
+		PositionScanner(@NotNull CharSequence text) { this.text = text; }
+
+		/**
+		 * Returns the position of the given offset in the text. Must
+		 * be called with increasing offsets.
+		 *
+		 * @param offset The offset.
+		 * @return The corresponding position.
+		 */
+		@NotNull
+		Position positionOf(int offset) {
+
+			for ( ; scannedOffset < offset ; scannedOffset++) {
+				if (text.charAt(scannedOffset) == '\n') {
+					line++;
+					lineStart = scannedOffset + 1;
+				}
+			}
+
+			return new Position(line, offset - lineStart);
+
+		}
+
+	}
+
+	/**
+	 * A changed region of a document, as a range of the text before the
+	 * first change of the batch and the corresponding range of the
+	 * current text.
+	 */
+	private static final class ChangedRegion {
+
+		/**
+		 * The range of the region in the text before any change.
+		 */
+		final int baseStart;
+		final int baseEnd;
+
+		/**
+		 * The range of the region in the current text.
+		 */
+		int currentStart;
+		int currentEnd;
+
+		/**
+		 * Constructs a new ChangedRegion given its ranges.
+		 *
+		 * @param baseStart The start offset in the text before any change.
+		 * @param baseEnd The end offset in the text before any change.
+		 * @param currentStart The start offset in the current text.
+		 * @param currentEnd The end offset in the current text.
+		 */
+		ChangedRegion(int baseStart, int baseEnd, int currentStart, int currentEnd) {
+			this.baseStart    = baseStart;
+			this.baseEnd      = baseEnd;
+			this.currentStart = currentStart;
+			this.currentEnd   = currentEnd;
+		}
+
+		/**
+		 * Returns the difference between the lengths of the region in
+		 * the current text and in the text before any change.
+		 *
+		 * @return The length difference.
+		 */
+		int lengthDelta() { return (currentEnd - currentStart) - (baseEnd - baseStart); }
+
+	}
+
+}
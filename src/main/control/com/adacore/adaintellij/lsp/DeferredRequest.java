@@ -0,0 +1,98 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import org.jetbrains.annotations.*;
+
+/**
+ * Future of an ALS request that is not made right away, but held in a
+ * queue until it can be made, completing with the result of the
+ * request once it is made.
+ *
+ * Canceling a deferred request removes it from its queue, so that it is
+ * never made if it was not made yet, or cancels the request otherwise.
+ * A deferred request canceled while it is being made has its request
+ * canceled once made.
+ *
+ * @param <T> The type of the request's response result.
+ * @see RequestScheduler
+ * @see ParkedRequestQueue
+ */
+abstract class DeferredRequest<T> extends CompletableFuture<T> {
+
+	/**
+	 * The future of the request once made, or null if the request
+	 * was not made yet.
+	 */
+	@Nullable
+	private volatile CompletableFuture<T> requestFuture = null;
+
+	/**
+	 * Removes this request from the queue holding it, if it is still
+	 * queued. Called when this request is canceled.
+	 */
+	abstract void dequeue();
+
+	/**
+	 * Makes the request using the given supplier and completes this
+	 * future with its result. If this future was completed or canceled
+	 * in the meantime, the request is not made.
+	 *
+	 * @param requestSupplier A supplier making the request.
+	 * @return The future of the made request, or null if the request
+	 *         was not made.
+	 */
+	@Nullable
+	final CompletableFuture<T> make(@NotNull Supplier<CompletableFuture<T>> requestSupplier) {
+
+		if (isDone()) { return null; }
+
+		CompletableFuture<T> future = requestSupplier.get();
+
+		requestFuture = future;
+
+		future.whenComplete((result, throwable) -> {
+
+			if (throwable != null) {
+				completeExceptionally(throwable);
+			} else {
+				complete(result);
+			}
+
+		});
+
+		// This future may have been canceled before
+		// the request future was set
+
+		if (isCancelled()) {
+			future.cancel(true);
+		}
+
+		return future;
+
+	}
+
+	/**
+	 * @see java.util.concurrent.CompletableFuture#cancel(boolean)
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+
+		boolean canceled = super.cancel(mayInterruptIfRunning);
+
+		if (!canceled) { return false; }
+
+		dequeue();
+
+		CompletableFuture<T> future = requestFuture;
+
+		if (future != null) {
+			future.cancel(mayInterruptIfRunning);
+		}
+
+		return true;
+
+	}
+
+}
@@ -0,0 +1,461 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import org.jetbrains.annotations.*;
+
+/**
+ * Pipeline through which ALS requests relative to a document are made.
+ *
+ * The IntelliJ platform often performs certain operations, such as
+ * resolving a reference or performing find-references, on elements from
+ * files that are not actually open in the IDE, which would be problematic
+ * if those files were not open in the server's perspective. To solve
+ * this, the pipeline sends a `textDocument/didOpen` notification before
+ * making a request on a document that is not open in an editor, and keeps
+ * that document open for subsequent requests, until it is idle for some
+ * time.
+ * @see WarmDocumentSet
+ * Identical requests made on the same version of a document while such
+ * a request is in flight share that request's result instead of being
+ * sent to the server again.
+ * @see RequestCoalescer
+ * Requests are then queued, and sent to the server in order of priority.
+ * @see RequestScheduler
+ * Pending changes of the document are sent before the request, so that
+ * the request targets the current version of the document, and results
+ * of requests whose document changed before their response arrived are
+ * discarded, completing with null, as they refer to outdated positions.
+ *
+ * The pipeline is driven by a host, which keeps track of the documents
+ * and their versions, and actually talks to the server.
+ * @see DocumentRequestPipeline.Host
+ */
+final class DocumentRequestPipeline {
+
+	/**
+	 * Class-wide logger for the DocumentRequestPipeline class.
+	 */
+	private static final Logger LOGGER = Logger.getInstance(DocumentRequestPipeline.class);
+
+	/**
+	 * The host of this pipeline.
+	 */
+	@NotNull
+	private final Host host;
+
+	/**
+	 * The metrics in which to record requests.
+	 */
+	@NotNull
+	private final LSPMetrics metrics;
+
+	/**
+	 * Coalescer of identical in-flight document requests.
+	 */
+	private final RequestCoalescer requestCoalescer = new RequestCoalescer();
+
+	/**
+	 * Scheduler of requests.
+	 */
+	private final RequestScheduler requestScheduler = new RequestScheduler();
+
+	/**
+	 * The set of documents kept open on the server while they are not
+	 * open in an editor.
+	 */
+	@NotNull
+	private final WarmDocumentSet warmDocuments;
+
+	/**
+	 * The URIs of documents open in an editor.
+	 * Guarded by `warmDocuments`.
+	 */
+	private final Set<String> editorDocuments = new HashSet<>();
+
+	/**
+	 * Constructs a new DocumentRequestPipeline given its host and the
+	 * metrics in which to record requests.
+	 *
+	 * @param host The host of the pipeline.
+	 * @param metrics The metrics in which to record requests.
+	 */
+	DocumentRequestPipeline(@NotNull Host host, @NotNull LSPMetrics metrics) {
+		this.host          = host;
+		this.metrics       = metrics;
+		this.warmDocuments = new WarmDocumentSet(host::openDocument, host::closeDocument);
+	}
+
+	/**
+	 * Constructs a new DocumentRequestPipeline given its host, the
+	 * metrics in which to record requests and the executor closing idle
+	 * warm documents.
+	 *
+	 * @param host The host of the pipeline.
+	 * @param metrics The metrics in which to record requests.
+	 * @param idleCheckExecutor The executor closing idle warm documents.
+	 */
+	DocumentRequestPipeline(
+		@NotNull Host                     host,
+		@NotNull LSPMetrics               metrics,
+		@NotNull ScheduledExecutorService idleCheckExecutor
+	) {
+		this.host          = host;
+		this.metrics       = metrics;
+		this.warmDocuments = new WarmDocumentSet(
+			host::openDocument, host::closeDocument, idleCheckExecutor, System::currentTimeMillis);
+	}
+
+	/*
+		Requests
+	*/
+
+	/**
+	 * Makes the given request on the document with the given URI through
+	 * this pipeline, and returns a future completing with its result, or
+	 * with null if the request failed or was canceled, or if the document
+	 * changed before the response arrived.
+	 * The given supplier should be a simple wrapper around a server request,
+	 * for example (using a Java lambda for the Supplier anonymous class):
+	 *
+	 * () -> server.getTextDocumentService().definition(params)
+	 *
+	 * @param method The name of the request's method.
+	 * @param documentUri The URI of the document referenced by the given request.
+	 * @param params The parameters of the request, identifying it along with
+	 *               the method and the document version.
+	 * @param priority The priority of the request.
+	 * @param requestSupplier A supplier representing the request to be made.
+	 * @param <T> The type of the request's response result.
+	 * @return A future completing with the result of the response to the request.
+	 */
+	@NotNull
+	<T> CompletableFuture<T> request(
+		@NotNull String          method,
+		@NotNull String          documentUri,
+		@NotNull Object          params,
+		@NotNull RequestPriority priority,
+		@NotNull Supplier<CompletableFuture<T>> requestSupplier
+	) {
+
+		Document document = host.findDocument(documentUri);
+
+		// Send the pending changes of the document, if any, so that the
+		// server knows the version of the document the request targets,
+		// and get the modification stamp of that version
+
+		long documentStamp = document == null ? -1 : host.sendPendingChanges(document);
+
+		RequestCoalescer.RequestKey key = new RequestCoalescer.RequestKey(method, params, documentStamp);
+
+		// Record the end-to-end latency of the request, as experienced
+		// by the operation making it
+
+		long startTime = System.nanoTime();
+
+		metrics.requestStarted(method);
+
+		// Join the identical in-flight request if there is one, raising
+		// its priority if needed, or schedule a new request otherwise
+
+		CompletableFuture<T> future = requestCoalescer.request(
+			key,
+			() -> requestScheduler.schedule(priority, document, documentStamp,
+				() -> discardStaleResult(documentUri, document, documentStamp,
+					openAndRequest(method, documentUri, requestSupplier))),
+			sharedFuture -> requestScheduler.promote(sharedFuture, priority)
+		);
+
+		future.whenComplete((result, throwable) -> metrics.requestCompleted(
+			method, System.nanoTime() - startTime, throwable instanceof CancellationException));
+
+		return future;
+
+	}
+
+	/**
+	 * Schedules the given request, which is not relative to a document,
+	 * among the requests made through this pipeline.
+	 *
+	 * @param method The name of the request's method.
+	 * @param priority The priority of the request.
+	 * @param requestSupplier A supplier representing the request to be made.
+	 * @param <T> The type of the request's response result.
+	 * @return A future completing with the result of the response to the request.
+	 */
+	@NotNull
+	<T> CompletableFuture<T> schedule(
+		@NotNull String          method,
+		@NotNull RequestPriority priority,
+		@NotNull Supplier<CompletableFuture<T>> requestSupplier
+	) {
+		return requestScheduler.schedule(priority, null, -1,
+			() -> host.sendRequest(method, requestSupplier));
+	}
+
+	/**
+	 * Tags the given request future with the current version of the given
+	 * document, and returns a future completing with its result if that
+	 * version is still current when the response arrives, or with null
+	 * otherwise. A document is outdated if a new version of it was sent
+	 * to the server or if it changed in the IDE since the request was
+	 * made, in which case the positions in the result no longer match
+	 * those of the document.
+	 *
+	 * @param documentUri The URI of the document referenced by the request.
+	 * @param document The document referenced by the request, or null if
+	 *                 the request does not reference a loaded document.
+	 * @param requestStamp The modification stamp of the document when the
+	 *                     request was made, after its pending changes
+	 *                     were sent.
+	 * @param future The request future.
+	 * @param <T> The type of the request's response result.
+	 * @return A future completing with the result of the request, or with
+	 *         null if it is stale.
+	 */
+	@NotNull
+	private <T> CompletableFuture<T> discardStaleResult(
+		@NotNull  String               documentUri,
+		@Nullable Document             document,
+		          long                 requestStamp,
+		@NotNull  CompletableFuture<T> future
+	) {
+
+		if (document == null) { return future; }
+
+		int requestVersion = host.documentVersion(documentUri);
+
+		return RequestFutures.discardStaleResult(
+			future,
+			() -> host.documentVersion(documentUri) == requestVersion &&
+				document.getModificationStamp() == requestStamp,
+			() -> LOGGER.debug("Discarded stale result of request on version " +
+				requestVersion + " of " + documentUri)
+		);
+
+	}
+
+	/**
+	 * Makes the given request, opening the given document if it is not
+	 * already open, and keeping it open at least for the duration of the
+	 * request.
+	 *
+	 * @param method The name of the request's method.
+	 * @param documentUri The URI of the document referenced by the given request.
+	 * @param requestSupplier A supplier representing the request to be made.
+	 * @param <T> The type of the request's response result.
+	 * @return A future completing with the result of the response to the request.
+	 */
+	@NotNull
+	private <T> CompletableFuture<T> openAndRequest(
+		@NotNull String method,
+		@NotNull String documentUri,
+		@NotNull Supplier<CompletableFuture<T>> requestSupplier
+	) {
+
+		boolean openForRequest;
+
+		// If the file is not open in an editor, then mark it as used by
+		// the request in the set of warm documents, which sends a
+		// `textDocument/didOpen` notification if the file is not
+		// already open on the server
+
+		synchronized (warmDocuments) {
+
+			openForRequest =
+				host.syncsOpenClose() &&
+				!editorDocuments.contains(documentUri);
+
+			if (openForRequest) {
+				warmDocuments.acquire(documentUri);
+			}
+
+		}
+
+		// Make the request
+
+		CompletableFuture<T> resultFuture = host.sendRequest(method, requestSupplier);
+
+		// If the file is not open in an editor, then mark it as no
+		// longer used by the request once the request is complete
+
+		if (openForRequest) {
+			resultFuture.whenComplete((result, throwable) -> warmDocuments.release(documentUri));
+		}
+
+		// Return the result future
+
+		return resultFuture;
+
+	}
+
+	/*
+		Documents
+	*/
+
+	/**
+	 * Marks the document with the given URI as open in an editor,
+	 * opening it on the server unless it is already kept open there.
+	 *
+	 * @param documentUri The URI of the opened document.
+	 */
+	void editorOpened(@NotNull String documentUri) {
+
+		synchronized (warmDocuments) {
+
+			if (!editorDocuments.add(documentUri)) { return; }
+
+			if (!warmDocuments.remove(documentUri)) {
+				host.openDocument(documentUri);
+			}
+
+		}
+
+	}
+
+	/**
+	 * Marks the document with the given URI as closed in the editor,
+	 * keeping it open on the server as a warm document, so that reopening
+	 * it or making requests on it soon after does not make the server
+	 * analyze it again.
+	 *
+	 * @param documentUri The URI of the closed document.
+	 */
+	void editorClosed(@NotNull String documentUri) {
+
+		synchronized (warmDocuments) {
+
+			if (editorDocuments.remove(documentUri)) {
+				warmDocuments.add(documentUri);
+			}
+
+		}
+
+	}
+
+	/**
+	 * Drops the queued requests made on a version of the given
+	 * document other than its current one. Must be called whenever
+	 * the document changes.
+	 *
+	 * @param document The changed document.
+	 */
+	void dropStaleRequests(@NotNull Document document) {
+		requestScheduler.dropStaleRequests(document);
+	}
+
+	/**
+	 * Stops closing warm documents, e.g. once the server closed all
+	 * documents.
+	 */
+	void clearWarmDocuments() { warmDocuments.clear(); }
+
+	/*
+		Statistics
+	*/
+
+	/**
+	 * Returns the number of requests queued in the scheduler, waiting
+	 * to be sent to the server.
+	 *
+	 * @return The number of queued requests.
+	 */
+	int queuedRequestCount() { return requestScheduler.queuedRequestCount(); }
+
+	/**
+	 * Returns the number of requests sent by the scheduler and not
+	 * completed yet.
+	 *
+	 * @return The number of dispatched requests.
+	 */
+	int dispatchedRequestCount() { return requestScheduler.dispatchedRequestCount(); }
+
+	/**
+	 * Returns the number of documents kept open on the server while
+	 * they are not open in an editor.
+	 *
+	 * @return The number of warm documents.
+	 */
+	int warmDocumentCount() { return warmDocuments.size(); }
+
+	/**
+	 * Side of the connection to the server driving a pipeline, keeping
+	 * track of documents and their versions, and sending notifications
+	 * and requests to the server.
+	 */
+	interface Host {
+
+		/**
+		 * Returns the document with the given URI.
+		 *
+		 * @param documentUri The URI of the document.
+		 * @return The document, or null if it is not loaded.
+		 */
+		@Nullable
+		Document findDocument(@NotNull String documentUri);
+
+		/**
+		 * Sends the pending changes of the given document, if any, and
+		 * returns the modification stamp of the document, consistent
+		 * with the changes sent.
+		 *
+		 * @param document The document.
+		 * @return The modification stamp of the document.
+		 */
+		long sendPendingChanges(@NotNull Document document);
+
+		/**
+		 * Returns the version of the document with the given URI known
+		 * to the server.
+		 *
+		 * @param documentUri The URI of the document.
+		 * @return The version of the document.
+		 */
+		int documentVersion(@NotNull String documentUri);
+
+		/**
+		 * Returns whether or not the server expects documents to be
+		 * opened and closed.
+		 *
+		 * @return Whether or not open and close notifications are sent.
+		 */
+		boolean syncsOpenClose();
+
+		/**
+		 * Sends a `textDocument/didOpen` notification for the document
+		 * with the given URI.
+		 *
+		 * @param documentUri The URI of the document.
+		 */
+		void openDocument(@NotNull String documentUri);
+
+		/**
+		 * Sends a `textDocument/didClose` notification for the document
+		 * with the given URI.
+		 *
+		 * @param documentUri The URI of the document.
+		 */
+		void closeDocument(@NotNull String documentUri);
+
+		/**
+		 * Makes the given request to the server, and returns a future
+		 * completing with its result.
+		 *
+		 * @param method The name of the request's method.
+		 * @param requestSupplier A supplier representing the request to be made.
+		 * @param <T> The type of the request's response result.
+		 * @return A future completing with the result of the response to the request.
+		 */
+		@NotNull
+		<T> CompletableFuture<T> sendRequest(
+			@NotNull String method,
+			@NotNull Supplier<CompletableFuture<T>> requestSupplier
+		);
+
+	}
+
+}
@@ -0,0 +1,998 @@
+package com.adacore.adaintellij.lsp;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.LongSupplier;
+
+import com.google.gson.GsonBuilder;
+import org.jetbrains.annotations.*;
+
+import org.eclipse.lsp4j.jsonrpc.*;
+import org.eclipse.lsp4j.jsonrpc.json.StreamMessageConsumer;
+import org.eclipse.lsp4j.jsonrpc.messages.*;
+
+/**
+ * Metrics of the LSP session between the client and the ALS, used to
+ * diagnose latency and throughput problems of the integration.
+ *
+ * Two levels are measured:
+ * - Requests as seen by the plugin: end-to-end latency, including the
+ *   time spent parked, queued and coalesced, timeouts, cancellations,
+ *   failures and in-flight counts.
+ * - Messages on the wire: server latency, i.e. the time between sending
+ *   a request and receiving its response, payload sizes in both
+ *   directions, and notification rates.
+ *
+ * Metrics outlive server restarts, as they belong to the driver, and are
+ * exported as a JSON dump or a plain-text report.
+ */
+public final class LSPMetrics {
+
+	/**
+	 * Upper bounds, in milliseconds, of the buckets of latency histograms.
+	 */
+	static final long[] LATENCY_BUCKET_BOUNDS =
+		{1, 2, 5, 10, 20, 50, 100, 200, 500, 1_000, 2_000, 5_000, 10_000};
+
+	/**
+	 * Upper bounds, in bytes, of the buckets of payload size histograms.
+	 */
+	static final long[] PAYLOAD_BUCKET_BOUNDS =
+		{256, 1_024, 4_096, 16_384, 65_536, 262_144, 1_048_576, 4_194_304};
+
+	/**
+	 * The duration, in seconds, of the window over which notification
+	 * rates are computed.
+	 */
+	static final int RATE_WINDOW = 60;
+
+	/**
+	 * The method of request cancellation notifications.
+	 */
+	static final String CANCEL_METHOD = "$/cancelRequest";
+
+	/**
+	 * Metrics of requests, mapped to their methods.
+	 */
+	private final Map<String, RequestMetrics> requestMetrics = new ConcurrentHashMap<>();
+
+	/**
+	 * Metrics of notifications, mapped to their methods.
+	 */
+	private final Map<String, NotificationMetrics> notificationMetrics = new ConcurrentHashMap<>();
+
+	/**
+	 * Requests sent to the server and not answered yet, mapped to
+	 * their IDs.
+	 */
+	private final Map<String, SentRequest> sentRequests = new ConcurrentHashMap<>();
+
+	/**
+	 * Gauges sampled when metrics are exported, mapped to their names,
+	 * in order of registration.
+	 */
+	private final Map<String, LongSupplier> gauges = Collections.synchronizedMap(new LinkedHashMap<>());
+
+	/**
+	 * The total numbers of bytes sent to and received from the server.
+	 */
+	private final AtomicLong bytesSent     = new AtomicLong();
+	private final AtomicLong bytesReceived = new AtomicLong();
+
+	/**
+	 * The time, in milliseconds, at which metrics were last reset.
+	 */
+	private volatile long resetTime = System.currentTimeMillis();
+
+	/*
+		Client-Side Recording
+	*/
+
+	/**
+	 * Records the start of a request made by the plugin.
+	 *
+	 * @param method The method of the request.
+	 */
+	void requestStarted(@NotNull String method) {
+
+		RequestMetrics metrics = requestMetrics(method);
+
+		metrics.count.incrementAndGet();
+		metrics.inFlight.incrementAndGet();
+
+	}
+
+	/**
+	 * Records the completion of a request made by the plugin, given its
+	 * end-to-end latency.
+	 *
+	 * @param method The method of the request.
+	 * @param latencyNanos The latency of the request, in nanoseconds.
+	 * @param canceled Whether or not the request was canceled by the
+	 *                 operation that made it.
+	 */
+	void requestCompleted(@NotNull String method, long latencyNanos, boolean canceled) {
+
+		RequestMetrics metrics = requestMetrics(method);
+
+		metrics.inFlight.decrementAndGet();
+
+		if (canceled) {
+			metrics.cancellations.incrementAndGet();
+		} else {
+			metrics.latency.record(TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+		}
+
+	}
+
+	/**
+	 * Records the timeout of a request.
+	 *
+	 * @param method The method of the request.
+	 */
+	void requestTimedOut(@NotNull String method) { requestMetrics(method).timeouts.incrementAndGet(); }
+
+	/**
+	 * Records the failure of a request.
+	 *
+	 * @param method The method of the request.
+	 */
+	void requestFailed(@NotNull String method) { requestMetrics(method).failures.incrementAndGet(); }
+
+	/**
+	 * Registers a gauge, sampled whenever metrics are exported.
+	 *
+	 * @param name The name of the gauge.
+	 * @param gauge The supplier of the gauge's value.
+	 */
+	void registerGauge(@NotNull String name, @NotNull LongSupplier gauge) { gauges.put(name, gauge); }
+
+	/**
+	 * Resets all metrics. Gauges and in-flight counts are kept.
+	 */
+	public void reset() {
+
+		requestMetrics.values().forEach(RequestMetrics::reset);
+		notificationMetrics.values().forEach(NotificationMetrics::reset);
+
+		bytesSent.set(0);
+		bytesReceived.set(0);
+
+		resetTime = System.currentTimeMillis();
+
+	}
+
+	/**
+	 * Returns the metrics of the given request method, creating them
+	 * if needed.
+	 *
+	 * @param method The request method.
+	 * @return The metrics of the method.
+	 */
+	@NotNull
+	private RequestMetrics requestMetrics(@NotNull String method) {
+		return requestMetrics.computeIfAbsent(method, key -> new RequestMetrics());
+	}
+
+	/**
+	 * Returns the metrics of the given notification method, creating
+	 * them if needed.
+	 *
+	 * @param method The notification method.
+	 * @param direction The direction of the notification.
+	 * @return The metrics of the method.
+	 */
+	@NotNull
+	private NotificationMetrics notificationMetrics(@NotNull String method, @NotNull String direction) {
+		return notificationMetrics.computeIfAbsent(method, key -> new NotificationMetrics(direction));
+	}
+
+	/*
+		Wire-Level Recording
+	*/
+
+	/**
+	 * Sets up the given launcher builder to connect to the server through
+	 * the given streams, recording the messages exchanged with the server.
+	 *
+	 * @param builder The launcher builder.
+	 * @param input The input stream of the server connection.
+	 * @param output The output stream of the server connection.
+	 * @param <T> The remote interface of the launcher.
+	 * @return The given builder.
+	 */
+	@Contract("_, _, _ -> param1")
+	@NotNull
+	<T> Launcher.Builder<T> instrument(
+		@NotNull Launcher.Builder<T> builder,
+		@NotNull InputStream         input,
+		@NotNull OutputStream        output
+	) {
+
+		CountingInputStream  countingInput  = new CountingInputStream(input);
+		CountingOutputStream countingOutput = new CountingOutputStream(output);
+
+		// Message consumers are wrapped on both sides of the connection:
+		// outgoing messages are consumed by a stream message consumer
+		// writing them to the output stream, and incoming messages are
+		// consumed by the remote endpoint
+
+		return builder
+			.setInput(countingInput)
+			.setOutput(countingOutput)
+			.wrapMessages(consumer -> consumer instanceof StreamMessageConsumer ?
+				new OutgoingMessageRecorder(consumer, countingOutput) :
+				new IncomingMessageRecorder(consumer, countingInput));
+
+	}
+
+	/**
+	 * Records a message sent to the server.
+	 *
+	 * @param message The sent message.
+	 * @param size The size of the message, in bytes.
+	 */
+	private void messageSent(@NotNull Message message, long size) {
+
+		bytesSent.addAndGet(size);
+
+		if (message instanceof RequestMessage) {
+
+			RequestMessage request = (RequestMessage)message;
+
+			sentRequests.put(request.getId(), new SentRequest(request.getMethod(), System.nanoTime()));
+
+			requestMetrics(request.getMethod()).requestSize.record(size);
+
+		} else if (message instanceof NotificationMessage) {
+
+			NotificationMessage notification = (NotificationMessage)message;
+
+			notificationMetrics(notification.getMethod(), "sent").record(size);
+
+			// A canceled request is no longer expected to be answered
+
+			if (CANCEL_METHOD.equals(notification.getMethod()) &&
+				notification.getParams() instanceof CancelParams)
+			{
+				sentRequests.remove(((CancelParams)notification.getParams()).getId());
+			}
+
+		}
+
+	}
+
+	/**
+	 * Records a message received from the server.
+	 *
+	 * @param message The received message.
+	 * @param size The size of the message, in bytes.
+	 */
+	private void messageReceived(@NotNull Message message, long size) {
+
+		bytesReceived.addAndGet(size);
+
+		if (message instanceof ResponseMessage) {
+
+			SentRequest request = sentRequests.remove(((ResponseMessage)message).getId());
+
+			if (request == null) { return; }
+
+			RequestMetrics metrics = requestMetrics(request.method);
+
+			metrics.serverLatency.record(
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - request.sendTime));
+			metrics.responseSize.record(size);
+
+		} else if (message instanceof NotificationMessage) {
+
+			notificationMetrics(((NotificationMessage)message).getMethod(), "received").record(size);
+
+		}
+
+	}
+
+	/*
+		Export
+	*/
+
+	/**
+	 * Returns a snapshot of all metrics, as nested maps of JSON values.
+	 *
+	 * @return The snapshot.
+	 */
+	@NotNull
+	public Map<String, Object> snapshot() {
+
+		Map<String, Object> snapshot = new LinkedHashMap<>();
+
+		snapshot.put("durationMs", System.currentTimeMillis() - resetTime);
+		snapshot.put("bytesSent", bytesSent.get());
+		snapshot.put("bytesReceived", bytesReceived.get());
+
+		// Count requests in flight on the server per method
+
+		Map<String, Integer> inFlightOnServer = new HashMap<>();
+
+		sentRequests.values().forEach(request -> inFlightOnServer.merge(request.method, 1, Integer::sum));
+
+		Map<String, Object> requests = new TreeMap<>();
+
+		requestMetrics.forEach((method, metrics) ->
+			requests.put(method, metrics.snapshot(inFlightOnServer.getOrDefault(method, 0))));
+
+		snapshot.put("requests", requests);
+
+		Map<String, Object> notifications = new TreeMap<>();
+
+		notificationMetrics.forEach((method, metrics) -> notifications.put(method, metrics.snapshot()));
+
+		snapshot.put("notifications", notifications);
+
+		Map<String, Object> gaugeValues = new LinkedHashMap<>();
+
+		synchronized (gauges) {
+			gauges.forEach((name, gauge) -> gaugeValues.put(name, gauge.getAsLong()));
+		}
+
+		snapshot.put("gauges", gaugeValues);
+
+		return snapshot;
+
+	}
+
+	/**
+	 * Returns a snapshot of all metrics as a JSON document.
+	 *
+	 * @return The JSON dump of the metrics.
+	 */
+	@NotNull
+	public String toJson() { return new GsonBuilder().setPrettyPrinting().create().toJson(snapshot()); }
+
+	/**
+	 * Returns a snapshot of all metrics as a plain-text report, with
+	 * latency percentiles estimated from histogram buckets.
+	 *
+	 * @return The report.
+	 */
+	@NotNull
+	public String toReport() {
+
+		StringBuilder report = new StringBuilder();
+
+		report.append(String.format("Duration: %d s, sent: %d bytes, received: %d bytes%n%n",
+			(System.currentTimeMillis() - resetTime) / 1000, bytesSent.get(), bytesReceived.get()));
+
+		report.append(String.format("%-32s %7s %7s %6s %6s %6s %8s %8s %8s %8s %10s %10s%n",
+			"Request", "Count", "Flight", "T/O", "Cancel", "Fail",
+			"p50 ms", "p90 ms", "p99 ms", "Srv p90", "Req B p90", "Resp B p90"));
+
+		new TreeMap<>(requestMetrics).forEach((method, metrics) ->
+			report.append(String.format("%-32s %7d %7d %6d %6d %6d %8d %8d %8d %8d %10d %10d%n",
+				method, metrics.count.get(), metrics.inFlight.get(), metrics.timeouts.get(),
+				metrics.cancellations.get(), metrics.failures.get(),
+				metrics.latency.percentile(0.5), metrics.latency.percentile(0.9),
+				metrics.latency.percentile(0.99), metrics.serverLatency.percentile(0.9),
+				metrics.requestSize.percentile(0.9), metrics.responseSize.percentile(0.9))));
+
+		report.append(String.format("%n%-32s %9s %7s %9s %9s %10s%n",
+			"Notification", "Direction", "Count", "Last min", "Peak /s", "Bytes p90"));
+
+		new TreeMap<>(notificationMetrics).forEach((method, metrics) ->
+			report.append(String.format("%-32s %9s %7d %9d %9d %10d%n",
+				method, metrics.direction, metrics.size.getCount(),
+				metrics.rate.windowCount(), metrics.rate.peakCount(), metrics.size.percentile(0.9))));
+
+		report.append(String.format("%n%-32s %9s%n", "Gauge", "Value"));
+
+		synchronized (gauges) {
+			gauges.forEach((name, gauge) ->
+				report.append(String.format("%-32s %9d%n", name, gauge.getAsLong())));
+		}
+
+		return report.toString();
+
+	}
+
+	/**
+	 * Histogram of non-negative values, counting values in buckets with
+	 * fixed upper bounds, plus an overflow bucket.
+	 */
+	static final class Histogram {
+
+		/**
+		 * The upper bounds of the buckets, in increasing order.
+		 */
+		@NotNull
+		private final long[] bounds;
+
+		/**
+		 * The counts of the buckets, the last one being the overflow
+		 * bucket.
+		 */
+		@NotNull
+		private final long[] counts;
+
+		/**
+		 * The number, sum and maximum of recorded values.
+		 */
+		private long count = 0;
+		private long sum   = 0;
+		private long max   = 0;
+
+		/**
+		 * Constructs a new Histogram given the upper bounds of its buckets.
+		 *
+		 * @param bounds The upper bounds of the buckets, in increasing order.
+		 */
+		Histogram(@NotNull long[] bounds) {
+			this.bounds = bounds;
+			this.counts = new long[bounds.length + 1];
+		}
+
+		/**
+		 * Records the given value.
+		 *
+		 * @param value The value to record.
+		 */
+		synchronized void record(long value) {
+
+			int bucket = Arrays.binarySearch(bounds, value);
+
+			counts[bucket >= 0 ? bucket : -bucket - 1]++;
+
+			count++;
+			sum += value;
+			max  = Math.max(max, value);
+
+		}
+
+		/**
+		 * Returns the number of recorded values.
+		 *
+		 * @return The number of recorded values.
+		 */
+		synchronized long getCount() { return count; }
+
+		/**
+		 * Returns an upper estimate of the given percentile of recorded
+		 * values, i.e. the upper bound of the bucket containing that
+		 * percentile, or the maximum recorded value if that bucket is the
+		 * overflow bucket or if its bound is greater than that maximum.
+		 *
+		 * @param percentile The percentile, between 0 and 1.
+		 * @return The estimated percentile, or 0 if no values were recorded.
+		 */
+		synchronized long percentile(double percentile) {
+
+			if (count == 0) { return 0; }
+
+			long rank       = (long)Math.ceil(percentile * count);
+			long cumulative = 0;
+
+			for (int i = 0 ; i < bounds.length ; i++) {
+
+				cumulative += counts[i];
+
+				if (cumulative >= rank) { return Math.min(bounds[i], max); }
+
+			}
+
+			return max;
+
+		}
+
+		/**
+		 * Resets this histogram.
+		 */
+		synchronized void reset() {
+			Arrays.fill(counts, 0);
+			count = 0;
+			sum   = 0;
+			max   = 0;
+		}
+
+		/**
+		 * Returns a snapshot of this histogram.
+		 *
+		 * @return The snapshot, as a map of JSON values.
+		 */
+		@NotNull
+		synchronized Map<String, Object> snapshot() {
+
+			Map<String, Object> snapshot = new LinkedHashMap<>();
+
+			snapshot.put("count", count);
+			snapshot.put("mean", count == 0 ? 0 : sum / count);
+			snapshot.put("p50", percentile(0.5));
+			snapshot.put("p90", percentile(0.9));
+			snapshot.put("p99", percentile(0.99));
+			snapshot.put("max", max);
+
+			Map<String, Long> buckets = new LinkedHashMap<>();
+
+			for (int i = 0 ; i < bounds.length ; i++) {
+				buckets.put("<=" + bounds[i], counts[i]);
+			}
+
+			buckets.put(">" + bounds[bounds.length - 1], counts[bounds.length]);
+
+			snapshot.put("buckets", buckets);
+
+			return snapshot;
+
+		}
+
+	}
+
+	/**
+	 * Counter of events over a sliding window of one-second slots.
+	 */
+	static final class RateCounter {
+
+		/**
+		 * The counts of events in each slot, and the second to which each
+		 * slot currently corresponds.
+		 */
+		private final long[] counts  = new long[RATE_WINDOW];
+		private final long[] seconds = new long[RATE_WINDOW];
+
+		/**
+		 * Records an event at the current time.
+		 */
+		void record() { record(System.currentTimeMillis()); }
+
+		/**
+		 * Records an event at the given time.
+		 *
+		 * @param time The time of the event, in milliseconds.
+		 */
+		synchronized void record(long time) {
+
+			long second = time / 1000;
+			int  slot   = (int)(second % RATE_WINDOW);
+
+			if (seconds[slot] != second) {
+				seconds[slot] = second;
+				counts[slot]  = 0;
+			}
+
+			counts[slot]++;
+
+		}
+
+		/**
+		 * Returns the number of events in the window ending now.
+		 *
+		 * @return The number of events in the window.
+		 */
+		long windowCount() { return windowCount(System.currentTimeMillis()); }
+
+		/**
+		 * Returns the number of events in the window ending at the given
+		 * time.
+		 *
+		 * @param time The end of the window, in milliseconds.
+		 * @return The number of events in the window.
+		 */
+		synchronized long windowCount(long time) {
+
+			long second = time / 1000;
+			long total  = 0;
+
+			for (int slot = 0 ; slot < RATE_WINDOW ; slot++) {
+				if (second - seconds[slot] < RATE_WINDOW) {
+					total += counts[slot];
+				}
+			}
+
+			return total;
+
+		}
+
+		/**
+		 * Returns the maximum number of events in a single second of the
+		 * window ending now.
+		 *
+		 * @return The peak number of events per second.
+		 */
+		synchronized long peakCount() {
+
+			long second = System.currentTimeMillis() / 1000;
+			long peak   = 0;
+
+			for (int slot = 0 ; slot < RATE_WINDOW ; slot++) {
+				if (second - seconds[slot] < RATE_WINDOW) {
+					peak = Math.max(peak, counts[slot]);
+				}
+			}
+
+			return peak;
+
+		}
+
+		/**
+		 * Resets this counter.
+		 */
+		synchronized void reset() {
+			Arrays.fill(counts, 0);
+			Arrays.fill(seconds, 0);
+		}
+
+	}
+
+	/**
+	 * Metrics of the requests of a given method.
+	 */
+	private static final class RequestMetrics {
+
+		/**
+		 * The numbers of requests made, in flight, timed out, canceled
+		 * and failed.
+		 */
+		final AtomicLong    count         = new AtomicLong();
+		final AtomicInteger inFlight      = new AtomicInteger();
+		final AtomicLong    timeouts      = new AtomicLong();
+		final AtomicLong    cancellations = new AtomicLong();
+		final AtomicLong    failures      = new AtomicLong();
+
+		/**
+		 * The end-to-end latency and the server latency of requests.
+		 */
+		final Histogram latency       = new Histogram(LATENCY_BUCKET_BOUNDS);
+		final Histogram serverLatency = new Histogram(LATENCY_BUCKET_BOUNDS);
+
+		/**
+		 * The sizes of requests and of their responses.
+		 */
+		final Histogram requestSize  = new Histogram(PAYLOAD_BUCKET_BOUNDS);
+		final Histogram responseSize = new Histogram(PAYLOAD_BUCKET_BOUNDS);
+
+		/**
+		 * Resets these metrics, except the in-flight count.
+		 */
+		void reset() {
+			count.set(0);
+			timeouts.set(0);
+			cancellations.set(0);
+			failures.set(0);
+			latency.reset();
+			serverLatency.reset();
+			requestSize.reset();
+			responseSize.reset();
+		}
+
+		/**
+		 * Returns a snapshot of these metrics.
+		 *
+		 * @param inFlightOnServer The number of requests sent to the
+		 *                         server and not answered yet.
+		 * @return The snapshot, as a map of JSON values.
+		 */
+		@NotNull
+		Map<String, Object> snapshot(int inFlightOnServer) {
+
+			Map<String, Object> snapshot = new LinkedHashMap<>();
+
+			snapshot.put("count", count.get());
+			snapshot.put("inFlight", inFlight.get());
+			snapshot.put("inFlightOnServer", inFlightOnServer);
+			snapshot.put("timeouts", timeouts.get());
+			snapshot.put("cancellations", cancellations.get());
+			snapshot.put("failures", failures.get());
+			snapshot.put("latencyMs", latency.snapshot());
+			snapshot.put("serverLatencyMs", serverLatency.snapshot());
+			snapshot.put("requestBytes", requestSize.snapshot());
+			snapshot.put("responseBytes", responseSize.snapshot());
+
+			return snapshot;
+
+		}
+
+	}
+
+	/**
+	 * Metrics of the notifications of a given method.
+	 */
+	private static final class NotificationMetrics {
+
+		/**
+		 * The direction of the notifications, "sent" or "received".
+		 */
+		@NotNull
+		final String direction;
+
+		/**
+		 * The rate and the sizes of notifications.
+		 */
+		final RateCounter rate = new RateCounter();
+		final Histogram   size = new Histogram(PAYLOAD_BUCKET_BOUNDS);
+
+		/**
+		 * Constructs a new NotificationMetrics given the direction of the
+		 * notifications.
+		 *
+		 * @param direction The direction of the notifications.
+		 */
+		NotificationMetrics(@NotNull String direction) { this.direction = direction; }
+
+		/**
+		 * Records a notification of the given size.
+		 *
+		 * @param size The size of the notification, in bytes.
+		 */
+		void record(long size) {
+			rate.record();
+			this.size.record(size);
+		}
+
+		/**
+		 * Resets these metrics.
+		 */
+		void reset() {
+			rate.reset();
+			size.reset();
+		}
+
+		/**
+		 * Returns a snapshot of these metrics.
+		 *
+		 * @return The snapshot, as a map of JSON values.
+		 */
+		@NotNull
+		Map<String, Object> snapshot() {
+
+			Map<String, Object> snapshot = new LinkedHashMap<>();
+
+			snapshot.put("direction", direction);
+			snapshot.put("count", size.getCount());
+			snapshot.put("lastMinute", rate.windowCount());
+			snapshot.put("peakPerSecond", rate.peakCount());
+			snapshot.put("bytes", size.snapshot());
+
+			return snapshot;
+
+		}
+
+	}
+
+	/**
+	 * A request sent to the server and not answered yet.
+	 */
+	private static final class SentRequest {
+
+		/**
+		 * The method of the request.
+		 */
+		@NotNull
+		final String method;
+
+		/**
+		 * The time, in nanoseconds, at which the request was sent.
+		 */
+		final long sendTime;
+
+		/**
+		 * Constructs a new SentRequest.
+		 *
+		 * @param method The method of the request.
+		 * @param sendTime The time at which the request was sent.
+		 */
+		SentRequest(@NotNull String method, long sendTime) {
+			this.method   = method;
+			this.sendTime = sendTime;
+		}
+
+	}
+
+	/**
+	 * Message consumer writing messages to the server, recording them
+	 * along with the number of bytes written for each of them.
+	 */
+	private final class OutgoingMessageRecorder implements MessageConsumer {
+
+		/**
+		 * The consumer writing messages to the output stream.
+		 */
+		@NotNull
+		private final MessageConsumer delegate;
+
+		/**
+		 * The output stream to which messages are written.
+		 */
+		@NotNull
+		private final CountingOutputStream output;
+
+		/**
+		 * Constructs a new OutgoingMessageRecorder.
+		 *
+		 * @param delegate The consumer writing messages.
+		 * @param output The output stream to which messages are written.
+		 */
+		OutgoingMessageRecorder(@NotNull MessageConsumer delegate, @NotNull CountingOutputStream output) {
+			this.delegate = delegate;
+			this.output   = output;
+		}
+
+		/**
+		 * @see org.eclipse.lsp4j.jsonrpc.MessageConsumer#consume(Message)
+		 *
+		 * Messages are written while holding the lock of this recorder,
+		 * so that the bytes counted for a message are its own.
+		 */
+		@Override
+		public void consume(Message message) {
+
+			long size;
+
+			synchronized (this) {
+
+				long before = output.getCount();
+
+				delegate.consume(message);
+
+				size = output.getCount() - before;
+
+			}
+
+			messageSent(message, size);
+
+		}
+
+	}
+
+	/**
+	 * Message consumer handling messages read from the server, recording
+	 * them along with the number of bytes read for each of them.
+	 * Messages are read and consumed by a single thread, so the bytes
+	 * read since the previous message are those of the current message.
+	 */
+	private final class IncomingMessageRecorder implements MessageConsumer {
+
+		/**
+		 * The consumer handling messages.
+		 */
+		@NotNull
+		private final MessageConsumer delegate;
+
+		/**
+		 * The input stream from which messages are read.
+		 */
+		@NotNull
+		private final CountingInputStream input;
+
+		/**
+		 * The number of bytes read up to the end of the previous message.
+		 */
+		private long previousCount = 0;
+
+		/**
+		 * Constructs a new IncomingMessageRecorder.
+		 *
+		 * @param delegate The consumer handling messages.
+		 * @param input The input stream from which messages are read.
+		 */
+		IncomingMessageRecorder(@NotNull MessageConsumer delegate, @NotNull CountingInputStream input) {
+			this.delegate = delegate;
+			this.input    = input;
+		}
+
+		/**
+		 * @see org.eclipse.lsp4j.jsonrpc.MessageConsumer#consume(Message)
+		 */
+		@Override
+		public void consume(Message message) {
+
+			long count = input.getCount();
+
+			messageReceived(message, count - previousCount);
+
+			previousCount = count;
+
+			delegate.consume(message);
+
+		}
+
+	}
+
+	/**
+	 * Input stream counting the bytes read from it.
+	 */
+	private static final class CountingInputStream extends FilterInputStream {
+
+		/**
+		 * The number of bytes read.
+		 */
+		private volatile long count = 0;
+
+		/**
+		 * Constructs a new CountingInputStream.
+		 *
+		 * @param input The stream to read.
+		 */
+		CountingInputStream(@NotNull InputStream input) { super(input); }
+
+		/**
+		 * Returns the number of bytes read.
+		 *
+		 * @return The number of bytes read.
+		 */
+		long getCount() { return count; }
+
+		/**
+		 * @see java.io.FilterInputStream#read()
+		 */
+		@Override
+		public int read() throws IOException {
+
+			int read = super.read();
+
+			if (read >= 0) { count++; }
+
+			return read;
+
+		}
+
+		/**
+		 * @see java.io.FilterInputStream#read(byte[], int, int)
+		 */
+		@Override
+		public int read(@NotNull byte[] buffer, int offset, int length) throws IOException {
+
+			int read = super.read(buffer, offset, length);
+
+			if (read > 0) { count += read; }
+
+			return read;
+
+		}
+
+	}
+
+	/**
+	 * Output stream counting the bytes written to it.
+	 */
+	private static final class CountingOutputStream extends FilterOutputStream {
+
+		/**
+		 * The number of bytes written.
+		 */
+		private volatile long count = 0;
+
+		/**
+		 * Constructs a new CountingOutputStream.
+		 *
+		 * @param output The stream to write.
+		 */
+		CountingOutputStream(@NotNull OutputStream output) { super(output); }
+
+		/**
+		 * Returns the number of bytes written.
+		 *
+		 * @return The number of bytes written.
+		 */
+		long getCount() { return count; }
+
+		/**
+		 * @see java.io.FilterOutputStream#write(int)
+		 */
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		/**
+		 * @see java.io.FilterOutputStream#write(byte[], int, int)
+		 */
+		@Override
+		public void write(@NotNull byte[] buffer, int offset, int length) throws IOException {
+			out.write(buffer, offset, length);
+			count += length;
+		}
+
+	}
+
+}
@@ -1,13 +1,15 @@
 package com.adacore.adaintellij.lsp;
 
+import java.util.concurrent.*;
+
 import com.intellij.lang.annotation.HighlightSeverity;
 import com.intellij.notification.NotificationType;
 import com.intellij.openapi.editor.Document;
-import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.progress.*;
+import com.intellij.openapi.progress.util.ProgressIndicatorUtils;
 import org.jetbrains.annotations.*;
 
 import org.eclipse.lsp4j.*;
-import org.eclipse.lsp4j.Range;
 
 import static com.adacore.adaintellij.analysis.syntactic.AdaPsiElement.AdaElementType;
 
@@ -26,6 +28,13 @@ public final class LSPUtils {
 	 */
 	static final String ALS_NAME = "ada_language_server";
 
+	/**
+	 * The system property overriding the command starting the ALS, e.g.
+	 * to run a fake server in its place (a command line, whose arguments
+	 * containing spaces must be quoted).
+	 */
+	static final String ALS_COMMAND_PROPERTY = "com.adacore.adaintellij.als.command";
+
 	/**
 	 * Private default constructor to prevent instantiation.
 	 */
@@ -130,38 +139,6 @@ public final class LSPUtils {
 
 	}
 
-	/**
-	 * Translates the given IntelliJ platform document event to a
-	 * text-document content change event, defined in the LSP
-	 * standard.
-	 *
-	 * @param event The document event to translate.
-	 * @return The corresponding text-document content change event.
-	 */
-	@NotNull
-	public static TextDocumentContentChangeEvent
-		documentEventToContentChangeEvent(@NotNull DocumentEvent event)
-	{
-
-		Document changedDocument = event.getDocument();
-
-		TextDocumentContentChangeEvent changeEvent =
-			new TextDocumentContentChangeEvent();
-
-		int offset    = event.getOffset();
-		int oldLength = event.getOldLength();
-
-		changeEvent.setRange(new Range(
-			offsetToPosition(changedDocument, offset),
-			offsetToPosition(changedDocument, offset + oldLength)
-		));
-		changeEvent.setRangeLength(oldLength);
-		changeEvent.setText(event.getNewFragment().toString());
-
-		return changeEvent;
-
-	}
-
 	/**
 	 * Returns the offset corresponding to the given LSP position
 	 * in the given document.
@@ -196,4 +173,73 @@ public final class LSPUtils {
 
 	}
 
+	/**
+	 * Returns the result of the given request future, obtained from
+	 * `AdaLSPServer`, for callers that cannot be made asynchronous,
+	 * such as IntelliJ platform extension points that must return
+	 * results. Callers that can compose futures should do so instead.
+	 *
+	 * The current operation is checked for cancellation while waiting
+	 * for the result. If it is canceled, or if the waiting thread is
+	 * interrupted, the request is canceled, which sends a
+	 * `$/cancelRequest` notification to the server, and the
+	 * cancellation is propagated to the caller. The interrupted status
+	 * of the thread is preserved.
+	 *
+	 * @param future The request future whose result to get.
+	 * @param <T> The type of the request's result.
+	 * @return The result of the request.
+	 * @throws ProcessCanceledException If the current operation is canceled.
+	 */
+	@Nullable
+	public static <T> T awaitResult(@NotNull CompletableFuture<T> future) {
+
+		T result;
+
+		try {
+
+			result = ProgressIndicatorUtils.awaitWithCheckCanceled(future);
+
+		} catch (ProcessCanceledException exception) {
+
+			future.cancel(true);
+
+			throw exception;
+
+		} catch (CancellationException exception) {
+
+			throw new ProcessCanceledException(exception);
+
+		} catch (RuntimeException exception) {
+
+			// Interruptions and failures are rethrown wrapped in
+			// runtime exceptions
+
+			if (exception.getCause() instanceof InterruptedException) {
+
+				Thread.currentThread().interrupt();
+
+				future.cancel(true);
+
+				throw new ProcessCanceledException(exception.getCause());
+
+			}
+
+			// Requests made through `AdaLSPServer` do not complete
+			// exceptionally, failures are logged and result in null
+
+			return null;
+
+		}
+
+		// The request may have been canceled along with the
+		// current operation, in which case its result is not
+		// meaningful
+
+		ProgressManager.checkCanceled();
+
+		return result;
+
+	}
+
 }
@@ -0,0 +1,93 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.Arrays;
+
+import org.jetbrains.annotations.NotNull;
+
+import org.eclipse.lsp4j.Position;
+
+/**
+ * Table of the start offsets of the lines of a text, built in a single
+ * scan of that text, converting LSP positions to offsets without a
+ * document or a PSI tree.
+ *
+ * Positions are clamped to the text: lines past the last line map to
+ * the end of the text, and characters past the end of a line map to
+ * the end of that line.
+ */
+public final class LineStartTable {
+
+	/**
+	 * The length of the text.
+	 */
+	private final int textLength;
+
+	/**
+	 * The start offsets of the lines of the text, in order.
+	 */
+	@NotNull
+	private final int[] lineStarts;
+
+	/**
+	 * The number of lines of the text.
+	 */
+	private final int lineCount;
+
+	/**
+	 * Constructs a new LineStartTable given a text.
+	 *
+	 * @param text The text whose lines to index.
+	 */
+	public LineStartTable(@NotNull CharSequence text) {
+
+		int[] starts = new int[16];
+		int   count  = 1;
+
+		textLength = text.length();
+
+		for (int offset = 0 ; offset < textLength ; offset++) {
+
+			if (text.charAt(offset) != '\n') { continue; }
+
+			if (count == starts.length) {
+				starts = Arrays.copyOf(starts, count * 2);
+			}
+
+			starts[count++] = offset + 1;
+
+		}
+
+		lineStarts = starts;
+		lineCount  = count;
+
+	}
+
+	/**
+	 * Returns the number of lines of the text.
+	 *
+	 * @return The number of lines.
+	 */
+	public int getLineCount() { return lineCount; }
+
+	/**
+	 * Returns the offset corresponding to the given LSP position in the
+	 * text.
+	 *
+	 * @param position The LSP position to translate.
+	 * @return The corresponding offset.
+	 */
+	public int offsetOf(@NotNull Position position) {
+
+		int line = position.getLine();
+
+		if (line < 0) { return 0; }
+		if (line >= lineCount) { return textLength; }
+
+		int lineStart = lineStarts[line];
+		int lineEnd   = line + 1 < lineCount ? lineStarts[line + 1] - 1 : textLength;
+
+		return lineStart + Math.max(0, Math.min(position.getCharacter(), lineEnd - lineStart));
+
+	}
+
+}
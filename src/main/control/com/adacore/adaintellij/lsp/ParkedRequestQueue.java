@@ -0,0 +1,172 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.jetbrains.annotations.*;
+
+/**
+ * Bounded queue of ALS requests made while the server is starting,
+ * parked until the server is ready.
+ *
+ * While the queue is parking requests, i.e. from the start of the
+ * initialization handshake with the server until the end of that
+ * handshake, requests are parked instead of failing. Once the server
+ * is ready, the queue is drained: parked requests are made to the
+ * server, or complete with their fallback results if the server could
+ * not be started. Requests made while the queue is full complete with
+ * their fallback results right away.
+ *
+ * @param <S> The type of the server to which requests are made.
+ */
+final class ParkedRequestQueue<S> {
+
+	/**
+	 * The maximum number of parked requests.
+	 */
+	static final int MAX_PARKED_REQUESTS = 64;
+
+	/**
+	 * Parked requests, in order.
+	 */
+	private final List<ParkedRequest<?>> parkedRequests = new ArrayList<>();
+
+	/**
+	 * Whether or not requests are currently parked.
+	 */
+	private boolean parking = false;
+
+	/**
+	 * Starts parking requests.
+	 */
+	synchronized void startParking() { parking = true; }
+
+	/**
+	 * Parks the given request if requests are currently parked, and
+	 * returns a future completing with its result once it is made.
+	 *
+	 * @param request The request, made using the server once it is ready.
+	 * @param fallback The result of the request if the server could not
+	 *                 be started, or if the queue is full.
+	 * @param <T> The type of the request's response result.
+	 * @return A future completing with the result of the request, or null
+	 *         if requests are not currently parked.
+	 */
+	@Nullable
+	synchronized <T> CompletableFuture<T> park(
+		@NotNull Function<S, CompletableFuture<T>> request,
+		         T                                 fallback
+	) {
+
+		if (!parking) { return null; }
+
+		if (parkedRequests.size() >= MAX_PARKED_REQUESTS) {
+			return CompletableFuture.completedFuture(fallback);
+		}
+
+		ParkedRequest<T> parkedRequest = new ParkedRequest<>(request, fallback);
+
+		parkedRequests.add(parkedRequest);
+
+		return parkedRequest;
+
+	}
+
+	/**
+	 * Returns the number of parked requests.
+	 *
+	 * @return The number of parked requests.
+	 */
+	synchronized int parkedRequestCount() { return parkedRequests.size(); }
+
+	/**
+	 * Stops parking requests and makes parked requests to the given
+	 * server, or completes them with their fallback results if the
+	 * server is null.
+	 * Requests are made outside of the lock of this queue, as making
+	 * a request writes to the server's input stream.
+	 *
+	 * @param server The ready server, or null if the server could not
+	 *               be started.
+	 */
+	void drain(@Nullable S server) {
+
+		List<ParkedRequest<?>> drainedRequests;
+
+		synchronized (this) {
+
+			parking = false;
+
+			drainedRequests = new ArrayList<>(parkedRequests);
+
+			parkedRequests.clear();
+
+		}
+
+		drainedRequests.forEach(request -> request.dispatch(server));
+
+	}
+
+	/**
+	 * A parked request, and the future completing with its result.
+	 *
+	 * @param <T> The type of the request's response result.
+	 */
+	private final class ParkedRequest<T> extends DeferredRequest<T> {
+
+		/**
+		 * The request, made using the server once it is ready.
+		 */
+		@NotNull
+		private final Function<S, CompletableFuture<T>> request;
+
+		/**
+		 * The result of the request if the server could not be started.
+		 */
+		private final T fallback;
+
+		/**
+		 * Constructs a new ParkedRequest.
+		 *
+		 * @param request The request.
+		 * @param fallback The fallback result of the request.
+		 */
+		ParkedRequest(@NotNull Function<S, CompletableFuture<T>> request, T fallback) {
+			this.request  = request;
+			this.fallback = fallback;
+		}
+
+		/**
+		 * Makes the request to the given server and completes this future
+		 * with its result, or completes this future with the fallback
+		 * result if the server is null. If this future was canceled in
+		 * the meantime, the request is not made.
+		 *
+		 * @param server The ready server, or null.
+		 */
+		void dispatch(@Nullable S server) {
+
+			if (server == null) {
+				complete(fallback);
+			} else {
+				make(() -> request.apply(server));
+			}
+
+		}
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.DeferredRequest#dequeue()
+		 */
+		@Override
+		void dequeue() {
+
+			synchronized (ParkedRequestQueue.this) {
+				parkedRequests.remove(this);
+			}
+
+		}
+
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.Map;
+import java.util.concurrent.*;
+
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.*;
+
+/**
+ * Watcher cancelling pending ALS requests as soon as the progress
+ * indicators of the operations that made them are canceled.
+ *
+ * Canceling the LSP4J future of a request makes LSP4J send a
+ * `$/cancelRequest` notification to the server, so the server can
+ * stop working on requests whose results are no longer needed, and
+ * no thread has to wait for a request to check for cancellation.
+ *
+ * Watched requests are checked by a single task, scheduled on the
+ * application's scheduled executor only while requests are watched.
+ */
+final class ProgressCancellationWatcher {
+
+	/**
+	 * Watched request futures, mapped to the progress indicators
+	 * of the operations that made the corresponding requests.
+	 */
+	private static final Map<CompletableFuture<?>, ProgressIndicator> WATCHED_REQUESTS =
+		new ConcurrentHashMap<>();
+
+	/**
+	 * The scheduled task checking the watched requests, or null if
+	 * no requests are currently watched.
+	 */
+	@Nullable
+	private static ScheduledFuture<?> checkTask = null;
+
+	/**
+	 * Private default constructor to prevent instantiation.
+	 */
+	private ProgressCancellationWatcher() {}
+
+	/**
+	 * Cancels the given request future as soon as the given progress
+	 * indicator is canceled, unless the future is already completed.
+	 *
+	 * @param requestFuture The request future to cancel.
+	 * @param indicator The progress indicator to watch.
+	 */
+	static synchronized void watch(
+		@NotNull CompletableFuture<?> requestFuture,
+		@NotNull ProgressIndicator    indicator
+	) {
+
+		if (requestFuture.isDone()) { return; }
+
+		if (indicator.isCanceled()) {
+			requestFuture.cancel(true);
+			return;
+		}
+
+		WATCHED_REQUESTS.put(requestFuture, indicator);
+
+		requestFuture.whenComplete((result, throwable) -> WATCHED_REQUESTS.remove(requestFuture));
+
+		// Start checking watched requests if no
+		// requests were previously watched
+
+		if (checkTask == null) {
+			checkTask = AppExecutorUtil.getAppScheduledExecutorService().scheduleWithFixedDelay(
+				ProgressCancellationWatcher::checkWatchedRequests,
+				AdaLSPDriver.CHECK_CANCELED_INTERVAL,
+				AdaLSPDriver.CHECK_CANCELED_INTERVAL,
+				TimeUnit.MILLISECONDS
+			);
+		}
+
+	}
+
+	/**
+	 * Cancels the watched requests whose progress indicators are
+	 * canceled, and stops checking requests if none are watched
+	 * anymore.
+	 */
+	private static synchronized void checkWatchedRequests() {
+
+		WATCHED_REQUESTS.forEach((requestFuture, indicator) -> {
+			if (indicator.isCanceled()) {
+				requestFuture.cancel(true);
+			}
+		});
+
+		if (WATCHED_REQUESTS.isEmpty() && checkTask != null) {
+			checkTask.cancel(false);
+			checkTask = null;
+		}
+
+	}
+
+}
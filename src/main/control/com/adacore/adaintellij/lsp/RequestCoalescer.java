@@ -0,0 +1,324 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.*;
+
+import org.jetbrains.annotations.*;
+
+/**
+ * Coalescer of identical in-flight ALS requests.
+ *
+ * Requests with the same method and parameters, made on the same
+ * version of a document, share a single in-flight request to the
+ * server: each caller gets its own future completing with the shared
+ * result, so that different IDE features asking for the same data at
+ * the same time (e.g. highlighting, navigation and find-usages asking
+ * for the same definition) do not queue up duplicate requests on the
+ * server.
+ *
+ * Canceling the future of a caller only detaches that caller from the
+ * shared request, which is itself canceled once all of its callers
+ * are detached.
+ * As results are shared between callers, they must not be modified.
+ */
+final class RequestCoalescer {
+
+	/**
+	 * In-flight shared requests, mapped to their keys.
+	 */
+	private final Map<RequestKey, SharedRequest<?>> inFlightRequests = new HashMap<>();
+
+	/**
+	 * Returns a future completing with the result of the in-flight
+	 * request with the given key, making that request using the given
+	 * supplier if there is no such request, or passing the future of
+	 * that request to the given join handler otherwise.
+	 *
+	 * The shared request is registered while holding the lock of this
+	 * coalescer, but the request itself is made outside of it, so that
+	 * requests with other keys are not held up while it is being made.
+	 * The join handler of a caller joining the request while it is
+	 * being made is called once it is made.
+	 *
+	 * @param key The key identifying the request.
+	 * @param requestSupplier A supplier making the request.
+	 * @param joinHandler A handler called with the future of the
+	 *                    in-flight request when joining it.
+	 * @param <T> The type of the request's response result.
+	 * @return A future completing with the result of the request.
+	 */
+	@NotNull
+	<T> CompletableFuture<T> request(
+		@NotNull RequestKey                     key,
+		@NotNull Supplier<CompletableFuture<T>> requestSupplier,
+		@NotNull Consumer<CompletableFuture<T>> joinHandler
+	) {
+
+		SharedRequest<T>     sharedRequest;
+		CompletableFuture<T> subscriberFuture;
+		boolean              joined;
+
+		synchronized (this) {
+
+			@SuppressWarnings("unchecked")
+			SharedRequest<T> inFlightRequest = (SharedRequest<T>)inFlightRequests.get(key);
+
+			// A completed request may not have been removed yet, as
+			// its callers are notified before it is removed
+
+			joined = inFlightRequest != null && !inFlightRequest.future.isDone();
+
+			// If no identical request is in flight, then register a
+			// new shared request and remove it from in-flight requests
+			// once it is complete
+
+			if (!joined) {
+
+				SharedRequest<T> newRequest = new SharedRequest<>(key);
+
+				inFlightRequests.put(key, newRequest);
+
+				newRequest.future.whenComplete((result, throwable) -> remove(newRequest));
+
+				inFlightRequest = newRequest;
+
+			}
+
+			sharedRequest    = inFlightRequest;
+			subscriberFuture = sharedRequest.subscribe();
+
+		}
+
+		if (joined) {
+			sharedRequest.request.thenAccept(joinHandler);
+		} else {
+			sharedRequest.start(requestSupplier);
+		}
+
+		return subscriberFuture;
+
+	}
+
+	/**
+	 * Removes the given shared request from in-flight requests.
+	 *
+	 * @param sharedRequest The shared request to remove.
+	 */
+	private synchronized void remove(@NotNull SharedRequest<?> sharedRequest) {
+		inFlightRequests.remove(sharedRequest.key, sharedRequest);
+	}
+
+	/**
+	 * Detaches a caller from the given shared request, and cancels
+	 * that request if no callers are attached to it anymore.
+	 *
+	 * @param sharedRequest The shared request.
+	 */
+	private void unsubscribe(@NotNull SharedRequest<?> sharedRequest) {
+
+		synchronized (this) {
+
+			sharedRequest.subscriberCount--;
+
+			if (sharedRequest.subscriberCount > 0 || sharedRequest.future.isDone()) { return; }
+
+			remove(sharedRequest);
+
+		}
+
+		sharedRequest.future.cancel(true);
+
+	}
+
+	/**
+	 * Immutable key identifying an ALS request.
+	 */
+	static final class RequestKey {
+
+		/**
+		 * The name of the request's method.
+		 */
+		@NotNull
+		private final String method;
+
+		/**
+		 * The parameters of the request.
+		 */
+		@NotNull
+		private final Object params;
+
+		/**
+		 * The modification stamp of the document referenced by the
+		 * request at the time the request was made.
+		 */
+		private final long documentStamp;
+
+		/**
+		 * Constructs a new RequestKey given a method, parameters and a
+		 * document modification stamp.
+		 *
+		 * @param method The name of the request's method.
+		 * @param params The parameters of the request.
+		 * @param documentStamp The modification stamp of the document
+		 *                      referenced by the request.
+		 */
+		RequestKey(@NotNull String method, @NotNull Object params, long documentStamp) {
+			this.method        = method;
+			this.params        = params;
+			this.documentStamp = documentStamp;
+		}
+
+		/**
+		 * @see java.lang.Object#equals(Object)
+		 */
+		@Override
+		public boolean equals(Object object) {
+
+			if (this == object) { return true; }
+
+			if (!(object instanceof RequestKey)) { return false; }
+
+			RequestKey key = (RequestKey)object;
+
+			return documentStamp == key.documentStamp &&
+				method.equals(key.method) &&
+				params.equals(key.params);
+
+		}
+
+		/**
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() { return Objects.hash(method, params, documentStamp); }
+
+	}
+
+	/**
+	 * An in-flight request shared by one or more callers.
+	 *
+	 * @param <T> The type of the request's response result.
+	 */
+	private final class SharedRequest<T> {
+
+		/**
+		 * The key identifying the request.
+		 */
+		@NotNull
+		final RequestKey key;
+
+		/**
+		 * A future completing with the result of the request, whose
+		 * cancellation cancels the request.
+		 */
+		@NotNull
+		final CompletableFuture<T> future = new CompletableFuture<>();
+
+		/**
+		 * A future completing with the future of the request once
+		 * the request is made.
+		 */
+		@NotNull
+		final CompletableFuture<CompletableFuture<T>> request = new CompletableFuture<>();
+
+		/**
+		 * The number of callers attached to the request.
+		 * Guarded by the enclosing coalescer.
+		 */
+		int subscriberCount = 0;
+
+		/**
+		 * Constructs a new SharedRequest given a key.
+		 *
+		 * @param key The key identifying the request.
+		 */
+		SharedRequest(@NotNull RequestKey key) { this.key = key; }
+
+		/**
+		 * Makes the request using the given supplier and links its
+		 * future to that of this shared request. If all callers
+		 * detached from this shared request in the meantime, then the
+		 * request is canceled right away.
+		 *
+		 * @param requestSupplier A supplier making the request.
+		 */
+		void start(@NotNull Supplier<CompletableFuture<T>> requestSupplier) {
+
+			CompletableFuture<T> requestFuture;
+
+			try {
+				requestFuture = requestSupplier.get();
+			} catch (RuntimeException exception) {
+				future.completeExceptionally(exception);
+				request.completeExceptionally(exception);
+				throw exception;
+			}
+
+			requestFuture.whenComplete((result, throwable) -> {
+
+				if (throwable != null) {
+					future.completeExceptionally(throwable);
+				} else {
+					future.complete(result);
+				}
+
+			});
+
+			future.whenComplete((result, throwable) -> {
+				if (future.isCancelled()) { requestFuture.cancel(true); }
+			});
+
+			request.complete(requestFuture);
+
+		}
+
+		/**
+		 * Attaches a new caller to this request and returns a future
+		 * completing with the result of this request, whose
+		 * cancellation detaches that caller.
+		 *
+		 * @return A future completing with the result of this request.
+		 */
+		@NotNull
+		CompletableFuture<T> subscribe() {
+
+			subscriberCount++;
+
+			CompletableFuture<T> subscriberFuture = new CompletableFuture<T>() {
+
+				/**
+				 * @see java.util.concurrent.CompletableFuture#cancel(boolean)
+				 */
+				@Override
+				public boolean cancel(boolean mayInterruptIfRunning) {
+
+					boolean canceled = super.cancel(mayInterruptIfRunning);
+
+					if (canceled) {
+						unsubscribe(SharedRequest.this);
+					}
+
+					return canceled;
+
+				}
+
+			};
+
+			future.whenComplete((result, throwable) -> {
+
+				if (throwable != null) {
+					subscriberFuture.completeExceptionally(throwable);
+				} else {
+					subscriberFuture.complete(result);
+				}
+
+			});
+
+			return subscriberFuture;
+
+		}
+
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.*;
+
+import org.jetbrains.annotations.*;
+
+/**
+ * Utilities transforming the futures of ALS requests, independently
+ * of the server making them.
+ */
+final class RequestFutures {
+
+	/**
+	 * Private default constructor to prevent instantiation.
+	 */
+	private RequestFutures() {}
+
+	/**
+	 * Returns a future that completes with the result of the given future
+	 * transformed by the given function, and whose cancellation cancels the
+	 * given future.
+	 *
+	 * @param future The future whose result to transform.
+	 * @param transformer The function transforming the result.
+	 * @param <T> The type of the result of the given future.
+	 * @param <R> The type of the transformed result.
+	 * @return A future completing with the transformed result.
+	 */
+	@NotNull
+	static <T, R> CompletableFuture<R> transformResult(
+		@NotNull CompletableFuture<T> future,
+		@NotNull Function<T, R>       transformer
+	) {
+
+		CompletableFuture<R> transformedFuture = new CompletableFuture<R>() {
+
+			/**
+			 * @see java.util.concurrent.CompletableFuture#cancel(boolean)
+			 */
+			@Override
+			public boolean cancel(boolean mayInterruptIfRunning) {
+				future.cancel(mayInterruptIfRunning);
+				return super.cancel(mayInterruptIfRunning);
+			}
+
+		};
+
+		future.whenComplete((result, throwable) -> {
+
+			if (throwable != null) {
+				transformedFuture.completeExceptionally(throwable);
+				return;
+			}
+
+			try {
+				transformedFuture.complete(transformer.apply(result));
+			} catch (Exception exception) {
+				transformedFuture.completeExceptionally(exception);
+			}
+
+		});
+
+		return transformedFuture;
+
+	}
+
+	/**
+	 * Returns a future completing with the result of the given request
+	 * future if the document referenced by the request is still at the
+	 * version on which the request was made when the response arrives,
+	 * or with null otherwise, in which case the positions in the result
+	 * no longer match those of the document.
+	 *
+	 * @param future The request future.
+	 * @param isCurrent A supplier telling whether or not the version of
+	 *                  the document on which the request was made is
+	 *                  still current.
+	 * @param discardHandler A handler called when a stale result is
+	 *                       discarded.
+	 * @param <T> The type of the request's response result.
+	 * @return A future completing with the result of the request, or with
+	 *         null if it is stale.
+	 */
+	@NotNull
+	static <T> CompletableFuture<T> discardStaleResult(
+		@NotNull CompletableFuture<T> future,
+		@NotNull BooleanSupplier      isCurrent,
+		@NotNull Runnable             discardHandler
+	) {
+		return transformResult(future, result -> {
+
+			if (result == null || isCurrent.getAsBoolean()) { return result; }
+
+			discardHandler.run();
+
+			return null;
+
+		});
+	}
+
+}
@@ -0,0 +1,23 @@
+package com.adacore.adaintellij.lsp;
+
+/**
+ * Priority classes of ALS requests, from highest to lowest priority.
+ * Queued requests are sent to the ALS in priority order, and in
+ * order of arrival within the same priority class.
+ *
+ * INTERACTIVE    => Requests made by operations explicitly invoked by
+ *                   the user and waited for (e.g. code completion,
+ *                   navigation, find-usages).
+ * VISIBLE_EDITOR => Requests made to compute information displayed
+ *                   in open editors without being explicitly asked
+ *                   for (e.g. highlighting).
+ * BACKGROUND     => Requests whose results are not immediately needed
+ *                   (e.g. PSI structure patches).
+ *
+ * @see RequestScheduler
+ */
+public enum RequestPriority {
+
+	INTERACTIVE, VISIBLE_EDITOR, BACKGROUND
+
+}
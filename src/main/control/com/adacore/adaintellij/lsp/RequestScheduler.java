@@ -0,0 +1,294 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import com.intellij.openapi.editor.Document;
+import org.jetbrains.annotations.*;
+
+/**
+ * Scheduler of ALS document requests.
+ *
+ * The ALS processes requests one at a time, in the order in which it
+ * receives them, so sending every request as soon as it is made lets
+ * background requests delay interactive ones. Instead, this scheduler
+ * only lets a few requests be in flight at a time, and queues the
+ * others until one of those is answered, sending queued requests in
+ * order of priority.
+ *
+ * Queued requests made on a version of a document that has since been
+ * superseded are dropped, completing with null, without ever being
+ * sent to the server.
+ *
+ * @see RequestPriority
+ */
+final class RequestScheduler {
+
+	/**
+	 * The maximum number of requests in flight at a time. Keeping more
+	 * than one request in flight lets the server start working on the
+	 * next request as soon as it answers one.
+	 */
+	static final int MAX_DISPATCHED_REQUESTS = 2;
+
+	/**
+	 * Queued requests, in dispatch order.
+	 */
+	private final PriorityQueue<ScheduledRequest<?>> queuedRequests = new PriorityQueue<>(
+		Comparator.<ScheduledRequest<?>, RequestPriority>comparing(request -> request.priority)
+			.thenComparingLong(request -> request.sequenceNumber)
+	);
+
+	/**
+	 * The number of requests currently in flight.
+	 */
+	private int dispatchedCount = 0;
+
+	/**
+	 * The sequence number of the last scheduled request.
+	 */
+	private long lastSequenceNumber = 0;
+
+	/**
+	 * Schedules a request that is made using the given supplier once it
+	 * is dispatched, and returns a future completing with its result.
+	 * Canceling the returned future removes the request from the queue
+	 * if it was not dispatched yet, or cancels it otherwise.
+	 *
+	 * @param priority The priority of the request.
+	 * @param document The document referenced by the request, or null
+	 *                 if the request does not reference a document.
+	 * @param documentStamp The modification stamp of the document at
+	 *                      the time the request was made.
+	 * @param requestSupplier A supplier making the request.
+	 * @param <T> The type of the request's response result.
+	 * @return A future completing with the result of the request.
+	 */
+	@NotNull
+	<T> CompletableFuture<T> schedule(
+		@NotNull  RequestPriority                priority,
+		@Nullable Document                       document,
+		          long                           documentStamp,
+		@NotNull  Supplier<CompletableFuture<T>> requestSupplier
+	) {
+
+		ScheduledRequest<T> request;
+
+		synchronized (this) {
+
+			request = new ScheduledRequest<>(
+				priority, ++lastSequenceNumber, document, documentStamp, requestSupplier);
+
+			queuedRequests.add(request);
+
+		}
+
+		dispatchRequests();
+
+		return request;
+
+	}
+
+	/**
+	 * Raises the priority of the given request future to the given
+	 * priority if it is a queued request scheduled by this scheduler
+	 * with a lower priority.
+	 *
+	 * @param future The request future.
+	 * @param priority The priority to raise the request to.
+	 */
+	synchronized void promote(@NotNull CompletableFuture<?> future, @NotNull RequestPriority priority) {
+
+		if (!(future instanceof ScheduledRequest)) { return; }
+
+		ScheduledRequest<?> request = (ScheduledRequest<?>)future;
+
+		if (request.priority.compareTo(priority) <= 0 || !queuedRequests.remove(request)) { return; }
+
+		request.priority = priority;
+
+		queuedRequests.add(request);
+
+	}
+
+	/**
+	 * Drops the queued requests made on a version of the given document
+	 * other than its current one.
+	 *
+	 * @param document The changed document.
+	 */
+	void dropStaleRequests(@NotNull Document document) {
+
+		List<ScheduledRequest<?>> staleRequests = new ArrayList<>();
+
+		synchronized (this) {
+
+			long documentStamp = document.getModificationStamp();
+
+			queuedRequests.removeIf(request -> {
+
+				boolean stale = request.document == document && request.documentStamp != documentStamp;
+
+				if (stale) {
+					staleRequests.add(request);
+				}
+
+				return stale;
+
+			});
+
+		}
+
+		staleRequests.forEach(request -> request.complete(null));
+
+	}
+
+	/**
+	 * Returns the number of queued requests.
+	 *
+	 * @return The number of queued requests.
+	 */
+	synchronized int queuedRequestCount() { return queuedRequests.size(); }
+
+	/**
+	 * Returns the number of requests currently in flight.
+	 *
+	 * @return The number of requests in flight.
+	 */
+	synchronized int dispatchedRequestCount() { return dispatchedCount; }
+
+	/**
+	 * Dispatches queued requests as long as fewer than the maximum
+	 * number of requests are in flight.
+	 * Requests are made outside of the lock of this scheduler, as
+	 * making a request writes to the server's input stream.
+	 */
+	private void dispatchRequests() {
+
+		while (true) {
+
+			ScheduledRequest<?> request;
+
+			synchronized (this) {
+
+				if (dispatchedCount >= MAX_DISPATCHED_REQUESTS) { return; }
+
+				request = queuedRequests.poll();
+
+				if (request == null) { return; }
+
+				dispatchedCount++;
+
+			}
+
+			request.dispatch();
+
+		}
+
+	}
+
+	/**
+	 * Marks an in-flight request as answered and dispatches the
+	 * next queued requests.
+	 */
+	private void requestCompleted() {
+
+		synchronized (this) {
+			dispatchedCount--;
+		}
+
+		dispatchRequests();
+
+	}
+
+	/**
+	 * A request scheduled by this scheduler, and the future completing
+	 * with its result.
+	 *
+	 * @param <T> The type of the request's response result.
+	 */
+	private final class ScheduledRequest<T> extends DeferredRequest<T> {
+
+		/**
+		 * The priority of the request.
+		 * Guarded by the enclosing scheduler.
+		 */
+		@NotNull
+		RequestPriority priority;
+
+		/**
+		 * The sequence number of the request, ordering requests with
+		 * the same priority.
+		 */
+		final long sequenceNumber;
+
+		/**
+		 * The document referenced by the request, and its modification
+		 * stamp at the time the request was made.
+		 */
+		@Nullable
+		final Document document;
+		final long     documentStamp;
+
+		/**
+		 * The supplier making the request.
+		 */
+		@NotNull
+		private final Supplier<CompletableFuture<T>> requestSupplier;
+
+		/**
+		 * Constructs a new ScheduledRequest.
+		 *
+		 * @param priority The priority of the request.
+		 * @param sequenceNumber The sequence number of the request.
+		 * @param document The document referenced by the request.
+		 * @param documentStamp The modification stamp of the document.
+		 * @param requestSupplier The supplier making the request.
+		 */
+		ScheduledRequest(
+			@NotNull  RequestPriority                priority,
+			          long                           sequenceNumber,
+			@Nullable Document                       document,
+			          long                           documentStamp,
+			@NotNull  Supplier<CompletableFuture<T>> requestSupplier
+		) {
+			this.priority        = priority;
+			this.sequenceNumber  = sequenceNumber;
+			this.document        = document;
+			this.documentStamp   = documentStamp;
+			this.requestSupplier = requestSupplier;
+		}
+
+		/**
+		 * Makes the request, releasing its slot among requests in
+		 * flight once it is complete, or right away if it was
+		 * canceled in the meantime.
+		 */
+		void dispatch() {
+
+			CompletableFuture<T> future = make(requestSupplier);
+
+			if (future == null) {
+				requestCompleted();
+			} else {
+				future.whenComplete((result, throwable) -> requestCompleted());
+			}
+
+		}
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.DeferredRequest#dequeue()
+		 */
+		@Override
+		void dequeue() {
+
+			synchronized (RequestScheduler.this) {
+				queuedRequests.remove(this);
+			}
+
+		}
+
+	}
+
+}
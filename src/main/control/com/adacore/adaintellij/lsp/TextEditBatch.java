@@ -0,0 +1,174 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.*;
+
+import org.jetbrains.annotations.NotNull;
+
+import org.eclipse.lsp4j.TextEdit;
+
+/**
+ * Batch of LSP text edits of a single document, resolved to offsets of
+ * the text to which they apply and sorted back to front, so that they
+ * can be applied one after the other without remapping offsets.
+ *
+ * As specified by the LSP, all edits of a batch refer to the text before
+ * any of them is applied, must not overlap, and edits inserting text at
+ * the same offset are applied in the order in which they are given.
+ * Edits whose ranges only touch, e.g. an insertion at the start or at
+ * the end of a replaced range, do not overlap.
+ */
+public final class TextEditBatch {
+
+	/**
+	 * A text edit resolved to offsets, replacing a range of the text by
+	 * some new text.
+	 */
+	public static final class Replacement {
+
+		/**
+		 * The start and end offsets of the replaced range.
+		 */
+		public final int startOffset;
+		public final int endOffset;
+
+		/**
+		 * The replacing text.
+		 */
+		@NotNull
+		public final String newText;
+
+		/**
+		 * The position of the original edit in the batch.
+		 */
+		private final int index;
+
+		/**
+		 * Constructs a new Replacement.
+		 *
+		 * @param startOffset The start offset of the replaced range.
+		 * @param endOffset The end offset of the replaced range.
+		 * @param newText The replacing text.
+		 * @param index The position of the original edit in the batch.
+		 */
+		private Replacement(int startOffset, int endOffset, @NotNull String newText, int index) {
+			this.startOffset = startOffset;
+			this.endOffset   = endOffset;
+			this.newText     = newText;
+			this.index       = index;
+		}
+
+	}
+
+	/**
+	 * Orders replacements back to front. Of the replacements starting
+	 * at the same offset, insertions are placed before the replacement
+	 * of a range, whatever the order of their original edits, since
+	 * their ranges only touch, and insertions are otherwise placed in
+	 * the order of their original edits.
+	 */
+	private static final Comparator<Replacement> BACK_TO_FRONT =
+		Comparator.<Replacement>comparingInt(replacement -> replacement.startOffset)
+			.thenComparingInt(replacement -> replacement.endOffset)
+			.thenComparingInt(replacement -> replacement.index)
+			.reversed();
+
+	/**
+	 * The replacements of the batch, sorted back to front.
+	 */
+	@NotNull
+	private final List<Replacement> replacements;
+
+	/**
+	 * Constructs a new TextEditBatch given a text and edits of that text.
+	 *
+	 * @param text The text to which the edits apply.
+	 * @param edits The edits.
+	 * @throws IllegalArgumentException If edits overlap.
+	 */
+	public TextEditBatch(@NotNull CharSequence text, @NotNull List<TextEdit> edits) {
+
+		LineStartTable lineStarts = new LineStartTable(text);
+
+		List<Replacement> sortedReplacements = new ArrayList<>(edits.size());
+
+		for (int index = 0 ; index < edits.size() ; index++) {
+
+			TextEdit edit = edits.get(index);
+
+			int startOffset = lineStarts.offsetOf(edit.getRange().getStart());
+			int endOffset   = lineStarts.offsetOf(edit.getRange().getEnd());
+
+			sortedReplacements.add(new Replacement(
+				startOffset, Math.max(startOffset, endOffset), edit.getNewText(), index));
+
+		}
+
+		sortedReplacements.sort(BACK_TO_FRONT);
+
+		// Check that every replacement ends before the start of the
+		// one following it in the text
+
+		for (int index = 1 ; index < sortedReplacements.size() ; index++) {
+
+			Replacement replacement = sortedReplacements.get(index);
+			Replacement following   = sortedReplacements.get(index - 1);
+
+			if (replacement.endOffset > following.startOffset) {
+				throw new IllegalArgumentException("Overlapping text edits at offsets " +
+					replacement.startOffset + " and " + following.startOffset);
+			}
+
+		}
+
+		replacements = Collections.unmodifiableList(sortedReplacements);
+
+	}
+
+	/**
+	 * Returns the replacements of this batch, sorted back to front.
+	 *
+	 * @return The replacements.
+	 */
+	@NotNull
+	public List<Replacement> getReplacements() { return replacements; }
+
+	/**
+	 * Applies the replacements of this batch to the given text, which
+	 * must be the text from which this batch was constructed.
+	 *
+	 * @param text The text to edit.
+	 */
+	public void applyTo(@NotNull StringBuilder text) {
+		replacements.forEach(replacement ->
+			text.replace(replacement.startOffset, replacement.endOffset, replacement.newText));
+	}
+
+	/**
+	 * Returns the offset in the edited text corresponding to the given
+	 * offset of the text before the edits. Offsets within a replaced
+	 * range map to the start of its replacing text, and text inserted
+	 * at an offset is placed before that offset.
+	 *
+	 * @param offset The offset in the text before the edits.
+	 * @return The corresponding offset in the edited text.
+	 */
+	public int mapOffset(int offset) {
+
+		int mappedOffset = offset;
+		int delta        = 0;
+
+		for (Replacement replacement : replacements) {
+
+			if (replacement.endOffset <= offset) {
+				delta += replacement.newText.length() - (replacement.endOffset - replacement.startOffset);
+			} else if (replacement.startOffset <= offset) {
+				mappedOffset = replacement.startOffset;
+			}
+
+		}
+
+		return mappedOffset + delta;
+
+	}
+
+}
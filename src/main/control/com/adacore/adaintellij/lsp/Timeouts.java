@@ -28,6 +28,7 @@ public final class Timeouts {
 		methodTimeouts.put("textDocument/completion", 8_000);
 		methodTimeouts.put("textDocument/definition", 4_000);
 		methodTimeouts.put("textDocument/references", 8_000);
+		methodTimeouts.put(AdaLSPSupervisor.PROBE_METHOD, 30_000);
 
 		METHOD_TIMEOUTS = Collections.unmodifiableMap(methodTimeouts);
 
@@ -0,0 +1,60 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.*;
+
+import org.jetbrains.annotations.*;
+
+import org.eclipse.lsp4j.Diagnostic;
+
+/**
+ * Immutable data class representing the diagnostics published by
+ * the ALS for a document, along with the version of the document
+ * to which they apply.
+ *
+ * The version of a document is the last LSP version of that document
+ * sent to the ALS when the diagnostics were received, so diagnostics
+ * become out of date as soon as a new version of the document is sent
+ * or changes of the document are pending.
+ * @see AdaLSPServer#isCurrentVersion(String, int)
+ */
+public final class VersionedDiagnostics {
+
+	/**
+	 * The published diagnostics.
+	 */
+	public final List<Diagnostic> diagnostics;
+
+	/**
+	 * The LSP version of the document last sent to the server
+	 * when the diagnostics were received.
+	 */
+	public final int documentVersion;
+
+	/**
+	 * Constructs a new VersionedDiagnostics given a list of
+	 * diagnostics and the LSP version of their document.
+	 *
+	 * @param diagnostics The published diagnostics.
+	 * @param documentVersion The LSP version of the document last
+	 *                        sent to the server when the diagnostics
+	 *                        were received.
+	 */
+	VersionedDiagnostics(@NotNull List<Diagnostic> diagnostics, int documentVersion) {
+		this.diagnostics     = Collections.unmodifiableList(new ArrayList<>(diagnostics));
+		this.documentVersion = documentVersion;
+	}
+
+	/**
+	 * Returns whether or not these diagnostics are the same as the
+	 * given ones, for the same document version.
+	 *
+	 * @param other The diagnostics to compare, or null.
+	 * @return Whether or not both diagnostics are the same.
+	 */
+	boolean sameAs(@Nullable VersionedDiagnostics other) {
+		return other != null &&
+			documentVersion == other.documentVersion &&
+			diagnostics.equals(other.diagnostics);
+	}
+
+}
@@ -0,0 +1,363 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.*;
+
+/**
+ * Bounded set of documents kept open on the ALS while they are not open
+ * in an editor, identified by their URIs.
+ *
+ * Opening a document sends its full text to the server and makes it
+ * analyze the corresponding unit, so opening and closing a document
+ * around every request made on it (e.g. during find-usages over many
+ * files) makes the server analyze the same units over and over.
+ * Instead, documents opened for requests are kept "warm" once those
+ * requests are answered, so that subsequent requests on them reuse the
+ * state of the server.
+ *
+ * Documents are closed once they have been idle, i.e. used by no
+ * request, for some time, or once the set grows beyond its capacity,
+ * in which case the least recently used idle documents are closed
+ * first. Documents used by in-flight requests are never closed.
+ *
+ * A document opened in an editor while in use by requests stays in
+ * this set, without counting as warm, until those requests complete,
+ * so that its use count survives the editor being closed again.
+ */
+final class WarmDocumentSet {
+
+	/**
+	 * The maximum number of idle documents kept open.
+	 */
+	static final int MAX_WARM_DOCUMENTS = 32;
+
+	/**
+	 * The time, in milliseconds, after which idle documents are closed.
+	 */
+	static final long WARM_DOCUMENT_IDLE_TIMEOUT = 120000;
+
+	/**
+	 * The interval, in milliseconds, at which idle documents are checked.
+	 */
+	static final long IDLE_CHECK_INTERVAL = 10000;
+
+	/**
+	 * Open documents, in order from least to most recently used, mapped
+	 * to their URIs.
+	 */
+	private final LinkedHashMap<String, WarmDocument> documents =
+		new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * The number of documents in this set that are open in an editor.
+	 */
+	private int inEditorCount = 0;
+
+	/**
+	 * Consumers opening and closing the document with a given URI on
+	 * the server.
+	 */
+	@NotNull
+	private final Consumer<String> opener;
+	@NotNull
+	private final Consumer<String> closer;
+
+	/**
+	 * The executor periodically closing idle documents.
+	 */
+	@NotNull
+	private final ScheduledExecutorService executor;
+
+	/**
+	 * The clock giving the current time, in milliseconds.
+	 */
+	@NotNull
+	private final LongSupplier clock;
+
+	/**
+	 * The task periodically closing idle documents, or null if the set
+	 * is empty.
+	 */
+	@Nullable
+	private ScheduledFuture<?> idleCheckTask = null;
+
+	/**
+	 * Constructs a new WarmDocumentSet given consumers opening and closing
+	 * documents on the server. Consumers are called while holding the lock
+	 * of this set, so that notifications for a given document are sent in
+	 * order.
+	 *
+	 * @param opener The consumer opening the document with a given URI.
+	 * @param closer The consumer closing the document with a given URI.
+	 */
+	WarmDocumentSet(@NotNull Consumer<String> opener, @NotNull Consumer<String> closer) {
+		this(opener, closer, AppExecutorUtil.getAppScheduledExecutorService(), System::currentTimeMillis);
+	}
+
+	/**
+	 * Constructs a new WarmDocumentSet given consumers opening and closing
+	 * documents on the server, the executor periodically closing idle
+	 * documents and the clock measuring idle times.
+	 *
+	 * @param opener The consumer opening the document with a given URI.
+	 * @param closer The consumer closing the document with a given URI.
+	 * @param executor The executor periodically closing idle documents.
+	 * @param clock The clock giving the current time, in milliseconds.
+	 */
+	WarmDocumentSet(
+		@NotNull Consumer<String>         opener,
+		@NotNull Consumer<String>         closer,
+		@NotNull ScheduledExecutorService executor,
+		@NotNull LongSupplier             clock
+	) {
+		this.opener   = opener;
+		this.closer   = closer;
+		this.executor = executor;
+		this.clock    = clock;
+	}
+
+	/**
+	 * Marks the document with the given URI as used by a request,
+	 * opening it first if it is not open yet.
+	 * Every call must be followed by a call to `release` once the
+	 * request is complete.
+	 *
+	 * @param documentUri The URI of the document.
+	 */
+	synchronized void acquire(@NotNull String documentUri) {
+
+		WarmDocument document = documents.get(documentUri);
+
+		if (document == null) {
+
+			opener.accept(documentUri);
+
+			document = new WarmDocument();
+
+			documents.put(documentUri, document);
+
+			startIdleCheck();
+
+		}
+
+		document.useCount++;
+
+	}
+
+	/**
+	 * Marks the document with the given URI as no longer used by a
+	 * request, and closes the least recently used idle documents if
+	 * the set exceeds its capacity. A document open in an editor is
+	 * removed from this set, without being closed, once no longer used.
+	 *
+	 * @param documentUri The URI of the document.
+	 */
+	synchronized void release(@NotNull String documentUri) {
+
+		WarmDocument document = documents.get(documentUri);
+
+		if (document == null) { return; }
+
+		document.useCount--;
+		document.lastUseTime = clock.getAsLong();
+
+		if (document.inEditor && document.useCount == 0) {
+			documents.remove(documentUri);
+			inEditorCount--;
+		}
+
+		closeExcessDocuments();
+
+	}
+
+	/**
+	 * Adds the document with the given URI, which must already be open
+	 * on the server, to this set as an idle document, e.g. when the
+	 * editor of that document is closed.
+	 *
+	 * @param documentUri The URI of the document.
+	 */
+	synchronized void add(@NotNull String documentUri) {
+
+		// Keep the use count of a document still used by requests
+		// made before it was opened in an editor
+
+		WarmDocument document = documents.get(documentUri);
+
+		if (document == null) {
+			document = new WarmDocument();
+			documents.put(documentUri, document);
+		} else if (document.inEditor) {
+			document.inEditor = false;
+			inEditorCount--;
+		}
+
+		document.lastUseTime = clock.getAsLong();
+
+		startIdleCheck();
+
+		closeExcessDocuments();
+
+	}
+
+	/**
+	 * Removes the document with the given URI from this set without
+	 * closing it, e.g. when an editor is opened for that document.
+	 * If the document is still used by requests, it is kept in this
+	 * set, as open in an editor, until those requests complete.
+	 *
+	 * @param documentUri The URI of the document.
+	 * @return Whether or not the document was in this set, and is
+	 *         therefore already open on the server.
+	 */
+	synchronized boolean remove(@NotNull String documentUri) {
+
+		WarmDocument document = documents.get(documentUri);
+
+		if (document == null) { return false; }
+
+		if (document.useCount == 0) {
+			documents.remove(documentUri);
+		} else if (!document.inEditor) {
+			document.inEditor = true;
+			inEditorCount++;
+		}
+
+		return true;
+
+	}
+
+	/**
+	 * Removes all documents from this set without closing them, e.g.
+	 * when the server is shut down.
+	 */
+	synchronized void clear() {
+
+		documents.clear();
+
+		inEditorCount = 0;
+
+		stopIdleCheck();
+
+	}
+
+	/**
+	 * Returns the number of warm documents in this set, i.e. of
+	 * documents in this set that are not open in an editor.
+	 *
+	 * @return The number of warm documents.
+	 */
+	synchronized int size() { return documents.size() - inEditorCount; }
+
+	/**
+	 * Closes the least recently used idle documents as long as more
+	 * than the maximum number of warm documents are open.
+	 */
+	private void closeExcessDocuments() {
+
+		Iterator<Map.Entry<String, WarmDocument>> iterator = documents.entrySet().iterator();
+
+		while (size() > MAX_WARM_DOCUMENTS && iterator.hasNext()) {
+
+			Map.Entry<String, WarmDocument> entry = iterator.next();
+
+			if (entry.getValue().useCount > 0) { continue; }
+
+			iterator.remove();
+
+			closer.accept(entry.getKey());
+
+		}
+
+	}
+
+	/**
+	 * Closes the documents that have been idle for longer than the
+	 * idle timeout, and stops checking documents if none are open
+	 * anymore.
+	 */
+	private synchronized void closeIdleDocuments() {
+
+		long now = clock.getAsLong();
+
+		Iterator<Map.Entry<String, WarmDocument>> iterator = documents.entrySet().iterator();
+
+		while (iterator.hasNext()) {
+
+			Map.Entry<String, WarmDocument> entry = iterator.next();
+			WarmDocument                    document = entry.getValue();
+
+			if (document.useCount > 0 || now - document.lastUseTime < WARM_DOCUMENT_IDLE_TIMEOUT) {
+				continue;
+			}
+
+			iterator.remove();
+
+			closer.accept(entry.getKey());
+
+		}
+
+		if (documents.isEmpty()) {
+			stopIdleCheck();
+		}
+
+	}
+
+	/**
+	 * Starts periodically closing idle documents, if not already started.
+	 */
+	private void startIdleCheck() {
+
+		if (idleCheckTask != null) { return; }
+
+		idleCheckTask = executor.scheduleWithFixedDelay(
+			this::closeIdleDocuments,
+			IDLE_CHECK_INTERVAL,
+			IDLE_CHECK_INTERVAL,
+			TimeUnit.MILLISECONDS
+		);
+
+	}
+
+	/**
+	 * Stops periodically closing idle documents.
+	 */
+	private void stopIdleCheck() {
+
+		if (idleCheckTask == null) { return; }
+
+		idleCheckTask.cancel(false);
+		idleCheckTask = null;
+
+	}
+
+	/**
+	 * A document kept open on the server.
+	 * Guarded by the enclosing set.
+	 */
+	private static final class WarmDocument {
+
+		/**
+		 * The number of in-flight requests using the document.
+		 */
+		int useCount = 0;
+
+		/**
+		 * The time, in milliseconds, at which the document was last
+		 * released by a request.
+		 */
+		long lastUseTime = 0;
+
+		/**
+		 * Whether or not the document was opened in an editor while
+		 * used by requests.
+		 */
+		boolean inEditor = false;
+
+	}
+
+}
@@ -0,0 +1,227 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.stream.Collectors;
+
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.vfs.*;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.util.DocumentUtil;
+import org.jetbrains.annotations.*;
+
+import org.eclipse.lsp4j.*;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+
+import static com.adacore.adaintellij.Utils.*;
+
+/**
+ * Applier of LSP workspace edits, as returned by `textDocument/rename`
+ * requests or sent in `workspace/applyEdit` requests.
+ *
+ * All edits of a document are applied in a single bulk update, back to
+ * front, and every document is committed once, after its update. Edits
+ * are checked before any document is modified, so either all edits of
+ * a workspace edit are applied, or none is.
+ */
+public final class WorkspaceEditApplier {
+
+	/**
+	 * Class-wide logger for the WorkspaceEditApplier class.
+	 */
+	private static final Logger LOGGER = Logger.getInstance(WorkspaceEditApplier.class);
+
+	/**
+	 * Private default constructor to prevent instantiation.
+	 */
+	private WorkspaceEditApplier() {}
+
+	/**
+	 * Applies the given workspace edit as a single undoable command with
+	 * the given name, after making the edited files writable.
+	 * Must be called from the event dispatch thread, outside of any
+	 * write action.
+	 *
+	 * @param project The project in which to apply the edit.
+	 * @param edit The workspace edit to apply.
+	 * @param commandName The name of the command, or null for the
+	 *                    default command name.
+	 * @return Whether or not the edit was applied.
+	 */
+	public static boolean applyInCommand(
+		@NotNull  Project       project,
+		@NotNull  WorkspaceEdit edit,
+		@Nullable String        commandName
+	) {
+
+		Map<VirtualFile, List<TextEdit>> fileEdits = fileEdits(edit);
+
+		if (fileEdits == null) { return false; }
+
+		// Ask for read-only files to be made writable
+
+		if (ReadonlyStatusHandler.getInstance(project)
+			.ensureFilesWritable(fileEdits.keySet()).hasReadonlyFiles())
+		{ return false; }
+
+		Ref<Boolean> applied = Ref.create(false);
+
+		WriteCommandAction.writeCommandAction(project)
+			.withName(commandName)
+			.run(() -> applied.set(apply(project, edit) != null));
+
+		return applied.get();
+
+	}
+
+	/**
+	 * Applies the given workspace edit and returns the applied text edit
+	 * batches, mapped to their documents, e.g. to map offsets of those
+	 * documents to their edited text.
+	 * Must be called in a write command.
+	 *
+	 * @param project The project in which to apply the edit.
+	 * @param edit The workspace edit to apply.
+	 * @return The applied text edit batches, or null if the edit could
+	 *         not be applied, in which case no document was modified.
+	 */
+	@Nullable
+	public static Map<Document, TextEditBatch> apply(@NotNull Project project, @NotNull WorkspaceEdit edit) {
+		return apply(project, edit, (document, textEdit) -> true);
+	}
+
+	/**
+	 * Applies the text edits of the given workspace edit accepted by the
+	 * given filter, e.g. the edits of the usages confirmed by the user,
+	 * and returns the applied text edit batches, mapped to their
+	 * documents. Documents without accepted edits are not modified.
+	 * Must be called in a write command.
+	 *
+	 * @param project The project in which to apply the edit.
+	 * @param edit The workspace edit to apply.
+	 * @param editFilter The filter accepting the text edits to apply,
+	 *                   given the documents to which they apply.
+	 * @return The applied text edit batches, or null if the edit could
+	 *         not be applied, in which case no document was modified.
+	 */
+	@Nullable
+	public static Map<Document, TextEditBatch> apply(
+		@NotNull Project                         project,
+		@NotNull WorkspaceEdit                   edit,
+		@NotNull BiPredicate<Document, TextEdit> editFilter
+	) {
+
+		Map<VirtualFile, List<TextEdit>> fileEdits = fileEdits(edit);
+
+		if (fileEdits == null) { return null; }
+
+		// Resolve the edits of every document before
+		// modifying any of them
+
+		Map<Document, TextEditBatch> documentBatches = new LinkedHashMap<>();
+
+		for (Map.Entry<VirtualFile, List<TextEdit>> entry : fileEdits.entrySet()) {
+
+			Document document = getVirtualFileDocument(entry.getKey());
+
+			if (document == null) {
+				LOGGER.warn("Cannot apply workspace edit: no document for " + entry.getKey().getUrl());
+				return null;
+			}
+
+			List<TextEdit> acceptedEdits = entry.getValue().stream()
+				.filter(textEdit -> editFilter.test(document, textEdit))
+				.collect(Collectors.toList());
+
+			if (acceptedEdits.isEmpty()) { continue; }
+
+			try {
+				documentBatches.put(document, new TextEditBatch(document.getImmutableCharSequence(), acceptedEdits));
+			} catch (IllegalArgumentException exception) {
+				LOGGER.warn("Cannot apply workspace edit to " + entry.getKey().getUrl(), exception);
+				return null;
+			}
+
+		}
+
+		// Apply the edits of every document in a single bulk update,
+		// then commit that document
+
+		PsiDocumentManager psiDocumentManager = PsiDocumentManager.getInstance(project);
+
+		documentBatches.forEach((document, batch) -> {
+
+			psiDocumentManager.doPostponedOperationsAndUnblockDocument(document);
+
+			DocumentUtil.executeInBulk(document, true, () ->
+				batch.getReplacements().forEach(replacement -> document.replaceString(
+					replacement.startOffset, replacement.endOffset, replacement.newText)));
+
+			psiDocumentManager.commitDocument(document);
+
+		});
+
+		return documentBatches;
+
+	}
+
+	/**
+	 * Returns the text edits of the given workspace edit, mapped to the
+	 * files to which they apply.
+	 *
+	 * @param edit The workspace edit.
+	 * @return The text edits of every file, or null if the workspace edit
+	 *         contains resource operations, which are not supported, or
+	 *         edits of files that cannot be found.
+	 */
+	@Nullable
+	private static Map<VirtualFile, List<TextEdit>> fileEdits(@NotNull WorkspaceEdit edit) {
+
+		Map<String, List<TextEdit>> uriEdits = new LinkedHashMap<>();
+
+		// Document changes take precedence over changes
+
+		if (edit.getDocumentChanges() != null) {
+
+			for (Either<TextDocumentEdit, ResourceOperation> change : edit.getDocumentChanges()) {
+
+				if (change.isRight()) {
+					LOGGER.warn("Cannot apply workspace edit: resource operations are not supported");
+					return null;
+				}
+
+				TextDocumentEdit documentEdit = change.getLeft();
+
+				uriEdits.computeIfAbsent(documentEdit.getTextDocument().getUri(), uri -> new ArrayList<>())
+					.addAll(documentEdit.getEdits());
+
+			}
+
+		} else if (edit.getChanges() != null) {
+			uriEdits.putAll(edit.getChanges());
+		}
+
+		Map<VirtualFile, List<TextEdit>> fileEdits = new LinkedHashMap<>();
+
+		for (Map.Entry<String, List<TextEdit>> entry : uriEdits.entrySet()) {
+
+			VirtualFile file = findFileByUrlString(entry.getKey());
+
+			if (file == null) {
+				LOGGER.warn("Cannot apply workspace edit: file not found: " + entry.getKey());
+				return null;
+			}
+
+			fileEdits.computeIfAbsent(file, key -> new ArrayList<>()).addAll(entry.getValue());
+
+		}
+
+		return fileEdits;
+
+	}
+
+}
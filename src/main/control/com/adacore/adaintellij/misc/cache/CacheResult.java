@@ -25,7 +25,7 @@ public final class CacheResult<T> {
 	 * Constructs a new CacheResult representing a
 	 * cache miss.
 	 */
-	CacheResult() {
+	public CacheResult() {
 		this.hit  = false;
 		this.data = null;
 	}
@@ -37,7 +37,7 @@ public final class CacheResult<T> {
 	 * @param data The data to attach to the
 	 *             constructed cache result.
 	 */
-	CacheResult(@Nullable T data) {
+	public CacheResult(@Nullable T data) {
 		this.hit  = true;
 		this.data = data;
 	}
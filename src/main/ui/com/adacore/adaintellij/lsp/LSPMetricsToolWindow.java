@@ -0,0 +1,91 @@
+package com.adacore.adaintellij.lsp;
+
+import java.awt.datatransfer.StringSelection;
+import javax.swing.*;
+
+import com.intellij.openapi.ide.CopyPasteManager;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.adacore.adaintellij.AdaIntelliJUI;
+
+/**
+ * Internal tool window displaying the metrics of the LSP session
+ * between the plugin and the ALS.
+ */
+public final class LSPMetricsToolWindow extends AdaIntelliJUI {
+
+	/**
+	 * Root UI component.
+	 */
+	private JPanel rootPanel;
+
+	/**
+	 * Child UI components.
+	 */
+	private JTextArea reportArea;
+	private JButton   refreshButton;
+	private JButton   resetButton;
+	private JButton   copyJsonButton;
+
+	/**
+	 * The displayed metrics.
+	 */
+	private LSPMetrics metrics;
+
+	/**
+	 * Constructs a new LSPMetricsToolWindow given a project.
+	 *
+	 * @param project The project to which this tool window belongs.
+	 */
+	LSPMetricsToolWindow(@NotNull Project project) { this(project, null); }
+
+	/**
+	 * Constructs a new LSPMetricsToolWindow given a project and an
+	 * optional parent UI.
+	 *
+	 * @param project The project to which this tool window belongs.
+	 * @param parentUI The UI in which to embed the constructed UI, or null
+	 *                 to construct a standalone UI view.
+	 */
+	LSPMetricsToolWindow(@NotNull Project project, @Nullable AdaIntelliJUI parentUI) {
+
+		super(parentUI);
+
+		metrics = AdaLSPDriver.getMetrics(project);
+
+		// Add refresh/reset/copy button listeners
+
+		refreshButton.addActionListener(actionEvent -> refreshReport());
+		resetButton.addActionListener(actionEvent -> {
+			metrics.reset();
+			refreshReport();
+		});
+		copyJsonButton.addActionListener(actionEvent ->
+			CopyPasteManager.getInstance().setContents(new StringSelection(metrics.toJson())));
+
+		// Display the report for the first time
+
+		refreshReport();
+
+	}
+
+	/**
+	 * @see com.adacore.adaintellij.AdaIntelliJUI#getUIRoot()
+	 */
+	@NotNull
+	@Override
+	public JComponent getUIRoot() { return rootPanel; }
+
+	/**
+	 * Displays the current metrics.
+	 */
+	private void refreshReport() {
+
+		reportArea.setText(metrics.toReport());
+		reportArea.setCaretPosition(0);
+
+	}
+
+}
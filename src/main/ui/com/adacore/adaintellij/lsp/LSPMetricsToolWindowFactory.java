@@ -0,0 +1,49 @@
+package com.adacore.adaintellij.lsp;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.DumbAware;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Condition;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.content.Content;
+import com.intellij.ui.content.ContentManager;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Tool window factory for the LSP metrics tool window, and condition
+ * showing that tool window only when the IDE runs in internal mode.
+ */
+public final class LSPMetricsToolWindowFactory implements ToolWindowFactory, Condition<Project>, DumbAware {
+
+	/**
+	 * Creates content for an LSP metrics tool window and attaches it
+	 * to the given tool window.
+	 *
+	 * @param project The project to which the given tool window belongs.
+	 * @param toolWindow The tool window to set up.
+	 */
+	@Override
+	public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
+
+		ContentManager contentManager = toolWindow.getContentManager();
+
+		Content content = contentManager.getFactory().createContent(
+			new LSPMetricsToolWindow(project).getUIRoot(), null, false);
+
+		contentManager.addContent(content);
+
+	}
+
+	/**
+	 * Returns whether or not the tool window should be available for
+	 * the given project, i.e. whether or not the IDE runs in internal
+	 * mode (`-Didea.is.internal=true`).
+	 *
+	 * @param project The project.
+	 * @return Whether or not the tool window is available.
+	 */
+	@Override
+	public boolean value(Project project) { return ApplicationManager.getApplication().isInternal(); }
+
+}
@@ -110,6 +110,16 @@ final class AdaLexerTest {
 		);
 	}
 
+	// Testing lexing attributes
+
+	@Test
+	void source_file_with_attributes_lexed_correctly() throws Exception {
+		assertSourceFileLexedCorrectly(
+			classObject.getResource("/ada-sources/attributes.adb").toURI(),
+			classObject.getResource("/ada-sources/attributes.adb.token-list").toURI()
+		);
+	}
+
 	// Testing lexing hello-world programs
 
 	@Test
@@ -138,4 +148,19 @@ final class AdaLexerTest {
 		);
 	}
 
+	// Testing that the lexer does not copy the analysed text
+
+	@Test
+	void lexer_analyses_original_buffer() {
+
+		CharSequence buffer = new StringBuilder("Put_Line (\"Hello\");");
+
+		AdaLexer lexer = new AdaLexer();
+
+		lexer.start(buffer, 0, buffer.length(), 0);
+
+		assertSame(buffer, lexer.getBufferSequence());
+
+	}
+
 }
@@ -0,0 +1,143 @@
+package com.adacore.adaintellij.analysis.lexical;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.jupiter.api.Test;
+
+import com.adacore.adaintellij.AdaTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.*;
+
+/**
+ * JUnit test class checking that lexers do not allocate memory
+ * while starting and scanning tokens.
+ */
+final class LexerAllocationTest {
+
+	// Constants
+
+	/**
+	 * The minimum length of the texts to lex.
+	 */
+	private static final int TEXT_LENGTH = 200_000;
+
+	/**
+	 * The number of warm-up lexing rounds performed before measuring
+	 * allocations, so that lazy class initialization and JIT
+	 * compilation do not interfere with measurements.
+	 */
+	private static final int WARM_UP_ROUNDS = 20;
+
+	/**
+	 * The number of bytes tolerated during a measured lexing round,
+	 * accounting for the allocations of the measurement itself.
+	 */
+	private static final long TOLERATED_BYTES = 1024;
+
+	private Class classObject = getClass();
+
+	/**
+	 * Returns a text made of copies of the source file with the
+	 * given name, at least TEXT_LENGTH characters long.
+	 *
+	 * @param sourceFileName The name of the source file to copy.
+	 * @return The constructed text.
+	 * @throws Exception If a problem occurs while reading the file.
+	 */
+	private String scaledText(String sourceFileName) throws Exception {
+
+		String sourceText = AdaTestUtils.getFileText(
+			classObject.getResource("/ada-sources/" + sourceFileName).toURI());
+
+		StringBuilder textBuilder = new StringBuilder();
+
+		while (textBuilder.length() < TEXT_LENGTH) {
+			textBuilder.append(sourceText).append('\n');
+		}
+
+		return textBuilder.toString();
+
+	}
+
+	/**
+	 * Lexes the given text from the start and returns the number of
+	 * tokens encountered.
+	 *
+	 * @param lexer The lexer to use.
+	 * @param text The text to lex.
+	 * @return The number of tokens.
+	 */
+	private static int lexTokens(Lexer lexer, String text) {
+
+		lexer.start(text, 0, text.length(), 0);
+
+		int tokens = 0;
+
+		while (lexer.getTokenType() != null) {
+			lexer.advance();
+			tokens++;
+		}
+
+		return tokens;
+
+	}
+
+	/**
+	 * Asserts that starting the given lexer on the given text and
+	 * scanning all tokens does not allocate memory, once the lexer
+	 * is warmed up.
+	 *
+	 * @param lexer The lexer to check.
+	 * @param text The text to lex.
+	 */
+	private static void assertLexingDoesNotAllocate(Lexer lexer, String text) {
+
+		java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+		assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean,
+			"Thread allocation measurement not supported by this JVM");
+
+		com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean)threadBean;
+
+		assumeTrue(allocationBean.isThreadAllocatedMemorySupported(),
+			"Thread allocation measurement not supported by this JVM");
+
+		allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+		long threadId = Thread.currentThread().getId();
+
+		for (int i = 0 ; i < WARM_UP_ROUNDS ; i++) {
+			lexTokens(lexer, text);
+		}
+
+		long allocatedBefore = allocationBean.getThreadAllocatedBytes(threadId);
+		int  tokens          = lexTokens(lexer, text);
+		long allocatedAfter  = allocationBean.getThreadAllocatedBytes(threadId);
+
+		long allocated = allocatedAfter - allocatedBefore;
+
+		assertTrue(tokens > 10_000, "Too few tokens to measure allocations: " + tokens);
+
+		assertTrue(allocated <= TOLERATED_BYTES,
+			"Lexer allocated " + allocated + " bytes while scanning " + tokens + " tokens");
+
+	}
+
+	// Testing allocations of the Ada lexer
+
+	@Test
+	void ada_lexer_does_not_allocate_per_token() throws Exception {
+		assertLexingDoesNotAllocate(new AdaLexer(), scaledText("literals.adb"));
+		assertLexingDoesNotAllocate(new AdaLexer(), scaledText("keywords.adb"));
+		assertLexingDoesNotAllocate(new AdaLexer(), scaledText("bad-syntax.adb"));
+	}
+
+	// Testing allocations of the GPR file lexer
+
+	@Test
+	void gpr_file_lexer_does_not_allocate_per_token() throws Exception {
+		assertLexingDoesNotAllocate(new GPRFileLexer(), scaledText("code-with-comments.adb"));
+	}
+
+}
@@ -0,0 +1,159 @@
+package com.adacore.adaintellij.analysis.lexical;
+
+import java.io.File;
+import java.util.*;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+
+import com.adacore.adaintellij.AdaTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class checking that lexers can be restarted at any
+ * token boundary, using the state returned by `getState()` for the
+ * token at that boundary, as IntelliJ does when incrementally
+ * re-highlighting a document.
+ */
+final class LexerRestartTest {
+
+	private Class classObject = getClass();
+
+	/**
+	 * Simple data class representing a token and the state in which
+	 * it was analysed.
+	 */
+	private static final class StatefulToken {
+
+		final Lexer.Token TOKEN;
+		final int         STATE;
+
+		StatefulToken(Lexer lexer) {
+			TOKEN = new Lexer.Token(lexer.getTokenType(), lexer.getTokenStart(), lexer.getTokenEnd());
+			STATE = lexer.getState();
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			return object instanceof StatefulToken &&
+				((StatefulToken)object).TOKEN.equals(TOKEN) && ((StatefulToken)object).STATE == STATE;
+		}
+
+		@Override
+		public String toString() { return TOKEN + " in state " + STATE; }
+
+	}
+
+	/**
+	 * Returns the texts of all source files of the test corpus.
+	 *
+	 * @return The corpus texts.
+	 * @throws Exception If a problem occurs while reading files.
+	 */
+	private List<String> corpusTexts() throws Exception {
+
+		File corpusDirectory = new File(classObject.getResource("/ada-sources").toURI());
+
+		File[] sourceFiles = corpusDirectory.listFiles((directory, name) -> name.endsWith(".adb"));
+
+		assertNotNull(sourceFiles);
+
+		Arrays.sort(sourceFiles);
+
+		List<String> texts = new ArrayList<>();
+
+		for (File sourceFile : sourceFiles) {
+			texts.add(AdaTestUtils.getFileText(sourceFile.toURI()));
+		}
+
+		return texts;
+
+	}
+
+	/**
+	 * Starts the given lexer on the given text and returns all
+	 * tokens, along with their states, until the end of the text.
+	 *
+	 * @param lexer The lexer to use.
+	 * @param text The text to lex.
+	 * @param startOffset The offset at which to start lexing.
+	 * @param initialState The state in which to start lexing.
+	 * @return The list of tokens.
+	 */
+	private static List<StatefulToken> lexTokens(Lexer lexer, String text, int startOffset, int initialState) {
+
+		lexer.start(text, startOffset, text.length(), initialState);
+
+		List<StatefulToken> tokens = new ArrayList<>();
+
+		while (lexer.getTokenType() != null) {
+			tokens.add(new StatefulToken(lexer));
+			lexer.advance();
+		}
+
+		return tokens;
+
+	}
+
+	/**
+	 * Asserts that, for every token of every corpus file, restarting
+	 * a lexer at the start offset of that token, in the state of that
+	 * token, yields the same tokens as the ones obtained by lexing the
+	 * entire file.
+	 *
+	 * @param lexerSupplier The supplier of lexers to check.
+	 * @throws Exception If a problem occurs while reading files.
+	 */
+	private void assertRestartingLexerIsEquivalent(Supplier<Lexer> lexerSupplier) throws Exception {
+
+		for (String text : corpusTexts()) {
+
+			List<StatefulToken> fullTokens = lexTokens(lexerSupplier.get(), text, 0, 0);
+
+			for (int i = 0 ; i < fullTokens.size() ; i++) {
+
+				StatefulToken restartToken = fullTokens.get(i);
+
+				List<StatefulToken> restartedTokens = lexTokens(
+					lexerSupplier.get(), text, restartToken.TOKEN.START_OFFSET, restartToken.STATE);
+
+				assertEquals(fullTokens.subList(i, fullTokens.size()), restartedTokens,
+					"Lexing restarted at " + restartToken + " differs from full lexing");
+
+			}
+
+		}
+
+	}
+
+	// Testing restarting the Ada lexer
+
+	@Test
+	void ada_lexer_restarts_equivalently_at_every_token() throws Exception {
+		assertRestartingLexerIsEquivalent(AdaLexer::new);
+	}
+
+	@Test
+	void ada_lexer_keeps_apostrophe_context_in_state() {
+
+		String text = "X'Access";
+
+		List<StatefulToken> fullTokens = lexTokens(new AdaLexer(), text, 0, 0);
+
+		assertEquals(3, fullTokens.size());
+
+		assertNotEquals(0, fullTokens.get(1).STATE);
+		assertNotEquals(0, fullTokens.get(2).STATE);
+		assertNotEquals(fullTokens.get(1).STATE, fullTokens.get(2).STATE);
+
+	}
+
+	// Testing restarting the GPR file lexer
+
+	@Test
+	void gpr_file_lexer_restarts_equivalently_at_every_token() throws Exception {
+		assertRestartingLexerIsEquivalent(GPRFileLexer::new);
+	}
+
+}
@@ -43,6 +43,7 @@ final class GeneralCategoryRegexTest {
 	private static final LexerRegex LETTER_TITLECASE_REGEX          = new GeneralCategoryRegex("Lt");
 	private static final LexerRegex OTHER_UNASSIGNED_REGEX          = new GeneralCategoryRegex("Cn");
 	private static final LexerRegex LETTER_UPPERCASE_REGEX          = new GeneralCategoryRegex("Lu");
+	private static final LexerRegex LETTER_REGEX                    = new GeneralCategoryRegex("L");
 
 	// Testing GeneralCategoryRegex#nullable() method
 
@@ -119,4 +120,58 @@ final class GeneralCategoryRegexTest {
 
 	}
 
+	@Test
+	void general_category_regex_matches_characters_outside_latin_1() {
+
+		assertRegexMatches(LETTER_LOWERCASE_REGEX, "δ");
+		assertRegexMatches(LETTER_UPPERCASE_REGEX, "Δ");
+		assertRegexMatches(LETTER_OTHER_REGEX, "字");
+		assertRegexMatches(NUMBER_DECIMAL_REGEX, "١");
+		assertRegexMatches(SEPARATOR_LINE_REGEX, "\u2028");
+		assertRegexMatches(OTHER_SURROGATE_REGEX, "\ud800");
+
+		assertRegexDoesNotAdvance(LETTER_LOWERCASE_REGEX, "Δ");
+		assertRegexDoesNotAdvance(LETTER_UPPERCASE_REGEX, "字");
+		assertRegexDoesNotAdvance(NUMBER_DECIMAL_REGEX, "Ⅻ");
+
+	}
+
+	@Test
+	void general_category_regex_agrees_with_character_types() {
+
+		for (int character = 0 ; character <= Character.MAX_VALUE ; character++) {
+
+			int type = Character.getType((char)character);
+
+			assertEquals(type == Character.LOWERCASE_LETTER,
+				LETTER_LOWERCASE_REGEX.advanced((char)character) != null);
+			assertEquals(type == Character.DECIMAL_DIGIT_NUMBER,
+				NUMBER_DECIMAL_REGEX.advanced((char)character) != null);
+
+		}
+
+	}
+
+	@Test
+	void single_letter_general_category_regex_matches_whole_major_category() {
+
+		assertRegexMatches(LETTER_REGEX, "a");
+		assertRegexMatches(LETTER_REGEX, "Z");
+		assertRegexMatches(LETTER_REGEX, "ǅ");
+		assertRegexMatches(LETTER_REGEX, "ʰ");
+		assertRegexMatches(LETTER_REGEX, "字");
+
+		assertRegexDoesNotAdvance(LETTER_REGEX, "1");
+		assertRegexDoesNotAdvance(LETTER_REGEX, "_");
+
+	}
+
+	// Testing GeneralCategoryRegex#GeneralCategoryRegex(String) constructor
+
+	@Test
+	void general_category_regex_rejects_unknown_categories() {
+		assertThrows(IllegalArgumentException.class, () -> new GeneralCategoryRegex("Xx"));
+		assertThrows(IllegalArgumentException.class, () -> new GeneralCategoryRegex(""));
+	}
+
 }
@@ -0,0 +1,186 @@
+package com.adacore.adaintellij.analysis.lexical.regex;
+
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class for the LexerAutomaton class.
+ */
+final class LexerAutomatonTest {
+
+	// Constants
+
+	private static final LexerRegex IF_KEYWORD_REGEX = new UnitRegex("if", 1);
+	private static final LexerRegex IDENTIFIER_REGEX =
+		new OneOrMoreRegex(
+			new UnionRegex(
+				new GeneralCategoryRegex("Ll"),
+				new GeneralCategoryRegex("Lu")
+			)
+		);
+	private static final LexerRegex NUMBER_REGEX     = new OneOrMoreRegex(UnionRegex.fromRange('0', '9'));
+	private static final LexerRegex DOT_REGEX        = new UnitRegex(".");
+	private static final LexerRegex DOUBLE_DOT_REGEX = new UnitRegex("..");
+
+	private static final LexerAutomaton<String> AUTOMATON;
+
+	static {
+
+		Map<LexerRegex, String> rootRegexes = new LinkedHashMap<>();
+
+		rootRegexes.put(IDENTIFIER_REGEX, "IDENTIFIER");
+		rootRegexes.put(IF_KEYWORD_REGEX, "IF");
+		rootRegexes.put(NUMBER_REGEX    , "NUMBER");
+		rootRegexes.put(DOT_REGEX       , "DOT");
+		rootRegexes.put(DOUBLE_DOT_REGEX, "DOUBLE_DOT");
+
+		AUTOMATON = new LexerAutomaton<>(rootRegexes);
+
+	}
+
+	/**
+	 * Runs the automaton over the given sequence of characters and
+	 * returns the reached state.
+	 *
+	 * @param automaton The automaton to run.
+	 * @param sequence The sequence of characters.
+	 * @return The reached state.
+	 */
+	private static int run(LexerAutomaton<?> automaton, String sequence) {
+
+		int state = LexerAutomaton.START_STATE;
+
+		for (char character : sequence.toCharArray()) {
+			state = automaton.nextState(state, character);
+			if (state == LexerAutomaton.DEAD_STATE) { break; }
+		}
+
+		return state;
+
+	}
+
+	// Testing LexerAutomaton#nextState(int, char) method
+
+	@Test
+	void automaton_dies_when_no_regex_advances() {
+
+		assertEquals(LexerAutomaton.DEAD_STATE, run(AUTOMATON, "-"));
+		assertEquals(LexerAutomaton.DEAD_STATE, run(AUTOMATON, "a1"));
+		assertEquals(LexerAutomaton.DEAD_STATE, run(AUTOMATON, "..."));
+		assertEquals(LexerAutomaton.DEAD_STATE, run(AUTOMATON, "1a"));
+
+	}
+
+	@Test
+	void automaton_classifies_characters_by_general_category() {
+
+		assertEquals("IDENTIFIER", AUTOMATON.acceptedValue(run(AUTOMATON, "été")));
+		assertEquals("IDENTIFIER", AUTOMATON.acceptedValue(run(AUTOMATON, "Δελτα")));
+
+		assertEquals(LexerAutomaton.DEAD_STATE, run(AUTOMATON, "²"));
+		assertEquals(LexerAutomaton.DEAD_STATE, run(AUTOMATON, "١"));
+
+	}
+
+	@Test
+	void case_insensitive_automaton_folds_characters_to_lowercase() {
+
+		Map<LexerRegex, String> rootRegexes = new LinkedHashMap<>();
+
+		rootRegexes.put(new UnitRegex("if", 1), "IF");
+		rootRegexes.put(new UnitRegex("é")    , "E_ACUTE");
+
+		LexerAutomaton<String> caseSensitiveAutomaton   = new LexerAutomaton<>(rootRegexes);
+		LexerAutomaton<String> caseInsensitiveAutomaton = new LexerAutomaton<>(rootRegexes, true);
+
+		assertEquals(LexerAutomaton.DEAD_STATE, run(caseSensitiveAutomaton, "IF"));
+		assertEquals(LexerAutomaton.DEAD_STATE, run(caseSensitiveAutomaton, "É"));
+
+		assertEquals("IF"     , caseInsensitiveAutomaton.acceptedValue(run(caseInsensitiveAutomaton, "if")));
+		assertEquals("IF"     , caseInsensitiveAutomaton.acceptedValue(run(caseInsensitiveAutomaton, "If")));
+		assertEquals("IF"     , caseInsensitiveAutomaton.acceptedValue(run(caseInsensitiveAutomaton, "IF")));
+		assertEquals("E_ACUTE", caseInsensitiveAutomaton.acceptedValue(run(caseInsensitiveAutomaton, "É")));
+
+	}
+
+	// Testing LexerAutomaton#acceptedValue(int) method
+
+	@Test
+	void automaton_accepts_values_of_matching_regexes() {
+
+		assertEquals("IDENTIFIER", AUTOMATON.acceptedValue(run(AUTOMATON, "abc")));
+		assertEquals("NUMBER"    , AUTOMATON.acceptedValue(run(AUTOMATON, "0123456789")));
+		assertEquals("DOT"       , AUTOMATON.acceptedValue(run(AUTOMATON, ".")));
+		assertEquals("DOUBLE_DOT", AUTOMATON.acceptedValue(run(AUTOMATON, "..")));
+
+	}
+
+	@Test
+	void automaton_accepts_value_with_highest_priority() {
+
+		assertEquals("IF"        , AUTOMATON.acceptedValue(run(AUTOMATON, "if")));
+		assertEquals("IDENTIFIER", AUTOMATON.acceptedValue(run(AUTOMATON, "i")));
+		assertEquals("IDENTIFIER", AUTOMATON.acceptedValue(run(AUTOMATON, "iff")));
+
+		assertEquals(1, AUTOMATON.acceptedPriority(run(AUTOMATON, "if")));
+		assertEquals(0, AUTOMATON.acceptedPriority(run(AUTOMATON, "iff")));
+
+	}
+
+	@Test
+	void automaton_breaks_priority_ties_by_root_regex_order() {
+
+		Map<LexerRegex, String> rootRegexes = new LinkedHashMap<>();
+
+		rootRegexes.put(new UnitRegex("ab"), "FIRST");
+		rootRegexes.put(new ConcatenationRegex(new UnitRegex("a"), new UnitRegex("b")), "SECOND");
+
+		LexerAutomaton<String> automaton = new LexerAutomaton<>(rootRegexes);
+
+		assertEquals("FIRST", automaton.acceptedValue(run(automaton, "ab")));
+
+	}
+
+	@Test
+	void automaton_does_not_accept_partial_matches() {
+
+		LexerAutomaton<String> automaton =
+			new LexerAutomaton<>(Collections.singletonMap(new UnitRegex("abc"), "ABC"));
+
+		int state = run(automaton, "ab");
+
+		assertNotEquals(LexerAutomaton.DEAD_STATE, state);
+		assertFalse(automaton.accepting(state));
+		assertNull(automaton.acceptedValue(state));
+
+		assertFalse(AUTOMATON.accepting(LexerAutomaton.START_STATE));
+
+	}
+
+	// Testing LexerAutomaton#LexerAutomaton(Map) constructor
+
+	@Test
+	void automaton_rejects_unsupported_regex_types() {
+
+		LexerRegex unsupportedRegex = new LexerRegex() {
+
+			@Override
+			public boolean nullable() { return false; }
+
+			@Override
+			public int charactersMatched() { return 1; }
+
+			@Override
+			public LexerRegex advanced(char character) { return null; }
+
+		};
+
+		assertThrows(IllegalArgumentException.class,
+			() -> new LexerAutomaton<>(Collections.singletonMap(unsupportedRegex, "UNSUPPORTED")));
+
+	}
+
+}
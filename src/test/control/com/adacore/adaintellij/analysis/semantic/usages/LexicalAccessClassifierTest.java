@@ -0,0 +1,204 @@
+package com.adacore.adaintellij.analysis.semantic.usages;
+
+import java.util.*;
+
+import com.intellij.psi.tree.IElementType;
+import org.junit.jupiter.api.*;
+
+import com.adacore.adaintellij.analysis.lexical.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class checking that lexical access classifiers recognize
+ * declarations and assignment targets from the tokens of Ada source
+ * text produced by the Ada lexer.
+ */
+final class LexicalAccessClassifierTest {
+
+	/**
+	 * The types of the tokens of the given text, whitespace and comments
+	 * excluded, along with the index of the token starting at the first
+	 * occurrence of the given name.
+	 */
+	private static final class ClassifiedName {
+
+		/**
+		 * The types of the tokens of the text.
+		 */
+		final List<IElementType> types = new ArrayList<>();
+
+		/**
+		 * The index of the token of the name.
+		 */
+		int index = -1;
+
+		/**
+		 * Constructs a new ClassifiedName given a text and the occurrence
+		 * of a name in that text.
+		 *
+		 * @param text The text.
+		 * @param occurrence The text starting with the name, used to
+		 *                   find the name in the text.
+		 */
+		ClassifiedName(String text, String occurrence) {
+
+			int offset = text.indexOf(occurrence);
+
+			assertTrue(offset >= 0);
+
+			Iterator<AdaLexer.Token> tokens = AdaLexer.textTokens(text);
+
+			while (tokens.hasNext()) {
+
+				AdaLexer.Token token = tokens.next();
+
+				if (
+					AdaTokenTypes.WHITESPACE_TOKEN_SET.contains(token.TOKEN_TYPE) ||
+					AdaTokenTypes.COMMENT_TOKEN_SET.contains(token.TOKEN_TYPE)
+				) { continue; }
+
+				if (token.START_OFFSET == offset) { index = types.size(); }
+
+				types.add(token.TOKEN_TYPE);
+
+			}
+
+			assertTrue(index >= 0);
+			assertEquals(AdaTokenTypes.IDENTIFIER, types.get(index));
+
+		}
+
+		/**
+		 * Returns the type of the token preceding the name.
+		 *
+		 * @return The preceding token type, or null if there is none.
+		 */
+		IElementType previousType() { return index == 0 ? null : types.get(index - 1); }
+
+		/**
+		 * Returns the types of the tokens following the name.
+		 *
+		 * @return An iterator over the following token types.
+		 */
+		Iterator<IElementType> followingTypes() { return types.subList(index + 1, types.size()).iterator(); }
+
+	}
+
+	/**
+	 * Returns whether or not the name at the given occurrence in the
+	 * given text is an assignment target.
+	 *
+	 * @param text The text.
+	 * @param occurrence The text starting with the name.
+	 * @return Whether or not the name is assigned.
+	 */
+	private static boolean isAssignmentTarget(String text, String occurrence) {
+		return LexicalAccessClassifier.isAssignmentTarget(new ClassifiedName(text, occurrence).followingTypes());
+	}
+
+	/**
+	 * Returns whether or not the name at the given occurrence in the
+	 * given text is a declaration.
+	 *
+	 * @param text The text.
+	 * @param occurrence The text starting with the name.
+	 * @return Whether or not the name is declared.
+	 */
+	private static boolean isDeclaration(String text, String occurrence) {
+
+		ClassifiedName name = new ClassifiedName(text, occurrence);
+
+		return LexicalAccessClassifier.isDeclaration(name.previousType(), name.followingTypes());
+
+	}
+
+	// Testing assignment targets
+
+	@Test
+	void simple_name_followed_by_assignment_is_assigned() {
+
+		assertTrue(isAssignmentTarget("X := Y;", "X"));
+		assertFalse(isAssignmentTarget("X := Y;", "Y"));
+
+	}
+
+	@Test
+	void indexed_and_sliced_names_are_assigned() {
+
+		assertTrue(isAssignmentTarget("A (I) := 0;", "A"));
+		assertFalse(isAssignmentTarget("A (I) := 0;", "I"));
+
+		assertTrue(isAssignmentTarget("M (F (I), J) := 0;", "M"));
+		assertFalse(isAssignmentTarget("M (F (I), J) := 0;", "F"));
+
+		assertTrue(isAssignmentTarget("A (1 .. 3) := B (1 .. 3);", "A"));
+		assertFalse(isAssignmentTarget("A (1 .. 3) := B (1 .. 3);", "B"));
+
+	}
+
+	@Test
+	void selected_names_are_assigned() {
+
+		assertTrue(isAssignmentTarget("R.F (1) := X;", "R"));
+		assertTrue(isAssignmentTarget("R.F (1) := X;", "F"));
+		assertFalse(isAssignmentTarget("R.F (1) := X;", "X"));
+
+		assertTrue(isAssignmentTarget("P.all := 0;", "P"));
+		assertTrue(isAssignmentTarget("P.all.Next := null;", "P"));
+
+	}
+
+	@Test
+	void names_not_followed_by_assignment_are_not_assigned() {
+
+		assertFalse(isAssignmentTarget("Put (A); B := 0;", "Put"));
+		assertFalse(isAssignmentTarget("if A (I) = 0 then", "A"));
+		assertFalse(isAssignmentTarget("X : Integer := 0;", "X"));
+		assertFalse(isAssignmentTarget("A (I", "A"));
+		assertFalse(isAssignmentTarget("R.", "R"));
+
+	}
+
+	// Testing declarations
+
+	@Test
+	void names_followed_by_colon_are_declared() {
+
+		assertTrue(isDeclaration("X : Integer := 0;", "X"));
+		assertTrue(isDeclaration("X, Y : Integer;", "X"));
+		assertTrue(isDeclaration("X, Y : Integer;", "Y"));
+		assertTrue(isDeclaration("procedure P (A : in Integer; B : out Integer);", "B"));
+
+	}
+
+	@Test
+	void names_after_declaring_keywords_are_declared() {
+
+		assertTrue(isDeclaration("procedure Main is", "Main"));
+		assertTrue(isDeclaration("package body Greetings is", "Greetings"));
+		assertTrue(isDeclaration("type Color is (Red, Green);", "Color"));
+
+	}
+
+	@Test
+	void loop_parameters_are_declared() {
+
+		assertTrue(isDeclaration("for I in 1 .. 10 loop", "I"));
+		assertTrue(isDeclaration("for E of List loop", "E"));
+		assertFalse(isDeclaration("for E of List loop", "List"));
+
+	}
+
+	@Test
+	void references_are_not_declared() {
+
+		assertFalse(isDeclaration("X := Y;", "X"));
+		assertFalse(isDeclaration("X := Y;", "Y"));
+		assertFalse(isDeclaration("Put (X, Y);", "X"));
+		assertFalse(isDeclaration("A (I) := 0;", "A"));
+		assertFalse(isDeclaration("R.F (1) := X;", "F"));
+
+	}
+
+}
@@ -0,0 +1,142 @@
+package com.adacore.adaintellij.analysis.syntactic;
+
+import java.util.*;
+
+import com.intellij.lang.ASTNode;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.*;
+import com.intellij.testFramework.fixtures.BasePlatformTestCase;
+
+import static com.adacore.adaintellij.analysis.syntactic.AdaCompositeElementTypes.*;
+
+/**
+ * Platform test class checking that edits inside an Ada body are
+ * handled by the platform's incremental reparsing, which reparses only
+ * the edited body and keeps the nodes outside of it.
+ * @see AdaReparseableElementType
+ */
+public final class AdaBodyReparseTest extends BasePlatformTestCase {
+
+	/**
+	 * The text of the edited file.
+	 */
+	private static final String TEXT =
+		"package body Greetings is\n" +
+		"\n" +
+		"   procedure Hello is\n" +
+		"   begin\n" +
+		"      null;\n" +
+		"   end Hello;\n" +
+		"\n" +
+		"   procedure Goodbye is\n" +
+		"   begin\n" +
+		"      null;\n" +
+		"   end Goodbye;\n" +
+		"\n" +
+		"end Greetings;\n";
+
+	/**
+	 * Returns the subprogram body nodes of the given tree, in order.
+	 *
+	 * @param node The root of the tree.
+	 * @return The subprogram body nodes.
+	 */
+	private static List<ASTNode> subprogramBodies(ASTNode node) {
+
+		List<ASTNode> bodies = new ArrayList<>();
+
+		for (ASTNode child = node.getFirstChildNode() ; child != null ; child = child.getTreeNext()) {
+
+			if (child.getElementType() == SUBPROGRAM_BODY) {
+				bodies.add(child);
+			}
+
+			bodies.addAll(subprogramBodies(child));
+
+		}
+
+		return bodies;
+
+	}
+
+	/**
+	 * Replaces the first occurrence of the given text, after the given
+	 * text, in the given file, and commits the document.
+	 *
+	 * @param file The edited file.
+	 * @param after The text after which to replace.
+	 * @param oldText The replaced text.
+	 * @param newText The replacement text.
+	 */
+	private void replace(PsiFile file, String after, String oldText, String newText) {
+
+		PsiDocumentManager documentManager = PsiDocumentManager.getInstance(getProject());
+		Document           document        = documentManager.getDocument(file);
+
+		assertNotNull(document);
+
+		int offset = document.getText().indexOf(oldText, document.getText().indexOf(after));
+
+		WriteCommandAction.runWriteCommandAction(getProject(), () ->
+			document.replaceString(offset, offset + oldText.length(), newText));
+
+		documentManager.commitDocument(document);
+
+	}
+
+	// Testing incremental reparsing
+
+	public void test_edit_inside_body_reparses_only_that_body() {
+
+		PsiFile file = myFixture.configureByText("greetings.adb", TEXT);
+
+		ASTNode       packageBody = file.getNode().getFirstChildNode();
+		List<ASTNode> bodies      = subprogramBodies(file.getNode());
+
+		assertEquals(PACKAGE_BODY, packageBody.getElementType());
+		assertEquals(2, bodies.size());
+
+		long fileParseCount   = AdaParser.STATISTICS.getFileParseCount();
+		long bodyReparseCount = AdaParser.STATISTICS.getBodyReparseCount();
+
+		replace(file, "procedure Hello", "null;", "Put_Line (\"Hello\");");
+
+		List<ASTNode> newBodies = subprogramBodies(file.getNode());
+
+		// Only the edited body is reparsed, on its own, and the nodes
+		// outside of it are kept
+
+		assertSame(packageBody, file.getNode().getFirstChildNode());
+		assertSame(bodies.get(1), newBodies.get(1));
+		assertTrue(newBodies.get(0).getText().contains("Put_Line (\"Hello\");"));
+
+		assertEquals(fileParseCount, AdaParser.STATISTICS.getFileParseCount());
+		assertEquals(bodyReparseCount + 1, AdaParser.STATISTICS.getBodyReparseCount());
+
+	}
+
+	public void test_edit_breaking_body_reparses_enclosing_body() {
+
+		PsiFile file = myFixture.configureByText("greetings.adb", TEXT);
+
+		long fileParseCount   = AdaParser.STATISTICS.getFileParseCount();
+		long bodyReparseCount = AdaParser.STATISTICS.getBodyReparseCount();
+
+		// The new text of the edited subprogram body no longer parses
+		// as a single body, but that of the package body does
+
+		replace(file, "procedure Hello", "end Hello;", "end Hello;\n   X : Integer;");
+
+		ASTNode packageBody = file.getNode().getFirstChildNode();
+
+		assertEquals(PACKAGE_BODY, packageBody.getElementType());
+		assertNotNull(packageBody.findChildByType(OBJECT_DECLARATION));
+		assertEquals(2, subprogramBodies(file.getNode()).size());
+
+		assertEquals(fileParseCount, AdaParser.STATISTICS.getFileParseCount());
+		assertEquals(bodyReparseCount + 1, AdaParser.STATISTICS.getBodyReparseCount());
+
+	}
+
+}
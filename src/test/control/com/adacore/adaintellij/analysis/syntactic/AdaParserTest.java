@@ -0,0 +1,344 @@
+package com.adacore.adaintellij.analysis.syntactic;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import com.intellij.psi.TokenType;
+import com.intellij.psi.tree.IElementType;
+import org.junit.jupiter.api.Test;
+
+import com.adacore.adaintellij.AdaLanguage;
+import com.adacore.adaintellij.AdaTestUtils;
+import com.adacore.adaintellij.analysis.lexical.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.adacore.adaintellij.analysis.syntactic.AdaCompositeElementTypes.*;
+
+/**
+ * JUnit test class for the AdaParser class, parsing the test corpus
+ * with a light PSI builder.
+ * @see TestPsiBuilder
+ */
+final class AdaParserTest {
+
+	private Class classObject = getClass();
+
+	/**
+	 * The root element type of parsed files.
+	 */
+	private static final IElementType FILE = new IElementType("ADA_TEST_FILE", AdaLanguage.INSTANCE);
+
+	/**
+	 * The maximum time allowed to parse a file.
+	 */
+	private static final Duration PARSE_TIMEOUT = Duration.ofSeconds(10);
+
+	/**
+	 * Returns the text of the corpus file with the given name.
+	 *
+	 * @param sourceFileName The name of the corpus file.
+	 * @return The text of the file.
+	 * @throws Exception If a problem occurs while reading the file.
+	 */
+	private String corpusText(String sourceFileName) throws Exception {
+		return AdaTestUtils.getFileText(classObject.getResource("/ada-sources/" + sourceFileName).toURI());
+	}
+
+	/**
+	 * Returns the texts of all source files of the test corpus.
+	 *
+	 * @return The corpus texts.
+	 * @throws Exception If a problem occurs while reading files.
+	 */
+	private List<String> corpusTexts() throws Exception {
+
+		File corpusDirectory = new File(classObject.getResource("/ada-sources").toURI());
+
+		File[] sourceFiles = corpusDirectory.listFiles((directory, name) -> name.endsWith(".adb"));
+
+		assertNotNull(sourceFiles);
+
+		Arrays.sort(sourceFiles);
+
+		List<String> texts = new ArrayList<>();
+
+		for (File sourceFile : sourceFiles) {
+			texts.add(AdaTestUtils.getFileText(sourceFile.toURI()));
+		}
+
+		return texts;
+
+	}
+
+	/**
+	 * Parses the given text as a file, checking that the parser
+	 * terminates, consumes every token and closes every marker.
+	 *
+	 * @param text The text to parse.
+	 * @return The builder holding the parsed tree.
+	 */
+	private static TestPsiBuilder parse(String text) {
+
+		TestPsiBuilder builder = new TestPsiBuilder(text);
+
+		assertTimeoutPreemptively(PARSE_TIMEOUT, () -> new AdaParser().parse(FILE, builder.asPsiBuilder()));
+
+		assertTrue(builder.isComplete(), "Parser did not consume the whole text");
+		assertEquals(1, builder.getRootNodes().size());
+		assertEquals(FILE, builder.getRootNodes().get(0).TYPE);
+
+		assertEveryTokenWrappedOnce(builder);
+
+		return builder;
+
+	}
+
+	/**
+	 * Returns the root node of the tree parsed by the given builder.
+	 *
+	 * @param builder The builder.
+	 * @return The root node.
+	 */
+	private static TestPsiBuilder.Node root(TestPsiBuilder builder) { return builder.getRootNodes().get(0); }
+
+	/**
+	 * Returns whether or not the given node is a leaf wrapping a token.
+	 *
+	 * @param builder The builder holding the node.
+	 * @param node The node.
+	 * @return Whether or not the node is a token leaf.
+	 */
+	private static boolean isTokenLeaf(TestPsiBuilder builder, TestPsiBuilder.Node node) {
+		return node.CHILDREN.isEmpty() && node.END_TOKEN == node.START_TOKEN + 1 &&
+			node.TYPE == builder.getTokenTypes().get(node.START_TOKEN);
+	}
+
+	/**
+	 * Returns the types of the composite children of the given node,
+	 * i.e. its children other than token leaves.
+	 *
+	 * @param builder The builder holding the node.
+	 * @param node The node.
+	 * @return The types of the composite children.
+	 */
+	private static List<IElementType> compositeChildTypes(TestPsiBuilder builder, TestPsiBuilder.Node node) {
+		return node.CHILDREN.stream()
+			.filter(child -> !isTokenLeaf(builder, child))
+			.map(child -> child.TYPE)
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * Returns the first composite child of the given type of the given
+	 * node.
+	 *
+	 * @param node The node.
+	 * @param type The type of the child.
+	 * @return The child.
+	 */
+	private static TestPsiBuilder.Node child(TestPsiBuilder.Node node, IElementType type) {
+		return node.CHILDREN.stream().filter(child -> child.TYPE == type).findFirst()
+			.orElseThrow(() -> new AssertionError("No " + type + " in " + node));
+	}
+
+	/**
+	 * Asserts that every token of the text was wrapped in exactly one
+	 * leaf by the parser, including tokens inside error elements.
+	 *
+	 * @param builder The builder holding the parsed tree.
+	 */
+	private static void assertEveryTokenWrappedOnce(TestPsiBuilder builder) {
+
+		int[] wrapCounts = new int[builder.getTokenTypes().size()];
+
+		Deque<TestPsiBuilder.Node> nodes = new ArrayDeque<>(builder.getRootNodes());
+
+		while (!nodes.isEmpty()) {
+
+			TestPsiBuilder.Node node = nodes.pop();
+
+			if (isTokenLeaf(builder, node)) { wrapCounts[node.START_TOKEN]++; }
+
+			nodes.addAll(node.CHILDREN);
+
+		}
+
+		for (int i = 0 ; i < wrapCounts.length ; i++) {
+			assertEquals(1, wrapCounts[i], "Token " + i + " of type " +
+				builder.getTokenTypes().get(i) + " wrapped " + wrapCounts[i] + " times");
+		}
+
+	}
+
+	/**
+	 * Returns whether or not the tree rooted at the given node contains
+	 * an error element.
+	 *
+	 * @param node The root node.
+	 * @return Whether or not the tree contains errors.
+	 */
+	private static boolean containsErrors(TestPsiBuilder.Node node) {
+		return node.TYPE == TokenType.ERROR_ELEMENT || node.CHILDREN.stream().anyMatch(AdaParserTest::containsErrors);
+	}
+
+	// Testing tree shape
+
+	@Test
+	void hello_world_parsed_into_context_clause_and_subprogram_body() throws Exception {
+
+		for (String sourceFileName : Arrays.asList("hello-world.adb", "hello-world-mixed-case.adb")) {
+
+			TestPsiBuilder      builder = parse(corpusText(sourceFileName));
+			TestPsiBuilder.Node root    = root(builder);
+
+			assertFalse(containsErrors(root));
+			assertEquals(Arrays.asList(WITH_CLAUSE, SUBPROGRAM_BODY), compositeChildTypes(builder, root));
+			assertEquals(Collections.singletonList(SIMPLE_STATEMENT),
+				compositeChildTypes(builder, child(root, SUBPROGRAM_BODY)));
+
+		}
+
+	}
+
+	@Test
+	void declarations_parsed_into_their_kinds() throws Exception {
+
+		TestPsiBuilder      builder = parse(corpusText("declarations.adb"));
+		TestPsiBuilder.Node root    = root(builder);
+
+		assertFalse(containsErrors(root));
+
+		assertEquals(Arrays.asList(WITH_CLAUSE, USE_CLAUSE, WITH_CLAUSE, PACKAGE_BODY), compositeChildTypes(builder, root));
+
+		assertEquals(Arrays.asList(
+			PRAGMA,
+			TYPE_DECLARATION, REPRESENTATION_CLAUSE, TYPE_DECLARATION, TYPE_DECLARATION,
+			OBJECT_DECLARATION, OBJECT_DECLARATION,
+			GENERIC_INSTANTIATION, RENAMING_DECLARATION, SUBPROGRAM_DECLARATION, SUBPROGRAM_BODY,
+			TASK_SPECIFICATION, TASK_BODY, PROTECTED_SPECIFICATION, PROTECTED_BODY,
+			SUBPROGRAM_BODY
+		), compositeChildTypes(builder, child(root, PACKAGE_BODY)));
+
+	}
+
+	@Test
+	void units_contain_their_declarations_and_statements() throws Exception {
+
+		TestPsiBuilder      builder     = parse(corpusText("declarations.adb"));
+		TestPsiBuilder.Node packageBody = child(root(builder), PACKAGE_BODY);
+
+		assertEquals(Collections.singletonList(ENTRY_DECLARATION),
+			compositeChildTypes(builder, child(packageBody, TASK_SPECIFICATION)));
+		assertEquals(Arrays.asList(OBJECT_DECLARATION, ACCEPT_STATEMENT),
+			compositeChildTypes(builder, child(packageBody, TASK_BODY)));
+		assertEquals(Arrays.asList(SUBPROGRAM_DECLARATION, OBJECT_DECLARATION),
+			compositeChildTypes(builder, child(packageBody, PROTECTED_SPECIFICATION)));
+		assertEquals(Collections.singletonList(SUBPROGRAM_BODY),
+			compositeChildTypes(builder, child(packageBody, PROTECTED_BODY)));
+
+		List<TestPsiBuilder.Node> subprogramBodies = packageBody.CHILDREN.stream()
+			.filter(child -> child.TYPE == SUBPROGRAM_BODY).collect(Collectors.toList());
+
+		assertEquals(Collections.singletonList(RETURN_STATEMENT), compositeChildTypes(builder, subprogramBodies.get(0)));
+		assertEquals(Arrays.asList(
+			SIMPLE_STATEMENT, IF_STATEMENT, CASE_STATEMENT, LOOP_STATEMENT, BLOCK_STATEMENT, RETURN_STATEMENT
+		), compositeChildTypes(builder, subprogramBodies.get(1)));
+
+		TestPsiBuilder.Node block = child(subprogramBodies.get(1), BLOCK_STATEMENT);
+
+		assertEquals(Arrays.asList(OBJECT_DECLARATION, SIMPLE_STATEMENT, SIMPLE_STATEMENT),
+			compositeChildTypes(builder, block));
+
+	}
+
+	// Testing error tolerance
+
+	@Test
+	void every_corpus_file_parsed_to_end() throws Exception {
+		for (String text : corpusTexts()) {
+			parse(text);
+		}
+	}
+
+	@Test
+	void bad_syntax_parsed_to_end_with_errors() throws Exception {
+
+		TestPsiBuilder builder = parse(corpusText("bad-syntax.adb"));
+
+		assertTrue(containsErrors(root(builder)));
+
+	}
+
+	@Test
+	void truncated_sources_parsed_to_end() throws Exception {
+
+		for (String text : corpusTexts()) {
+
+			Iterator<AdaLexer.Token> tokens = AdaLexer.textTokens(text);
+
+			while (tokens.hasNext()) {
+				parse(text.substring(0, tokens.next().END_OFFSET));
+			}
+
+		}
+
+	}
+
+	@Test
+	void item_prefixes_at_end_of_file_parsed_with_errors() {
+
+		for (String text : Arrays.asList(
+			"private", "limited", "overriding", "separate (P)",
+			"with Ada.Text_IO;\nprivate limited", "procedure P is\nbegin\n   null;\nend P;\nnot overriding"
+		)) {
+			assertTrue(containsErrors(root(parse(text))), text);
+		}
+
+	}
+
+	// Testing reparsing
+
+	@Test
+	void single_body_recognized_for_reparsing() throws Exception {
+
+		String text = corpusText("declarations.adb");
+
+		String body =
+			text.substring(text.indexOf("function Norm"), text.indexOf("end Norm;") + "end Norm;".length());
+
+		assertTrue(AdaParser.parsesAsSingleElement(SUBPROGRAM_BODY, new TestPsiBuilder(body).asPsiBuilder()));
+		assertFalse(AdaParser.parsesAsSingleElement(PACKAGE_BODY, new TestPsiBuilder(body).asPsiBuilder()));
+		assertFalse(AdaParser.parsesAsSingleElement(SUBPROGRAM_BODY, new TestPsiBuilder(body + "\nX : Integer;").asPsiBuilder()));
+		assertFalse(AdaParser.parsesAsSingleElement(SUBPROGRAM_BODY,
+			new TestPsiBuilder(body.replace("return", "return (")).asPsiBuilder()));
+
+	}
+
+	// Testing parse time statistics
+
+	@Test
+	void parse_times_recorded_per_file_and_per_reparsed_body() throws Exception {
+
+		String text = corpusText("declarations.adb");
+
+		String body =
+			text.substring(text.indexOf("function Norm"), text.indexOf("end Norm;") + "end Norm;".length());
+
+		long fileParseCount   = AdaParser.STATISTICS.getFileParseCount();
+		long bodyReparseCount = AdaParser.STATISTICS.getBodyReparseCount();
+
+		parse(text);
+
+		assertTrue(AdaParser.STATISTICS.getFileParseCount() > fileParseCount);
+		assertEquals(bodyReparseCount, AdaParser.STATISTICS.getBodyReparseCount());
+
+		new AdaParser().parse(SUBPROGRAM_BODY, new TestPsiBuilder(body).asPsiBuilder());
+
+		assertTrue(AdaParser.STATISTICS.getBodyReparseCount() > bodyReparseCount);
+		assertTrue(AdaParser.STATISTICS.getMaxBodyReparseMicros() >= AdaParser.STATISTICS.getAverageBodyReparseMicros());
+
+	}
+
+}
@@ -0,0 +1,453 @@
+package com.adacore.adaintellij.analysis.syntactic;
+
+import java.lang.reflect.*;
+import java.util.*;
+
+import com.intellij.lang.*;
+import com.intellij.openapi.util.Ref;
+import com.intellij.psi.TokenType;
+import com.intellij.psi.tree.*;
+import com.intellij.util.diff.FlyweightCapableTreeStructure;
+
+import com.adacore.adaintellij.analysis.lexical.*;
+
+/**
+ * Light PSI builder for testing the Ada parser without running the
+ * IntelliJ platform. It lexes a text with an AdaLexer, hides whitespace
+ * and comment tokens from the parser as `PsiBuilderImpl` does, and
+ * records the markers done by the parser as a tree of nodes.
+ *
+ * The builder is exposed to the parser through dynamic proxies of the
+ * `PsiBuilder`, `PsiBuilder.Marker`, `LighterASTNode` and
+ * `FlyweightCapableTreeStructure` interfaces, implementing only the
+ * methods used by the parser, so that it does not depend on the full
+ * set of methods of those interfaces in a given platform version.
+ * Other methods throw an `UnsupportedOperationException`.
+ *
+ * In order for tests not to hang on parsers that stop making progress,
+ * the builder throws an `IllegalStateException` when the parser queries
+ * the current token too many times without advancing.
+ */
+final class TestPsiBuilder {
+
+	/**
+	 * The maximum number of queries of the current token between two
+	 * advances of the builder.
+	 */
+	private static final int MAX_QUERIES_WITHOUT_PROGRESS = 100_000;
+
+	/**
+	 * Tokens hidden from the parser.
+	 */
+	private static final TokenSet HIDDEN_TOKENS =
+		TokenSet.orSet(AdaTokenTypes.WHITESPACE_TOKEN_SET, AdaTokenTypes.COMMENT_TOKEN_SET);
+
+	/**
+	 * Node of the tree built by the parser, spanning a range of the
+	 * tokens visible to the parser.
+	 */
+	static final class Node {
+
+		final IElementType TYPE;
+		final int          START_TOKEN;
+		final int          END_TOKEN;
+		final String       ERROR_MESSAGE;
+		final List<Node>   CHILDREN;
+
+		Node(IElementType type, int startToken, int endToken, String errorMessage, List<Node> children) {
+			TYPE          = type;
+			START_TOKEN   = startToken;
+			END_TOKEN     = endToken;
+			ERROR_MESSAGE = errorMessage;
+			CHILDREN      = children;
+		}
+
+		@Override
+		public String toString() {
+			return (ERROR_MESSAGE == null ? TYPE.toString() : "ERROR(" + ERROR_MESSAGE + ")") +
+				" [" + START_TOKEN + ", " + END_TOKEN + ")";
+		}
+
+	}
+
+	/**
+	 * Marker set by the parser and not done, dropped or turned into an
+	 * error yet.
+	 */
+	private static final class OpenMarker {
+
+		final int        START_TOKEN;
+		final List<Node> CHILDREN = new ArrayList<>();
+
+		OpenMarker(int startToken) { START_TOKEN = startToken; }
+
+	}
+
+	/**
+	 * The parsed text.
+	 */
+	private final String text;
+
+	/**
+	 * The types and start offsets of the tokens visible to the parser.
+	 */
+	private final List<IElementType> tokenTypes   = new ArrayList<>();
+	private final List<Integer>      tokenOffsets = new ArrayList<>();
+
+	/**
+	 * The index of the current token.
+	 */
+	private int tokenIndex = 0;
+
+	/**
+	 * The number of queries of the current token since the last
+	 * advance of the builder.
+	 */
+	private int queriesWithoutProgress = 0;
+
+	/**
+	 * The open markers, innermost first.
+	 */
+	private final Deque<OpenMarker> openMarkers = new ArrayDeque<>();
+
+	/**
+	 * The nodes done outside of any open marker.
+	 */
+	private final List<Node> rootNodes = new ArrayList<>();
+
+	/**
+	 * The nodes represented by the light tree node proxies returned
+	 * by the builder.
+	 */
+	private final Map<Object, Node> lightNodes = new IdentityHashMap<>();
+
+	/**
+	 * Constructs a new TestPsiBuilder for the given text.
+	 *
+	 * @param text The text to parse.
+	 */
+	TestPsiBuilder(String text) {
+
+		this.text = text;
+
+		Iterator<AdaLexer.Token> tokens = AdaLexer.textTokens(text);
+
+		while (tokens.hasNext()) {
+
+			AdaLexer.Token token = tokens.next();
+
+			if (HIDDEN_TOKENS.contains(token.TOKEN_TYPE)) { continue; }
+
+			tokenTypes.add(token.TOKEN_TYPE);
+			tokenOffsets.add(token.START_OFFSET);
+
+		}
+
+	}
+
+	/**
+	 * Returns the types of the tokens visible to the parser.
+	 *
+	 * @return The token types.
+	 */
+	List<IElementType> getTokenTypes() { return tokenTypes; }
+
+	/**
+	 * Returns the nodes done by the parser outside of any marker, in
+	 * the order in which they were done.
+	 *
+	 * @return The root nodes.
+	 */
+	List<Node> getRootNodes() { return rootNodes; }
+
+	/**
+	 * Returns whether or not all tokens were consumed by the parser and
+	 * all markers were done, dropped or turned into errors.
+	 *
+	 * @return Whether or not parsing is complete.
+	 */
+	boolean isComplete() { return eof() && openMarkers.isEmpty(); }
+
+	/**
+	 * Returns a PSI builder backed by this builder.
+	 *
+	 * @return The PSI builder.
+	 */
+	PsiBuilder asPsiBuilder() {
+		return proxy(PsiBuilder.class, (method, arguments) -> {
+			switch (method.getName()) {
+				case "mark"              : return mark();
+				case "getTokenType"      : return lookAhead(0);
+				case "lookAhead"         : return lookAhead((Integer)arguments[0]);
+				case "advanceLexer"      : advanceLexer(); return null;
+				case "eof"               : queried(); return eof();
+				case "error"             : currentChildren().add(
+				                               new Node(TokenType.ERROR_ELEMENT, tokenIndex, tokenIndex,
+				                                   (String)arguments[0], new ArrayList<>())); return null;
+				case "getCurrentOffset"  : return eof() ? text.length() : tokenOffsets.get(tokenIndex);
+				case "getOriginalText"   : return text;
+				case "getTreeBuilt"      : checkMarkersClosed(); return null;
+				case "getLightTree"      : checkMarkersClosed(); return lightTree();
+				default                  : throw unsupported(method);
+			}
+		});
+	}
+
+	/**
+	 * Returns whether or not the builder reached the end of the tokens.
+	 *
+	 * @return Whether or not the end was reached.
+	 */
+	private boolean eof() { return tokenIndex >= tokenTypes.size(); }
+
+	/**
+	 * Records a query of the current token, and checks that the parser
+	 * did not stop making progress.
+	 *
+	 * @throws IllegalStateException If the parser queried the current
+	 *                               token too many times.
+	 */
+	private void queried() {
+		if (++queriesWithoutProgress > MAX_QUERIES_WITHOUT_PROGRESS) {
+			throw new IllegalStateException("Parser made no progress at token " + tokenIndex +
+				" (offset " + (eof() ? text.length() : tokenOffsets.get(tokenIndex)) + ")");
+		}
+	}
+
+	/**
+	 * Returns the type of the token at the given distance from the
+	 * current token, or null past the last token.
+	 *
+	 * @param steps The distance from the current token.
+	 * @return The token type.
+	 */
+	private IElementType lookAhead(int steps) {
+
+		queried();
+
+		int index = tokenIndex + steps;
+
+		return index < tokenTypes.size() ? tokenTypes.get(index) : null;
+
+	}
+
+	/**
+	 * Advances to the next token, if any.
+	 */
+	private void advanceLexer() {
+
+		if (eof()) { return; }
+
+		tokenIndex++;
+
+		queriesWithoutProgress = 0;
+
+	}
+
+	/**
+	 * Returns the list to which nodes done at this point are added.
+	 *
+	 * @return The children of the innermost open marker, or the root
+	 *         nodes if no marker is open.
+	 */
+	private List<Node> currentChildren() {
+		return openMarkers.isEmpty() ? rootNodes : openMarkers.peek().CHILDREN;
+	}
+
+	/**
+	 * Sets a new marker at the current token.
+	 *
+	 * @return The marker.
+	 */
+	private PsiBuilder.Marker mark() {
+
+		queried();
+
+		OpenMarker marker = new OpenMarker(tokenIndex);
+
+		openMarkers.push(marker);
+
+		return proxy(PsiBuilder.Marker.class, (method, arguments) -> {
+			switch (method.getName()) {
+				case "done"  : close(marker, nonNullType((IElementType)arguments[0]), null); return null;
+				case "drop"  : close(marker, null, null); return null;
+				case "error" : close(marker, TokenType.ERROR_ELEMENT, (String)arguments[0]); return null;
+				default      : throw unsupported(method);
+			}
+		});
+
+	}
+
+	/**
+	 * Returns the given element type of a done marker, which the
+	 * platform builder requires to be non-null.
+	 *
+	 * @param type The element type.
+	 * @return The element type.
+	 * @throws IllegalArgumentException If the type is null.
+	 */
+	private static IElementType nonNullType(IElementType type) {
+
+		if (type == null) {
+			throw new IllegalArgumentException("Marker done with a null element type");
+		}
+
+		return type;
+
+	}
+
+	/**
+	 * Closes the given marker, which must be the innermost open marker,
+	 * into a node of the given type, or drops it if the type is null.
+	 *
+	 * @param marker The marker to close.
+	 * @param type The type of the node, or null to drop the marker.
+	 * @param errorMessage The error message of the node, if it is an error.
+	 * @throws IllegalStateException If a marker set after the given one
+	 *                               is still open.
+	 */
+	private void close(OpenMarker marker, IElementType type, String errorMessage) {
+
+		if (openMarkers.peek() != marker) {
+			throw new IllegalStateException("Marker closed before a marker set after it");
+		}
+
+		openMarkers.pop();
+
+		if (type == null) {
+			currentChildren().addAll(marker.CHILDREN);
+		} else {
+			currentChildren().add(new Node(type, marker.START_TOKEN, tokenIndex, errorMessage, marker.CHILDREN));
+		}
+
+	}
+
+	/**
+	 * Checks that all markers were closed.
+	 *
+	 * @throws IllegalStateException If a marker is still open.
+	 */
+	private void checkMarkersClosed() {
+		if (!openMarkers.isEmpty()) {
+			throw new IllegalStateException(openMarkers.size() + " markers not done");
+		}
+	}
+
+	/**
+	 * Returns a light tree of the nodes done by the parser, whose root
+	 * is the single root node.
+	 *
+	 * @return The light tree.
+	 */
+	@SuppressWarnings("unchecked")
+	private FlyweightCapableTreeStructure<LighterASTNode> lightTree() {
+
+		if (rootNodes.size() != 1) {
+			throw new IllegalStateException("Light tree requires a single root node, found " + rootNodes.size());
+		}
+
+		LighterASTNode root = lightNode(rootNodes.get(0));
+
+		return proxy(FlyweightCapableTreeStructure.class, (method, arguments) -> {
+			switch (method.getName()) {
+				case "getRoot"     : return root;
+				case "getChildren" :
+					List<Node> children = lightNodes.get(arguments[0]).CHILDREN;
+					((Ref<LighterASTNode[]>)arguments[1]).set(
+						children.stream().map(this::lightNode).toArray(LighterASTNode[]::new));
+					return children.size();
+				case "disposeChildren" : return null;
+				default            : throw unsupported(method);
+			}
+		});
+
+	}
+
+	/**
+	 * Returns a light tree node representing the given node.
+	 *
+	 * @param node The node.
+	 * @return The light tree node.
+	 */
+	private LighterASTNode lightNode(Node node) {
+
+		LighterASTNode lightNode = proxy(LighterASTNode.class, (method, arguments) -> {
+			switch (method.getName()) {
+				case "getTokenType"   : return node.TYPE;
+				case "getStartOffset" : return tokenOffset(node.START_TOKEN);
+				case "getEndOffset"   : return tokenOffset(node.END_TOKEN);
+				default               : throw unsupported(method);
+			}
+		});
+
+		lightNodes.put(lightNode, node);
+
+		return lightNode;
+
+	}
+
+	/**
+	 * Returns the start offset of the token at the given index, or the
+	 * length of the text past the last token.
+	 *
+	 * @param index The token index.
+	 * @return The offset.
+	 */
+	private int tokenOffset(int index) {
+		return index < tokenOffsets.size() ? tokenOffsets.get(index) : text.length();
+	}
+
+	/**
+	 * Handler of the calls of the methods of a proxy, other than the
+	 * methods declared by `Object`.
+	 */
+	@FunctionalInterface
+	private interface MethodHandler {
+
+		/**
+		 * Handles a call of the given method with the given arguments.
+		 *
+		 * @param method The called method.
+		 * @param arguments The arguments of the call, or null if none.
+		 * @return The result of the call.
+		 */
+		Object handle(Method method, Object[] arguments);
+
+	}
+
+	/**
+	 * Returns a proxy implementing the given interface with the given
+	 * handler. `equals`, `hashCode` and `toString` are based on the
+	 * identity of the proxy.
+	 *
+	 * @param type The interface to implement.
+	 * @param handler The handler of method calls.
+	 * @param <T> The interface type.
+	 * @return The proxy.
+	 */
+	private static <T> T proxy(Class<T> type, MethodHandler handler) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+			(proxy, method, arguments) -> {
+				if (method.getDeclaringClass() == Object.class) {
+					switch (method.getName()) {
+						case "equals"   : return proxy == arguments[0];
+						case "hashCode" : return System.identityHashCode(proxy);
+						default         : return type.getSimpleName() + "@" + System.identityHashCode(proxy);
+					}
+				}
+				return handler.handle(method, arguments);
+			}));
+	}
+
+	/**
+	 * Returns the exception thrown by unsupported methods.
+	 *
+	 * @param method The unsupported method.
+	 * @return The exception.
+	 */
+	private static UnsupportedOperationException unsupported(Method method) {
+		return new UnsupportedOperationException(
+			method.getDeclaringClass().getSimpleName() + "#" + method.getName() + " is not supported");
+	}
+
+}
@@ -0,0 +1,422 @@
+package com.adacore.adaintellij.lsp;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.*;
+
+import org.junit.jupiter.api.*;
+
+import org.eclipse.lsp4j.jsonrpc.Launcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class checking that the ALS supervisor restarts sessions
+ * whose server dies, hangs or is reported as failed, backing off
+ * between consecutive restarts, using local fake servers that crash
+ * or hang on demand.
+ */
+final class AdaLSPSupervisorTest {
+
+	/**
+	 * Timings of supervisors under test, in milliseconds.
+	 */
+	private static final long PROBE_INTERVAL        = 20;
+	private static final long PROBE_TIMEOUT         = 100;
+	private static final long INITIAL_RESTART_DELAY = 10;
+
+	/**
+	 * The maximum time, in milliseconds, to wait for a condition.
+	 */
+	private static final long WAIT_TIMEOUT = 10000;
+
+	/**
+	 * Remote interface of fake servers and of their clients, whose
+	 * proxies are never used.
+	 */
+	private interface Remote {}
+
+	/**
+	 * Session of a fake server running in-process, connected to its
+	 * client through pipes. The fake server implements no methods, so
+	 * it answers every request, including probes, with an error, as
+	 * the ALS does for methods it does not implement.
+	 */
+	private static final class FakeSession implements AdaLSPSupervisor.Session {
+
+		/**
+		 * The launchers of the client and of the fake server.
+		 */
+		private final Launcher<Remote> clientLauncher;
+		private final Launcher<Remote> serverLauncher;
+
+		/**
+		 * The streams of the client and of the fake server.
+		 */
+		private final List<Closeable> streams = new ArrayList<>();
+
+		/**
+		 * The input stream of the fake server, which stops reading
+		 * messages while the server is hung.
+		 */
+		private final HangingInputStream serverInput;
+
+		/**
+		 * Whether or not the fake server crashed or was terminated.
+		 */
+		private volatile boolean dead = false;
+
+		/**
+		 * The number of probe requests answered by the fake server.
+		 */
+		private final AtomicInteger answeredProbes = new AtomicInteger();
+
+		/**
+		 * Constructs and starts a new FakeSession.
+		 *
+		 * @throws IOException If a problem occurs while creating pipes.
+		 */
+		FakeSession() throws IOException {
+
+			Pipe clientToServer = Pipe.open();
+			Pipe serverToClient = Pipe.open();
+
+			InputStream  clientInput  = Channels.newInputStream(serverToClient.source());
+			OutputStream clientOutput = Channels.newOutputStream(clientToServer.sink());
+			OutputStream serverOutput = Channels.newOutputStream(serverToClient.sink());
+
+			serverInput = new HangingInputStream(Channels.newInputStream(clientToServer.source()));
+
+			streams.addAll(Arrays.asList(clientInput, clientOutput, serverInput, serverOutput));
+
+			serverLauncher = Launcher.createLauncher(new Object(), Remote.class, serverInput, serverOutput);
+			clientLauncher = Launcher.createLauncher(new Object(), Remote.class, clientInput, clientOutput);
+
+			serverLauncher.startListening();
+			clientLauncher.startListening();
+
+		}
+
+		/**
+		 * Makes the fake server crash.
+		 */
+		void crash() { terminate(); }
+
+		/**
+		 * Makes the fake server hang, without crashing.
+		 */
+		void hang() { serverInput.hang(); }
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.AdaLSPSupervisor.Session#isAlive()
+		 */
+		@Override
+		public boolean isAlive() { return !dead; }
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.AdaLSPSupervisor.Session#probe()
+		 */
+		@Override
+		public CompletableFuture<?> probe() {
+
+			CompletableFuture<?> probe =
+				clientLauncher.getRemoteEndpoint().request(AdaLSPSupervisor.PROBE_METHOD, null);
+
+			probe.whenComplete((result, throwable) -> {
+				if (!(throwable instanceof CancellationException)) {
+					answeredProbes.incrementAndGet();
+				}
+			});
+
+			return probe;
+
+		}
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.AdaLSPSupervisor.Session#terminate()
+		 */
+		@Override
+		public void terminate() {
+
+			dead = true;
+
+			for (Closeable stream : streams) {
+				try {
+					stream.close();
+				} catch (IOException ignored) {}
+			}
+
+		}
+
+	}
+
+	/**
+	 * Input stream blocking reads once hung.
+	 */
+	private static final class HangingInputStream extends FilterInputStream {
+
+		/**
+		 * Whether or not reads are blocked.
+		 */
+		private volatile boolean hung = false;
+
+		/**
+		 * Constructs a new HangingInputStream given the stream to read.
+		 *
+		 * @param input The stream to read.
+		 */
+		HangingInputStream(InputStream input) { super(input); }
+
+		/**
+		 * Blocks reads from now on.
+		 */
+		void hang() { hung = true; }
+
+		/**
+		 * Blocks while this stream is hung.
+		 *
+		 * @throws IOException If the blocked thread is interrupted.
+		 */
+		private void awaitUnhung() throws IOException {
+
+			while (hung) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException exception) {
+					throw new InterruptedIOException();
+				}
+			}
+
+		}
+
+		@Override
+		public int read() throws IOException {
+			awaitUnhung();
+			return super.read();
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+
+			awaitUnhung();
+
+			int count = super.read(buffer, offset, length);
+
+			// The server may hang while this thread was reading
+
+			awaitUnhung();
+
+			return count;
+
+		}
+
+	}
+
+	/**
+	 * The executor running checks and restarts of supervisors.
+	 */
+	private ScheduledExecutorService executor;
+
+	/**
+	 * The sessions started by supervisors, in order.
+	 */
+	private List<FakeSession> startedSessions;
+
+	/**
+	 * Whether or not the supervisor gave up.
+	 */
+	private volatile boolean gaveUp;
+
+	@BeforeEach
+	void setUp() {
+		executor        = Executors.newScheduledThreadPool(2);
+		startedSessions = new CopyOnWriteArrayList<>();
+		gaveUp          = false;
+	}
+
+	@AfterEach
+	void tearDown() {
+		startedSessions.forEach(FakeSession::terminate);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Starts a new fake session and records it.
+	 *
+	 * @return The started session.
+	 */
+	private FakeSession startSession() {
+
+		try {
+
+			FakeSession session = new FakeSession();
+
+			startedSessions.add(session);
+
+			return session;
+
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+
+	}
+
+	/**
+	 * Creates a new supervisor using the given session starter and
+	 * supervising a new fake session.
+	 *
+	 * @param sessionStarter The supplier starting new sessions.
+	 * @return The supervisor.
+	 */
+	private AdaLSPSupervisor supervise(Supplier<AdaLSPSupervisor.Session> sessionStarter) {
+
+		AdaLSPSupervisor supervisor = new AdaLSPSupervisor(
+			sessionStarter, () -> gaveUp = true, executor,
+			PROBE_INTERVAL, PROBE_TIMEOUT, INITIAL_RESTART_DELAY);
+
+		supervisor.supervise(startSession());
+
+		return supervisor;
+
+	}
+
+	/**
+	 * Waits until the given condition holds, failing after a timeout.
+	 *
+	 * @param condition The condition to wait for.
+	 * @param message The failure message.
+	 * @throws InterruptedException If the waiting thread is interrupted.
+	 */
+	private static void awaitCondition(BooleanSupplier condition, String message) throws InterruptedException {
+
+		long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.currentTimeMillis() < deadline, message);
+			Thread.sleep(5);
+		}
+
+	}
+
+	// Testing probes
+
+	@Test
+	void healthy_server_is_probed_and_not_restarted() throws Exception {
+
+		supervise(this::startSession);
+
+		FakeSession session = startedSessions.get(0);
+
+		awaitCondition(() -> session.answeredProbes.get() >= 3, "Server was not probed");
+
+		assertEquals(1, startedSessions.size());
+		assertTrue(session.isAlive());
+
+	}
+
+	// Testing restarts
+
+	@Test
+	void crashed_server_is_restarted() throws Exception {
+
+		AdaLSPSupervisor supervisor = supervise(this::startSession);
+
+		startedSessions.get(0).crash();
+
+		awaitCondition(() -> startedSessions.size() == 2, "Crashed server was not restarted");
+
+		// The restarted server is supervised in turn
+
+		FakeSession restartedSession = startedSessions.get(1);
+
+		awaitCondition(() -> restartedSession.answeredProbes.get() >= 1, "Restarted server was not probed");
+
+		assertEquals(1, supervisor.getRestartAttempts());
+
+		startedSessions.get(1).crash();
+
+		awaitCondition(() -> startedSessions.size() == 3, "Crashed server was not restarted again");
+
+		assertEquals(2, supervisor.getRestartAttempts());
+
+	}
+
+	@Test
+	void hung_server_is_terminated_and_restarted() throws Exception {
+
+		supervise(this::startSession);
+
+		FakeSession hungSession = startedSessions.get(0);
+
+		hungSession.hang();
+
+		awaitCondition(() -> startedSessions.size() == 2, "Hung server was not restarted");
+
+		assertFalse(hungSession.isAlive(), "Hung server was not terminated");
+
+	}
+
+	@Test
+	void failed_session_is_restarted_on_request() throws Exception {
+
+		AdaLSPSupervisor supervisor = supervise(this::startSession);
+
+		supervisor.sessionFailed();
+
+		awaitCondition(() -> startedSessions.size() == 2, "Failed session was not restarted");
+
+		assertFalse(startedSessions.get(0).isAlive(), "Failed session was not terminated");
+
+	}
+
+	@Test
+	void supervisor_backs_off_then_gives_up() throws Exception {
+
+		List<Long> startTimes = new CopyOnWriteArrayList<>();
+
+		supervise(() -> {
+			startTimes.add(System.currentTimeMillis());
+			return null;
+		});
+
+		long crashTime = System.currentTimeMillis();
+
+		startedSessions.get(0).crash();
+
+		awaitCondition(() -> gaveUp, "Supervisor did not give up");
+
+		assertEquals(AdaLSPSupervisor.MAX_RESTART_ATTEMPTS, startTimes.size());
+
+		// Each restart is delayed twice as long as the previous one
+
+		long previousTime = crashTime;
+		long delay        = INITIAL_RESTART_DELAY;
+
+		for (long startTime : startTimes) {
+			assertTrue(startTime - previousTime >= delay, "Restart was not delayed enough");
+			previousTime  = startTime;
+			delay        *= 2;
+		}
+
+	}
+
+	@Test
+	void stopped_supervisor_does_not_restart() throws Exception {
+
+		AdaLSPSupervisor supervisor = supervise(this::startSession);
+
+		supervisor.stop();
+
+		startedSessions.get(0).crash();
+
+		Thread.sleep(PROBE_INTERVAL * 5);
+
+		assertEquals(1, startedSessions.size());
+		assertFalse(gaveUp);
+
+	}
+
+}
@@ -0,0 +1,260 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.*;
+
+import org.eclipse.lsp4j.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class checking that completion result caches reuse complete
+ * results while the completed prefix grows, and filter and rank them.
+ */
+final class CompletionResultCacheTest {
+
+	/**
+	 * The URIs of the completed documents.
+	 */
+	private static final String DOCUMENT_URI       = "file:///project/main.adb";
+	private static final String OTHER_DOCUMENT_URI = "file:///project/other.adb";
+
+	/**
+	 * The start offset of the completed word.
+	 */
+	private static final int START_OFFSET = 40;
+
+	/**
+	 * Returns a completion list with items of the given labels.
+	 *
+	 * @param incomplete Whether or not the list is incomplete.
+	 * @param labels The labels of the items.
+	 * @return The completion list.
+	 */
+	private static CompletionList completionList(boolean incomplete, String... labels) {
+		return new CompletionList(incomplete,
+			Arrays.stream(labels).map(CompletionItem::new).collect(Collectors.toList()));
+	}
+
+	/**
+	 * Returns the labels of the given completion items.
+	 *
+	 * @param items The completion items.
+	 * @return The labels of the items.
+	 */
+	private static List<String> labels(List<CompletionItem> items) {
+		return items.stream().map(CompletionItem::getLabel).collect(Collectors.toList());
+	}
+
+	/**
+	 * Returns a cache storing a complete result for the prefix `Put` of
+	 * the completed document.
+	 *
+	 * @return The cache.
+	 */
+	private static CompletionResultCache cacheForPut() {
+
+		CompletionResultCache cache = new CompletionResultCache();
+
+		cache.store(DOCUMENT_URI, START_OFFSET, "Put",
+			completionList(false, "Put_Line", "Put", "Put_Image"));
+
+		return cache;
+
+	}
+
+	/**
+	 * Records the typing of the given characters at the end of the
+	 * given prefix in the completed document.
+	 *
+	 * @param cache The cache.
+	 * @param prefix The completed prefix before typing.
+	 * @param typed The typed characters.
+	 * @return The completed prefix after typing.
+	 */
+	private static String type(CompletionResultCache cache, String prefix, String typed) {
+
+		cache.documentChanged(DOCUMENT_URI, START_OFFSET + prefix.length(), 0, typed.length());
+
+		return prefix + typed;
+
+	}
+
+	// Testing word starts
+
+	@Test
+	void word_start_is_start_of_identifier_preceding_offset() {
+
+		String text = "   Ada.Text_IO.Put_Li";
+
+		assertEquals(text.indexOf("Put_Li"), CompletionResultCache.wordStart(text, text.length()));
+		assertEquals(text.indexOf("Text_IO"), CompletionResultCache.wordStart(text, text.indexOf(".Put")));
+		assertEquals(3, CompletionResultCache.wordStart(text, 3));
+		assertEquals(0, CompletionResultCache.wordStart("X1", 2));
+
+	}
+
+	// Testing reuse
+
+	@Test
+	void result_is_reused_while_typing_within_word() {
+
+		CompletionResultCache cache = cacheForPut();
+
+		String prefix = type(cache, "Put", "_");
+
+		assertEquals(Arrays.asList("Put_Image", "Put_Line"), labels(cache.lookup(DOCUMENT_URI, START_OFFSET, prefix)));
+
+		prefix = type(cache, prefix, "l");
+
+		assertEquals(Collections.singletonList("Put_Line"), labels(cache.lookup(DOCUMENT_URI, START_OFFSET, prefix)));
+
+	}
+
+	@Test
+	void result_is_reused_after_deleting_typed_characters() {
+
+		CompletionResultCache cache = cacheForPut();
+
+		type(cache, "Put", "_L");
+
+		cache.documentChanged(DOCUMENT_URI, START_OFFSET + 4, 1, 0);
+
+		assertNotNull(cache.lookup(DOCUMENT_URI, START_OFFSET, "Put_"));
+
+	}
+
+	@Test
+	void result_is_not_reused_for_shorter_prefix() {
+
+		CompletionResultCache cache = cacheForPut();
+
+		cache.documentChanged(DOCUMENT_URI, START_OFFSET + 2, 1, 0);
+
+		assertNull(cache.lookup(DOCUMENT_URI, START_OFFSET, "Pu"));
+
+	}
+
+	@Test
+	void result_is_not_reused_for_other_word_or_document() {
+
+		CompletionResultCache cache = cacheForPut();
+
+		assertNull(cache.lookup(DOCUMENT_URI, START_OFFSET + 10, "Put"));
+		assertNull(cache.lookup(OTHER_DOCUMENT_URI, START_OFFSET, "Put"));
+		assertNull(cache.lookup(DOCUMENT_URI, START_OFFSET, "Put_"));
+
+	}
+
+	@Test
+	void incomplete_result_is_not_cached() {
+
+		CompletionResultCache cache = new CompletionResultCache();
+
+		cache.store(DOCUMENT_URI, START_OFFSET, "Put", completionList(true, "Put_Line"));
+
+		assertNull(cache.lookup(DOCUMENT_URI, START_OFFSET, "Put"));
+
+	}
+
+	@Test
+	void empty_result_is_not_cached_and_invalidates_cache() {
+
+		CompletionResultCache cache = cacheForPut();
+
+		cache.store(DOCUMENT_URI, START_OFFSET, "Put", completionList(false));
+
+		assertNull(cache.lookup(DOCUMENT_URI, START_OFFSET, "Put"));
+
+		cache.store(DOCUMENT_URI, START_OFFSET, "Put", new CompletionList(false, null));
+
+		assertNull(cache.lookup(DOCUMENT_URI, START_OFFSET, "Put"));
+
+	}
+
+	@Test
+	void resolved_item_reused_with_cached_result() {
+
+		CompletionResultCache cache = new CompletionResultCache();
+		CompletionList        result = completionList(false, "Put_Line", "Put");
+
+		cache.store(DOCUMENT_URI, START_OFFSET, "Put", result);
+
+		CompletionItem item         = cache.lookup(DOCUMENT_URI, START_OFFSET, "Put").get(0);
+		CompletionItem resolvedItem = new CompletionItem(item.getLabel());
+
+		resolvedItem.setDetail("procedure Put (Item : String)");
+
+		cache.itemResolved(item, resolvedItem);
+		cache.itemResolved(new CompletionItem("Put"), new CompletionItem("Other"));
+
+		List<CompletionItem> items = cache.lookup(DOCUMENT_URI, START_OFFSET, "Put");
+
+		assertSame(resolvedItem, items.get(0));
+		assertEquals(Arrays.asList("Put", "Put_Line"), labels(items));
+
+	}
+
+	// Testing invalidation
+
+	@Test
+	void result_is_discarded_on_change_outside_prefix() {
+
+		CompletionResultCache cache = cacheForPut();
+
+		cache.documentChanged(DOCUMENT_URI, 0, 0, 1);
+
+		assertNull(cache.lookup(DOCUMENT_URI, START_OFFSET, "Put"));
+		assertNull(cache.lookup(DOCUMENT_URI, START_OFFSET + 1, "Put"));
+
+		cache = cacheForPut();
+
+		cache.documentChanged(DOCUMENT_URI, START_OFFSET + 3, 1, 1);
+
+		assertNull(cache.lookup(DOCUMENT_URI, START_OFFSET, "Put"));
+
+	}
+
+	@Test
+	void result_is_kept_on_change_of_other_document() {
+
+		CompletionResultCache cache = cacheForPut();
+
+		cache.documentChanged(OTHER_DOCUMENT_URI, 0, 0, 1);
+
+		assertNotNull(cache.lookup(DOCUMENT_URI, START_OFFSET, "Put"));
+
+	}
+
+	// Testing filtering and ranking
+
+	@Test
+	void prefixes_are_matched_ignoring_case_and_at_word_starts() {
+
+		assertEquals(CompletionResultCache.PREFIX_MATCH, CompletionResultCache.matchClass("Put_Line", "put_l"));
+		assertEquals(CompletionResultCache.WORD_PREFIX_MATCH, CompletionResultCache.matchClass("Put_Line", "line"));
+		assertEquals(CompletionResultCache.WORD_PREFIX_MATCH, CompletionResultCache.matchClass("Ada.Text_IO", "text"));
+		assertEquals(CompletionResultCache.NO_MATCH, CompletionResultCache.matchClass("Put_Line", "ine"));
+
+	}
+
+	@Test
+	void items_are_ranked_by_match_class_then_sort_text() {
+
+		CompletionItem lineLength = new CompletionItem("Line_Length");
+		CompletionItem putLine    = new CompletionItem("Put_Line");
+		CompletionItem line       = new CompletionItem("Line");
+		CompletionItem newPage    = new CompletionItem("New_Page");
+
+		line.setSortText("0");
+		lineLength.setFilterText("Line_Length");
+		lineLength.setSortText("1");
+
+		assertEquals(Arrays.asList("Line", "Line_Length", "Put_Line"), labels(CompletionResultCache.filterAndRank(
+			Arrays.asList(putLine, newPage, lineLength, line), "li")));
+
+	}
+
+}
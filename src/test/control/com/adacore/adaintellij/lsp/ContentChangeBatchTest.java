@@ -0,0 +1,453 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import org.eclipse.lsp4j.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class checking that content change batches produce LSP
+ * change events which, applied to the text known to the server, result
+ * in the edited text of the document.
+ */
+final class ContentChangeBatchTest {
+
+	/**
+	 * The text of the document known to the server.
+	 */
+	private static final String BASE_TEXT =
+		"with Ada.Text_IO;\n" +
+		"\n" +
+		"procedure Main is\n" +
+		"begin\n" +
+		"   Ada.Text_IO.Put_Line (\"Hello\");\n" +
+		"end Main;\n";
+
+	/**
+	 * An edited document, recording its changes in a batch.
+	 */
+	private static final class EditedDocument {
+
+		/**
+		 * The text of the document before any change.
+		 */
+		final String baseText;
+
+		/**
+		 * The current text of the document.
+		 */
+		final StringBuilder text;
+
+		/**
+		 * The batch recording the changes of the document.
+		 */
+		final ContentChangeBatch batch;
+
+		/**
+		 * Constructs a new EditedDocument given its text.
+		 *
+		 * @param baseText The text of the document.
+		 */
+		EditedDocument(String baseText) {
+			this.baseText = baseText;
+			this.text     = new StringBuilder(baseText);
+			this.batch    = new ContentChangeBatch(baseText);
+		}
+
+		/**
+		 * Replaces the given range of the document by the given text.
+		 *
+		 * @param offset The start offset of the range.
+		 * @param oldLength The length of the range.
+		 * @param newText The replacement text.
+		 * @return This document.
+		 */
+		EditedDocument replace(int offset, int oldLength, String newText) {
+
+			batch.addChange(offset, oldLength, newText.length());
+
+			text.replace(offset, offset + oldLength, newText);
+
+			return this;
+
+		}
+
+		/**
+		 * Inserts the given text at the given offset, one character at
+		 * a time, as when typing.
+		 *
+		 * @param offset The offset at which to type.
+		 * @param typed The typed text.
+		 * @return This document.
+		 */
+		EditedDocument type(int offset, String typed) {
+
+			for (int i = 0 ; i < typed.length() ; i++) {
+				replace(offset + i, 0, typed.substring(i, i + 1));
+			}
+
+			return this;
+
+		}
+
+		/**
+		 * Deletes the given number of characters before the given
+		 * offset, one character at a time, as when pressing backspace.
+		 *
+		 * @param offset The offset at which to press backspace.
+		 * @param count The number of deleted characters.
+		 * @return This document.
+		 */
+		EditedDocument backspace(int offset, int count) {
+
+			for (int i = 0 ; i < count ; i++) {
+				replace(offset - i - 1, 1, "");
+			}
+
+			return this;
+
+		}
+
+		/**
+		 * Returns the change events of the batch, checking that applying
+		 * them to the base text results in the current text.
+		 *
+		 * @return The change events.
+		 */
+		List<TextDocumentContentChangeEvent> checkedEvents() {
+
+			List<TextDocumentContentChangeEvent> events = batch.toContentChangeEvents(text);
+
+			assertEquals(text.toString(), apply(baseText, events));
+
+			return events;
+
+		}
+
+	}
+
+	/**
+	 * Returns the offset of the given LSP position in the given text.
+	 *
+	 * @param text The text.
+	 * @param position The position.
+	 * @return The corresponding offset.
+	 */
+	private static int offsetOf(CharSequence text, Position position) {
+
+		int lineStart = 0;
+
+		for (int line = 0 ; line < position.getLine() ; line++) {
+			lineStart = text.toString().indexOf('\n', lineStart) + 1;
+		}
+
+		return lineStart + position.getCharacter();
+
+	}
+
+	/**
+	 * Applies the given change events in order to the given text, as
+	 * the server does.
+	 *
+	 * @param text The text to which to apply the events.
+	 * @param events The change events.
+	 * @return The resulting text.
+	 */
+	private static String apply(String text, List<TextDocumentContentChangeEvent> events) {
+
+		StringBuilder result = new StringBuilder(text);
+
+		for (TextDocumentContentChangeEvent event : events) {
+
+			int start = offsetOf(result, event.getRange().getStart());
+			int end   = offsetOf(result, event.getRange().getEnd());
+
+			assertEquals(end - start, (int)event.getRangeLength());
+
+			result.replace(start, end, event.getText());
+
+		}
+
+		return result.toString();
+
+	}
+
+	/**
+	 * Returns the offset of the first occurrence of the given string in
+	 * the base text.
+	 *
+	 * @param string The string to find.
+	 * @return The offset of the string.
+	 */
+	private static int offsetOf(String string) {
+
+		int offset = BASE_TEXT.indexOf(string);
+
+		assertTrue(offset >= 0);
+
+		return offset;
+
+	}
+
+	// Testing merging
+
+	@Test
+	void typed_word_sent_as_single_change() {
+
+		int offset = offsetOf("Main is");
+
+		List<TextDocumentContentChangeEvent> events =
+			new EditedDocument(BASE_TEXT).type(offset, "Hello_").checkedEvents();
+
+		assertEquals(1, events.size());
+		assertEquals("Hello_", events.get(0).getText());
+		assertEquals(0, (int)events.get(0).getRangeLength());
+
+	}
+
+	@Test
+	void overlapping_and_adjacent_changes_merged() {
+
+		int offset = offsetOf("Put_Line");
+
+		List<TextDocumentContentChangeEvent> events = new EditedDocument(BASE_TEXT)
+			.replace(offset, 3, "Get")
+			.replace(offset + 2, 6, "_Line_Twice")
+			.replace(offset - 1, 1, "::")
+			.checkedEvents();
+
+		assertEquals(1, events.size());
+
+	}
+
+	@Test
+	void backspace_over_typed_text_merged() {
+
+		int offset = offsetOf("Main is");
+
+		List<TextDocumentContentChangeEvent> events = new EditedDocument(BASE_TEXT)
+			.type(offset, "Hello")
+			.backspace(offset + 5, 3)
+			.checkedEvents();
+
+		assertEquals(1, events.size());
+		assertEquals("He", events.get(0).getText());
+
+	}
+
+	@Test
+	void backspace_past_typed_text_deletes_base_text() {
+
+		int offset = offsetOf("Main is");
+
+		List<TextDocumentContentChangeEvent> events = new EditedDocument(BASE_TEXT)
+			.type(offset, "ab")
+			.backspace(offset + 2, 5)
+			.checkedEvents();
+
+		assertEquals(1, events.size());
+		assertEquals(3, (int)events.get(0).getRangeLength());
+		assertEquals("", events.get(0).getText());
+
+	}
+
+	@Test
+	void deletions_merged() {
+
+		int offset = offsetOf("Text_IO;");
+
+		List<TextDocumentContentChangeEvent> events = new EditedDocument(BASE_TEXT)
+			.replace(offset, 5, "")
+			.replace(offset, 2, "")
+			.replace(offset - 1, 1, "")
+			.checkedEvents();
+
+		assertEquals(1, events.size());
+		assertEquals(8, (int)events.get(0).getRangeLength());
+
+	}
+
+	// Testing disjoint regions
+
+	@Test
+	void disjoint_changes_in_increasing_order_sent_in_descending_order() {
+
+		int first  = offsetOf("Ada.Text_IO;");
+		int second = offsetOf("Main is");
+
+		List<TextDocumentContentChangeEvent> events = new EditedDocument(BASE_TEXT)
+			.replace(first, 3, "Gnat")
+			.replace(second + 1, 4, "Other")
+			.checkedEvents();
+
+		assertEquals(2, events.size());
+		assertEquals("Other", events.get(0).getText());
+		assertEquals("Gnat", events.get(1).getText());
+
+	}
+
+	@Test
+	void disjoint_changes_in_decreasing_order_sent_in_descending_order() {
+
+		int first  = offsetOf("Ada.Text_IO;");
+		int second = offsetOf("Main is");
+
+		List<TextDocumentContentChangeEvent> events = new EditedDocument(BASE_TEXT)
+			.replace(second, 4, "Other")
+			.replace(first, 3, "Gnat")
+			.type(first + 4, "_Extra")
+			.checkedEvents();
+
+		assertEquals(2, events.size());
+		assertEquals("Other", events.get(0).getText());
+		assertEquals("Gnat_Extra", events.get(1).getText());
+
+	}
+
+	@Test
+	void change_spanning_regions_merges_them() {
+
+		int first  = offsetOf("procedure");
+		int second = offsetOf("Main is");
+
+		List<TextDocumentContentChangeEvent> events = new EditedDocument(BASE_TEXT)
+			.replace(first, 1, "P")
+			.replace(second, 1, "m")
+			.replace(first + 1, second - first, "rogram ")
+			.checkedEvents();
+
+		assertEquals(1, events.size());
+
+	}
+
+	// Testing reverted changes
+
+	@Test
+	void reverted_changes_not_sent() {
+
+		int offset = offsetOf("Main is");
+
+		assertTrue(new EditedDocument(BASE_TEXT).type(offset, "abc").backspace(offset + 3, 3)
+			.checkedEvents().isEmpty());
+
+		assertTrue(new EditedDocument(BASE_TEXT).replace(offset, 4, "Other").replace(offset, 5, "Main")
+			.checkedEvents().isEmpty());
+
+	}
+
+	@Test
+	void reverted_region_skipped_among_changed_ones() {
+
+		int first  = offsetOf("Ada.Text_IO;");
+		int second = offsetOf("Main is");
+
+		List<TextDocumentContentChangeEvent> events = new EditedDocument(BASE_TEXT)
+			.replace(first, 3, "Gnat")
+			.type(second, "x")
+			.backspace(second + 1, 1)
+			.checkedEvents();
+
+		assertEquals(1, events.size());
+		assertEquals("Gnat", events.get(0).getText());
+
+	}
+
+	// Testing positions
+
+	@Test
+	void multi_line_changes_positioned_in_base_text() {
+
+		int offset = offsetOf("begin");
+
+		List<TextDocumentContentChangeEvent> events = new EditedDocument(BASE_TEXT)
+			.replace(0, 0, "-- Header\n\n")
+			.replace(offset + 11, "begin\n   Ada".length(), "begin\n   null;\n   Ada")
+			.checkedEvents();
+
+		assertEquals(2, events.size());
+
+		Range range = events.get(0).getRange();
+
+		assertEquals(new Position(3, 0), range.getStart());
+		assertEquals(new Position(4, 6), range.getEnd());
+
+	}
+
+	@Test
+	void random_edits_applied_consistently() {
+
+		Random random = new Random(42);
+
+		for (int iteration = 0 ; iteration < 200 ; iteration++) {
+
+			EditedDocument document = new EditedDocument(BASE_TEXT);
+
+			int editCount = 1 + random.nextInt(20);
+
+			for (int i = 0 ; i < editCount ; i++) {
+
+				int length    = document.text.length();
+				int offset    = random.nextInt(length + 1);
+				int oldLength = random.nextInt(Math.min(8, length - offset) + 1);
+
+				String newText = random.nextInt(4) == 0 ? "\n" : "abcdefgh".substring(0, random.nextInt(6));
+
+				document.replace(offset, oldLength, newText);
+
+			}
+
+			document.checkedEvents();
+
+		}
+
+	}
+
+	// Testing full synchronization
+
+	@Test
+	void full_sync_cheaper_beyond_threshold() {
+
+		int documentLength = 10_000;
+
+		long scanCost    = documentLength / ContentChangeBatch.TRANSFER_TO_SCAN_COST_RATIO;
+		long fullCost    = documentLength + ContentChangeBatch.CHANGE_EVENT_TRANSFER_COST + scanCost;
+		long regionCost  = 1 + ContentChangeBatch.CHANGE_EVENT_TRANSFER_COST + scanCost;
+		int  threshold   = (int)((fullCost + regionCost - 1) / regionCost);
+
+		ContentChangeBatch batch = new ContentChangeBatch(new String(new char[documentLength]));
+
+		// Replace single characters, far enough apart not to be merged
+
+		for (int i = 0 ; i < threshold - 1 ; i++) {
+			batch.addChange(i * 10, 1, 1);
+		}
+
+		assertFalse(batch.fullSyncCheaper(documentLength));
+
+		batch.addChange((threshold - 1) * 10, 1, 1);
+
+		assertTrue(batch.fullSyncCheaper(documentLength));
+
+	}
+
+	@Test
+	void full_sync_cheaper_for_large_replacement() {
+
+		ContentChangeBatch batch = new ContentChangeBatch(BASE_TEXT);
+
+		batch.addChange(0, BASE_TEXT.length(), BASE_TEXT.length());
+
+		assertTrue(batch.fullSyncCheaper(BASE_TEXT.length()));
+
+		ContentChangeBatch smallBatch = new ContentChangeBatch(BASE_TEXT);
+
+		smallBatch.addChange(0, 1, 1);
+
+		assertFalse(smallBatch.fullSyncCheaper(BASE_TEXT.length()));
+
+	}
+
+}
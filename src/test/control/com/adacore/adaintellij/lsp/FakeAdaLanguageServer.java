@@ -0,0 +1,771 @@
+package com.adacore.adaintellij.lsp;
+
+import java.io.*;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.google.gson.*;
+import com.google.gson.reflect.TypeToken;
+import org.jetbrains.annotations.*;
+
+import org.eclipse.lsp4j.*;
+import org.eclipse.lsp4j.Range;
+import org.eclipse.lsp4j.jsonrpc.*;
+import org.eclipse.lsp4j.jsonrpc.json.MessageJsonHandler;
+import org.eclipse.lsp4j.jsonrpc.messages.*;
+import org.eclipse.lsp4j.jsonrpc.messages.ResponseErrorCode;
+import org.eclipse.lsp4j.launch.LSPLauncher;
+import org.eclipse.lsp4j.services.*;
+
+/**
+ * Fake Ada Language Server, answering requests with scripted or recorded
+ * responses after a configurable latency, and failing or crashing on
+ * demand, so that the LSP integration can be tested and benchmarked
+ * without the ALS or GNAT installed.
+ *
+ * The server runs either in-process, connected to a client through
+ * pipes (@see FakeServerConnection), or as a subprocess talking LSP over
+ * its standard input/output, in which case the driver can launch it in
+ * place of the ALS by setting the `com.adacore.adaintellij.als.command`
+ * system property of the IDE to the command returned by `command`, e.g.:
+ *
+ * -Dcom.adacore.adaintellij.als.command="java -cp <test classpath>
+ *   com.adacore.adaintellij.lsp.FakeAdaLanguageServer --latency=50"
+ *
+ * Documents are kept in sync with the client, and a single diagnostic,
+ * whose message contains the document version, is published after every
+ * document change.
+ */
+public final class FakeAdaLanguageServer implements LanguageServer, TextDocumentService, WorkspaceService {
+
+	/**
+	 * The message prefix of published diagnostics, followed by the
+	 * version of the diagnosed document.
+	 */
+	static final String DIAGNOSTIC_MESSAGE_PREFIX = "Fake diagnostic for version ";
+
+	/**
+	 * LSP4J's JSON serializer, used to read recorded responses.
+	 */
+	private static final Gson GSON = new MessageJsonHandler(Collections.emptyMap()).getGson();
+
+	/**
+	 * The behavior of this server.
+	 */
+	@NotNull
+	private final Behavior behavior;
+
+	/**
+	 * The handler simulating a crash of this server.
+	 */
+	@NotNull
+	private final Runnable crashHandler;
+
+	/**
+	 * The handler called when this server receives the `exit` notification.
+	 */
+	@NotNull
+	private final Runnable exitHandler;
+
+	/**
+	 * The executor answering requests and publishing diagnostics after
+	 * their latencies.
+	 */
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Fake ALS");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * The random generator of latency jitter and failures.
+	 */
+	@NotNull
+	private final Random random;
+
+	/**
+	 * Recorded responses, as JSON results mapped to their methods.
+	 */
+	private final Map<String, JsonElement> recordedResponses;
+
+	/**
+	 * The number of received requests.
+	 */
+	private final AtomicInteger requestCount = new AtomicInteger();
+
+	/**
+	 * The number of received `textDocument/didOpen` notifications.
+	 */
+	private final AtomicInteger openCount = new AtomicInteger();
+
+	/**
+	 * The texts of open documents, mapped to their URIs.
+	 * Guarded by itself.
+	 */
+	private final Map<String, StringBuilder> documents = new HashMap<>();
+
+	/**
+	 * The client of this server, or null if not connected yet.
+	 */
+	@Nullable
+	private volatile LanguageClient client = null;
+
+	/**
+	 * Constructs a new FakeAdaLanguageServer.
+	 *
+	 * @param behavior The behavior of the server.
+	 * @param crashHandler The handler simulating a crash of the server.
+	 * @param exitHandler The handler called on the `exit` notification.
+	 * @throws IOException If a problem occurs while reading recorded responses.
+	 */
+	FakeAdaLanguageServer(
+		@NotNull Behavior behavior,
+		@NotNull Runnable crashHandler,
+		@NotNull Runnable exitHandler
+	) throws IOException {
+
+		this.behavior     = behavior;
+		this.crashHandler = crashHandler;
+		this.exitHandler  = exitHandler;
+		this.random       = new Random(behavior.seed);
+
+		recordedResponses = behavior.responsesPath == null ? Collections.emptyMap() :
+			readResponses(Paths.get(behavior.responsesPath));
+
+	}
+
+	/**
+	 * Runs a fake server talking LSP over the standard input/output
+	 * until it exits or crashes.
+	 *
+	 * @param args The behavior arguments of the server.
+	 * @throws Exception If a problem occurs while running the server.
+	 * @see Behavior#parse(String[])
+	 */
+	public static void main(String[] args) throws Exception {
+
+		FakeAdaLanguageServer server = new FakeAdaLanguageServer(
+			Behavior.parse(args),
+			() -> Runtime.getRuntime().halt(1),
+			() -> Runtime.getRuntime().halt(0)
+		);
+
+		Launcher<LanguageClient> launcher =
+			LSPLauncher.createServerLauncher(server, System.in, System.out);
+
+		server.connect(launcher.getRemoteProxy());
+
+		launcher.startListening().get();
+
+	}
+
+	/**
+	 * Returns the command starting a fake server with the given behavior
+	 * as a subprocess, using the classpath of the current JVM.
+	 *
+	 * @param behavior The behavior of the server.
+	 * @return The command.
+	 */
+	@NotNull
+	static List<String> command(@NotNull Behavior behavior) {
+
+		List<String> command = new ArrayList<>();
+
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(FakeAdaLanguageServer.class.getName());
+		command.addAll(behavior.toArguments());
+
+		return command;
+
+	}
+
+	/**
+	 * Connects this server to the given client.
+	 *
+	 * @param client The client.
+	 */
+	void connect(@NotNull LanguageClient client) { this.client = client; }
+
+	/**
+	 * Returns the number of requests received by this server.
+	 *
+	 * @return The number of received requests.
+	 */
+	int requestCount() { return requestCount.get(); }
+
+	/**
+	 * Returns the number of `textDocument/didOpen` notifications
+	 * received by this server.
+	 *
+	 * @return The number of received open notifications.
+	 */
+	int openCount() { return openCount.get(); }
+
+	/**
+	 * Returns the text of the given open document.
+	 *
+	 * @param documentUri The URI of the document.
+	 * @return The text of the document, or null if it is not open.
+	 */
+	@Nullable
+	String documentText(@NotNull String documentUri) {
+
+		synchronized (documents) {
+
+			StringBuilder text = documents.get(documentUri);
+
+			return text == null ? null : text.toString();
+
+		}
+
+	}
+
+	/**
+	 * Reads recorded responses from the given JSON file, mapping methods
+	 * to their results.
+	 *
+	 * @param path The path of the file.
+	 * @return The recorded responses.
+	 * @throws IOException If a problem occurs while reading the file.
+	 */
+	@NotNull
+	private static Map<String, JsonElement> readResponses(@NotNull Path path) throws IOException {
+
+		Map<String, JsonElement> responses = new HashMap<>();
+
+		try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			new JsonParser().parse(reader).getAsJsonObject().entrySet()
+				.forEach(entry -> responses.put(entry.getKey(), entry.getValue()));
+		}
+
+		return responses;
+
+	}
+
+	/**
+	 * Answers a request of the given method with the recorded response
+	 * of that method, if any, or with the given scripted result otherwise,
+	 * after the configured latency, unless the request is made to fail
+	 * or the server is made to crash.
+	 *
+	 * @param method The method of the request.
+	 * @param type The type of the result of the request.
+	 * @param scriptedResult The supplier of the scripted result.
+	 * @param <T> The type of the result of the request.
+	 * @return A future completing with the result of the request.
+	 */
+	@NotNull
+	private <T> CompletableFuture<T> respond(
+		@NotNull String      method,
+		@NotNull Type        type,
+		@NotNull Supplier<T> scriptedResult
+	) {
+
+		CompletableFuture<T> future = new CompletableFuture<>();
+
+		if (requestCount.incrementAndGet() == behavior.crashAfter) {
+			crashHandler.run();
+			return future;
+		}
+
+		long    delay = behavior.latency + (behavior.jitter > 0 ? (long)(random.nextDouble() * behavior.jitter) : 0);
+		boolean fail  = random.nextDouble() < behavior.failureRate;
+
+		executor.schedule(() -> {
+
+			if (fail) {
+				future.completeExceptionally(new ResponseErrorException(
+					new ResponseError(ResponseErrorCode.InternalError, "Injected failure of " + method, null)));
+				return;
+			}
+
+			JsonElement recordedResult = recordedResponses.get(method);
+
+			future.complete(recordedResult == null ? scriptedResult.get() : GSON.fromJson(recordedResult, type));
+
+		}, delay, TimeUnit.MILLISECONDS);
+
+		return future;
+
+	}
+
+	/*
+		Lifecycle
+	*/
+
+	/**
+	 * @see org.eclipse.lsp4j.services.LanguageServer#initialize(InitializeParams)
+	 */
+	@Override
+	public CompletableFuture<InitializeResult> initialize(InitializeParams params) {
+
+		ServerCapabilities capabilities = new ServerCapabilities();
+
+		capabilities.setTextDocumentSync(TextDocumentSyncKind.Incremental);
+		capabilities.setCompletionProvider(new CompletionOptions(false, Collections.emptyList()));
+		capabilities.setDefinitionProvider(true);
+		capabilities.setReferencesProvider(true);
+		capabilities.setDocumentSymbolProvider(true);
+
+		return CompletableFuture.completedFuture(new InitializeResult(capabilities));
+
+	}
+
+	/**
+	 * @see org.eclipse.lsp4j.services.LanguageServer#shutdown()
+	 */
+	@Override
+	public CompletableFuture<Object> shutdown() {
+
+		executor.shutdownNow();
+
+		return CompletableFuture.completedFuture(null);
+
+	}
+
+	/**
+	 * @see org.eclipse.lsp4j.services.LanguageServer#exit()
+	 */
+	@Override
+	public void exit() { exitHandler.run(); }
+
+	/**
+	 * @see org.eclipse.lsp4j.services.LanguageServer#getTextDocumentService()
+	 */
+	@Override
+	public TextDocumentService getTextDocumentService() { return this; }
+
+	/**
+	 * @see org.eclipse.lsp4j.services.LanguageServer#getWorkspaceService()
+	 */
+	@Override
+	public WorkspaceService getWorkspaceService() { return this; }
+
+	/*
+		'workspace/_' methods
+	*/
+
+	/**
+	 * @see org.eclipse.lsp4j.services.WorkspaceService#didChangeConfiguration(DidChangeConfigurationParams)
+	 */
+	@Override
+	public void didChangeConfiguration(DidChangeConfigurationParams params) {}
+
+	/**
+	 * @see org.eclipse.lsp4j.services.WorkspaceService#didChangeWatchedFiles(DidChangeWatchedFilesParams)
+	 */
+	@Override
+	public void didChangeWatchedFiles(DidChangeWatchedFilesParams params) {}
+
+	/*
+		'textDocument/_' methods
+	*/
+
+	/**
+	 * @see org.eclipse.lsp4j.services.TextDocumentService#didOpen(DidOpenTextDocumentParams)
+	 */
+	@Override
+	public void didOpen(DidOpenTextDocumentParams params) {
+
+		openCount.incrementAndGet();
+
+		synchronized (documents) {
+			documents.put(params.getTextDocument().getUri(), new StringBuilder(params.getTextDocument().getText()));
+		}
+
+	}
+
+	/**
+	 * @see org.eclipse.lsp4j.services.TextDocumentService#didChange(DidChangeTextDocumentParams)
+	 *
+	 * Applies the changes to the document, then publishes a diagnostic
+	 * for the new version of the document after the diagnostics latency.
+	 */
+	@Override
+	public void didChange(DidChangeTextDocumentParams params) {
+
+		String documentUri = params.getTextDocument().getUri();
+		int    version     = params.getTextDocument().getVersion();
+
+		synchronized (documents) {
+
+			StringBuilder text = documents.get(documentUri);
+
+			if (text == null) { return; }
+
+			for (TextDocumentContentChangeEvent changeEvent : params.getContentChanges()) {
+
+				if (changeEvent.getRange() == null) {
+					text.replace(0, text.length(), changeEvent.getText());
+					continue;
+				}
+
+				int start = offset(text, changeEvent.getRange().getStart());
+				int end   = offset(text, changeEvent.getRange().getEnd());
+
+				text.replace(start, end, changeEvent.getText());
+
+			}
+
+		}
+
+		executor.schedule(() -> publishDiagnostics(documentUri, version),
+			behavior.diagnosticsLatency, TimeUnit.MILLISECONDS);
+
+	}
+
+	/**
+	 * @see org.eclipse.lsp4j.services.TextDocumentService#didClose(DidCloseTextDocumentParams)
+	 */
+	@Override
+	public void didClose(DidCloseTextDocumentParams params) {
+
+		synchronized (documents) {
+			documents.remove(params.getTextDocument().getUri());
+		}
+
+	}
+
+	/**
+	 * @see org.eclipse.lsp4j.services.TextDocumentService#didSave(DidSaveTextDocumentParams)
+	 */
+	@Override
+	public void didSave(DidSaveTextDocumentParams params) {}
+
+	/**
+	 * @see org.eclipse.lsp4j.services.TextDocumentService#completion(CompletionParams)
+	 */
+	@Override
+	public CompletableFuture<Either<List<CompletionItem>, CompletionList>> completion(CompletionParams params) {
+
+		return respond("textDocument/completion", CompletionList.class, () -> {
+
+			List<CompletionItem> items = new ArrayList<>();
+
+			for (int i = 0 ; i < behavior.resultCount ; i++) {
+
+				CompletionItem item = new CompletionItem("Item_" + i);
+
+				item.setKind(CompletionItemKind.Variable);
+				item.setDetail("Integer");
+
+				items.add(item);
+
+			}
+
+			return new CompletionList(false, items);
+
+		}).thenApply(Either::forRight);
+
+	}
+
+	/**
+	 * @see org.eclipse.lsp4j.services.TextDocumentService#definition(TextDocumentPositionParams)
+	 */
+	@Override
+	public CompletableFuture<List<? extends Location>> definition(TextDocumentPositionParams params) {
+
+		return respond("textDocument/definition", new TypeToken<List<Location>>() {}.getType(),
+			() -> Collections.singletonList(location(params.getTextDocument().getUri(), 0)));
+
+	}
+
+	/**
+	 * @see org.eclipse.lsp4j.services.TextDocumentService#references(ReferenceParams)
+	 */
+	@Override
+	public CompletableFuture<List<? extends Location>> references(ReferenceParams params) {
+
+		return respond("textDocument/references", new TypeToken<List<Location>>() {}.getType(), () -> {
+
+			List<Location> locations = new ArrayList<>();
+
+			for (int i = 0 ; i < behavior.resultCount ; i++) {
+				locations.add(location(params.getTextDocument().getUri(), i));
+			}
+
+			return locations;
+
+		});
+
+	}
+
+	/**
+	 * @see org.eclipse.lsp4j.services.TextDocumentService#documentSymbol(DocumentSymbolParams)
+	 */
+	@Override
+	public CompletableFuture<List<Either<SymbolInformation, DocumentSymbol>>> documentSymbol(
+		DocumentSymbolParams params
+	) {
+
+		CompletableFuture<List<DocumentSymbol>> symbols = respond(
+			"textDocument/documentSymbol", new TypeToken<List<DocumentSymbol>>() {}.getType(), () -> {
+
+				List<DocumentSymbol> scriptedSymbols = new ArrayList<>();
+
+				for (int i = 0 ; i < behavior.resultCount ; i++) {
+					Range range = new Range(new Position(i, 0), new Position(i, 10));
+					scriptedSymbols.add(new DocumentSymbol("Symbol_" + i, SymbolKind.Variable, range, range));
+				}
+
+				return scriptedSymbols;
+
+			});
+
+		return symbols.thenApply(list -> {
+
+			List<Either<SymbolInformation, DocumentSymbol>> result = new ArrayList<>();
+
+			list.forEach(symbol -> result.add(Either.forRight(symbol)));
+
+			return result;
+
+		});
+
+	}
+
+	/**
+	 * Publishes a diagnostic for the given version of the given document.
+	 *
+	 * @param documentUri The URI of the document.
+	 * @param version The version of the document.
+	 */
+	private void publishDiagnostics(@NotNull String documentUri, int version) {
+
+		LanguageClient currentClient = client;
+
+		if (currentClient == null) { return; }
+
+		Diagnostic diagnostic = new Diagnostic(
+			new Range(new Position(0, 0), new Position(0, 1)),
+			DIAGNOSTIC_MESSAGE_PREFIX + version,
+			DiagnosticSeverity.Warning,
+			"fake-als"
+		);
+
+		currentClient.publishDiagnostics(
+			new PublishDiagnosticsParams(documentUri, Collections.singletonList(diagnostic)));
+
+	}
+
+	/**
+	 * Returns a location at the start of the given line of the given
+	 * document.
+	 *
+	 * @param documentUri The URI of the document.
+	 * @param line The line.
+	 * @return The location.
+	 */
+	@NotNull
+	private static Location location(@NotNull String documentUri, int line) {
+		return new Location(documentUri, new Range(new Position(line, 0), new Position(line, 4)));
+	}
+
+	/**
+	 * Returns the offset of the given position in the given text.
+	 *
+	 * @param text The text.
+	 * @param position The position.
+	 * @return The corresponding offset.
+	 */
+	private static int offset(@NotNull CharSequence text, @NotNull Position position) {
+
+		int offset = 0;
+
+		for (int line = 0 ; line < position.getLine() ; offset++) {
+			if (text.charAt(offset) == '\n') { line++; }
+		}
+
+		return offset + position.getCharacter();
+
+	}
+
+	/**
+	 * Behavior of a fake server.
+	 */
+	static final class Behavior {
+
+		/**
+		 * The latency of responses, and the maximum random jitter added
+		 * to it, in milliseconds.
+		 */
+		long latency = 0;
+		long jitter  = 0;
+
+		/**
+		 * The probability that a request fails.
+		 */
+		double failureRate = 0;
+
+		/**
+		 * The number of the request on receiving which the server
+		 * crashes, or 0 if it never crashes.
+		 */
+		int crashAfter = 0;
+
+		/**
+		 * The latency, in milliseconds, of diagnostics after a
+		 * document change.
+		 */
+		long diagnosticsLatency = 0;
+
+		/**
+		 * The number of results of scripted completion, references and
+		 * document symbol responses.
+		 */
+		int resultCount = 20;
+
+		/**
+		 * The seed of latency jitter and failures.
+		 */
+		long seed = 0xADA;
+
+		/**
+		 * The path of the JSON file of recorded responses, mapping methods
+		 * to their results, or null to use scripted responses only.
+		 */
+		@Nullable
+		String responsesPath = null;
+
+		/**
+		 * Sets the latency of responses.
+		 *
+		 * @param latency The latency of responses.
+		 * @return This behavior.
+		 */
+		Behavior latency(long latency) { this.latency = latency; return this; }
+
+		/**
+		 * Sets the maximum jitter of responses.
+		 *
+		 * @param jitter The maximum jitter of responses.
+		 * @return This behavior.
+		 */
+		Behavior jitter(long jitter) { this.jitter = jitter; return this; }
+
+		/**
+		 * Sets the probability that a request fails.
+		 *
+		 * @param failureRate The probability that a request fails.
+		 * @return This behavior.
+		 */
+		Behavior failureRate(double failureRate) { this.failureRate = failureRate; return this; }
+
+		/**
+		 * Sets the number of the request on which the server crashes.
+		 *
+		 * @param crashAfter The number of the request on which the server crashes.
+		 * @return This behavior.
+		 */
+		Behavior crashAfter(int crashAfter) { this.crashAfter = crashAfter; return this; }
+
+		/**
+		 * Sets the latency of diagnostics.
+		 *
+		 * @param diagnosticsLatency The latency of diagnostics.
+		 * @return This behavior.
+		 */
+		Behavior diagnosticsLatency(long diagnosticsLatency) { this.diagnosticsLatency = diagnosticsLatency; return this; }
+
+		/**
+		 * Sets the number of results of scripted responses.
+		 *
+		 * @param resultCount The number of results of scripted responses.
+		 * @return This behavior.
+		 */
+		Behavior resultCount(int resultCount) { this.resultCount = resultCount; return this; }
+
+		/**
+		 * Sets the seed of latency jitter and failures.
+		 *
+		 * @param seed The seed of latency jitter and failures.
+		 * @return This behavior.
+		 */
+		Behavior seed(long seed) { this.seed = seed; return this; }
+
+		/**
+		 * Sets the path of the file of recorded responses.
+		 *
+		 * @param responsesPath The path of the file of recorded responses.
+		 * @return This behavior.
+		 */
+		Behavior responsesPath(@Nullable String responsesPath) { this.responsesPath = responsesPath; return this; }
+
+		/**
+		 * Parses a behavior from command-line arguments of the form
+		 * `--name=value`, e.g. `--latency=50 --failure-rate=0.1`.
+		 *
+		 * @param args The arguments.
+		 * @return The behavior.
+		 * @throws IllegalArgumentException If an argument is invalid.
+		 */
+		@NotNull
+		static Behavior parse(@NotNull String[] args) {
+
+			Behavior behavior = new Behavior();
+
+			for (String arg : args) {
+
+				int separator = arg.indexOf('=');
+
+				if (!arg.startsWith("--") || separator < 0) {
+					throw new IllegalArgumentException("Invalid argument: " + arg);
+				}
+
+				String name  = arg.substring(2, separator);
+				String value = arg.substring(separator + 1);
+
+				switch (name) {
+					case "latency":             behavior.latency            = Long.parseLong(value);     break;
+					case "jitter":              behavior.jitter             = Long.parseLong(value);     break;
+					case "failure-rate":        behavior.failureRate        = Double.parseDouble(value); break;
+					case "crash-after":         behavior.crashAfter         = Integer.parseInt(value);   break;
+					case "diagnostics-latency": behavior.diagnosticsLatency = Long.parseLong(value);     break;
+					case "result-count":        behavior.resultCount        = Integer.parseInt(value);   break;
+					case "seed":                behavior.seed               = Long.parseLong(value);     break;
+					case "responses":           behavior.responsesPath      = value;                     break;
+					default: throw new IllegalArgumentException("Unknown argument: " + arg);
+				}
+
+			}
+
+			return behavior;
+
+		}
+
+		/**
+		 * Returns the command-line arguments corresponding to this behavior.
+		 *
+		 * @return The arguments.
+		 */
+		@NotNull
+		List<String> toArguments() {
+
+			List<String> arguments = new ArrayList<>(Arrays.asList(
+				"--latency=" + latency,
+				"--jitter=" + jitter,
+				"--failure-rate=" + failureRate,
+				"--crash-after=" + crashAfter,
+				"--diagnostics-latency=" + diagnosticsLatency,
+				"--result-count=" + resultCount,
+				"--seed=" + seed
+			));
+
+			if (responsesPath != null) {
+				arguments.add("--responses=" + responsesPath);
+			}
+
+			return arguments;
+
+		}
+
+	}
+
+}
@@ -0,0 +1,458 @@
+package com.adacore.adaintellij.lsp;
+
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.*;
+
+import org.eclipse.lsp4j.*;
+import org.eclipse.lsp4j.jsonrpc.*;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+import org.eclipse.lsp4j.launch.LSPLauncher;
+import org.eclipse.lsp4j.services.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class running end-to-end LSP scenarios against the fake
+ * Ada Language Server: requests answered with injected latency through
+ * the plugin's request pipeline, failures and crashes, recorded
+ * responses, document synchronization, and the fake server running as
+ * a subprocess as the driver would launch it.
+ */
+final class FakeAdaLanguageServerTest {
+
+	/**
+	 * The maximum time, in milliseconds, to wait for a response.
+	 */
+	private static final long WAIT_TIMEOUT = 10000;
+
+	/**
+	 * The injected latency, in milliseconds.
+	 */
+	private static final long LATENCY = 30;
+
+	/**
+	 * The URI of the test document.
+	 */
+	private static final String DOCUMENT_URI = "file:///project/src/main.adb";
+
+	/**
+	 * The URI of a document known to the client but not open in an
+	 * editor.
+	 */
+	private static final String CLOSED_DOCUMENT_URI = "file:///project/src/greetings.adb";
+
+	/**
+	 * The text of the test document.
+	 */
+	private static final String DOCUMENT_TEXT =
+		"with Ada.Text_IO;\n" +
+		"procedure Main is\n" +
+		"begin\n" +
+		"   Ada.Text_IO.Put_Line (\"Hello\");\n" +
+		"end Main;\n";
+
+	/**
+	 * The connection to the fake server, closed after each test.
+	 */
+	private FakeServerConnection connection;
+
+	@AfterEach
+	void tearDown() {
+		if (connection != null) {
+			connection.close();
+		}
+	}
+
+	/**
+	 * Connects to a fake server with the given behavior, without
+	 * performing the initialization handshake, and makes the test
+	 * documents known to the client, opening the main one in an editor.
+	 *
+	 * @param behavior The behavior of the fake server.
+	 * @throws Exception If the connection fails.
+	 */
+	private void connectWithoutInitializing(FakeAdaLanguageServer.Behavior behavior) throws Exception {
+
+		connection = new FakeServerConnection(behavior);
+
+		connection.addDocument(CLOSED_DOCUMENT_URI, DOCUMENT_TEXT);
+
+	}
+
+	/**
+	 * Connects to a fake server with the given behavior, performs the
+	 * initialization handshake and opens the test document in an editor.
+	 *
+	 * @param behavior The behavior of the fake server.
+	 * @return The proxy of the fake server.
+	 * @throws Exception If the connection or the handshake fails.
+	 */
+	private LanguageServer connect(FakeAdaLanguageServer.Behavior behavior) throws Exception {
+
+		connectWithoutInitializing(behavior);
+
+		connection.initialize();
+
+		connection.openDocument(DOCUMENT_URI, DOCUMENT_TEXT);
+
+		return connection.server();
+
+	}
+
+	/**
+	 * Returns the parameters of a request at the given position of the
+	 * test document.
+	 *
+	 * @param line The line of the position.
+	 * @param character The character of the position.
+	 * @return The request parameters.
+	 */
+	private static TextDocumentPositionParams positionParams(int line, int character) {
+		return positionParams(DOCUMENT_URI, line, character);
+	}
+
+	/**
+	 * Returns the parameters of a request at the given position of the
+	 * given document.
+	 *
+	 * @param documentUri The URI of the document.
+	 * @param line The line of the position.
+	 * @param character The character of the position.
+	 * @return The request parameters.
+	 */
+	private static TextDocumentPositionParams positionParams(String documentUri, int line, int character) {
+		return new TextDocumentPositionParams(new TextDocumentIdentifier(documentUri), new Position(line, character));
+	}
+
+	/**
+	 * Makes a definition request on the given document through the
+	 * request pipeline of the connection.
+	 *
+	 * @param documentUri The URI of the document.
+	 * @return The future of the request.
+	 */
+	private CompletableFuture<List<? extends Location>> definition(String documentUri) {
+
+		TextDocumentPositionParams params = positionParams(documentUri, 3, 15);
+
+		return connection.request("textDocument/definition", documentUri, params, RequestPriority.INTERACTIVE,
+			documents -> documents.definition(params));
+
+	}
+
+	/**
+	 * Makes the given request, checks that it has a result, and returns
+	 * the time elapsed until its response.
+	 *
+	 * @param request The request.
+	 * @param <T> The type of the result.
+	 * @return The elapsed time, in milliseconds.
+	 * @throws Exception If the request fails.
+	 */
+	private static <T> long timeRequest(Callable<CompletableFuture<T>> request) throws Exception {
+
+		long start = System.nanoTime();
+
+		assertNotNull(request.call().get(WAIT_TIMEOUT, TimeUnit.MILLISECONDS));
+
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+	}
+
+	// Testing latency
+
+	@Test
+	void requests_are_answered_after_injected_latency() throws Exception {
+
+		connect(new FakeAdaLanguageServer.Behavior().latency(LATENCY));
+
+		CompletionParams completionParams = new CompletionParams();
+
+		completionParams.setTextDocument(new TextDocumentIdentifier(DOCUMENT_URI));
+		completionParams.setPosition(new Position(3, 15));
+
+		ReferenceParams referenceParams = new ReferenceParams(new ReferenceContext(true));
+
+		referenceParams.setTextDocument(new TextDocumentIdentifier(DOCUMENT_URI));
+		referenceParams.setPosition(new Position(1, 10));
+
+		DocumentSymbolParams documentSymbolParams =
+			new DocumentSymbolParams(new TextDocumentIdentifier(DOCUMENT_URI));
+
+		assertTrue(timeRequest(() -> connection.request("textDocument/completion", DOCUMENT_URI,
+			completionParams, RequestPriority.INTERACTIVE, documents -> documents.completion(completionParams)))
+			>= LATENCY);
+		assertTrue(timeRequest(() -> definition(DOCUMENT_URI)) >= LATENCY);
+		assertTrue(timeRequest(() -> connection.request("textDocument/references", DOCUMENT_URI,
+			referenceParams, RequestPriority.INTERACTIVE, documents -> documents.references(referenceParams)))
+			>= LATENCY);
+		assertTrue(timeRequest(() -> connection.request("textDocument/documentSymbol", DOCUMENT_URI,
+			documentSymbolParams, RequestPriority.VISIBLE_EDITOR,
+			documents -> documents.documentSymbol(documentSymbolParams))) >= LATENCY);
+
+		// Server latencies are recorded on the wire
+
+		for (String method : Arrays.asList("textDocument/completion", "textDocument/definition",
+			"textDocument/references", "textDocument/documentSymbol"))
+		{
+			assertTrue(connection.metrics().toReport().contains(method), method + " not recorded");
+		}
+
+	}
+
+	@Test
+	void jitter_is_added_to_latency() throws Exception {
+
+		connect(new FakeAdaLanguageServer.Behavior().latency(LATENCY).jitter(LATENCY));
+
+		for (int i = 0 ; i < 5 ; i++) {
+
+			long elapsed = timeRequest(() -> definition(DOCUMENT_URI));
+
+			assertTrue(elapsed >= LATENCY, "Response arrived before the latency");
+
+		}
+
+	}
+
+	// Testing the request pipeline
+
+	@Test
+	void identical_in_flight_requests_share_one_server_request() throws Exception {
+
+		connect(new FakeAdaLanguageServer.Behavior().latency(LATENCY));
+
+		CompletableFuture<List<? extends Location>> first  = definition(DOCUMENT_URI);
+		CompletableFuture<List<? extends Location>> second = definition(DOCUMENT_URI);
+
+		assertEquals(first.get(WAIT_TIMEOUT, TimeUnit.MILLISECONDS),
+			second.get(WAIT_TIMEOUT, TimeUnit.MILLISECONDS));
+		assertEquals(1, connection.fakeServer().requestCount());
+
+	}
+
+	@Test
+	void requests_parked_until_handshake_completes() throws Exception {
+
+		connectWithoutInitializing(new FakeAdaLanguageServer.Behavior());
+
+		CompletableFuture<List<? extends Location>> parked = definition(CLOSED_DOCUMENT_URI);
+
+		assertFalse(parked.isDone());
+		assertEquals(0, connection.fakeServer().requestCount());
+
+		connection.initialize();
+
+		assertNotNull(parked.get(WAIT_TIMEOUT, TimeUnit.MILLISECONDS));
+
+	}
+
+	@Test
+	void closed_document_opened_once_and_kept_warm() throws Exception {
+
+		connectWithoutInitializing(new FakeAdaLanguageServer.Behavior());
+
+		connection.initialize();
+
+		assertNotNull(definition(CLOSED_DOCUMENT_URI).get(WAIT_TIMEOUT, TimeUnit.MILLISECONDS));
+		assertNotNull(definition(CLOSED_DOCUMENT_URI).get(WAIT_TIMEOUT, TimeUnit.MILLISECONDS));
+
+		assertEquals(1, connection.fakeServer().openCount());
+		assertEquals(1, connection.warmDocumentCount());
+		assertEquals(DOCUMENT_TEXT, connection.fakeServer().documentText(CLOSED_DOCUMENT_URI));
+
+		// Opening the warm document in an editor does not open it again
+
+		connection.openDocument(CLOSED_DOCUMENT_URI, DOCUMENT_TEXT);
+
+		assertNotNull(definition(CLOSED_DOCUMENT_URI).get(WAIT_TIMEOUT, TimeUnit.MILLISECONDS));
+
+		assertEquals(1, connection.fakeServer().openCount());
+		assertEquals(0, connection.warmDocumentCount());
+
+	}
+
+	@Test
+	void result_discarded_when_document_changes_before_response() throws Exception {
+
+		connect(new FakeAdaLanguageServer.Behavior().latency(LATENCY));
+
+		CompletableFuture<List<? extends Location>> stale = definition(DOCUMENT_URI);
+
+		connection.changeDocument(DOCUMENT_URI, DOCUMENT_TEXT + "\n",
+			Collections.singletonList(new TextDocumentContentChangeEvent(DOCUMENT_TEXT + "\n")));
+
+		assertNull(stale.get(WAIT_TIMEOUT, TimeUnit.MILLISECONDS));
+
+		assertNotNull(definition(DOCUMENT_URI).get(WAIT_TIMEOUT, TimeUnit.MILLISECONDS));
+
+	}
+
+	// Testing failures and crashes
+
+	@Test
+	void requests_fail_at_injected_failure_rate() throws Exception {
+
+		TextDocumentService documents = connect(new FakeAdaLanguageServer.Behavior().failureRate(1))
+			.getTextDocumentService();
+
+		ExecutionException exception = assertThrows(ExecutionException.class, () ->
+			documents.definition(positionParams(3, 15)).get(WAIT_TIMEOUT, TimeUnit.MILLISECONDS));
+
+		assertTrue(exception.getCause() instanceof ResponseErrorException);
+
+	}
+
+	@Test
+	void server_crashes_on_given_request() throws Exception {
+
+		TextDocumentService documents = connect(new FakeAdaLanguageServer.Behavior().crashAfter(2))
+			.getTextDocumentService();
+
+		assertNotNull(documents.definition(positionParams(3, 15)).get(WAIT_TIMEOUT, TimeUnit.MILLISECONDS));
+
+		documents.definition(positionParams(3, 15));
+
+		long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+
+		while (!connection.isClosed()) {
+			assertTrue(System.currentTimeMillis() < deadline, "Server did not crash");
+			Thread.sleep(5);
+		}
+
+	}
+
+	// Testing recorded responses
+
+	@Test
+	void recorded_responses_are_replayed() throws Exception {
+
+		String responsesPath = Paths.get(
+			getClass().getClassLoader().getResource("lsp/recorded-responses.json").toURI()).toString();
+
+		TextDocumentService documents = connect(new FakeAdaLanguageServer.Behavior().responsesPath(responsesPath))
+			.getTextDocumentService();
+
+		CompletionParams params = new CompletionParams();
+
+		params.setTextDocument(new TextDocumentIdentifier(DOCUMENT_URI));
+		params.setPosition(new Position(3, 15));
+
+		Either<List<CompletionItem>, CompletionList> completion =
+			documents.completion(params).get(WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+
+		assertEquals("Put_Line", completion.getRight().getItems().get(0).getLabel());
+
+		List<? extends Location> definition =
+			documents.definition(positionParams(3, 15)).get(WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+
+		assertEquals("file:///project/src/greetings.ads", definition.get(0).getUri());
+
+	}
+
+	// Testing document synchronization
+
+	@Test
+	void document_changes_are_applied_and_diagnosed() throws Exception {
+
+		connect(new FakeAdaLanguageServer.Behavior().diagnosticsLatency(LATENCY));
+
+		// Type a statement, one character at a time, before the last line
+
+		String typed  = "   Ada.Text_IO.New_Line;\n";
+		int    offset = DOCUMENT_TEXT.indexOf("end Main;");
+
+		ContentChangeBatch batch  = new ContentChangeBatch(DOCUMENT_TEXT);
+		StringBuilder      edited = new StringBuilder(DOCUMENT_TEXT);
+
+		for (int i = 0 ; i < typed.length() ; i++) {
+			batch.addChange(offset + i, 0, 1);
+			edited.insert(offset + i, typed.charAt(i));
+		}
+
+		long start = System.nanoTime();
+
+		int version = connection.changeDocument(DOCUMENT_URI, edited.toString(), batch.toContentChangeEvents(edited));
+
+		assertNotNull(connection.awaitDiagnostics(DOCUMENT_URI, version, WAIT_TIMEOUT), "No diagnostics published");
+
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= LATENCY);
+
+		assertEquals(edited.toString(), connection.fakeServer().documentText(DOCUMENT_URI));
+
+	}
+
+	// Testing subprocess servers
+
+	@Test
+	void subprocess_server_talks_lsp_over_standard_streams() throws Exception {
+
+		Process process = new ProcessBuilder(FakeAdaLanguageServer.command(
+			new FakeAdaLanguageServer.Behavior().latency(LATENCY))).start();
+
+		try {
+
+			Launcher<LanguageServer> launcher = LSPLauncher.createClientLauncher(
+				new NoOpClient(), process.getInputStream(), process.getOutputStream());
+
+			launcher.startListening();
+
+			LanguageServer server = launcher.getRemoteProxy();
+
+			InitializeResult result = server.initialize(new InitializeParams())
+				.get(WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+
+			assertTrue(result.getCapabilities().getDefinitionProvider());
+
+			assertTrue(timeRequest(() ->
+				server.getTextDocumentService().definition(positionParams(3, 15))) >= LATENCY);
+
+		} finally {
+			process.destroy();
+		}
+
+	}
+
+	/**
+	 * LSP client ignoring all messages.
+	 */
+	private static final class NoOpClient implements LanguageClient {
+
+		/**
+		 * @see org.eclipse.lsp4j.services.LanguageClient#telemetryEvent(Object)
+		 */
+		@Override
+		public void telemetryEvent(Object object) {}
+
+		/**
+		 * @see org.eclipse.lsp4j.services.LanguageClient#publishDiagnostics(PublishDiagnosticsParams)
+		 */
+		@Override
+		public void publishDiagnostics(PublishDiagnosticsParams diagnostics) {}
+
+		/**
+		 * @see org.eclipse.lsp4j.services.LanguageClient#showMessage(MessageParams)
+		 */
+		@Override
+		public void showMessage(MessageParams messageParams) {}
+
+		/**
+		 * @see org.eclipse.lsp4j.services.LanguageClient#showMessageRequest(ShowMessageRequestParams)
+		 */
+		@Override
+		public CompletableFuture<MessageActionItem> showMessageRequest(ShowMessageRequestParams requestParams) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		/**
+		 * @see org.eclipse.lsp4j.services.LanguageClient#logMessage(MessageParams)
+		 */
+		@Override
+		public void logMessage(MessageParams message) {}
+
+	}
+
+}
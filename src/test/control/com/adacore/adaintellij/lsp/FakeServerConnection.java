@@ -0,0 +1,605 @@
+package com.adacore.adaintellij.lsp;
+
+import java.io.*;
+import java.lang.reflect.Proxy;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+import com.intellij.openapi.editor.Document;
+import org.jetbrains.annotations.*;
+
+import org.eclipse.lsp4j.*;
+import org.eclipse.lsp4j.jsonrpc.Launcher;
+import org.eclipse.lsp4j.launch.LSPLauncher;
+import org.eclipse.lsp4j.services.*;
+
+/**
+ * Connection between an LSP client and an in-process fake server,
+ * through pipes, with the client side of the connection instrumented
+ * the same way as the driver's.
+ *
+ * Document requests made through the connection are parked until the
+ * end of the initialization handshake, as they are by the driver, then
+ * go through the plugin's own request pipeline, the connection acting as
+ * the host of that pipeline in place of the plugin's server interface.
+ *
+ * @see FakeAdaLanguageServer
+ * @see DocumentRequestPipeline
+ */
+final class FakeServerConnection implements Closeable {
+
+	/**
+	 * The fake server.
+	 */
+	@NotNull
+	private final FakeAdaLanguageServer fakeServer;
+
+	/**
+	 * The proxy of the fake server on the client side.
+	 */
+	@NotNull
+	private final LanguageServer server;
+
+	/**
+	 * The metrics recording the messages of the connection.
+	 */
+	@NotNull
+	private final LSPMetrics metrics = new LSPMetrics();
+
+	/**
+	 * The future of the client's message reading, completing when the
+	 * connection is closed.
+	 */
+	@NotNull
+	private final Future<Void> clientListening;
+
+	/**
+	 * The streams of the client and of the fake server.
+	 */
+	private final List<Closeable> streams = new ArrayList<>();
+
+	/**
+	 * Diagnostics published by the fake server, in order.
+	 */
+	private final BlockingQueue<PublishDiagnosticsParams> publishedDiagnostics = new LinkedBlockingQueue<>();
+
+	/**
+	 * Requests made before the end of the initialization handshake.
+	 */
+	private final ParkedRequestQueue<LanguageServer> parkedRequests = new ParkedRequestQueue<>();
+
+	/**
+	 * The executor closing idle warm documents.
+	 */
+	private final ScheduledExecutorService idleCheckExecutor = Executors.newSingleThreadScheduledExecutor();
+
+	/**
+	 * The request pipeline of the connection.
+	 */
+	private final DocumentRequestPipeline requestPipeline =
+		new DocumentRequestPipeline(new ConnectionHost(), metrics, idleCheckExecutor);
+
+	/**
+	 * Documents known to the client, mapped to their URIs.
+	 * Guarded by itself.
+	 */
+	private final Map<String, ClientDocument> documents = new HashMap<>();
+
+	/**
+	 * Constructs and starts a new FakeServerConnection, connected to a
+	 * fake server with the given behavior. A crash of the fake server
+	 * closes the connection.
+	 *
+	 * @param behavior The behavior of the fake server.
+	 * @throws IOException If a problem occurs while creating pipes or
+	 *                     reading recorded responses.
+	 */
+	FakeServerConnection(@NotNull FakeAdaLanguageServer.Behavior behavior) throws IOException {
+
+		Pipe clientToServer = Pipe.open();
+		Pipe serverToClient = Pipe.open();
+
+		InputStream  clientInput  = Channels.newInputStream(serverToClient.source());
+		OutputStream clientOutput = Channels.newOutputStream(clientToServer.sink());
+		InputStream  serverInput  = Channels.newInputStream(clientToServer.source());
+		OutputStream serverOutput = Channels.newOutputStream(serverToClient.sink());
+
+		streams.addAll(Arrays.asList(clientInput, clientOutput, serverInput, serverOutput));
+
+		fakeServer = new FakeAdaLanguageServer(behavior, this::close, () -> {});
+
+		Launcher<LanguageClient> serverLauncher =
+			LSPLauncher.createServerLauncher(fakeServer, serverInput, serverOutput);
+
+		fakeServer.connect(serverLauncher.getRemoteProxy());
+
+		Launcher<LanguageServer> clientLauncher = metrics.instrument(
+			new LSPLauncher.Builder<LanguageServer>()
+				.setLocalService(new RecordingClient())
+				.setRemoteInterface(LanguageServer.class),
+			clientInput,
+			clientOutput
+		).create();
+
+		server = clientLauncher.getRemoteProxy();
+
+		serverLauncher.startListening();
+
+		clientListening = clientLauncher.startListening();
+
+		// Requests are parked until the end of the initialization
+		// handshake, as they are while the driver starts the server
+
+		parkedRequests.startParking();
+
+	}
+
+	/**
+	 * Returns the proxy of the fake server on the client side.
+	 *
+	 * @return The server proxy.
+	 */
+	@NotNull
+	LanguageServer server() { return server; }
+
+	/**
+	 * Returns the fake server.
+	 *
+	 * @return The fake server.
+	 */
+	@NotNull
+	FakeAdaLanguageServer fakeServer() { return fakeServer; }
+
+	/**
+	 * Returns the metrics recording the messages of this connection.
+	 *
+	 * @return The metrics.
+	 */
+	@NotNull
+	LSPMetrics metrics() { return metrics; }
+
+	/**
+	 * Returns whether or not this connection is closed, e.g. because
+	 * the fake server crashed.
+	 *
+	 * @return Whether or not this connection is closed.
+	 */
+	boolean isClosed() { return clientListening.isDone(); }
+
+	/**
+	 * Performs the initialization handshake with the fake server, then
+	 * makes the requests parked in the meantime.
+	 *
+	 * @return The capabilities of the fake server.
+	 * @throws Exception If the handshake fails.
+	 */
+	@NotNull
+	ServerCapabilities initialize() throws Exception {
+
+		InitializeResult result;
+
+		try {
+
+			result = server.initialize(new InitializeParams()).get();
+
+			server.initialized(new InitializedParams());
+
+		} catch (Exception exception) {
+
+			parkedRequests.drain(null);
+
+			throw exception;
+
+		}
+
+		parkedRequests.drain(server);
+
+		return result.getCapabilities();
+
+	}
+
+	/*
+		Documents
+	*/
+
+	/**
+	 * Makes the document with the given URI and text known to the client,
+	 * without opening it in an editor. The document is opened on the
+	 * server when a request is made on it.
+	 *
+	 * @param documentUri The URI of the document.
+	 * @param text The text of the document.
+	 */
+	void addDocument(@NotNull String documentUri, @NotNull String text) {
+
+		synchronized (documents) {
+			documents.put(documentUri, new ClientDocument(text));
+		}
+
+	}
+
+	/**
+	 * Opens the document with the given URI and text in an editor,
+	 * sending a `textDocument/didOpen` notification unless the document
+	 * is already kept open on the server.
+	 *
+	 * @param documentUri The URI of the document.
+	 * @param text The text of the document.
+	 */
+	void openDocument(@NotNull String documentUri, @NotNull String text) {
+
+		synchronized (documents) {
+			documents.putIfAbsent(documentUri, new ClientDocument(text));
+		}
+
+		requestPipeline.editorOpened(documentUri);
+
+	}
+
+	/**
+	 * Changes the text of the document with the given URI, sending the
+	 * given content changes as a new version of the document if it is
+	 * open on the server, and dropping the queued requests made on the
+	 * previous version of the document.
+	 *
+	 * @param documentUri The URI of the document.
+	 * @param text The new text of the document.
+	 * @param changeEvents The content changes, relative to the text of
+	 *                     the previous version of the document.
+	 * @return The new version of the document.
+	 */
+	int changeDocument(
+		@NotNull String                               documentUri,
+		@NotNull String                               text,
+		@NotNull List<TextDocumentContentChangeEvent> changeEvents
+	) {
+
+		ClientDocument document;
+		int            version;
+
+		synchronized (documents) {
+
+			document = documents.get(documentUri);
+
+			document.text = text;
+			document.stamp++;
+
+			version = ++document.version;
+
+			if (document.openOnServer) {
+				server.getTextDocumentService().didChange(new DidChangeTextDocumentParams(
+					new VersionedTextDocumentIdentifier(documentUri, version), changeEvents));
+			}
+
+		}
+
+		requestPipeline.dropStaleRequests(document.document);
+
+		return version;
+
+	}
+
+	/**
+	 * Returns the current version of the document with the given URI.
+	 *
+	 * @param documentUri The URI of the document.
+	 * @return The version of the document.
+	 */
+	int documentVersion(@NotNull String documentUri) {
+
+		synchronized (documents) {
+			return documents.get(documentUri).version;
+		}
+
+	}
+
+	/**
+	 * Returns the number of documents kept open on the server while
+	 * they are not open in an editor.
+	 *
+	 * @return The number of warm documents.
+	 */
+	int warmDocumentCount() { return requestPipeline.warmDocumentCount(); }
+
+	/*
+		Requests
+	*/
+
+	/**
+	 * Makes the given request on the document with the given URI through
+	 * the request pipeline, and returns a future completing with its
+	 * result, or with null if the request was parked and the handshake
+	 * failed, or if the document changed before the response arrived.
+	 *
+	 * @param method The name of the request's method.
+	 * @param documentUri The URI of the document referenced by the request.
+	 * @param params The parameters of the request, identifying identical
+	 *               requests along with the method and document version.
+	 * @param priority The priority of the request.
+	 * @param request The request, made using the text document service
+	 *                of the server.
+	 * @param <T> The type of the request's response result.
+	 * @return A future completing with the result of the request.
+	 */
+	@NotNull
+	<T> CompletableFuture<T> request(
+		@NotNull String                                               method,
+		@NotNull String                                               documentUri,
+		@NotNull Object                                               params,
+		@NotNull RequestPriority                                      priority,
+		@NotNull Function<TextDocumentService, CompletableFuture<T>> request
+	) {
+
+		Function<LanguageServer, CompletableFuture<T>> pipelineRequest =
+			readyServer -> requestPipeline.request(method, documentUri, params, priority,
+				() -> request.apply(readyServer.getTextDocumentService()));
+
+		CompletableFuture<T> parkedFuture = parkedRequests.park(pipelineRequest, null);
+
+		if (parkedFuture != null) { return parkedFuture; }
+
+		return pipelineRequest.apply(server);
+
+	}
+
+	/**
+	 * Waits for diagnostics published for the given version of the given
+	 * document, skipping diagnostics of other versions or documents.
+	 *
+	 * @param documentUri The URI of the document.
+	 * @param version The version of the document.
+	 * @param timeout The maximum time to wait, in milliseconds.
+	 * @return The diagnostics, or null if none were published in time.
+	 * @throws InterruptedException If the waiting thread is interrupted.
+	 */
+	@Nullable
+	PublishDiagnosticsParams awaitDiagnostics(
+		@NotNull String documentUri,
+		         int    version,
+		         long   timeout
+	) throws InterruptedException {
+
+		long   deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		String message  = FakeAdaLanguageServer.DIAGNOSTIC_MESSAGE_PREFIX + version;
+
+		while (true) {
+
+			PublishDiagnosticsParams params =
+				publishedDiagnostics.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+
+			if (params == null) { return null; }
+
+			if (
+				params.getUri().equals(documentUri) &&
+				params.getDiagnostics().stream().anyMatch(diagnostic -> diagnostic.getMessage().equals(message))
+			) { return params; }
+
+		}
+
+	}
+
+	/**
+	 * Closes this connection.
+	 */
+	@Override
+	public void close() {
+
+		requestPipeline.clearWarmDocuments();
+
+		idleCheckExecutor.shutdownNow();
+
+		for (Closeable stream : streams) {
+			try {
+				stream.close();
+			} catch (IOException ignored) {}
+		}
+
+	}
+
+	/**
+	 * The text and version of a document known to the client.
+	 * Guarded by the documents of the connection.
+	 */
+	private final class ClientDocument {
+
+		/**
+		 * The current text of the document.
+		 */
+		@NotNull
+		String text;
+
+		/**
+		 * The current version of the document.
+		 */
+		int version = 1;
+
+		/**
+		 * The modification stamp of the document, increasing with every
+		 * change of the document.
+		 */
+		long stamp = 0;
+
+		/**
+		 * Whether or not the document is open on the server.
+		 */
+		boolean openOnServer = false;
+
+		/**
+		 * The document as seen by the request pipeline, of which only
+		 * the modification stamp is used.
+		 */
+		@NotNull
+		final Document document = (Document)Proxy.newProxyInstance(
+			Document.class.getClassLoader(), new Class<?>[] { Document.class }, (proxy, method, args) -> {
+
+				switch (method.getName()) {
+					case "getModificationStamp": return modificationStamp();
+					case "equals":               return proxy == args[0];
+					case "hashCode":             return System.identityHashCode(proxy);
+					case "toString":             return "ClientDocument(" + modificationStamp() + ")";
+					default: throw new UnsupportedOperationException(method.getName());
+				}
+
+			});
+
+		/**
+		 * Constructs a new ClientDocument given its text.
+		 *
+		 * @param text The text of the document.
+		 */
+		ClientDocument(@NotNull String text) { this.text = text; }
+
+		/**
+		 * Returns the modification stamp of the document.
+		 *
+		 * @return The modification stamp.
+		 */
+		long modificationStamp() {
+
+			synchronized (documents) {
+				return stamp;
+			}
+
+		}
+
+	}
+
+	/**
+	 * Host of the request pipeline of the connection, standing in for
+	 * the plugin's server interface. Content changes are sent as they
+	 * are made, so no changes are ever pending when a request is made.
+	 */
+	private final class ConnectionHost implements DocumentRequestPipeline.Host {
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.DocumentRequestPipeline.Host#findDocument(String)
+		 */
+		@Nullable
+		@Override
+		public Document findDocument(@NotNull String documentUri) {
+
+			synchronized (documents) {
+
+				ClientDocument document = documents.get(documentUri);
+
+				return document == null ? null : document.document;
+
+			}
+
+		}
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.DocumentRequestPipeline.Host#sendPendingChanges(Document)
+		 */
+		@Override
+		public long sendPendingChanges(@NotNull Document document) { return document.getModificationStamp(); }
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.DocumentRequestPipeline.Host#documentVersion(String)
+		 */
+		@Override
+		public int documentVersion(@NotNull String documentUri) {
+			return FakeServerConnection.this.documentVersion(documentUri);
+		}
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.DocumentRequestPipeline.Host#syncsOpenClose()
+		 */
+		@Override
+		public boolean syncsOpenClose() { return true; }
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.DocumentRequestPipeline.Host#openDocument(String)
+		 *
+		 * Sends the current text and version of the document.
+		 */
+		@Override
+		public void openDocument(@NotNull String documentUri) {
+
+			synchronized (documents) {
+
+				ClientDocument document = documents.get(documentUri);
+
+				document.openOnServer = true;
+
+				server.getTextDocumentService().didOpen(new DidOpenTextDocumentParams(new TextDocumentItem(
+					documentUri, LSPUtils.ADA_LSP_LANGUAGE_ID, document.version, document.text)));
+
+			}
+
+		}
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.DocumentRequestPipeline.Host#closeDocument(String)
+		 */
+		@Override
+		public void closeDocument(@NotNull String documentUri) {
+
+			synchronized (documents) {
+
+				documents.get(documentUri).openOnServer = false;
+
+				server.getTextDocumentService().didClose(
+					new DidCloseTextDocumentParams(new TextDocumentIdentifier(documentUri)));
+
+			}
+
+		}
+
+		/**
+		 * @see com.adacore.adaintellij.lsp.DocumentRequestPipeline.Host#sendRequest(String, Supplier)
+		 */
+		@NotNull
+		@Override
+		public <T> CompletableFuture<T> sendRequest(
+			@NotNull String method,
+			@NotNull Supplier<CompletableFuture<T>> requestSupplier
+		) { return requestSupplier.get(); }
+
+	}
+
+	/**
+	 * LSP client recording published diagnostics and ignoring other
+	 * messages.
+	 */
+	private final class RecordingClient implements LanguageClient {
+
+		/**
+		 * @see org.eclipse.lsp4j.services.LanguageClient#publishDiagnostics(PublishDiagnosticsParams)
+		 */
+		@Override
+		public void publishDiagnostics(PublishDiagnosticsParams diagnostics) {
+			publishedDiagnostics.add(diagnostics);
+		}
+
+		/**
+		 * @see org.eclipse.lsp4j.services.LanguageClient#telemetryEvent(Object)
+		 */
+		@Override
+		public void telemetryEvent(Object object) {}
+
+		/**
+		 * @see org.eclipse.lsp4j.services.LanguageClient#showMessage(MessageParams)
+		 */
+		@Override
+		public void showMessage(MessageParams messageParams) {}
+
+		/**
+		 * @see org.eclipse.lsp4j.services.LanguageClient#showMessageRequest(ShowMessageRequestParams)
+		 */
+		@Override
+		public CompletableFuture<MessageActionItem> showMessageRequest(ShowMessageRequestParams requestParams) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		/**
+		 * @see org.eclipse.lsp4j.services.LanguageClient#logMessage(MessageParams)
+		 */
+		@Override
+		public void logMessage(MessageParams message) {}
+
+	}
+
+}
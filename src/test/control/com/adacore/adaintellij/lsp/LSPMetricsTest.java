@@ -0,0 +1,306 @@
+package com.adacore.adaintellij.lsp;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.*;
+
+import org.eclipse.lsp4j.jsonrpc.Launcher;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class checking that LSP metrics aggregate values correctly
+ * and record the messages exchanged with a local fake server.
+ */
+final class LSPMetricsTest {
+
+	/**
+	 * The maximum time, in milliseconds, to wait for a condition.
+	 */
+	private static final long WAIT_TIMEOUT = 10000;
+
+	/**
+	 * Remote interface of the fake server and of its client, whose
+	 * proxies are never used.
+	 */
+	private interface Remote {}
+
+	/**
+	 * The metrics under test.
+	 */
+	private LSPMetrics metrics;
+
+	/**
+	 * The launchers of the client and of the fake server.
+	 */
+	private Launcher<Remote> clientLauncher;
+	private Launcher<Remote> serverLauncher;
+
+	/**
+	 * The streams of the client and of the fake server.
+	 */
+	private List<Closeable> streams;
+
+	@BeforeEach
+	void setUp() throws IOException {
+
+		metrics = new LSPMetrics();
+		streams = new ArrayList<>();
+
+		Pipe clientToServer = Pipe.open();
+		Pipe serverToClient = Pipe.open();
+
+		InputStream  clientInput  = Channels.newInputStream(serverToClient.source());
+		OutputStream clientOutput = Channels.newOutputStream(clientToServer.sink());
+		InputStream  serverInput  = Channels.newInputStream(clientToServer.source());
+		OutputStream serverOutput = Channels.newOutputStream(serverToClient.sink());
+
+		streams.addAll(Arrays.asList(clientInput, clientOutput, serverInput, serverOutput));
+
+		// The fake server implements no methods, so it answers
+		// every request with an error
+
+		serverLauncher = Launcher.createLauncher(new Object(), Remote.class, serverInput, serverOutput);
+
+		clientLauncher = metrics.instrument(
+			new Launcher.Builder<Remote>()
+				.setLocalService(new Object())
+				.setRemoteInterface(Remote.class),
+			clientInput,
+			clientOutput
+		).create();
+
+		serverLauncher.startListening();
+		clientLauncher.startListening();
+
+	}
+
+	@AfterEach
+	void tearDown() {
+
+		for (Closeable stream : streams) {
+			try {
+				stream.close();
+			} catch (IOException ignored) {}
+		}
+
+	}
+
+	/**
+	 * Returns the value at the given path in the given snapshot.
+	 *
+	 * @param snapshot The snapshot.
+	 * @param path The keys leading to the value.
+	 * @return The value, or null if there is no value at that path.
+	 */
+	@SuppressWarnings("unchecked")
+	private static Object valueAt(Map<String, Object> snapshot, String... path) {
+
+		Object value = snapshot;
+
+		for (String key : path) {
+
+			if (value == null) { return null; }
+
+			value = ((Map<String, Object>)value).get(key);
+
+		}
+
+		return value;
+
+	}
+
+	/**
+	 * Waits until the value at the given path in the snapshot of the
+	 * metrics under test equals the given value, failing after a timeout.
+	 *
+	 * @param expected The expected value.
+	 * @param path The keys leading to the value.
+	 * @throws InterruptedException If the waiting thread is interrupted.
+	 */
+	private void awaitValue(Object expected, String... path) throws InterruptedException {
+
+		long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+
+		while (!expected.equals(valueAt(metrics.snapshot(), path))) {
+			assertTrue(System.currentTimeMillis() < deadline,
+				"Value at " + String.join(".", path) + " is not " + expected);
+			Thread.sleep(5);
+		}
+
+	}
+
+	// Testing histograms
+
+	@Test
+	void histogram_estimates_percentiles_from_bucket_bounds() {
+
+		LSPMetrics.Histogram histogram = new LSPMetrics.Histogram(new long[] {10, 100, 1000});
+
+		assertEquals(0, histogram.percentile(0.5));
+
+		for (int i = 0 ; i < 90 ; i++) { histogram.record(5); }
+		for (int i = 0 ; i < 9  ; i++) { histogram.record(50); }
+
+		histogram.record(5000);
+
+		assertEquals(100, histogram.getCount());
+		assertEquals(10, histogram.percentile(0.5));
+		assertEquals(10, histogram.percentile(0.9));
+		assertEquals(100, histogram.percentile(0.99));
+		assertEquals(5000, histogram.percentile(1));
+
+	}
+
+	@Test
+	void histogram_percentiles_do_not_exceed_maximum() {
+
+		LSPMetrics.Histogram histogram = new LSPMetrics.Histogram(new long[] {10, 100, 1000});
+
+		histogram.record(42);
+
+		assertEquals(42, histogram.percentile(0.5));
+
+	}
+
+	// Testing rate counters
+
+	@Test
+	void rate_counter_forgets_events_outside_window() {
+
+		LSPMetrics.RateCounter counter = new LSPMetrics.RateCounter();
+
+		long start = 1_000_000_000L;
+
+		counter.record(start);
+		counter.record(start + 500);
+		counter.record(start + 30_000);
+
+		assertEquals(3, counter.windowCount(start + 30_000));
+		assertEquals(1, counter.windowCount(start + (LSPMetrics.RATE_WINDOW + 1) * 1000L));
+
+		// A slot reused for a later second is cleared first
+
+		counter.record(start + LSPMetrics.RATE_WINDOW * 1000L);
+
+		assertEquals(2, counter.windowCount(start + LSPMetrics.RATE_WINDOW * 1000L));
+
+	}
+
+	// Testing client-side recording
+
+	@Test
+	void completed_timed_out_and_canceled_requests_are_counted() {
+
+		metrics.requestStarted("textDocument/definition");
+		metrics.requestStarted("textDocument/definition");
+		metrics.requestStarted("textDocument/definition");
+
+		metrics.requestTimedOut("textDocument/definition");
+		metrics.requestCompleted("textDocument/definition", TimeUnit.MILLISECONDS.toNanos(30), false);
+		metrics.requestCompleted("textDocument/definition", TimeUnit.MILLISECONDS.toNanos(5), true);
+
+		Map<String, Object> snapshot = metrics.snapshot();
+
+		assertEquals(3L, valueAt(snapshot, "requests", "textDocument/definition", "count"));
+		assertEquals(1, valueAt(snapshot, "requests", "textDocument/definition", "inFlight"));
+		assertEquals(1L, valueAt(snapshot, "requests", "textDocument/definition", "timeouts"));
+		assertEquals(1L, valueAt(snapshot, "requests", "textDocument/definition", "cancellations"));
+		assertEquals(1L, valueAt(snapshot, "requests", "textDocument/definition", "latencyMs", "count"));
+		assertEquals(30L, valueAt(snapshot, "requests", "textDocument/definition", "latencyMs", "max"));
+
+	}
+
+	// Testing wire-level recording
+
+	@Test
+	void requests_are_timed_and_sized_on_the_wire() throws Exception {
+
+		CompletableFuture<?> request = clientLauncher.getRemoteEndpoint()
+			.request("textDocument/references", Collections.singletonMap("uri", "file:///a.adb"));
+
+		try {
+			request.get(WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException ignored) {}
+
+		awaitValue(1L, "requests", "textDocument/references", "serverLatencyMs", "count");
+
+		Map<String, Object> snapshot = metrics.snapshot();
+
+		long requestBytes  = (Long)valueAt(snapshot, "requests", "textDocument/references", "requestBytes", "max");
+		long responseBytes = (Long)valueAt(snapshot, "requests", "textDocument/references", "responseBytes", "max");
+
+		assertTrue(requestBytes > "file:///a.adb".length(), "Request size not recorded");
+		assertTrue(responseBytes > 0, "Response size not recorded");
+		assertEquals(0, valueAt(snapshot, "requests", "textDocument/references", "inFlightOnServer"));
+		assertEquals(requestBytes, valueAt(snapshot, "bytesSent"));
+		assertEquals(responseBytes, valueAt(snapshot, "bytesReceived"));
+
+	}
+
+	@Test
+	void notifications_are_counted_in_both_directions() throws Exception {
+
+		for (int i = 0 ; i < 3 ; i++) {
+			clientLauncher.getRemoteEndpoint().notify("textDocument/didChange", new HashMap<>());
+		}
+
+		serverLauncher.getRemoteEndpoint().notify("textDocument/publishDiagnostics", new HashMap<>());
+
+		awaitValue(1L, "notifications", "textDocument/publishDiagnostics", "count");
+
+		Map<String, Object> snapshot = metrics.snapshot();
+
+		assertEquals(3L, valueAt(snapshot, "notifications", "textDocument/didChange", "count"));
+		assertEquals(3L, valueAt(snapshot, "notifications", "textDocument/didChange", "lastMinute"));
+		assertEquals("sent", valueAt(snapshot, "notifications", "textDocument/didChange", "direction"));
+		assertEquals("received", valueAt(snapshot, "notifications", "textDocument/publishDiagnostics", "direction"));
+
+	}
+
+	@Test
+	void canceled_requests_are_no_longer_in_flight_on_the_wire() throws Exception {
+
+		// Make the fake server unable to answer by closing its output
+
+		streams.get(3).close();
+
+		CompletableFuture<?> request = clientLauncher.getRemoteEndpoint()
+			.request("textDocument/completion", new HashMap<>());
+
+		awaitValue(1, "requests", "textDocument/completion", "inFlightOnServer");
+
+		request.cancel(true);
+
+		awaitValue(0, "requests", "textDocument/completion", "inFlightOnServer");
+
+		assertEquals(1L, valueAt(metrics.snapshot(), "notifications", LSPMetrics.CANCEL_METHOD, "count"));
+
+	}
+
+	// Testing export
+
+	@Test
+	void json_dump_and_report_include_recorded_methods() {
+
+		metrics.registerGauge("queuedRequests", () -> 7);
+		metrics.requestStarted("textDocument/documentSymbol");
+		metrics.requestCompleted("textDocument/documentSymbol", TimeUnit.MILLISECONDS.toNanos(12), false);
+
+		String json = metrics.toJson();
+
+		assertTrue(json.contains("\"textDocument/documentSymbol\""));
+		assertTrue(json.contains("\"queuedRequests\": 7"));
+
+		assertTrue(metrics.toReport().contains("textDocument/documentSymbol"));
+
+		metrics.reset();
+
+		assertEquals(0L, valueAt(metrics.snapshot(), "requests", "textDocument/documentSymbol", "count"));
+
+	}
+
+}
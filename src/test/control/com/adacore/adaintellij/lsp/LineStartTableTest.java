@@ -0,0 +1,86 @@
+package com.adacore.adaintellij.lsp;
+
+import org.junit.jupiter.api.*;
+
+import org.eclipse.lsp4j.Position;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class checking that line start tables convert LSP
+ * positions to the offsets of the indexed text.
+ */
+final class LineStartTableTest {
+
+	/**
+	 * The indexed text.
+	 */
+	private static final String TEXT =
+		"with Ada.Text_IO;\n" +
+		"\n" +
+		"procedure Main is\n" +
+		"begin\n" +
+		"   null;\n" +
+		"end Main;";
+
+	// Testing conversions
+
+	@Test
+	void positions_are_converted_to_offsets() {
+
+		LineStartTable table = new LineStartTable(TEXT);
+
+		assertEquals(6, table.getLineCount());
+
+		assertEquals(0, table.offsetOf(new Position(0, 0)));
+		assertEquals(TEXT.indexOf("Text_IO"), table.offsetOf(new Position(0, 9)));
+		assertEquals(TEXT.indexOf("\n\n") + 1, table.offsetOf(new Position(1, 0)));
+		assertEquals(TEXT.indexOf("Main is"), table.offsetOf(new Position(2, 10)));
+		assertEquals(TEXT.indexOf("null"), table.offsetOf(new Position(4, 3)));
+		assertEquals(TEXT.lastIndexOf("Main"), table.offsetOf(new Position(5, 4)));
+
+	}
+
+	@Test
+	void positions_outside_text_are_clamped() {
+
+		LineStartTable table = new LineStartTable(TEXT);
+
+		// Characters past the end of a line map to the end of that
+		// line, and lines past the last line to the end of the text
+
+		assertEquals(TEXT.indexOf('\n'), table.offsetOf(new Position(0, 100)));
+		assertEquals(TEXT.indexOf("\n\n") + 1, table.offsetOf(new Position(1, 5)));
+		assertEquals(TEXT.length(), table.offsetOf(new Position(5, 100)));
+		assertEquals(TEXT.length(), table.offsetOf(new Position(42, 0)));
+
+	}
+
+	@Test
+	void tables_grow_with_many_lines() {
+
+		StringBuilder text = new StringBuilder();
+
+		for (int i = 0 ; i < 1000 ; i++) {
+			text.append("Line_").append(i).append('\n');
+		}
+
+		LineStartTable table = new LineStartTable(text);
+
+		assertEquals(1001, table.getLineCount());
+		assertEquals(text.indexOf("Line_999"), table.offsetOf(new Position(999, 0)));
+		assertEquals(text.length(), table.offsetOf(new Position(1000, 0)));
+
+	}
+
+	@Test
+	void empty_text_has_one_line() {
+
+		LineStartTable table = new LineStartTable("");
+
+		assertEquals(1, table.getLineCount());
+		assertEquals(0, table.offsetOf(new Position(0, 5)));
+
+	}
+
+}
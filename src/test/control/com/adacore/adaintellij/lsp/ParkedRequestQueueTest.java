@@ -0,0 +1,159 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class checking that parked request queues park requests
+ * while the server is starting, up to their capacity, and complete
+ * them with their fallback results if the server could not be started.
+ */
+final class ParkedRequestQueueTest {
+
+	/**
+	 * The queue under test, whose server is identified by its name.
+	 */
+	private ParkedRequestQueue<String> queue;
+
+	/**
+	 * The number of requests made to the server.
+	 */
+	private int madeRequestCount;
+
+	@BeforeEach
+	void setUp() {
+		queue            = new ParkedRequestQueue<>();
+		madeRequestCount = 0;
+	}
+
+	/**
+	 * Parks a request with the given fallback result, whose result is
+	 * the name of the server to which it is made followed by its fallback
+	 * result.
+	 *
+	 * @param fallback The fallback result of the request.
+	 * @return The future of the parked request, or null if the request
+	 *         was not parked.
+	 */
+	private CompletableFuture<String> park(String fallback) {
+		return queue.park(server -> {
+
+			madeRequestCount++;
+
+			return CompletableFuture.completedFuture(server + ":" + fallback);
+
+		}, fallback);
+	}
+
+	// Testing parking
+
+	@Test
+	void requests_not_parked_unless_parking() {
+
+		assertNull(park("fallback"));
+
+		queue.startParking();
+
+		assertNotNull(park("fallback"));
+
+		queue.drain(null);
+
+		assertNull(park("fallback"));
+
+	}
+
+	@Test
+	void requests_parked_until_drained() {
+
+		queue.startParking();
+
+		CompletableFuture<String> first  = park("first");
+		CompletableFuture<String> second = park("second");
+
+		assertFalse(first.isDone());
+		assertFalse(second.isDone());
+		assertEquals(2, queue.parkedRequestCount());
+
+	}
+
+	@Test
+	void requests_beyond_capacity_complete_with_fallback() throws Exception {
+
+		queue.startParking();
+
+		List<CompletableFuture<String>> parked = new ArrayList<>();
+
+		for (int i = 0 ; i < ParkedRequestQueue.MAX_PARKED_REQUESTS ; i++) {
+			parked.add(park("parked"));
+		}
+
+		CompletableFuture<String> overflow = park("overflow");
+
+		assertEquals("overflow", overflow.get());
+		assertEquals(ParkedRequestQueue.MAX_PARKED_REQUESTS, queue.parkedRequestCount());
+		assertTrue(parked.stream().noneMatch(CompletableFuture::isDone));
+
+	}
+
+	// Testing draining
+
+	@Test
+	void drain_without_server_completes_with_fallback() throws Exception {
+
+		queue.startParking();
+
+		CompletableFuture<String> first  = park("first");
+		CompletableFuture<String> second = park(null);
+
+		queue.drain(null);
+
+		assertEquals("first", first.get());
+		assertNull(second.get());
+		assertEquals(0, madeRequestCount);
+		assertEquals(0, queue.parkedRequestCount());
+
+	}
+
+	@Test
+	void drain_with_server_makes_parked_requests() throws Exception {
+
+		queue.startParking();
+
+		CompletableFuture<String> first  = park("first");
+		CompletableFuture<String> second = park("second");
+
+		queue.drain("server");
+
+		assertEquals("server:first", first.get());
+		assertEquals("server:second", second.get());
+		assertEquals(2, madeRequestCount);
+		assertEquals(0, queue.parkedRequestCount());
+
+	}
+
+	// Testing cancellation
+
+	@Test
+	void request_canceled_while_parked_removed_and_never_made() {
+
+		queue.startParking();
+
+		CompletableFuture<String> canceled = park("canceled");
+		CompletableFuture<String> kept     = park("kept");
+
+		assertTrue(canceled.cancel(true));
+		assertEquals(1, queue.parkedRequestCount());
+
+		queue.drain(null);
+
+		assertTrue(canceled.isCancelled());
+		assertEquals("kept", kept.join());
+		assertEquals(0, madeRequestCount);
+
+	}
+
+}
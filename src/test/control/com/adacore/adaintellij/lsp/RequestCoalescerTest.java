@@ -0,0 +1,276 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class checking that request coalescers share identical
+ * in-flight requests between their callers, and only cancel them once
+ * all of their callers are detached.
+ */
+final class RequestCoalescerTest {
+
+	/**
+	 * The maximum time to wait for a concurrent operation.
+	 */
+	private static final long TIMEOUT_SECONDS = 5;
+
+	/**
+	 * Keys of requests.
+	 */
+	private static final RequestCoalescer.RequestKey KEY       =
+		new RequestCoalescer.RequestKey("textDocument/definition", "Put_Line", 1);
+	private static final RequestCoalescer.RequestKey OTHER_KEY =
+		new RequestCoalescer.RequestKey("textDocument/definition", "Put_Line", 2);
+
+	/**
+	 * The coalescer under test.
+	 */
+	private RequestCoalescer coalescer;
+
+	/**
+	 * The futures of the requests made by the coalescer, in order.
+	 */
+	private List<CompletableFuture<String>> madeRequests;
+
+	/**
+	 * The futures passed to the join handler, in order.
+	 */
+	private List<CompletableFuture<String>> joinedRequests;
+
+	@BeforeEach
+	void setUp() {
+		coalescer      = new RequestCoalescer();
+		madeRequests   = new ArrayList<>();
+		joinedRequests = new ArrayList<>();
+	}
+
+	/**
+	 * Requests the given key from the coalescer, recording the requests
+	 * it makes and joins.
+	 *
+	 * @param key The key of the request.
+	 * @return The future of the caller.
+	 */
+	private CompletableFuture<String> request(RequestCoalescer.RequestKey key) {
+		return coalescer.request(key, () -> {
+
+			CompletableFuture<String> future = new CompletableFuture<>();
+
+			madeRequests.add(future);
+
+			return future;
+
+		}, joinedRequests::add);
+	}
+
+	// Testing joining
+
+	@Test
+	void identical_requests_share_one_request() throws Exception {
+
+		CompletableFuture<String> first  = request(KEY);
+		CompletableFuture<String> second = request(KEY);
+
+		assertEquals(1, madeRequests.size());
+		assertEquals(Collections.singletonList(madeRequests.get(0)), joinedRequests);
+
+		madeRequests.get(0).complete("result");
+
+		assertEquals("result", first.get());
+		assertEquals("result", second.get());
+
+	}
+
+	@Test
+	void requests_with_different_keys_not_shared() {
+
+		request(KEY);
+		request(OTHER_KEY);
+
+		assertEquals(2, madeRequests.size());
+		assertTrue(joinedRequests.isEmpty());
+
+	}
+
+	@Test
+	void completed_request_not_joined() throws Exception {
+
+		request(KEY);
+
+		madeRequests.get(0).complete("first");
+
+		CompletableFuture<String> second = request(KEY);
+
+		assertEquals(2, madeRequests.size());
+		assertTrue(joinedRequests.isEmpty());
+
+		madeRequests.get(1).complete("second");
+
+		assertEquals("second", second.get());
+
+	}
+
+	@Test
+	void request_made_on_completion_not_joined_to_completed_request() throws Exception {
+
+		CompletableFuture<String> first = request(KEY);
+
+		CompletableFuture<CompletableFuture<String>> second = new CompletableFuture<>();
+
+		first.thenRun(() -> second.complete(request(KEY)));
+
+		madeRequests.get(0).complete("first");
+
+		assertEquals(2, madeRequests.size());
+		assertTrue(joinedRequests.isEmpty());
+		assertFalse(second.get().isDone());
+
+	}
+
+	@Test
+	void failure_shared_with_every_caller() {
+
+		CompletableFuture<String> first  = request(KEY);
+		CompletableFuture<String> second = request(KEY);
+
+		madeRequests.get(0).completeExceptionally(new IllegalStateException());
+
+		assertThrows(ExecutionException.class, first::get);
+		assertThrows(ExecutionException.class, second::get);
+
+	}
+
+	// Testing cancellation
+
+	@Test
+	void partial_cancel_keeps_request_for_other_callers() throws Exception {
+
+		CompletableFuture<String> first  = request(KEY);
+		CompletableFuture<String> second = request(KEY);
+
+		first.cancel(true);
+
+		assertFalse(madeRequests.get(0).isCancelled());
+
+		madeRequests.get(0).complete("result");
+
+		assertTrue(first.isCancelled());
+		assertEquals("result", second.get());
+
+	}
+
+	@Test
+	void last_subscriber_cancel_cancels_request() {
+
+		CompletableFuture<String> first  = request(KEY);
+		CompletableFuture<String> second = request(KEY);
+
+		first.cancel(true);
+		second.cancel(true);
+
+		assertTrue(madeRequests.get(0).isCancelled());
+
+		// The canceled request is no longer joined
+
+		request(KEY);
+
+		assertEquals(2, madeRequests.size());
+		assertEquals(1, joinedRequests.size());
+
+	}
+
+	@Test
+	void cancel_after_completion_does_not_affect_other_callers() throws Exception {
+
+		CompletableFuture<String> first  = request(KEY);
+		CompletableFuture<String> second = request(KEY);
+
+		madeRequests.get(0).complete("result");
+
+		first.cancel(true);
+
+		assertFalse(madeRequests.get(0).isCancelled());
+		assertEquals("result", second.get());
+
+	}
+
+	// Testing concurrency
+
+	@Test
+	void request_made_outside_of_coalescer_lock() throws Exception {
+
+		CountDownLatch supplierStarted  = new CountDownLatch(1);
+		CountDownLatch supplierReleased = new CountDownLatch(1);
+
+		CompletableFuture<String> slowRequest = new CompletableFuture<>();
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try {
+
+			// Make a request whose supplier blocks until released
+
+			Future<CompletableFuture<String>> first = executor.submit(() -> coalescer.request(KEY, () -> {
+
+				supplierStarted.countDown();
+
+				try {
+					supplierReleased.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+				} catch (InterruptedException exception) {
+					Thread.currentThread().interrupt();
+				}
+
+				return slowRequest;
+
+			}, future -> fail("Joined own request")));
+
+			assertTrue(supplierStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+			// Requests with other keys and joining callers are not
+			// blocked while the supplier runs, and joining callers
+			// are handed the request once it is made
+
+			request(OTHER_KEY);
+
+			CompletableFuture<String> second = request(KEY);
+
+			assertEquals(1, madeRequests.size());
+			assertTrue(joinedRequests.isEmpty());
+
+			supplierReleased.countDown();
+
+			first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+			assertEquals(Collections.singletonList(slowRequest), joinedRequests);
+
+			slowRequest.complete("result");
+
+			assertEquals("result", second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+		} finally {
+			supplierReleased.countDown();
+			executor.shutdownNow();
+		}
+
+	}
+
+	@Test
+	void failing_supplier_not_joined() {
+
+		assertThrows(IllegalStateException.class, () -> coalescer.<String>request(KEY, () -> {
+			throw new IllegalStateException();
+		}, joinedRequests::add));
+
+		request(KEY);
+
+		assertEquals(1, madeRequests.size());
+		assertTrue(joinedRequests.isEmpty());
+
+	}
+
+}
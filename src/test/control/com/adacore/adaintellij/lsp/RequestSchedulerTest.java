@@ -0,0 +1,305 @@
+package com.adacore.adaintellij.lsp;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.intellij.openapi.editor.Document;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static com.adacore.adaintellij.lsp.RequestPriority.*;
+
+/**
+ * JUnit test class checking that request schedulers dispatch requests
+ * in priority order without exceeding the maximum number of requests
+ * in flight, using request futures completed by the tests.
+ */
+final class RequestSchedulerTest {
+
+	/**
+	 * The scheduler under test.
+	 */
+	private RequestScheduler scheduler;
+
+	/**
+	 * The names of the requests made by the scheduler, in order.
+	 */
+	private List<String> madeRequests;
+
+	/**
+	 * The futures of the made requests, mapped to their names.
+	 */
+	private Map<String, CompletableFuture<String>> requestFutures;
+
+	@BeforeEach
+	void setUp() {
+		scheduler      = new RequestScheduler();
+		madeRequests   = new ArrayList<>();
+		requestFutures = new HashMap<>();
+	}
+
+	/**
+	 * Returns a document whose modification stamp is the value of the
+	 * given counter.
+	 *
+	 * @param stamp The modification stamp of the document.
+	 * @return The document.
+	 */
+	private static Document document(AtomicLong stamp) {
+		return (Document)Proxy.newProxyInstance(
+			Document.class.getClassLoader(), new Class<?>[] { Document.class }, (proxy, method, args) -> {
+
+				switch (method.getName()) {
+					case "getModificationStamp": return stamp.get();
+					case "equals":               return proxy == args[0];
+					case "hashCode":             return System.identityHashCode(proxy);
+					case "toString":             return "Document(" + stamp.get() + ")";
+					default: throw new UnsupportedOperationException(method.getName());
+				}
+
+			});
+	}
+
+	/**
+	 * Schedules a request with the given name and priority on the given
+	 * version of the given document, recording the request once it is
+	 * made.
+	 *
+	 * @param name The name of the request, which is also its result.
+	 * @param priority The priority of the request.
+	 * @param document The document referenced by the request.
+	 * @param documentStamp The modification stamp of the document.
+	 * @return The future of the scheduled request.
+	 */
+	private CompletableFuture<String> schedule(
+		String          name,
+		RequestPriority priority,
+		Document        document,
+		long            documentStamp
+	) {
+		return scheduler.schedule(priority, document, documentStamp, () -> {
+
+			CompletableFuture<String> future = new CompletableFuture<>();
+
+			madeRequests.add(name);
+			requestFutures.put(name, future);
+
+			return future;
+
+		});
+	}
+
+	/**
+	 * Schedules a request with the given name and priority that does
+	 * not reference a document.
+	 *
+	 * @param name The name of the request, which is also its result.
+	 * @param priority The priority of the request.
+	 * @return The future of the scheduled request.
+	 */
+	private CompletableFuture<String> schedule(String name, RequestPriority priority) {
+		return schedule(name, priority, null, -1);
+	}
+
+	/**
+	 * Answers the made request with the given name with its name.
+	 *
+	 * @param name The name of the request.
+	 */
+	private void answer(String name) { requestFutures.get(name).complete(name); }
+
+	/**
+	 * Schedules requests filling every dispatch slot of the scheduler.
+	 *
+	 * @return The names of the scheduled requests.
+	 */
+	private List<String> fillDispatchSlots() {
+
+		List<String> names = new ArrayList<>();
+
+		for (int i = 0 ; i < RequestScheduler.MAX_DISPATCHED_REQUESTS ; i++) {
+
+			String name = "slot-" + i;
+
+			schedule(name, BACKGROUND);
+
+			names.add(name);
+
+		}
+
+		assertEquals(names, madeRequests);
+
+		return names;
+
+	}
+
+	// Testing dispatching
+
+	@Test
+	void requests_dispatched_up_to_maximum_in_flight() {
+
+		List<String> slots = fillDispatchSlots();
+
+		schedule("queued", INTERACTIVE);
+
+		assertEquals(RequestScheduler.MAX_DISPATCHED_REQUESTS, scheduler.dispatchedRequestCount());
+		assertEquals(1, scheduler.queuedRequestCount());
+		assertEquals(slots, madeRequests);
+
+		answer(slots.get(0));
+
+		assertEquals(RequestScheduler.MAX_DISPATCHED_REQUESTS, scheduler.dispatchedRequestCount());
+		assertEquals(0, scheduler.queuedRequestCount());
+		assertEquals("queued", madeRequests.get(madeRequests.size() - 1));
+
+	}
+
+	@Test
+	void queued_requests_dispatched_in_priority_order() {
+
+		List<String> slots = fillDispatchSlots();
+
+		schedule("background",       BACKGROUND);
+		schedule("visible-editor",   VISIBLE_EDITOR);
+		schedule("interactive",      INTERACTIVE);
+		schedule("interactive-late", INTERACTIVE);
+
+		for (String slot : slots) { answer(slot); }
+
+		answer("interactive");
+		answer("interactive-late");
+
+		assertEquals(Arrays.asList("interactive", "interactive-late", "visible-editor", "background"),
+			madeRequests.subList(slots.size(), madeRequests.size()));
+
+	}
+
+	@Test
+	void results_and_failures_propagated() throws Exception {
+
+		CompletableFuture<String> succeeding = schedule("succeeding", INTERACTIVE);
+		CompletableFuture<String> failing    = schedule("failing", INTERACTIVE);
+
+		answer("succeeding");
+		requestFutures.get("failing").completeExceptionally(new IllegalStateException());
+
+		assertEquals("succeeding", succeeding.get());
+		assertThrows(ExecutionException.class, failing::get);
+		assertEquals(0, scheduler.dispatchedRequestCount());
+
+	}
+
+	// Testing promotion
+
+	@Test
+	void promoted_request_dispatched_first() {
+
+		List<String> slots = fillDispatchSlots();
+
+		schedule("visible-editor", VISIBLE_EDITOR);
+
+		CompletableFuture<String> promoted = schedule("promoted", BACKGROUND);
+
+		scheduler.promote(promoted, INTERACTIVE);
+
+		answer(slots.get(0));
+
+		assertEquals("promoted", madeRequests.get(slots.size()));
+
+	}
+
+	@Test
+	void promotion_never_lowers_priority() {
+
+		List<String> slots = fillDispatchSlots();
+
+		CompletableFuture<String> interactive = schedule("interactive", INTERACTIVE);
+
+		schedule("visible-editor", VISIBLE_EDITOR);
+
+		scheduler.promote(interactive, BACKGROUND);
+		scheduler.promote(new CompletableFuture<>(), INTERACTIVE);
+
+		answer(slots.get(0));
+
+		assertEquals("interactive", madeRequests.get(slots.size()));
+
+	}
+
+	// Testing stale requests
+
+	@Test
+	void stale_queued_requests_dropped_with_null() throws Exception {
+
+		AtomicLong stamp         = new AtomicLong(1);
+		AtomicLong otherStamp    = new AtomicLong(1);
+		Document   document      = document(stamp);
+		Document   otherDocument = document(otherStamp);
+
+		CompletableFuture<String> dispatched = schedule("dispatched", INTERACTIVE, document, 1);
+
+		for (int i = 1 ; i < RequestScheduler.MAX_DISPATCHED_REQUESTS ; i++) {
+			schedule("slot-" + i, BACKGROUND);
+		}
+
+		CompletableFuture<String> stale   = schedule("stale", INTERACTIVE, document, 1);
+		CompletableFuture<String> current = schedule("current", INTERACTIVE, document, 2);
+		CompletableFuture<String> other   = schedule("other", INTERACTIVE, otherDocument, 1);
+
+		stamp.set(2);
+
+		scheduler.dropStaleRequests(document);
+
+		assertNull(stale.get());
+		assertFalse(current.isDone());
+		assertFalse(other.isDone());
+		assertFalse(dispatched.isDone());
+		assertEquals(2, scheduler.queuedRequestCount());
+
+		answer("dispatched");
+
+		assertFalse(madeRequests.contains("stale"));
+		assertTrue(madeRequests.contains("current"));
+
+	}
+
+	// Testing cancellation
+
+	@Test
+	void request_canceled_before_dispatch_never_made() {
+
+		List<String> slots = fillDispatchSlots();
+
+		CompletableFuture<String> canceled = schedule("canceled", INTERACTIVE);
+
+		schedule("next", BACKGROUND);
+
+		assertTrue(canceled.cancel(true));
+		assertEquals(1, scheduler.queuedRequestCount());
+
+		answer(slots.get(0));
+
+		assertFalse(madeRequests.contains("canceled"));
+		assertEquals("next", madeRequests.get(slots.size()));
+
+	}
+
+	@Test
+	void request_canceled_after_dispatch_canceled_and_slot_released() {
+
+		CompletableFuture<String> canceled = schedule("canceled", INTERACTIVE);
+
+		schedule("other", INTERACTIVE);
+		schedule("next", BACKGROUND);
+
+		assertTrue(canceled.cancel(true));
+
+		assertTrue(requestFutures.get("canceled").isCancelled());
+		assertEquals(RequestScheduler.MAX_DISPATCHED_REQUESTS, scheduler.dispatchedRequestCount());
+		assertEquals("next", madeRequests.get(madeRequests.size() - 1));
+
+	}
+
+}
@@ -0,0 +1,156 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.*;
+
+import org.junit.jupiter.api.*;
+
+import org.eclipse.lsp4j.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class checking that text edit batches apply LSP text edits
+ * back to front and map offsets to the edited text.
+ */
+final class TextEditBatchTest {
+
+	/**
+	 * The edited text.
+	 */
+	private static final String TEXT =
+		"procedure Main is\n" +
+		"   Count : Integer := 0;\n" +
+		"begin\n" +
+		"   Count := Count + 1;\n" +
+		"end Main;\n";
+
+	/**
+	 * Returns a text edit replacing the given range of a line.
+	 *
+	 * @param line The line of the range.
+	 * @param start The start character of the range.
+	 * @param end The end character of the range.
+	 * @param newText The replacing text.
+	 * @return The text edit.
+	 */
+	private static TextEdit edit(int line, int start, int end, String newText) {
+		return new TextEdit(new Range(new Position(line, start), new Position(line, end)), newText);
+	}
+
+	/**
+	 * Applies the given batch to the edited text.
+	 *
+	 * @param batch The batch to apply.
+	 * @return The edited text.
+	 */
+	private static String apply(TextEditBatch batch) {
+
+		StringBuilder text = new StringBuilder(TEXT);
+
+		batch.applyTo(text);
+
+		return text.toString();
+
+	}
+
+	// Testing application
+
+	@Test
+	void edits_given_in_any_order_are_applied_back_to_front() {
+
+		TextEditBatch batch = new TextEditBatch(TEXT, Arrays.asList(
+			edit(3, 12, 17, "Total"),
+			edit(1, 3, 8, "Total"),
+			edit(3, 3, 8, "Total")
+		));
+
+		List<TextEditBatch.Replacement> replacements = batch.getReplacements();
+
+		for (int i = 1 ; i < replacements.size() ; i++) {
+			assertTrue(replacements.get(i).startOffset < replacements.get(i - 1).startOffset);
+		}
+
+		assertEquals(TEXT.replace("Count", "Total"), apply(batch));
+
+	}
+
+	@Test
+	void insertions_at_same_offset_keep_their_order() {
+
+		TextEditBatch batch = new TextEditBatch(TEXT, Arrays.asList(
+			edit(2, 0, 0, "A"),
+			edit(2, 0, 0, "B"),
+			edit(2, 0, 5, "C")
+		));
+
+		assertTrue(apply(batch).contains("\nABC\n"));
+
+	}
+
+	@Test
+	void insertions_touching_replaced_ranges_are_not_overlapping() {
+
+		// An insertion at the start of a replaced range, given after
+		// the replacement, and one at its end
+
+		TextEditBatch batch = new TextEditBatch(TEXT, Arrays.asList(
+			edit(2, 0, 5, "C"),
+			edit(2, 0, 0, "A"),
+			edit(2, 5, 5, "D")
+		));
+
+		assertTrue(apply(batch).contains("\nACD\n"));
+
+	}
+
+	@Test
+	void overlapping_edits_are_rejected() {
+
+		assertThrows(IllegalArgumentException.class, () -> new TextEditBatch(TEXT, Arrays.asList(
+			edit(1, 3, 8, "Total"),
+			edit(1, 5, 12, "Total")
+		)));
+
+		assertThrows(IllegalArgumentException.class, () -> new TextEditBatch(TEXT, Arrays.asList(
+			edit(1, 3, 8, "Total"),
+			edit(1, 5, 5, "Total")
+		)));
+
+	}
+
+	@Test
+	void edits_spanning_lines_are_applied() {
+
+		TextEditBatch batch = new TextEditBatch(TEXT, Collections.singletonList(
+			new TextEdit(new Range(new Position(2, 5), new Position(3, 0)), " ")));
+
+		assertTrue(apply(batch).contains("begin    Count := Count + 1;"));
+
+	}
+
+	// Testing offset mapping
+
+	@Test
+	void offsets_are_mapped_to_edited_text() {
+
+		TextEditBatch batch = new TextEditBatch(TEXT, Arrays.asList(
+			edit(1, 3, 8, "Total_Count"),
+			edit(3, 3, 8, "Total_Count"),
+			edit(3, 12, 17, "Total_Count")
+		));
+
+		String edited = apply(batch);
+		int    delta  = "Total_Count".length() - "Count".length();
+
+		// Before, at, within and after replaced ranges
+
+		assertEquals(0, batch.mapOffset(0));
+		assertEquals(edited.indexOf("Total_Count"), batch.mapOffset(TEXT.indexOf("Count")));
+		assertEquals(edited.indexOf("Total_Count"), batch.mapOffset(TEXT.indexOf("Count") + 2));
+		assertEquals(edited.indexOf(" : Integer"), batch.mapOffset(TEXT.indexOf(" : Integer")));
+		assertEquals(edited.indexOf("end Main"), batch.mapOffset(TEXT.indexOf("end Main")));
+		assertEquals(TEXT.length() + 3 * delta, batch.mapOffset(TEXT.length()));
+
+	}
+
+}
@@ -0,0 +1,331 @@
+package com.adacore.adaintellij.lsp;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JUnit test class checking that warm document sets keep documents
+ * open on the server while they are used or recently used, closing the
+ * least recently used and long idle ones first, and never closing
+ * documents used by in-flight requests.
+ */
+final class WarmDocumentSetTest {
+
+	/**
+	 * Scheduled executor capturing the idle check task instead of
+	 * running it periodically, so that tests run it when they want.
+	 */
+	private static final class ManualIdleCheckExecutor extends ScheduledThreadPoolExecutor {
+
+		/**
+		 * The last scheduled idle check task, and its future.
+		 */
+		Runnable           idleCheck       = null;
+		ScheduledFuture<?> idleCheckFuture = null;
+
+		/**
+		 * Constructs a new ManualIdleCheckExecutor.
+		 */
+		ManualIdleCheckExecutor() { super(1); }
+
+		/**
+		 * @see java.util.concurrent.ScheduledThreadPoolExecutor#scheduleWithFixedDelay(Runnable, long, long, TimeUnit)
+		 */
+		@Override
+		public ScheduledFuture<?> scheduleWithFixedDelay(
+			Runnable command,
+			long     initialDelay,
+			long     delay,
+			TimeUnit unit
+		) {
+
+			idleCheck       = command;
+			idleCheckFuture = super.scheduleWithFixedDelay(command, 1, 1, TimeUnit.DAYS);
+
+			return idleCheckFuture;
+
+		}
+
+		/**
+		 * Returns whether or not the idle check is currently scheduled.
+		 *
+		 * @return Whether or not the idle check is scheduled.
+		 */
+		boolean idleCheckScheduled() { return idleCheckFuture != null && !idleCheckFuture.isCancelled(); }
+
+		/**
+		 * Runs the idle check once.
+		 */
+		void runIdleCheck() { idleCheck.run(); }
+
+	}
+
+	/**
+	 * The set under test.
+	 */
+	private WarmDocumentSet documents;
+
+	/**
+	 * The executor running the idle check of the set.
+	 */
+	private ManualIdleCheckExecutor executor;
+
+	/**
+	 * The current time of the clock of the set, in milliseconds.
+	 */
+	private long now;
+
+	/**
+	 * The URIs of the opened and closed documents, in order.
+	 */
+	private List<String> opened;
+	private List<String> closed;
+
+	@BeforeEach
+	void setUp() {
+
+		executor  = new ManualIdleCheckExecutor();
+		now       = 1000;
+		opened    = new ArrayList<>();
+		closed    = new ArrayList<>();
+		documents = new WarmDocumentSet(opened::add, closed::add, executor, () -> now);
+
+	}
+
+	@AfterEach
+	void tearDown() { executor.shutdownNow(); }
+
+	/**
+	 * Returns the URI of the document with the given index.
+	 *
+	 * @param index The index of the document.
+	 * @return The URI of the document.
+	 */
+	private static String uri(int index) { return "file:///project/unit_" + index + ".adb"; }
+
+	/**
+	 * Makes a request on the document with the given URI, acquiring and
+	 * releasing it.
+	 *
+	 * @param documentUri The URI of the document.
+	 */
+	private void request(String documentUri) {
+		documents.acquire(documentUri);
+		documents.release(documentUri);
+	}
+
+	// Testing warm documents
+
+	@Test
+	void document_opened_once_and_kept_warm() {
+
+		request(uri(0));
+		request(uri(0));
+
+		assertEquals(Collections.singletonList(uri(0)), opened);
+		assertTrue(closed.isEmpty());
+		assertEquals(1, documents.size());
+
+	}
+
+	@Test
+	void least_recently_used_document_closed_beyond_capacity() {
+
+		for (int i = 0 ; i < WarmDocumentSet.MAX_WARM_DOCUMENTS ; i++) {
+			request(uri(i));
+		}
+
+		// Use the first document again, making the second one the
+		// least recently used
+
+		request(uri(0));
+
+		request(uri(WarmDocumentSet.MAX_WARM_DOCUMENTS));
+
+		assertEquals(Collections.singletonList(uri(1)), closed);
+		assertEquals(WarmDocumentSet.MAX_WARM_DOCUMENTS, documents.size());
+
+	}
+
+	@Test
+	void added_documents_count_towards_capacity() {
+
+		for (int i = 0 ; i <= WarmDocumentSet.MAX_WARM_DOCUMENTS ; i++) {
+			documents.add(uri(i));
+		}
+
+		assertEquals(Collections.singletonList(uri(0)), closed);
+		assertTrue(opened.isEmpty());
+
+	}
+
+	@Test
+	void documents_in_use_not_closed_beyond_capacity() {
+
+		documents.acquire(uri(0));
+
+		for (int i = 1 ; i <= WarmDocumentSet.MAX_WARM_DOCUMENTS ; i++) {
+			request(uri(i));
+		}
+
+		assertEquals(Collections.singletonList(uri(1)), closed);
+
+		documents.release(uri(0));
+
+		assertEquals(Collections.singletonList(uri(1)), closed);
+
+	}
+
+	// Testing idle documents
+
+	@Test
+	void idle_documents_closed_after_timeout() {
+
+		request(uri(0));
+
+		now += WarmDocumentSet.WARM_DOCUMENT_IDLE_TIMEOUT / 2;
+
+		request(uri(1));
+
+		executor.runIdleCheck();
+
+		assertTrue(closed.isEmpty());
+
+		now += WarmDocumentSet.WARM_DOCUMENT_IDLE_TIMEOUT / 2;
+
+		executor.runIdleCheck();
+
+		assertEquals(Collections.singletonList(uri(0)), closed);
+
+		now += WarmDocumentSet.WARM_DOCUMENT_IDLE_TIMEOUT / 2;
+
+		executor.runIdleCheck();
+
+		assertEquals(Arrays.asList(uri(0), uri(1)), closed);
+
+	}
+
+	@Test
+	void documents_in_use_not_closed_when_idle() {
+
+		documents.acquire(uri(0));
+
+		now += WarmDocumentSet.WARM_DOCUMENT_IDLE_TIMEOUT * 2;
+
+		executor.runIdleCheck();
+
+		assertTrue(closed.isEmpty());
+
+		documents.release(uri(0));
+
+		executor.runIdleCheck();
+
+		assertTrue(closed.isEmpty());
+
+		now += WarmDocumentSet.WARM_DOCUMENT_IDLE_TIMEOUT;
+
+		executor.runIdleCheck();
+
+		assertEquals(Collections.singletonList(uri(0)), closed);
+
+	}
+
+	@Test
+	void idle_check_runs_only_while_documents_are_open() {
+
+		assertFalse(executor.idleCheckScheduled());
+
+		request(uri(0));
+
+		assertTrue(executor.idleCheckScheduled());
+
+		now += WarmDocumentSet.WARM_DOCUMENT_IDLE_TIMEOUT;
+
+		executor.runIdleCheck();
+
+		assertFalse(executor.idleCheckScheduled());
+
+		request(uri(1));
+
+		assertTrue(executor.idleCheckScheduled());
+
+		documents.clear();
+
+		assertFalse(executor.idleCheckScheduled());
+
+	}
+
+	// Testing documents opened in editors
+
+	@Test
+	void document_opened_in_editor_removed_without_closing() {
+
+		request(uri(0));
+
+		assertTrue(documents.remove(uri(0)));
+		assertFalse(documents.remove(uri(1)));
+
+		assertTrue(closed.isEmpty());
+		assertEquals(0, documents.size());
+
+	}
+
+	@Test
+	void use_count_kept_when_document_opened_in_editor_while_in_use() {
+
+		documents.acquire(uri(0));
+
+		// The document is opened, then closed, in an editor while
+		// the request is in flight
+
+		assertTrue(documents.remove(uri(0)));
+		assertEquals(0, documents.size());
+
+		documents.add(uri(0));
+		documents.acquire(uri(0));
+
+		assertEquals(1, documents.size());
+
+		// Both requests complete, after which the document is idle,
+		// not used by a negative number of requests
+
+		documents.release(uri(0));
+		documents.release(uri(0));
+
+		now += WarmDocumentSet.WARM_DOCUMENT_IDLE_TIMEOUT;
+
+		executor.runIdleCheck();
+
+		assertEquals(Collections.singletonList(uri(0)), opened);
+		assertEquals(Collections.singletonList(uri(0)), closed);
+
+	}
+
+	@Test
+	void document_in_editor_dropped_without_closing_once_unused() {
+
+		documents.acquire(uri(0));
+
+		documents.remove(uri(0));
+		documents.release(uri(0));
+
+		now += WarmDocumentSet.WARM_DOCUMENT_IDLE_TIMEOUT;
+
+		executor.runIdleCheck();
+
+		assertTrue(closed.isEmpty());
+		assertEquals(0, documents.size());
+
+		// Closing the editor makes the document warm again
+
+		documents.add(uri(0));
+
+		assertEquals(1, documents.size());
+
+	}
+
+}
@@ -0,0 +1,7 @@
+X'Access
+Integer'Image (Count)
+Character'('a')
+Arr'Range
+T'Delta
+X 'a'
+Y'First'Img
@@ -0,0 +1,83 @@
+with Ada.Text_IO; use Ada.Text_IO;
+with Ada.Containers.Vectors;
+
+package body Declarations is
+
+	pragma Suppress (All_Checks);
+
+	type Color is (Red, Green, Blue);
+	for Color use (Red => 1, Green => 2, Blue => 4);
+
+	subtype Small is Integer range 0 .. 10;
+
+	type Point is record
+		X, Y : Integer := 0;
+	end record;
+
+	Origin : constant Point := (X => 0, Y => 0);
+	Count  : Natural;
+
+	package Integer_Vectors is new Ada.Containers.Vectors (Positive, Integer);
+
+	function Image (P : Point) return String renames Point'Image;
+
+	procedure Reset (P : in out Point) is null;
+
+	function Norm (P : Point) return Natural is
+	begin
+		return abs P.X + abs P.Y;
+	end Norm;
+
+	task Worker is
+		entry Start (Value : Integer);
+	end Worker;
+
+	task body Worker is
+		Current : Integer := 0;
+	begin
+		accept Start (Value : Integer) do
+			Current := Value;
+		end Start;
+	end Worker;
+
+	protected Counter is
+		procedure Increment;
+	private
+		Value : Natural := 0;
+	end Counter;
+
+	protected body Counter is
+		procedure Increment is
+		begin
+			Value := Value + 1;
+		end Increment;
+	end Counter;
+
+	procedure Run is
+	begin
+		Count := 0;
+		if Count = 0 then
+			Put_Line ("zero");
+		elsif Count > 10 then
+			null;
+		else
+			Count := Count + 1;
+		end if;
+		case Count is
+			when 0 => null;
+			when others => Count := 0;
+		end case;
+		for I in 1 .. 10 loop
+			Count := Count + I;
+		end loop;
+		declare
+			Local : Integer := Count;
+		begin
+			Count := Local;
+		exception
+			when others => null;
+		end;
+		return;
+	end Run;
+
+end Declarations;